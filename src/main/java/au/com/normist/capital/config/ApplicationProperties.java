@@ -1,7 +1,13 @@
 package au.com.normist.capital.config;
 
+import au.com.normist.capital.domain.enumeration.ReportFileType;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties specific to Capitalapp.
  * <p>
@@ -14,9 +20,21 @@ public class ApplicationProperties {
 
     private final CapitalConfig capital = new CapitalConfig();
 
+    private final ReportConfig report = new ReportConfig();
+
     public static class CapitalConfig {
         public String connectionString;
 
+        private final Pool pool = new Pool();
+
+        private final Query query = new Query();
+
+        private final Cache cache = new Cache();
+
+        private final CatalogIndex catalogIndex = new CatalogIndex();
+
+        private final ChangeCapture changeCapture = new ChangeCapture();
+
         public String getConnectionString() {
             return connectionString;
         }
@@ -25,9 +43,676 @@ public class ApplicationProperties {
             this.connectionString = connectionString;
         }
 
+        public Pool getPool() {
+            return pool;
+        }
+
+        public Query getQuery() {
+            return query;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public CatalogIndex getCatalogIndex() {
+            return catalogIndex;
+        }
+
+        public ChangeCapture getChangeCapture() {
+            return changeCapture;
+        }
+
+        /**
+         * Connection pool settings of the Capital (ADS) database, see the HikariCP documentation for details.
+         */
+        public static class Pool {
+
+            private int maximumPoolSize = 10;
+
+            private int minimumIdle = 2;
+
+            private long connectionTimeout = 30000;
+
+            private long idleTimeout = 600000;
+
+            private long maxLifetime = 1800000;
+
+            private long validationTimeout = 5000;
+
+            private String connectionTestQuery = "SELECT 1 FROM system.iota";
+
+            private long leakDetectionThreshold = 0;
+
+            /**
+             * Passed as is to the ADS JDBC driver, e.g. to enable its statement cache.
+             */
+            private Map<String, String> dataSourceProperties = new HashMap<>();
+
+            public int getMaximumPoolSize() {
+                return maximumPoolSize;
+            }
+
+            public void setMaximumPoolSize(int maximumPoolSize) {
+                this.maximumPoolSize = maximumPoolSize;
+            }
+
+            public int getMinimumIdle() {
+                return minimumIdle;
+            }
+
+            public void setMinimumIdle(int minimumIdle) {
+                this.minimumIdle = minimumIdle;
+            }
+
+            public long getConnectionTimeout() {
+                return connectionTimeout;
+            }
+
+            public void setConnectionTimeout(long connectionTimeout) {
+                this.connectionTimeout = connectionTimeout;
+            }
+
+            public long getIdleTimeout() {
+                return idleTimeout;
+            }
+
+            public void setIdleTimeout(long idleTimeout) {
+                this.idleTimeout = idleTimeout;
+            }
+
+            public long getMaxLifetime() {
+                return maxLifetime;
+            }
+
+            public void setMaxLifetime(long maxLifetime) {
+                this.maxLifetime = maxLifetime;
+            }
+
+            public long getValidationTimeout() {
+                return validationTimeout;
+            }
+
+            public void setValidationTimeout(long validationTimeout) {
+                this.validationTimeout = validationTimeout;
+            }
+
+            public String getConnectionTestQuery() {
+                return connectionTestQuery;
+            }
+
+            public void setConnectionTestQuery(String connectionTestQuery) {
+                this.connectionTestQuery = connectionTestQuery;
+            }
+
+            public long getLeakDetectionThreshold() {
+                return leakDetectionThreshold;
+            }
+
+            public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+                this.leakDetectionThreshold = leakDetectionThreshold;
+            }
+
+            public Map<String, String> getDataSourceProperties() {
+                return dataSourceProperties;
+            }
+
+            public void setDataSourceProperties(Map<String, String> dataSourceProperties) {
+                this.dataSourceProperties = dataSourceProperties;
+            }
+        }
+
+        /**
+         * How the Capital repositories query the ADS database.
+         */
+        public static class Query {
+
+            /**
+             * Maximum number of keys bound to one {@code IN (...)} list by {@code getByIds}.
+             */
+            private int inListSize = 200;
+
+            /**
+             * Number of pooled connections {@code getByIds} spreads its IN-list chunks over, 1 runs them all on one connection.
+             */
+            private int inListParallelism = 1;
+
+            /**
+             * Rows fetched per round trip by the streaming queries, 0 leaves the driver default.
+             */
+            private int fetchSize = 500;
+
+            /**
+             * Statements sent per JDBC batch by {@code saveAll} and {@code deleteAll}.
+             */
+            private int batchSize = 500;
+
+            public int getInListSize() {
+                return inListSize;
+            }
+
+            public void setInListSize(int inListSize) {
+                this.inListSize = inListSize;
+            }
+
+            public int getInListParallelism() {
+                return inListParallelism;
+            }
+
+            public void setInListParallelism(int inListParallelism) {
+                this.inListParallelism = inListParallelism;
+            }
+
+            public int getFetchSize() {
+                return fetchSize;
+            }
+
+            public void setFetchSize(int fetchSize) {
+                this.fetchSize = fetchSize;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+        }
+
+        /**
+         * Read-through caches of the Capital repositories' {@code getById} and {@code getByIds}.
+         */
+        public static class Cache {
+
+            /**
+             * Settings per entity, by simple class name (e.g. {@code Stock}). Entities left out use the defaults.
+             */
+            private Map<String, Region> entities = new HashMap<>();
+
+            public Map<String, Region> getEntities() {
+                return entities;
+            }
+
+            public void setEntities(Map<String, Region> entities) {
+                this.entities = entities;
+            }
+
+            /**
+             * @return the settings of the given entity, the defaults if it has none
+             */
+            public Region getRegion(Class<?> entityClass) {
+                return entities.getOrDefault(entityClass.getSimpleName(), new Region());
+            }
+
+            public static class Region {
+
+                private long maxEntries = 1000;
+
+                private long timeToLiveSeconds = 600;
+
+                /**
+                 * How long an id without a record is remembered.
+                 */
+                private long missingTimeToLiveSeconds = 60;
+
+                public long getMaxEntries() {
+                    return maxEntries;
+                }
+
+                public void setMaxEntries(long maxEntries) {
+                    this.maxEntries = maxEntries;
+                }
+
+                public long getTimeToLiveSeconds() {
+                    return timeToLiveSeconds;
+                }
+
+                public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                    this.timeToLiveSeconds = timeToLiveSeconds;
+                }
+
+                public long getMissingTimeToLiveSeconds() {
+                    return missingTimeToLiveSeconds;
+                }
+
+                public void setMissingTimeToLiveSeconds(long missingTimeToLiveSeconds) {
+                    this.missingTimeToLiveSeconds = missingTimeToLiveSeconds;
+                }
+            }
+        }
+
+        /**
+         * In-memory index of the whole STOCK and STAUX000 catalogue, for the price and availability lookups.
+         */
+        public static class CatalogIndex {
+
+            /**
+             * Loads the catalogue at startup and keeps it refreshed, off by default.
+             */
+            private boolean enabled = false;
+
+            /**
+             * Delay between two full reloads, in milliseconds.
+             */
+            private long refreshInterval = 600000;
+
+            /**
+             * Budget of the estimated heap footprint of the index, in megabytes. A catalogue over it is not indexed.
+             */
+            private long maxSizeMb = 256;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(long refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+
+            public long getMaxSizeMb() {
+                return maxSizeMb;
+            }
+
+            public void setMaxSizeMb(long maxSizeMb) {
+                this.maxSizeMb = maxSizeMb;
+            }
+        }
+
+        /**
+         * Polling of Capital tables for rows changed by other applications.
+         */
+        public static class ChangeCapture {
+
+            private boolean enabled = false;
+
+            /**
+             * Delay between two polls of the tables, in milliseconds.
+             */
+            private long pollInterval = 60000;
+
+            /**
+             * The polled tables, by the simple class name of their entity (e.g. {@code Stock}).
+             */
+            private List<String> tables = new ArrayList<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getPollInterval() {
+                return pollInterval;
+            }
+
+            public void setPollInterval(long pollInterval) {
+                this.pollInterval = pollInterval;
+            }
+
+            public List<String> getTables() {
+                return tables;
+            }
+
+            public void setTables(List<String> tables) {
+                this.tables = tables;
+            }
+        }
     }
 
     public CapitalConfig getCapital() {
         return capital;
     }
+
+    public ReportConfig getReport() {
+        return report;
+    }
+
+    /**
+     * The generation of the ReportGeneration jobs.
+     */
+    public static class ReportConfig {
+
+        /**
+         * Whether this node claims and generates pending jobs.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Threads generating reports, separate from the async task executor. At most this many jobs run at a time.
+         */
+        private int workerThreads = 4;
+
+        /**
+         * Jobs of the same report that run at a time on each node, 0 for no limit but the worker threads. The limit
+         * isn't shared: n nodes run up to n times as many jobs of a report.
+         */
+        private int maxConcurrentPerReport = 2;
+
+        /**
+         * Delay between two looks for pending jobs, in milliseconds.
+         */
+        private long pollInterval = 5000;
+
+        /**
+         * Where the generated files are written.
+         */
+        private String outputDirectory = "reports";
+
+        /**
+         * Least delay between two saves of the progress of a running job, in milliseconds.
+         */
+        private long progressInterval = 2000;
+
+        /**
+         * Whether CSV files are gzipped for the clients that accept it when downloaded whole.
+         */
+        private boolean gzipDownloads = true;
+
+        /**
+         * PDF reports rendered at a time, the other PDF jobs wait for one to end.
+         */
+        private int pdfPermits = 2;
+
+        /**
+         * Partitions of a report's data read at a time on pooled Capital connections, by report name (e.g.
+         * {@code CRM History}). The reports left out are read on one connection.
+         */
+        private Map<String, Integer> parallelism = new HashMap<>();
+
+        /**
+         * Delay between two comments keeping the streams of job events open, in milliseconds.
+         */
+        private long eventsHeartbeat = 15000;
+
+        private final Cache cache = new Cache();
+
+        private final Schedule schedule = new Schedule();
+
+        private final Lease lease = new Lease();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        public int getMaxConcurrentPerReport() {
+            return maxConcurrentPerReport;
+        }
+
+        public void setMaxConcurrentPerReport(int maxConcurrentPerReport) {
+            this.maxConcurrentPerReport = maxConcurrentPerReport;
+        }
+
+        public long getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(long pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public String getOutputDirectory() {
+            return outputDirectory;
+        }
+
+        public void setOutputDirectory(String outputDirectory) {
+            this.outputDirectory = outputDirectory;
+        }
+
+        public long getProgressInterval() {
+            return progressInterval;
+        }
+
+        public void setProgressInterval(long progressInterval) {
+            this.progressInterval = progressInterval;
+        }
+
+        public boolean isGzipDownloads() {
+            return gzipDownloads;
+        }
+
+        public void setGzipDownloads(boolean gzipDownloads) {
+            this.gzipDownloads = gzipDownloads;
+        }
+
+        public int getPdfPermits() {
+            return pdfPermits;
+        }
+
+        public void setPdfPermits(int pdfPermits) {
+            this.pdfPermits = pdfPermits;
+        }
+
+        public Map<String, Integer> getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(Map<String, Integer> parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public long getEventsHeartbeat() {
+            return eventsHeartbeat;
+        }
+
+        public void setEventsHeartbeat(long eventsHeartbeat) {
+            this.eventsHeartbeat = eventsHeartbeat;
+        }
+
+        /**
+         * @return the partitions of the report's data read at a time, at least 1
+         */
+        public int getParallelism(String reportName) {
+            Integer reportParallelism = parallelism.get(reportName);
+            return reportParallelism == null ? 1 : Math.max(1, reportParallelism);
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public Schedule getSchedule() {
+            return schedule;
+        }
+
+        public Lease getLease() {
+            return lease;
+        }
+
+        /**
+         * Reuse of the files of earlier jobs of the same report, parameters and data.
+         */
+        public static class Cache {
+
+            private boolean enabled = true;
+
+            /**
+             * Budget of the cached files on disk, in megabytes. The least recently used files over it are deleted.
+             */
+            private long maxSizeMb = 1024;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getMaxSizeMb() {
+                return maxSizeMb;
+            }
+
+            public void setMaxSizeMb(long maxSizeMb) {
+                this.maxSizeMb = maxSizeMb;
+            }
+        }
+
+        /**
+         * Runs of the reports of a cron schedule.
+         */
+        public static class Schedule {
+
+            /**
+             * Whether this node starts the runs that are due. Several nodes may, each run is started once.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Delay between two looks for runs that are due, in milliseconds.
+             */
+            private long pollInterval = 30000;
+
+            /**
+             * Longest random delay added to the time of a run, in milliseconds, so the reports of the same time don't
+             * all start together.
+             */
+            private long maxJitter = 300000;
+
+            /**
+             * Scheduled jobs pending or generating at a time, 0 for no limit. The runs due meanwhile wait for one to
+             * end.
+             */
+            private int maxConcurrent = 2;
+
+            /**
+             * The file type of the scheduled jobs.
+             */
+            private ReportFileType fileType = ReportFileType.CSV;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getPollInterval() {
+                return pollInterval;
+            }
+
+            public void setPollInterval(long pollInterval) {
+                this.pollInterval = pollInterval;
+            }
+
+            public long getMaxJitter() {
+                return maxJitter;
+            }
+
+            public void setMaxJitter(long maxJitter) {
+                this.maxJitter = maxJitter;
+            }
+
+            public int getMaxConcurrent() {
+                return maxConcurrent;
+            }
+
+            public void setMaxConcurrent(int maxConcurrent) {
+                this.maxConcurrent = maxConcurrent;
+            }
+
+            public ReportFileType getFileType() {
+                return fileType;
+            }
+
+            public void setFileType(ReportFileType fileType) {
+                this.fileType = fileType;
+            }
+        }
+
+        /**
+         * Recovery of the jobs of a node lost while it generated them.
+         */
+        public static class Lease {
+
+            /**
+             * How long a node holds a running job without renewing its lease, in milliseconds. A job whose lease
+             * expired is given back to be run again.
+             */
+            private long duration = 60000;
+
+            /**
+             * Delay between two renewals of the leases of the running jobs, in milliseconds, well below the duration.
+             */
+            private long renewInterval = 15000;
+
+            /**
+             * Delay between two looks for jobs of expired leases, in milliseconds.
+             */
+            private long reapInterval = 30000;
+
+            /**
+             * Runs of a job, the job ends in ERROR when the lease of its last run expires.
+             */
+            private int maxAttempts = 3;
+
+            /**
+             * Delay before a job given back runs again, in milliseconds, doubled with every run.
+             */
+            private long retryBackoff = 60000;
+
+            public long getDuration() {
+                return duration;
+            }
+
+            public void setDuration(long duration) {
+                this.duration = duration;
+            }
+
+            public long getRenewInterval() {
+                return renewInterval;
+            }
+
+            public void setRenewInterval(long renewInterval) {
+                this.renewInterval = renewInterval;
+            }
+
+            public long getReapInterval() {
+                return reapInterval;
+            }
+
+            public void setReapInterval(long reapInterval) {
+                this.reapInterval = reapInterval;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public long getRetryBackoff() {
+                return retryBackoff;
+            }
+
+            public void setRetryBackoff(long retryBackoff) {
+                this.retryBackoff = retryBackoff;
+            }
+        }
+    }
 }
@@ -1,8 +1,14 @@
 package au.com.normist.capital.config;
 
 import java.time.Duration;
+import java.util.function.Supplier;
+
+import au.com.normist.capital.domain.cap.catalog.Staux000;
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import au.com.normist.capital.repository.cap.EntityCache;
 
 import org.ehcache.config.builders.*;
+import org.ehcache.expiry.ExpiryPolicy;
 import org.ehcache.jsr107.Eh107Configuration;
 
 import io.github.jhipster.config.jcache.BeanClassLoaderAwareJCacheRegionFactory;
@@ -12,13 +18,18 @@ import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.*;
 
+import javax.cache.CacheManager;
+
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties.CapitalConfig.Cache capitalCache;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.capitalCache = applicationProperties.getCapital().getCache();
         BeanClassLoaderAwareJCacheRegionFactory.setBeanClassLoader(this.getClass().getClassLoader());
         JHipsterProperties.Cache.Ehcache ehcache =
             jHipsterProperties.getCache().getEhcache();
@@ -40,7 +51,59 @@ public class CacheConfiguration {
             cm.createCache(au.com.normist.capital.domain.User.class.getName() + ".authorities", jcacheConfiguration);
             cm.createCache(au.com.normist.capital.domain.Report.class.getName(), jcacheConfiguration);
             cm.createCache(au.com.normist.capital.domain.ReportGeneration.class.getName(), jcacheConfiguration);
+            createCapitalCache(cm, Stock.class);
+            createCapitalCache(cm, Staux000.class);
             // jhipster-needle-ehcache-add-entry
         };
     }
+
+    /**
+     * The read-through cache of a Capital repository, see {@link EntityCache}. The records are copied in and out by
+     * serialization, so callers can't change the cached ones; ids without a record expire sooner.
+     */
+    private void createCapitalCache(CacheManager cm, Class<?> entityClass) {
+        ApplicationProperties.CapitalConfig.Cache.Region region = capitalCache.getRegion(entityClass);
+        String name = EntityCache.cacheName(entityClass);
+
+        cm.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(region.getMaxEntries()))
+                .withExpiry(new CapitalExpiryPolicy(Duration.ofSeconds(region.getTimeToLiveSeconds()),
+                    Duration.ofSeconds(region.getMissingTimeToLiveSeconds())))
+                .withValueSerializingCopier()
+                .build()));
+        // hit and miss counts for the jcache.statistics metrics
+        cm.enableStatistics(name, true);
+    }
+
+    /**
+     * Time to live from creation or update, shorter for {@link EntityCache.Missing} entries.
+     */
+    private static final class CapitalExpiryPolicy implements ExpiryPolicy<Object, Object> {
+
+        private final Duration timeToLive;
+
+        private final Duration missingTimeToLive;
+
+        CapitalExpiryPolicy(Duration timeToLive, Duration missingTimeToLive) {
+            this.timeToLive = timeToLive;
+            this.missingTimeToLive = missingTimeToLive;
+        }
+
+        @Override
+        public Duration getExpiryForCreation(Object key, Object value) {
+            return value instanceof EntityCache.Missing ? missingTimeToLive : timeToLive;
+        }
+
+        @Override
+        public Duration getExpiryForAccess(Object key, Supplier<?> value) {
+            // unchanged
+            return null;
+        }
+
+        @Override
+        public Duration getExpiryForUpdate(Object key, Supplier<?> oldValue, Object newValue) {
+            return getExpiryForCreation(key, newValue);
+        }
+    }
 }
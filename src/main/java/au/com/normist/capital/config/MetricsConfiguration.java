@@ -1,7 +1,11 @@
 package au.com.normist.capital.config;
 
+import au.com.normist.capital.repository.cap.AdsConnDriver;
+import au.com.normist.capital.repository.cap.dbutilsjpa.SqlWriter;
+import au.com.normist.capital.service.StockCatalogIndex;
 import io.github.jhipster.config.JHipsterProperties;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.JvmAttributeGaugeSet;
 import com.codahale.metrics.MetricRegistry;
@@ -36,6 +40,10 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
 
     private static final String PROP_METRIC_REG_JCACHE_STATISTICS = "jcache.statistics";
 
+    private static final String PROP_METRIC_REG_SQL_WRITER = "capital.sql-writer";
+
+    private static final String PROP_METRIC_REG_CATALOG_INDEX = "capital.catalog-index";
+
     private final Logger log = LoggerFactory.getLogger(MetricsConfiguration.class);
 
     private MetricRegistry metricRegistry = new MetricRegistry();
@@ -46,6 +54,10 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
 
     private HikariDataSource hikariDataSource;
 
+    private AdsConnDriver adsConnDriver;
+
+    private StockCatalogIndex stockCatalogIndex;
+
     public MetricsConfiguration(JHipsterProperties jHipsterProperties) {
         this.jHipsterProperties = jHipsterProperties;
     }
@@ -55,6 +67,16 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
         this.hikariDataSource = hikariDataSource;
     }
 
+    @Autowired(required = false)
+    public void setAdsConnDriver(AdsConnDriver adsConnDriver) {
+        this.adsConnDriver = adsConnDriver;
+    }
+
+    @Autowired(required = false)
+    public void setStockCatalogIndex(StockCatalogIndex stockCatalogIndex) {
+        this.stockCatalogIndex = stockCatalogIndex;
+    }
+
     @Override
     @Bean
     public MetricRegistry getMetricRegistry() {
@@ -83,6 +105,20 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
             hikariDataSource.setMetricsTrackerFactory(null);
             hikariDataSource.setMetricRegistry(metricRegistry);
         }
+        if (adsConnDriver != null) {
+            log.debug("Monitoring the Capital connection pool");
+            adsConnDriver.getDataSource().setMetricRegistry(metricRegistry);
+            adsConnDriver.getDataSource().setHealthCheckRegistry(healthCheckRegistry);
+
+            SqlWriter sqlWriter = adsConnDriver.getSqlWriter();
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_SQL_WRITER, "hits"), (Gauge<Long>) () -> sqlWriter.stats().hitCount());
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_SQL_WRITER, "misses"), (Gauge<Long>) () -> sqlWriter.stats().missCount());
+        }
+        if (stockCatalogIndex != null) {
+            log.debug("Monitoring the stock catalogue index");
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_CATALOG_INDEX, "entries"), (Gauge<Integer>) stockCatalogIndex::size);
+            metricRegistry.register(MetricRegistry.name(PROP_METRIC_REG_CATALOG_INDEX, "estimated-bytes"), (Gauge<Long>) stockCatalogIndex::getEstimatedBytes);
+        }
         if (jHipsterProperties.getMetrics().getJmx().isEnabled()) {
             log.debug("Initializing Metrics JMX reporting");
             JmxReporter jmxReporter = JmxReporter.forRegistry(metricRegistry).build();
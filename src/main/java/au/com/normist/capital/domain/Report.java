@@ -6,6 +6,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 import javax.persistence.*;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Objects;
 
 /**
@@ -31,6 +32,19 @@ public class Report implements Serializable {
     @Column(name = "display_order")
     private Integer displayOrder;
 
+    /**
+     * When the report runs by itself, a cron expression of seconds, minutes, hours, day of month, month and day of
+     * week, e.g. {@code 0 0 2 * * *} for every night at 2, in the time zone of the server. Never when null.
+     */
+    @Column(name = "schedule", length = 100)
+    private String schedule;
+
+    /**
+     * When the schedule runs the report next, set by the scheduler.
+     */
+    @Column(name = "next_run_on")
+    private Instant nextRunOn;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -78,6 +92,32 @@ public class Report implements Serializable {
     public void setDisplayOrder(Integer displayOrder) {
         this.displayOrder = displayOrder;
     }
+
+    public String getSchedule() {
+        return schedule;
+    }
+
+    public Report schedule(String schedule) {
+        this.schedule = schedule;
+        return this;
+    }
+
+    public void setSchedule(String schedule) {
+        this.schedule = schedule;
+    }
+
+    public Instant getNextRunOn() {
+        return nextRunOn;
+    }
+
+    public Report nextRunOn(Instant nextRunOn) {
+        this.nextRunOn = nextRunOn;
+        return this;
+    }
+
+    public void setNextRunOn(Instant nextRunOn) {
+        this.nextRunOn = nextRunOn;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -107,6 +147,8 @@ public class Report implements Serializable {
             ", name='" + getName() + "'" +
             ", description='" + getDescription() + "'" +
             ", displayOrder=" + getDisplayOrder() +
+            ", schedule='" + getSchedule() + "'" +
+            ", nextRunOn='" + getNextRunOn() + "'" +
             "}";
     }
 }
@@ -60,6 +60,54 @@ public class ReportGeneration implements Serializable {
     @Column(name = "jhi_comment")
     private String comment;
 
+    /**
+     * Rows written so far, updated while the generation runs.
+     */
+    @Column(name = "progress")
+    private Long progress;
+
+    /**
+     * What the report is run for, in the form its data source reads, e.g. JSON.
+     */
+    @Column(name = "parameters", length = 2000)
+    private String parameters;
+
+    /**
+     * The node running the generation, while it runs.
+     */
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    /**
+     * When the generation is given to another node unless the one running it renews its lease.
+     */
+    @Column(name = "lease_expires_on")
+    private Instant leaseExpiresOn;
+
+    /**
+     * Runs of the generation started so far.
+     */
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    /**
+     * A generation given back after the loss of its node waits until then to run again.
+     */
+    @Column(name = "retry_on")
+    private Instant retryOn;
+
+    /**
+     * Rows of the partial file known to be complete, from which a generation given back goes on.
+     */
+    @Column(name = "checkpoint_rows")
+    private Long checkpointRows;
+
+    /**
+     * Length of the partial file when it held the checkpoint rows.
+     */
+    @Column(name = "checkpoint_offset")
+    private Long checkpointOffset;
+
     @ManyToOne
     @JsonIgnoreProperties("")
     private Report report;
@@ -203,6 +251,110 @@ public class ReportGeneration implements Serializable {
         this.comment = comment;
     }
 
+    public Long getProgress() {
+        return progress;
+    }
+
+    public ReportGeneration progress(Long progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    public void setProgress(Long progress) {
+        this.progress = progress;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public ReportGeneration parameters(String parameters) {
+        this.parameters = parameters;
+        return this;
+    }
+
+    public void setParameters(String parameters) {
+        this.parameters = parameters;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public ReportGeneration leaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+        return this;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public Instant getLeaseExpiresOn() {
+        return leaseExpiresOn;
+    }
+
+    public ReportGeneration leaseExpiresOn(Instant leaseExpiresOn) {
+        this.leaseExpiresOn = leaseExpiresOn;
+        return this;
+    }
+
+    public void setLeaseExpiresOn(Instant leaseExpiresOn) {
+        this.leaseExpiresOn = leaseExpiresOn;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public ReportGeneration attempts(Integer attempts) {
+        this.attempts = attempts;
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getRetryOn() {
+        return retryOn;
+    }
+
+    public ReportGeneration retryOn(Instant retryOn) {
+        this.retryOn = retryOn;
+        return this;
+    }
+
+    public void setRetryOn(Instant retryOn) {
+        this.retryOn = retryOn;
+    }
+
+    public Long getCheckpointRows() {
+        return checkpointRows;
+    }
+
+    public ReportGeneration checkpointRows(Long checkpointRows) {
+        this.checkpointRows = checkpointRows;
+        return this;
+    }
+
+    public void setCheckpointRows(Long checkpointRows) {
+        this.checkpointRows = checkpointRows;
+    }
+
+    public Long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+
+    public ReportGeneration checkpointOffset(Long checkpointOffset) {
+        this.checkpointOffset = checkpointOffset;
+        return this;
+    }
+
+    public void setCheckpointOffset(Long checkpointOffset) {
+        this.checkpointOffset = checkpointOffset;
+    }
+
     public Report getReport() {
         return report;
     }
@@ -251,6 +403,14 @@ public class ReportGeneration implements Serializable {
             ", startedOn='" + getStartedOn() + "'" +
             ", completionDate='" + getCompletionDate() + "'" +
             ", comment='" + getComment() + "'" +
+            ", progress=" + getProgress() +
+            ", parameters='" + getParameters() + "'" +
+            ", leaseOwner='" + getLeaseOwner() + "'" +
+            ", leaseExpiresOn='" + getLeaseExpiresOn() + "'" +
+            ", attempts=" + getAttempts() +
+            ", retryOn='" + getRetryOn() + "'" +
+            ", checkpointRows=" + getCheckpointRows() +
+            ", checkpointOffset=" + getCheckpointOffset() +
             "}";
     }
 }
@@ -1,11 +1,13 @@
 package au.com.normist.capital.domain.cap;
 
+import javax.persistence.Column;
 import java.io.Serializable;
 
 public class CapBaseModel implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    @Column(name = "ROWID")
     public String rowId;
 
     public String getRowId() {
@@ -1,6 +1,7 @@
 package au.com.normist.capital.domain.cap.catalog;
 
 import au.com.normist.capital.core.annotation.cap.PersistEntity;
+import au.com.normist.capital.domain.cap.CapBaseModel;
 import org.joda.time.LocalDate;
 
 import javax.persistence.Column;
@@ -10,7 +11,7 @@ import java.math.BigDecimal;
 
 @PersistEntity
 @Table(name = "STAUX000")
-public class Staux000 {
+public class Staux000 extends CapBaseModel {
 
 
     /// <summary>
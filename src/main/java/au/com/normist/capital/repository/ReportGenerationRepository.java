@@ -1,8 +1,18 @@
 package au.com.normist.capital.repository;
 
+import au.com.normist.capital.domain.Report;
 import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -12,4 +22,155 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ReportGenerationRepository extends JpaRepository<ReportGeneration, Long>, JpaSpecificationExecutor<ReportGeneration> {
 
+    /**
+     * @return the unlocked generations of the given status, oldest first, but those waiting to be retried later
+     */
+    @Query("select g from ReportGeneration g where g.status = :status and (g.isLocked is null or g.isLocked = false)"
+        + " and (g.retryOn is null or g.retryOn <= :now) order by g.creationDate asc, g.id asc")
+    List<ReportGeneration> findUnlocked(@Param("status") ReportGenerationStatus status, @Param("now") Instant now,
+                                        Pageable pageable);
+
+    /**
+     * Claims a generation for one worker: locks it, moves it from one status to the other, leases it to the node of
+     * the worker and counts the attempt, unless another worker, possibly of another node, claimed it first. Its
+     * progress starts over from its checkpoint, if any.
+     *
+     * @return 1 if the generation was claimed, 0 otherwise
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ReportGeneration g set g.isLocked = true, g.status = :to, g.startedOn = :startedOn,"
+        + " g.progress = coalesce(g.checkpointRows, 0), g.leaseOwner = :owner, g.leaseExpiresOn = :leaseExpiresOn,"
+        + " g.attempts = coalesce(g.attempts, 0) + 1"
+        + " where g.id = :id and g.status = :from and (g.isLocked is null or g.isLocked = false)")
+    int claim(@Param("id") Long id, @Param("from") ReportGenerationStatus from, @Param("to") ReportGenerationStatus to,
+              @Param("startedOn") Instant startedOn, @Param("owner") String owner,
+              @Param("leaseExpiresOn") Instant leaseExpiresOn);
+
+    /**
+     * Updates what the client defines of a generation, leaving its status, lock, lease and result to the engine, so
+     * an update made while the engine claims or ends the generation doesn't write back what the engine changed.
+     *
+     * @return 1 if the generation was updated, 0 if it doesn't exist
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ReportGeneration g set g.description = :description, g.fileType = :fileType,"
+        + " g.parameters = :parameters, g.report = :report where g.id = :id")
+    int updateDefinition(@Param("id") Long id, @Param("description") String description,
+                         @Param("fileType") ReportFileType fileType, @Param("parameters") String parameters,
+                         @Param("report") Report report);
+
+    /**
+     * Records the rows a running generation has written so far, without loading it.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReportGeneration g set g.progress = :progress where g.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("progress") Long progress);
+
+    /**
+     * @return whether the report has a generation of the creator in one of the statuses
+     */
+    boolean existsByReportIdAndCreatorAndStatusIn(Long reportId, String creator, Collection<ReportGenerationStatus> statuses);
+
+    /**
+     * @return the generations of the given status whose file is the given one
+     */
+    List<ReportGeneration> findByStatusAndFullPath(ReportGenerationStatus status, String fullPath);
+
+    /**
+     * Ends in error a generated generation whose file was deleted, unless it changed meanwhile.
+     *
+     * @return 1 if the generation was ended, 0 otherwise
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ReportGeneration g set g.status = :to, g.fullPath = null, g.comment = :comment"
+        + " where g.id = :id and g.status = :from and g.fullPath = :fullPath")
+    int expire(@Param("id") Long id, @Param("fullPath") String fullPath, @Param("from") ReportGenerationStatus from,
+               @Param("to") ReportGenerationStatus to, @Param("comment") String comment);
+
+    /**
+     * @return the generations of the creator in one of the statuses
+     */
+    long countByCreatorAndStatusIn(String creator, Collection<ReportGenerationStatus> statuses);
+
+    /**
+     * Extends the lease of a running generation, unless it was given to another node.
+     *
+     * @return 1 if the lease was extended, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReportGeneration g set g.leaseExpiresOn = :leaseExpiresOn where g.id = :id and g.leaseOwner = :owner")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseExpiresOn") Instant leaseExpiresOn);
+
+    /**
+     * Ends a running generation in the given status, with its file or the reason it failed, unlocks it and releases
+     * its lease, unless it was given to another node.
+     *
+     * @return 1 if the generation was ended, 0 if it was deleted or given to another node
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ReportGeneration g set g.status = :status, g.completionDate = :completionDate, g.progress = :progress,"
+        + " g.isLocked = false, g.leaseOwner = null, g.leaseExpiresOn = null, g.checkpointRows = null,"
+        + " g.checkpointOffset = null, g.fullPath = :fullPath, g.comment = :comment"
+        + " where g.id = :id and g.leaseOwner = :owner")
+    int complete(@Param("id") Long id, @Param("owner") String owner, @Param("status") ReportGenerationStatus status,
+                 @Param("completionDate") Instant completionDate, @Param("progress") Long progress,
+                 @Param("fullPath") String fullPath, @Param("comment") String comment);
+
+    /**
+     * Records the rows of the partial file a running generation goes on from if it is given to another node, unless
+     * it was given to another node already.
+     *
+     * @return 1 if the checkpoint was recorded, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReportGeneration g set g.progress = :rows, g.checkpointRows = :rows, g.checkpointOffset = :offset"
+        + " where g.id = :id and g.leaseOwner = :owner")
+    int checkpoint(@Param("id") Long id, @Param("owner") String owner, @Param("rows") Long rows, @Param("offset") Long offset);
+
+    /**
+     * @return the generations of the given status whose lease expired, or which were started before the given time
+     * without a lease
+     */
+    @Query("select g from ReportGeneration g where g.status = :status and (g.leaseExpiresOn < :now"
+        + " or (g.leaseExpiresOn is null and (g.startedOn is null or g.startedOn < :startedBefore)))")
+    List<ReportGeneration> findLeaseExpired(@Param("status") ReportGenerationStatus status, @Param("now") Instant now,
+                                            @Param("startedBefore") Instant startedBefore);
+
+    /**
+     * Gives back a generation whose lease expired: unlocks it and moves it from one status to the other, to be claimed
+     * again from the given time, unless its lease changed meanwhile.
+     *
+     * @param leaseExpiresOn the expired lease
+     * @return 1 if the generation was given back, 0 otherwise
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ReportGeneration g set g.isLocked = false, g.status = :to, g.leaseOwner = null,"
+        + " g.leaseExpiresOn = null, g.retryOn = :retryOn"
+        + " where g.id = :id and g.status = :from and (g.leaseExpiresOn = :leaseExpiresOn or g.leaseExpiresOn is null)")
+    int requeue(@Param("id") Long id, @Param("leaseExpiresOn") Instant leaseExpiresOn,
+                @Param("from") ReportGenerationStatus from, @Param("to") ReportGenerationStatus to,
+                @Param("retryOn") Instant retryOn);
+
+    /**
+     * Ends a generation whose lease expired after its last attempt, unless its lease changed meanwhile.
+     *
+     * @param leaseExpiresOn the expired lease
+     * @return 1 if the generation was ended, 0 otherwise
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ReportGeneration g set g.isLocked = false, g.status = :to, g.leaseOwner = null,"
+        + " g.leaseExpiresOn = null, g.completionDate = :completionDate, g.comment = :comment"
+        + " where g.id = :id and g.status = :from and (g.leaseExpiresOn = :leaseExpiresOn or g.leaseExpiresOn is null)")
+    int abandon(@Param("id") Long id, @Param("leaseExpiresOn") Instant leaseExpiresOn,
+                @Param("from") ReportGenerationStatus from, @Param("to") ReportGenerationStatus to,
+                @Param("completionDate") Instant completionDate, @Param("comment") String comment);
 }
@@ -2,7 +2,12 @@ package au.com.normist.capital.repository;
 
 import au.com.normist.capital.domain.Report;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 
 
 /**
@@ -12,4 +17,29 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Long>, JpaSpecificationExecutor<Report> {
 
+    /**
+     * @return the reports running by themselves
+     */
+    List<Report> findAllByScheduleIsNotNull();
+
+    /**
+     * Sets the first run of a schedule, unless another node set it first.
+     *
+     * @return 1 if the run was set, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update Report r set r.nextRunOn = :next where r.id = :id and r.nextRunOn is null")
+    int initNextRun(@Param("id") Long id, @Param("next") Instant next);
+
+    /**
+     * Moves a schedule from the run that is due to the next one, unless another node, or an edit of the schedule,
+     * moved it first. Only the node moving it starts the run that was due.
+     *
+     * @return 1 if the run was moved, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update Report r set r.nextRunOn = :next where r.id = :id and r.nextRunOn = :current")
+    int advanceNextRun(@Param("id") Long id, @Param("current") Instant current, @Param("next") Instant next);
 }
@@ -1,37 +1,62 @@
 package au.com.normist.capital.repository.cap;
 
 import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.repository.cap.dbutilsjpa.SqlWriter;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.AdsDialect;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.io.Serializable;
 import java.sql.Connection;
-
-import static java.sql.DriverManager.getConnection;
-
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hands out pooled connections to the Capital (ADS) database.
+ *
+ * The pool is created lazily on the first request for a connection, so the application still starts
+ * when the Capital server is unreachable or no connection string is configured.
+ */
 @Component("AdsConnDriver")
 @DependsOn("LambdaToAdsSql")
 public class AdsConnDriver implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final Logger log = LoggerFactory.getLogger(AdsConnDriver.class);
 
+    public static final String ADS_DRIVER_CLASS_NAME = "com.extendedsystems.jdbc.advantage.ADSDriver";
+
+    public static final String POOL_NAME = "capital-ads";
+
     private final ApplicationProperties applicationProperties;
 
+    private final transient HikariDataSource dataSource;
+
     private String connectionString;
 
+    private transient ExecutorService queryExecutor;
+
+    private transient ExecutorService partitionExecutor;
+
+    private final transient SqlWriter sqlWriter = new SqlWriter(new AdsDialect());
 
     public AdsConnDriver(ApplicationProperties applicationProperties) {
         this.applicationProperties = applicationProperties;
         connectionString = this.applicationProperties.getCapital().getConnectionString();
+        dataSource = new HikariDataSource();
+        configure(dataSource, this.applicationProperties.getCapital().getPool());
     }
 
     public Connection getDbConnection() {
         Connection connection = null;
         try {
-            Class.forName("com.extendedsystems.jdbc.advantage.ADSDriver");
-            connection = getConnection(connectionString);
+            connection = dataSource.getConnection();
         } catch (Exception e) {
             log.error("unable to get connection to Capital database: ", e);
         }
@@ -43,14 +68,100 @@ public class AdsConnDriver implements Serializable {
         return connection;
     }
 
+    /**
+     * @return the pooled data source; connections obtained from it must be closed to return them to the pool
+     */
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return the threads running queries in parallel over pooled connections, created on first use. There are never
+     * more of them than pooled connections.
+     */
+    public synchronized ExecutorService getQueryExecutor() {
+        if (queryExecutor == null) {
+            ApplicationProperties.CapitalConfig capital = applicationProperties.getCapital();
+            int threads = Math.max(1, Math.min(capital.getQuery().getInListParallelism(), capital.getPool().getMaximumPoolSize()));
+            queryExecutor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat(POOL_NAME + "-query-%d").setDaemon(true).build());
+        }
+        return queryExecutor;
+    }
+
+    /**
+     * @return the threads reading the partitions of partitioned streams, created on first use. A thread is taken per
+     * partition read, each stream caps how many it reads at a time.
+     */
+    public synchronized ExecutorService getPartitionExecutor() {
+        if (partitionExecutor == null) {
+            partitionExecutor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat(POOL_NAME + "-partition-%d").setDaemon(true).build());
+        }
+        return partitionExecutor;
+    }
+
+    /**
+     * @return the writer of the Capital statements, in the ADS dialect
+     */
+    public SqlWriter getSqlWriter() {
+        return sqlWriter;
+    }
+
+    public ApplicationProperties getApplicationProperties() {
+        return applicationProperties;
+    }
 
     public String getConnectionString() {
         return connectionString;
     }
 
-    public void setConnectionString(String connectionString) {
+    /**
+     * Sets the connection string of the pool. The pool is configured once, when it starts on the first request for a
+     * connection; a later connection string would be silently ignored, so it is refused.
+     *
+     * @throws IllegalStateException if the pool has started, or was closed
+     */
+    public synchronized void setConnectionString(String connectionString) {
+        if (dataSource.getHikariPoolMXBean() != null || dataSource.isClosed()) {
+            throw new IllegalStateException("The Capital connection pool has started, its connection string can't change");
+        }
         this.connectionString = connectionString;
+        dataSource.setJdbcUrl(connectionString);
+    }
+
+    @PreDestroy
+    public void close() {
+        log.debug("Closing the Capital connection pool");
+        synchronized (this) {
+            if (queryExecutor != null) {
+                queryExecutor.shutdownNow();
+            }
+            if (partitionExecutor != null) {
+                partitionExecutor.shutdownNow();
+            }
+        }
+        dataSource.close();
     }
 
+    private void configure(HikariConfig config, ApplicationProperties.CapitalConfig.Pool pool) {
+        config.setPoolName(POOL_NAME);
+        config.setDriverClassName(ADS_DRIVER_CLASS_NAME);
+        config.setJdbcUrl(connectionString);
+        config.setMaximumPoolSize(pool.getMaximumPoolSize());
+        config.setMinimumIdle(pool.getMinimumIdle());
+        config.setConnectionTimeout(pool.getConnectionTimeout());
+        config.setIdleTimeout(pool.getIdleTimeout());
+        config.setMaxLifetime(pool.getMaxLifetime());
+        config.setValidationTimeout(pool.getValidationTimeout());
+        config.setLeakDetectionThreshold(pool.getLeakDetectionThreshold());
+        // the ADS JDBC driver predates JDBC4 Connection.isValid(), so connections are validated with a query
+        config.setConnectionTestQuery(pool.getConnectionTestQuery());
+        // don't fail the application start-up when Capital is down, the pool retries on the next request
+        config.setInitializationFailTimeout(-1);
+        for (Map.Entry<String, String> property : pool.getDataSourceProperties().entrySet()) {
+            config.addDataSourceProperty(property.getKey(), property.getValue());
+        }
+    }
 
 }
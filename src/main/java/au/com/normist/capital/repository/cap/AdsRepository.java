@@ -1,17 +1,37 @@
 package au.com.normist.capital.repository.cap;
 
+import au.com.normist.capital.config.ApplicationProperties;
 import au.com.normist.capital.domain.cap.CapBaseModel;
+import au.com.normist.capital.repository.cap.changes.TableChangedEvent;
+import au.com.normist.capital.repository.cap.dbutilsjpa.EntityMetadata;
 import au.com.normist.capital.repository.cap.dbutilsjpa.JpaQueryRunner;
+import au.com.normist.capital.repository.cap.lambda2sql.LambdaToAdsSql;
+import au.com.normist.capital.repository.cap.lambda2sql.ParameterizedSql;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
+import org.danekja.java.util.function.serializable.SerializablePredicate;
+import org.springframework.context.event.EventListener;
 
+import javax.cache.Cache;
+import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public abstract class AdsRepository<T extends CapBaseModel> implements IRepository<T> {
 
-    // The db column name of rowID
-    private final String rowIdDbName = "ROWID";
-
     private AdsConnDriver adsConnDriver;
 
     // corresponding class for generic type T
@@ -20,47 +40,365 @@ public abstract class AdsRepository<T extends CapBaseModel> implements IReposito
     private QueryRunner queryRunner;
     private JpaQueryRunner jpaQueryRunner;
 
+    // read-through cache of getById and getByIds, null when the entity isn't cached
+    private EntityCache<T> entityCache;
+
     public AdsRepository() {}
 
     public AdsRepository (AdsConnDriver adsConnDriver, Class<T> objClass) {
+        this(adsConnDriver, objClass, null);
+    }
+
+    /**
+     * @param cache the JCache region {@link EntityCache#cacheName(Class)} of the entity, null to read through to the
+     *              server every time
+     */
+    public AdsRepository (AdsConnDriver adsConnDriver, Class<T> objClass, Cache<Object, Object> cache) {
         Preconditions.checkNotNull(adsConnDriver);
         Preconditions.checkNotNull(objClass);
 
         this.adsConnDriver = adsConnDriver;
         this.objClass = objClass;
+        this.entityCache = cache == null ? null : new EntityCache<>(cache, objClass);
 
         // NOTE: ADS Driver doesn't support ParameterMetaData, must pass 'true' parameter.
-        queryRunner = new QueryRunner(true);
-        jpaQueryRunner = new JpaQueryRunner(queryRunner, adsConnDriver);
+        queryRunner = new QueryRunner(adsConnDriver.getDataSource(), true);
+        jpaQueryRunner = new JpaQueryRunner.Builder()
+            .sqlWriter(adsConnDriver.getSqlWriter())
+            .adsConnDriver(adsConnDriver)
+            .build(queryRunner);
     }
 
+    @Override
+    public Class<T> getEntityClass() {
+        return objClass;
+    }
+
+    /**
+     * Served from the entity cache, if there is one.
+     */
     @Override
     public T getById(String id) {
-        return jpaQueryRunner.query(objClass, id);
+        if (entityCache == null || id == null) {
+            return jpaQueryRunner.query(objClass, id);
+        }
+        return entityCache.get(id, key -> jpaQueryRunner.query(objClass, key));
     }
 
+    /**
+     * Looks the ids up with IN lists of at most {@code application.capital.query.in-list-size} keys. The lists run on
+     * one connection, or are spread over {@code in-list-parallelism} pooled connections. Only the ids missing from the
+     * entity cache, if there is one, are looked up.
+     *
+     * @return the found records in the order of {@code ids}, ids without a record are skipped
+     */
     @Override
-    public Collection<T> getByIds(Collection<String> ids) {
-        return null;
+    public List<T> getByIds(Collection<String> ids) {
+        Preconditions.checkNotNull(ids);
+
+        LinkedHashSet<String> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (entityCache != null) {
+            Map<String, T> byId = entityCache.getAll(distinctIds, this::queryByIds, EntityMetadata.of(objClass)::getId);
+            return inCallerOrder(ids, byId);
+        }
+
+        EntityMetadata metadata = EntityMetadata.of(objClass);
+        List<T> found = queryByIds(new ArrayList<>(distinctIds));
+        Map<String, T> byId = new HashMap<>(found.size() * 2);
+        for (T record : found) {
+            byId.put(idKey(metadata.getId(record)), record);
+        }
+        return inCallerOrder(ids, byId);
     }
 
     @Override
-    public Collection<T> getAll() {
-        return null;
+    public List<T> getAll() {
+        try (Stream<T> records = streamAll()) {
+            return records.collect(Collectors.toList());
+        }
     }
 
     @Override
-    public void update(T record) {
+    public Stream<T> streamAll() {
+        return jpaQueryRunner.streamAll(objClass, queryConfig().getFetchSize());
+    }
+
+    @Override
+    public List<T> getPage(int offset, int limit) {
+        Preconditions.checkArgument(offset >= 0, "offset must not be negative");
+        Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+        return jpaQueryRunner.queryPage(objClass, offset, limit);
+    }
+
+    @Override
+    public KeysetPage<T> getPageAfter(String continuationToken, int limit) {
+        Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+        String lastKey = continuationToken == null ? null : KeysetPage.decodeToken(continuationToken);
+        List<T> records = jpaQueryRunner.queryPageAfter(objClass, lastKey, limit);
+
+        String nextToken = null;
+        if (records.size() == limit) {
+            T last = records.get(records.size() - 1);
+            nextToken = KeysetPage.encodeToken(idKey(EntityMetadata.of(objClass).getId(last)));
+        }
+        return new KeysetPage<>(records, nextToken);
+    }
+
+    @Override
+    public List<T> findWhere(SerializablePredicate<T> predicate) {
+        ParameterizedSql where = where(predicate);
+        return jpaQueryRunner.queryWhere(objClass, where.getSql(), where.getParameters());
+    }
+
+    @Override
+    public List<T> findWhere(SerializablePredicate<T> predicate, int offset, int limit) {
+        Preconditions.checkArgument(offset >= 0, "offset must not be negative");
+        Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+        ParameterizedSql where = where(predicate);
+        return jpaQueryRunner.queryPageWhere(objClass, where.getSql(), offset, limit, where.getParameters());
+    }
+
+    @Override
+    public Stream<T> streamWhere(SerializablePredicate<T> predicate) {
+        ParameterizedSql where = where(predicate);
+        return jpaQueryRunner.streamWhere(objClass, where.getSql(), queryConfig().getFetchSize(), where.getParameters());
+    }
+
+    /**
+     * Reads the partitions on the threads of {@link AdsConnDriver#getPartitionExecutor()}, at most as many at a time
+     * as there are pooled connections.
+     */
+    @Override
+    public Stream<T> streamWhere(List<SerializablePredicate<T>> partitions, int parallelism, boolean ordered) {
+        Preconditions.checkNotNull(partitions);
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+
+        List<Supplier<Stream<T>>> streams = new ArrayList<>(partitions.size());
+        for (SerializablePredicate<T> partition : partitions) {
+            // translated up front, a predicate the server can't run fails here rather than on a reading thread
+            ParameterizedSql where = where(partition);
+            streams.add(() -> jpaQueryRunner.streamWhere(objClass, where.getSql(), queryConfig().getFetchSize(),
+                where.getParameters()));
+        }
+        if (streams.size() == 1) {
+            return streams.get(0).get();
+        }
+        // not flatMap, which reads a whole partition ahead when the stream is iterated (JDK-8075939)
+        int threads = Math.min(parallelism, adsConnDriver.getApplicationProperties().getCapital().getPool().getMaximumPoolSize());
+        return PartitionedSpliterator.stream(streams, adsConnDriver.getPartitionExecutor(), threads,
+            queryConfig().getFetchSize(), ordered);
+    }
+
+    @Override
+    public long countWhere(SerializablePredicate<T> predicate) {
+        ParameterizedSql where = where(predicate);
+        return jpaQueryRunner.countWhere(objClass, where.getSql(), where.getParameters());
+    }
+
+    @Override
+    public <P> List<P> getAll(Class<P> projection) {
+        return jpaQueryRunner.queryAll(objClass, projection);
+    }
+
+    @Override
+    public <P> Stream<P> streamAll(Class<P> projection) {
+        return jpaQueryRunner.streamAll(objClass, projection, queryConfig().getFetchSize());
+    }
 
+    @Override
+    public <P> List<P> getPage(int offset, int limit, Class<P> projection) {
+        Preconditions.checkArgument(offset >= 0, "offset must not be negative");
+        Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+        return jpaQueryRunner.queryPage(objClass, projection, offset, limit);
+    }
+
+    @Override
+    public <P> List<P> findWhere(SerializablePredicate<T> predicate, Class<P> projection) {
+        ParameterizedSql where = where(predicate);
+        return jpaQueryRunner.queryWhere(objClass, projection, where.getSql(), where.getParameters());
+    }
+
+    @Override
+    public void update(T record) {
+        try {
+            jpaQueryRunner.update(record);
+        } finally {
+            evict(record);
+        }
     }
 
     @Override
     public int delete(T record) {
-        return 0;
+        try {
+            return jpaQueryRunner.delete(objClass, EntityMetadata.of(objClass).getId(record));
+        } finally {
+            evict(record);
+        }
     }
 
     @Override
     public int insert(T record) {
-        return 0;
+        try {
+            return jpaQueryRunner.insert(record);
+        } finally {
+            // forgets a cached Missing
+            evict(record);
+        }
+    }
+
+    /**
+     * Runs in batches of {@code application.capital.query.batch-size} statements.
+     */
+    @Override
+    public int saveAll(Collection<T> records) {
+        try {
+            return jpaQueryRunner.saveAll(records, Math.max(1, queryConfig().getBatchSize()));
+        } finally {
+            evictAll(records);
+        }
+    }
+
+    /**
+     * Runs in batches of {@code application.capital.query.batch-size} statements.
+     */
+    @Override
+    public int deleteAll(Collection<T> records) {
+        try {
+            return jpaQueryRunner.deleteAll(records, Math.max(1, queryConfig().getBatchSize()));
+        } finally {
+            evictAll(records);
+        }
+    }
+
+    @Override
+    public void evict(Collection<String> ids) {
+        if (entityCache != null) {
+            entityCache.evictAll(ids);
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        if (entityCache != null) {
+            entityCache.clear();
+        }
+    }
+
+    /**
+     * Forgets the cached records of the rows another application changed.
+     */
+    @EventListener
+    public void onTableChanged(TableChangedEvent event) {
+        if (event.getEntityClass() == objClass) {
+            evict(event.getChangedIds());
+        }
+    }
+
+    private void evict(T record) {
+        if (entityCache != null && record != null) {
+            entityCache.evict(EntityMetadata.of(objClass).getId(record));
+        }
+    }
+
+    private void evictAll(Collection<T> records) {
+        if (entityCache != null) {
+            EntityMetadata metadata = EntityMetadata.of(objClass);
+            entityCache.evictAll(records.stream().map(metadata::getId).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Looks the ids up with IN lists of at most {@code application.capital.query.in-list-size} keys.
+     */
+    private List<T> queryByIds(List<String> ids) {
+        ApplicationProperties.CapitalConfig.Query query = queryConfig();
+        List<List<String>> chunks = Lists.partition(ids, Math.max(1, query.getInListSize()));
+        int parallelism = Math.min(query.getInListParallelism(), chunks.size());
+
+        return parallelism > 1 ? queryChunksInParallel(chunks, parallelism) : queryChunks(chunks);
+    }
+
+    private static <T> ParameterizedSql where(SerializablePredicate<T> predicate) {
+        Preconditions.checkNotNull(predicate);
+        return LambdaToAdsSql.convertToParameterizedAdsSql(predicate);
+    }
+
+    private ApplicationProperties.CapitalConfig.Query queryConfig() {
+        return adsConnDriver.getApplicationProperties().getCapital().getQuery();
+    }
+
+    private List<T> queryChunks(List<List<String>> chunks) {
+        Connection conn = adsConnDriver.getDbConnection();
+        try {
+            List<T> found = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                found.addAll(jpaQueryRunner.queryByIds(conn, objClass, chunk));
+            }
+            return found;
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    private List<T> queryChunksInParallel(List<List<String>> chunks, int parallelism) {
+        // deal the chunks out round robin, each worker runs its share on one pooled connection
+        List<List<List<String>>> shares = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            shares.add(new ArrayList<>());
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            shares.get(i % parallelism).add(chunks.get(i));
+        }
+
+        ExecutorService executor = adsConnDriver.getQueryExecutor();
+        List<Future<List<T>>> futures = new ArrayList<>(parallelism);
+        for (List<List<String>> share : shares) {
+            futures.add(executor.submit(() -> queryChunks(share)));
+        }
+
+        List<T> found = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                found.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return found;
+    }
+
+    private List<T> inCallerOrder(Collection<String> ids, Map<String, T> byId) {
+        List<T> records = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T record = id == null ? null : byId.get(idKey(id));
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * ADS pads CHAR keys with blanks, so ids are compared trimmed.
+     */
+    private static String idKey(Object id) {
+        return EntityCache.key(id);
     }
 }
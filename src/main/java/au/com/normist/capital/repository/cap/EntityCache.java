@@ -0,0 +1,141 @@
+package au.com.normist.capital.repository.cap;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the records of one Capital table by id, on top of a JCache region registered by
+ * {@code CacheConfiguration} under {@link #cacheName(Class)}.
+ *
+ * Ids are trimmed, as ADS pads CHAR keys with blanks. Ids without a record are cached too, as {@link Missing#INSTANCE},
+ * so lookups of unknown codes don't go to the server either; the region usually keeps them for a shorter time.
+ *
+ * Thread-safe. Two threads missing the same id may both load it, the last one wins.
+ */
+public class EntityCache<T> {
+
+    /**
+     * Cached for ids without a record.
+     */
+    public enum Missing {
+        INSTANCE
+    }
+
+    private final Cache<Object, Object> cache;
+
+    private final Class<T> type;
+
+    public EntityCache(Cache<Object, Object> cache, Class<T> type) {
+        this.cache = Objects.requireNonNull(cache);
+        this.type = type;
+    }
+
+    /**
+     * @return the name of the cache region of the given entity class
+     */
+    public static String cacheName(Class<?> entityClass) {
+        return entityClass.getName();
+    }
+
+    /**
+     * @param cacheManager the JCache manager, null when there is none, e.g. with {@code spring.cache.type: simple} in
+     *                     tests
+     * @return the cache region of the given entity class, null when there is no manager or no such region
+     */
+    public static Cache<Object, Object> region(CacheManager cacheManager, Class<?> entityClass) {
+        return cacheManager == null ? null : cacheManager.getCache(cacheName(entityClass));
+    }
+
+    /**
+     * @param loader reads the record of an id from the server, null if there is none
+     * @return the cached or loaded record, null if there is none
+     */
+    public T get(String id, Function<String, T> loader) {
+        String key = key(id);
+        Object value = cache.get(key);
+        if (value == null) {
+            T record = loader.apply(id);
+            cache.put(key, record == null ? Missing.INSTANCE : record);
+            return record;
+        }
+        return value == Missing.INSTANCE ? null : type.cast(value);
+    }
+
+    /**
+     * @param loader reads the records of the ids that are not cached from the server, skipping ids without a record
+     * @param idOf the id of a loaded record
+     * @return the cached and loaded records by trimmed id, ids without a record are left out
+     */
+    public Map<String, T> getAll(Collection<String> ids, Function<List<String>, List<T>> loader, Function<T, Object> idOf) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String id : ids) {
+            keys.add(key(id));
+        }
+
+        Map<Object, Object> cached = cache.getAll(keys);
+        Map<String, T> records = new HashMap<>(keys.size() * 2);
+        List<String> misses = new ArrayList<>();
+        for (String key : keys) {
+            Object value = cached.get(key);
+            if (value == null) {
+                misses.add(key);
+            } else if (value != Missing.INSTANCE) {
+                records.put(key, type.cast(value));
+            }
+        }
+        if (misses.isEmpty()) {
+            return records;
+        }
+
+        Map<Object, Object> loaded = new HashMap<>(misses.size() * 2);
+        for (T record : loader.apply(misses)) {
+            String key = key(idOf.apply(record));
+            records.put(key, record);
+            loaded.put(key, record);
+        }
+        for (String miss : misses) {
+            loaded.putIfAbsent(miss, Missing.INSTANCE);
+        }
+        cache.putAll(loaded);
+        return records;
+    }
+
+    /**
+     * Forgets the cached record of an id, e.g. after writing it.
+     */
+    public void evict(Object id) {
+        if (id != null) {
+            cache.remove(key(id));
+        }
+    }
+
+    public void evictAll(Collection<?> ids) {
+        Set<Object> keys = new LinkedHashSet<>();
+        for (Object id : ids) {
+            if (id != null) {
+                keys.add(key(id));
+            }
+        }
+        cache.removeAll(keys);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * ADS pads CHAR keys with blanks, so ids are compared trimmed.
+     */
+    static String key(Object id) {
+        return Objects.toString(id, "").trim();
+    }
+}
@@ -1,20 +1,152 @@
 package au.com.normist.capital.repository.cap;
 
 import au.com.normist.capital.domain.cap.CapBaseModel;
+import au.com.normist.capital.repository.cap.lambda2sql.LambdaToAdsSql;
+import org.danekja.java.util.function.serializable.SerializablePredicate;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface IRepository<T extends CapBaseModel> {
+    /**
+     * @return the entity class of the table
+     */
+    Class<T> getEntityClass();
+
+    /**
+     * @return the record, null if there is none. Implementations may serve it from a read-through cache.
+     */
     T getById(String id);
 
-    Collection<T> getByIds(Collection<String> ids);
+    /**
+     * @return the records of the given ids in the same order, ids without a record are skipped
+     */
+    List<T> getByIds(Collection<String> ids);
 
+    /**
+     * Loads the whole table into memory, prefer {@link #streamAll()} for large tables.
+     */
     Collection<T> getAll();
 
+    /**
+     * Reads the whole table lazily on a forward-only cursor, holding only one fetch of rows in memory.
+     * The stream keeps a connection open until it is read to the end or closed, so use it in a try-with-resources.
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Reads one page of the table, ordered by id. The paging runs on the server, e.g. as ADS {@code TOP n START AT m}.
+     *
+     * @param offset the number of records skipped
+     * @param limit the maximum number of records returned
+     */
+    List<T> getPage(int offset, int limit);
+
+    /**
+     * Reads one page of the table in keyset (seek) mode: ordered by id and starting after the last id of the previous
+     * page, so every page costs the same however deep it is.
+     *
+     * @param continuationToken the {@link KeysetPage#getNextToken()} of the previous page, null for the first page
+     * @param limit the maximum number of records returned
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    KeysetPage<T> getPageAfter(String continuationToken, int limit);
+
+    /**
+     * Reads the records matching a predicate, filtered on the server: the predicate is translated to a WHERE clause
+     * on the {@code @Column} names of the getters it calls, with its values bound as parameters, e.g.
+     * <pre>{@code findWhere(stock -> stock.getLocation() == "SYD" && stock.getOnHold() == false)}</pre>
+     * See {@link LambdaToAdsSql} for what a predicate may contain.
+     */
+    List<T> findWhere(SerializablePredicate<T> predicate);
+
+    /**
+     * One page of the records matching a predicate, ordered by id, see {@link #findWhere(SerializablePredicate)}
+     * and {@link #getPage(int, int)}.
+     */
+    List<T> findWhere(SerializablePredicate<T> predicate, int offset, int limit);
+
+    /**
+     * Reads the records matching a predicate lazily, see {@link #findWhere(SerializablePredicate)} and
+     * {@link #streamAll()}. Use it in a try-with-resources.
+     */
+    Stream<T> streamWhere(SerializablePredicate<T> predicate);
+
+    /**
+     * Reads the records matching any of several predicates, e.g. date or key ranges splitting one query, each
+     * partition on a cursor of its own pooled connection, see {@link #streamWhere(SerializablePredicate)}. Running
+     * partitions read at most {@code application.capital.query.fetch-size} records ahead of the stream, waiting for it
+     * to be consumed. The partitions should not overlap, records matching two partitions come twice. Use it in a
+     * try-with-resources.
+     *
+     * @param partitions the predicates of the partitions, see {@link Partitions}
+     * @param parallelism the number of partitions read at a time, 1 reads them one after the other
+     * @param ordered whether the records come partition after partition, in the order of {@code partitions}, or as
+     *                they are read
+     */
+    Stream<T> streamWhere(List<SerializablePredicate<T>> partitions, int parallelism, boolean ordered);
+
+    /**
+     * The number of records matching a predicate, counted by the server, see {@link #findWhere(SerializablePredicate)}.
+     */
+    long countWhere(SerializablePredicate<T> predicate);
+
+    /**
+     * Reads only the columns of a projection: a class whose {@code @Column} fields name some of the columns, or an
+     * interface with some of the getters of {@code T}. Prefer it to {@link #getAll()} for lists and reports of wide
+     * tables.
+     */
+    <P> List<P> getAll(Class<P> projection);
+
+    /**
+     * Reads the columns of a projection lazily, see {@link #getAll(Class)} and {@link #streamAll()}.
+     */
+    <P> Stream<P> streamAll(Class<P> projection);
+
+    /**
+     * Reads one page of the columns of a projection, see {@link #getAll(Class)} and {@link #getPage(int, int)}.
+     */
+    <P> List<P> getPage(int offset, int limit, Class<P> projection);
+
+    /**
+     * Reads the columns of a projection of the records matching a predicate, see {@link #getAll(Class)} and
+     * {@link #findWhere(SerializablePredicate)}.
+     */
+    <P> List<P> findWhere(SerializablePredicate<T> predicate, Class<P> projection);
+
     void update(T record);
 
     int delete(T record);
 
+    /**
+     * Inserts the record, with its id if it has one, otherwise the id is generated.
+     */
     int insert(T record);
 
+    /**
+     * Inserts the new and updates the existing records with JDBC batches in one transaction.
+     *
+     * @return the number of rows inserted or updated
+     */
+    int saveAll(Collection<T> records);
+
+    /**
+     * Deletes the records by id with JDBC batches in one transaction.
+     *
+     * @return the number of rows deleted
+     */
+    int deleteAll(Collection<T> records);
+
+    /**
+     * Forgets the cached records of the given ids, e.g. after they were changed by another application. The writes of
+     * this repository evict the records they touch themselves.
+     */
+    void evict(Collection<String> ids);
+
+    /**
+     * Forgets all cached records.
+     */
+    void evictAll();
+
 }
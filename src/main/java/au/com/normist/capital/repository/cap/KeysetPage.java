@@ -0,0 +1,61 @@
+package au.com.normist.capital.repository.cap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A page read in keyset (seek) mode, see {@link IRepository#getPageAfter(String, int)}.
+ *
+ * The continuation token is the last id of the page, encoded so that clients treat it as opaque.
+ */
+public final class KeysetPage<T> {
+
+    private final List<T> content;
+
+    private final String nextToken;
+
+    public KeysetPage(List<T> content, String nextToken) {
+        this.content = content;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the token of the next page, null if this is the last page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * @return whether the token is one of a page, to check it before reading the next page
+     */
+    public static boolean isValidToken(String token) {
+        try {
+            Base64.getUrlDecoder().decode(token);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static String encodeToken(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed continuation token: " + token, e);
+        }
+    }
+}
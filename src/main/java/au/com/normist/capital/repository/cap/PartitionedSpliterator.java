@@ -0,0 +1,151 @@
+package au.com.normist.capital.repository.cap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the streams of several partitions of a query concurrently, at most {@code parallelism} at a time, and merges
+ * their records into one stream.
+ *
+ * Each running partition hands its records over through a bounded buffer, so a partition read faster than the merged
+ * stream is consumed waits for room rather than holding its rows in memory. Ordered, the records come partition after
+ * partition, the later partitions only reading ahead as far as their buffer; unordered, they come as they are read.
+ * A partition starts when one before it is read to the end.
+ *
+ * Closing the merged stream stops the running partitions, which close their streams and return their connections.
+ */
+class PartitionedSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private static final Object END = new Object();
+
+    private final List<Supplier<Stream<T>>> partitions;
+
+    private final ExecutorService executor;
+
+    private final boolean ordered;
+
+    // one buffer per partition when ordered, one shared by all otherwise
+    private final List<BlockingQueue<Object>> buffers = new ArrayList<>();
+
+    private final List<Future<?>> running = new ArrayList<>();
+
+    private int started;
+
+    private int ended;
+
+    private volatile boolean closed;
+
+    private PartitionedSpliterator(List<Supplier<Stream<T>>> partitions, ExecutorService executor, int parallelism,
+                                   int bufferSize, boolean ordered) {
+        super(Long.MAX_VALUE, ordered ? Spliterator.ORDERED : 0);
+        this.partitions = partitions;
+        this.executor = executor;
+        this.ordered = ordered;
+
+        int buffered = ordered ? partitions.size() : 1;
+        for (int i = 0; i < buffered; i++) {
+            buffers.add(new ArrayBlockingQueue<>(bufferSize));
+        }
+        for (int i = 0; i < Math.min(parallelism, partitions.size()); i++) {
+            startNext();
+        }
+    }
+
+    /**
+     * @param partitions the streams of the partitions, opened on the thread reading them
+     * @param parallelism the number of partitions read at a time
+     * @param bufferSize the number of records a partition reads ahead of the merged stream
+     * @param ordered whether the records come in the order of the partitions
+     */
+    static <T> Stream<T> stream(List<Supplier<Stream<T>>> partitions, ExecutorService executor, int parallelism,
+                                int bufferSize, boolean ordered) {
+        PartitionedSpliterator<T> spliterator = new PartitionedSpliterator<>(partitions, executor,
+            Math.max(1, parallelism), Math.max(1, bufferSize), ordered);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (ended < partitions.size()) {
+            Object next;
+            try {
+                next = buffers.get(ordered ? ended : 0).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException(e);
+            }
+            if (next == END) {
+                ended++;
+                startNext();
+            } else if (next instanceof Failure) {
+                close();
+                throw ((Failure) next).exception;
+            } else {
+                @SuppressWarnings("unchecked")
+                T record = (T) next;
+                action.accept(record);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void startNext() {
+        if (started == partitions.size() || closed) {
+            return;
+        }
+        Supplier<Stream<T>> partition = partitions.get(started);
+        BlockingQueue<Object> buffer = buffers.get(ordered ? started : 0);
+        started++;
+        running.add(executor.submit(() -> read(partition, buffer)));
+    }
+
+    private void read(Supplier<Stream<T>> partition, BlockingQueue<Object> buffer) {
+        try {
+            try (Stream<T> records = partition.get()) {
+                for (Iterator<T> iterator = records.iterator(); iterator.hasNext() && !closed; ) {
+                    buffer.put(iterator.next());
+                }
+            }
+            buffer.put(END);
+        } catch (InterruptedException e) {
+            // closed
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // the buffer may be full, but the reader drains it up to the failure unless it is closed
+            try {
+                buffer.put(new Failure(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void close() {
+        closed = true;
+        for (Future<?> future : running) {
+            future.cancel(true);
+        }
+    }
+
+    private static final class Failure {
+
+        private final RuntimeException exception;
+
+        private Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
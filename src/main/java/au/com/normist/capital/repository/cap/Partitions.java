@@ -0,0 +1,69 @@
+package au.com.normist.capital.repository.cap;
+
+import com.google.common.base.Preconditions;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a query into ranges for {@link IRepository#streamWhere(java.util.List, int, boolean)}. The boundaries are
+ * turned into predicates by the caller, one lambda capturing the bounds of each range, e.g.
+ * <pre>{@code
+ * for (int i = 0; i + 1 < days.size(); i++) {
+ *     LocalDate from = days.get(i);
+ *     LocalDate to = days.get(i + 1);
+ *     partitions.add(h -> !h.getDate().isBefore(from) && h.getDate().isBefore(to));
+ * }}</pre>
+ * or {@code h.getStockId().compareTo(from) >= 0 && h.getStockId().compareTo(to) < 0} for keys.
+ */
+public final class Partitions {
+
+    private Partitions() {
+    }
+
+    /**
+     * @return the bounds of at most {@code count} ranges of about as many days, from {@code from} included to
+     * {@code to} excluded: {@code from}, the starts of the later ranges, then {@code to}
+     */
+    public static List<LocalDate> dateBoundaries(LocalDate from, LocalDate to, int count) {
+        Preconditions.checkArgument(!to.isBefore(from), "to must not be before from");
+        Preconditions.checkArgument(count > 0, "count must be positive");
+
+        long days = ChronoUnit.DAYS.between(from, to);
+        int ranges = (int) Math.max(1, Math.min(count, days));
+        List<LocalDate> boundaries = new ArrayList<>(ranges + 1);
+        for (int i = 0; i < ranges; i++) {
+            boundaries.add(from.plusDays(days * i / ranges));
+        }
+        boundaries.add(to);
+        return boundaries;
+    }
+
+    /**
+     * Splits sorted keys into at most {@code count} ranges of about as many keys, e.g. the ids of a table read with a
+     * projection, to split the query of a table referencing them.
+     *
+     * @return the keys starting the second to last ranges, the first range takes the keys before the first of them and
+     * the last range the keys from the last of them. Empty for a single range.
+     */
+    public static List<String> keyBoundaries(List<String> sortedKeys, int count) {
+        Preconditions.checkArgument(count > 0, "count must be positive");
+
+        List<String> boundaries = new ArrayList<>(count);
+        if (sortedKeys.isEmpty()) {
+            return boundaries;
+        }
+        // no empty range: every boundary is after the first key and the boundary before it
+        String previous = sortedKeys.get(0);
+        for (int i = 1; i < count; i++) {
+            String key = sortedKeys.get((int) ((long) sortedKeys.size() * i / count));
+            if (key.compareTo(previous) > 0) {
+                boundaries.add(key);
+                previous = key;
+            }
+        }
+        return boundaries;
+    }
+}
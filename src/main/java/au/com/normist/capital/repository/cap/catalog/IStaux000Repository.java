@@ -0,0 +1,7 @@
+package au.com.normist.capital.repository.cap.catalog;
+
+import au.com.normist.capital.domain.cap.catalog.Staux000;
+import au.com.normist.capital.repository.cap.IRepository;
+
+public interface IStaux000Repository extends IRepository<Staux000> {
+}
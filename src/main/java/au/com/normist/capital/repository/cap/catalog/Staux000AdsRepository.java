@@ -0,0 +1,24 @@
+package au.com.normist.capital.repository.cap.catalog;
+
+import au.com.normist.capital.domain.cap.catalog.Staux000;
+import au.com.normist.capital.repository.cap.AdsConnDriver;
+import au.com.normist.capital.repository.cap.AdsRepository;
+import au.com.normist.capital.repository.cap.EntityCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Repository;
+
+import javax.cache.CacheManager;
+
+@Repository
+@DependsOn("AdsConnDriver")
+public class Staux000AdsRepository extends AdsRepository<Staux000> implements IStaux000Repository {
+
+    /**
+     * @param cacheManager the JCache manager holding the region of the records, not cached without one
+     */
+    public Staux000AdsRepository(AdsConnDriver adsConnDriver, ObjectProvider<CacheManager> cacheManager) {
+        super(adsConnDriver, Staux000.class, EntityCache.region(cacheManager.getIfAvailable(), Staux000.class));
+    }
+
+}
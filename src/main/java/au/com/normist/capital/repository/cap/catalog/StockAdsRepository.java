@@ -3,18 +3,25 @@ package au.com.normist.capital.repository.cap.catalog;
 import au.com.normist.capital.domain.cap.catalog.Stock;
 import au.com.normist.capital.repository.cap.AdsConnDriver;
 import au.com.normist.capital.repository.cap.AdsRepository;
+import au.com.normist.capital.repository.cap.EntityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Repository;
 
+import javax.cache.CacheManager;
+
 @Repository
 @DependsOn("AdsConnDriver")
 public class StockAdsRepository extends AdsRepository<Stock> implements IStockRepository {
     private static final Logger log = LoggerFactory.getLogger(StockAdsRepository.class);
 
-    public StockAdsRepository(AdsConnDriver adsConnDriver) {
-        super(adsConnDriver, Stock.class);
+    /**
+     * @param cacheManager the JCache manager holding the region of the records, not cached without one
+     */
+    public StockAdsRepository(AdsConnDriver adsConnDriver, ObjectProvider<CacheManager> cacheManager) {
+        super(adsConnDriver, Stock.class, EntityCache.region(cacheManager.getIfAvailable(), Stock.class));
 
         try {
             Stock stk = super.getById("0000130758");
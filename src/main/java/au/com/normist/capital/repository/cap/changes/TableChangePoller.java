@@ -0,0 +1,105 @@
+package au.com.normist.capital.repository.cap.changes;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.cap.CapBaseModel;
+import au.com.normist.capital.repository.cap.IRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Polls Capital tables for the rows other applications inserted, updated or deleted, and publishes them as a
+ * {@link TableChangedEvent}, so the caches of the rows can be updated instead of reloaded.
+ *
+ * ADS keeps no row version or modification time, so every poll streams the whole table and compares the hash of each
+ * row with the previous poll, by ROWID: new ROWIDs are inserts, ROWIDs no longer there are deletes. The first poll of
+ * a table only takes its snapshot. A snapshot holds the id and hash of every row, so only tables of a moderate size
+ * should be polled.
+ *
+ * Enabled by {@code application.capital.change-capture.enabled}, the tables are listed by entity simple class name.
+ */
+@Component
+public class TableChangePoller {
+
+    private static final Logger log = LoggerFactory.getLogger(TableChangePoller.class);
+
+    private final ApplicationProperties.CapitalConfig.ChangeCapture config;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // the polled repositories by entity simple class name
+    private final Map<String, IRepository<?>> repositories = new LinkedHashMap<>();
+
+    private final Map<Class<?>, TableSnapshot> snapshots = new HashMap<>();
+
+    public TableChangePoller(List<IRepository<?>> repositories, ApplicationProperties applicationProperties,
+                             ApplicationEventPublisher eventPublisher) {
+        this.config = applicationProperties.getCapital().getChangeCapture();
+        this.eventPublisher = eventPublisher;
+
+        Map<String, IRepository<?>> byName = new HashMap<>();
+        for (IRepository<?> repository : repositories) {
+            byName.put(repository.getEntityClass().getSimpleName(), repository);
+        }
+        for (String table : config.getTables()) {
+            IRepository<?> repository = byName.get(table);
+            if (repository == null) {
+                log.warn("No Capital repository of {}, its changes are not polled", table);
+            } else {
+                this.repositories.put(table, repository);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.capital.change-capture.poll-interval:60000}")
+    public void scheduledPoll() {
+        if (config.isEnabled()) {
+            poll();
+        }
+    }
+
+    /**
+     * Polls every table once. A table that can't be read keeps its previous snapshot.
+     */
+    public synchronized void poll() {
+        for (IRepository<?> repository : repositories.values()) {
+            try {
+                poll(repository);
+            } catch (RuntimeException e) {
+                log.warn("Unable to poll {} for changes", repository.getEntityClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void poll(IRepository<?> repository) {
+        long start = System.nanoTime();
+        Class<?> entityClass = repository.getEntityClass();
+        TableSnapshot previous = snapshots.get(entityClass);
+
+        TableSnapshot snapshot = new TableSnapshot(entityClass, previous == null ? 0 : previous.size());
+        try (Stream<? extends CapBaseModel> records = repository.streamAll()) {
+            records.forEach(snapshot::add);
+        }
+        snapshots.put(entityClass, snapshot);
+        if (previous == null) {
+            log.debug("Took a snapshot of {} rows of {}", snapshot.size(), entityClass.getSimpleName());
+            return;
+        }
+
+        TableChangedEvent event = snapshot.changesSince(previous);
+        log.debug("Polled {} rows of {} in {} ms: {}", snapshot.size(), entityClass.getSimpleName(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), event);
+        if (!event.getChangedIds().isEmpty()) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package au.com.normist.capital.repository.cap.changes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows of a Capital table that were inserted, updated or deleted since the previous poll, by trimmed id.
+ * Published by {@link TableChangePoller} as a Spring application event.
+ */
+public class TableChangedEvent {
+
+    private final Class<?> entityClass;
+    private final List<String> inserted;
+    private final List<String> updated;
+    private final List<String> deleted;
+
+    public TableChangedEvent(Class<?> entityClass, List<String> inserted, List<String> updated, List<String> deleted) {
+        this.entityClass = entityClass;
+        this.inserted = Collections.unmodifiableList(inserted);
+        this.updated = Collections.unmodifiableList(updated);
+        this.deleted = Collections.unmodifiableList(deleted);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public List<String> getInserted() {
+        return inserted;
+    }
+
+    public List<String> getUpdated() {
+        return updated;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the ids of all the changed rows, inserted, updated and deleted
+     */
+    public List<String> getChangedIds() {
+        List<String> ids = new ArrayList<>(inserted.size() + updated.size() + deleted.size());
+        ids.addAll(inserted);
+        ids.addAll(updated);
+        ids.addAll(deleted);
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "TableChangedEvent{" + entityClass.getSimpleName() + ", inserted=" + inserted.size()
+            + ", updated=" + updated.size() + ", deleted=" + deleted.size() + '}';
+    }
+}
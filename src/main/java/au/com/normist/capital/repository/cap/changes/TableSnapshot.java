@@ -0,0 +1,112 @@
+package au.com.normist.capital.repository.cap.changes;
+
+import au.com.normist.capital.domain.cap.CapBaseModel;
+import au.com.normist.capital.repository.cap.dbutilsjpa.Entities;
+import au.com.normist.capital.repository.cap.dbutilsjpa.EntityMetadata;
+import au.com.normist.capital.repository.cap.dbutilsjpa.PropertyDescriptorWrapper;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The id and a 64 bit hash of the columns of every row of a table, by ROWID, to tell the rows changed between two
+ * polls. Rows of entities without a ROWID are keyed by id.
+ *
+ * Not thread-safe.
+ */
+class TableSnapshot {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final Class<?> entityClass;
+    private final EntityMetadata metadata;
+    private final Map<String, Row> rows;
+
+    TableSnapshot(Class<?> entityClass, int expectedSize) {
+        this.entityClass = entityClass;
+        this.metadata = EntityMetadata.of(entityClass);
+        this.rows = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+    }
+
+    void add(CapBaseModel record) {
+        String id = Objects.toString(metadata.getId(record), "").trim();
+        String rowKey = record.getRowId() == null ? id : record.getRowId();
+        rows.put(rowKey, new Row(id, hash(record)));
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return the rows inserted, updated and deleted from {@code previous} to this snapshot
+     */
+    TableChangedEvent changesSince(TableSnapshot previous) {
+        Set<String> inserted = new LinkedHashSet<>();
+        Set<String> updated = new LinkedHashSet<>();
+        Set<String> deleted = new LinkedHashSet<>();
+
+        for (Map.Entry<String, Row> entry : rows.entrySet()) {
+            Row row = entry.getValue();
+            Row old = previous.rows.get(entry.getKey());
+            if (old == null) {
+                inserted.add(row.id);
+            } else if (!old.id.equals(row.id)) {
+                // the record of a deleted row was reused
+                deleted.add(old.id);
+                inserted.add(row.id);
+            } else if (old.hash != row.hash) {
+                updated.add(row.id);
+            }
+        }
+        for (Map.Entry<String, Row> entry : previous.rows.entrySet()) {
+            if (!rows.containsKey(entry.getKey())) {
+                deleted.add(entry.getValue().id);
+            }
+        }
+
+        // an id that moved to another ROWID, e.g. when the table was packed, is an update
+        for (String id : new ArrayList<>(inserted)) {
+            if (deleted.remove(id)) {
+                inserted.remove(id);
+                updated.add(id);
+            }
+        }
+        return new TableChangedEvent(entityClass, new ArrayList<>(inserted), new ArrayList<>(updated), new ArrayList<>(deleted));
+    }
+
+    private long hash(Object record) {
+        Hasher hasher = HASH.newHasher();
+        for (PropertyDescriptorWrapper property : metadata.getPropertyDescriptors()) {
+            if (Entities.isRelation(property.getAccessibleObject())) {
+                continue;
+            }
+            Object value = property.get(record);
+            if (value == null) {
+                hasher.putInt(-1);
+            } else {
+                String text = value.toString();
+                hasher.putInt(text.length()).putUnencodedChars(text);
+            }
+        }
+        return hasher.hash().asLong();
+    }
+
+    private static final class Row {
+
+        private final String id;
+        private final long hash;
+
+        private Row(String id, long hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+    }
+}
@@ -15,6 +15,17 @@ public class Entities {
      * @throws Exception if there is no {@link Id} annotation.
      */
     public static AccessibleObject getIdAccessor(Class<?> type) {
+        AccessibleObject idAccessor = getIdAccessorOrNull(type);
+        if (idAccessor == null) {
+            throw new IllegalArgumentException(type.getName() + " does not have a field or property annotated with @Id");
+        }
+        return idAccessor;
+    }
+
+    /**
+     * @return The field or method annotated with {@link Id}, or null for keyless (read only) entities such as history tables.
+     */
+    public static AccessibleObject getIdAccessorOrNull(Class<?> type) {
         for (Method method : type.getMethods()) {
             if (isIdAccessor(method)) {
                 if (!method.isAccessible()) {
@@ -33,7 +44,7 @@ public class Entities {
             }
         }
 
-        throw new IllegalArgumentException(type.getName() + " does not have a field or property annotated with @Id");
+        return null;
     }
 
     /**
@@ -82,6 +93,31 @@ public class Entities {
 
     }
 
+    /**
+     * @return the {@link Column} name of a getter, or of the field behind it (e.g. {@code location} for
+     * {@code getLocation()} or {@code isOnHold} for {@code getOnHold()}), null if neither is annotated
+     */
+    public static String getColumnNameOfGetter(Method getter) {
+        Column column = getter.getAnnotation(Column.class);
+        if (column == null) {
+            String property = getter.getName().replaceAll("^(get|is)", "");
+            if (property.isEmpty()) {
+                return null;
+            }
+            String fieldName = Introspector.decapitalize(property);
+            String isFieldName = "is" + property;
+            for (Class<?> c = getter.getDeclaringClass(); c != null && c != Object.class && column == null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (field.getName().equals(fieldName) || field.getName().equals(isFieldName)) {
+                        column = field.getAnnotation(Column.class);
+                        break;
+                    }
+                }
+            }
+        }
+        return column == null || column.name().isEmpty() ? null : column.name();
+    }
+
     public static boolean isTransient(AccessibleObject accessibleObject) {
         return Modifier.isTransient(((Member) accessibleObject).getModifiers()) || accessibleObject.isAnnotationPresent(Transient.class);
     }
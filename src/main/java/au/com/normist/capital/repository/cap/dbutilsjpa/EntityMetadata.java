@@ -0,0 +1,134 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Mapping metadata of an entity class, discovered once through reflection and then reused for every row.
+ *
+ * Thread-safe.
+ */
+public final class EntityMetadata {
+
+    private static final ConcurrentMap<Class<?>, EntityMetadata> CACHE = new ConcurrentHashMap<>();
+
+    private static final char LAYOUT_SEPARATOR = '\u001F';
+
+    /**
+     * @return the cached metadata of the given class, discovering it on first use
+     */
+    public static EntityMetadata of(Class<?> type) {
+        EntityMetadata metadata = CACHE.get(type);
+        if (metadata == null) {
+            metadata = CACHE.computeIfAbsent(type, EntityMetadata::new);
+        }
+        return metadata;
+    }
+
+    /**
+     * Forgets all discovered metadata. Only meant for tests and benchmarks.
+     */
+    static void clear() {
+        CACHE.clear();
+    }
+
+    private final Class<?> type;
+    private final AccessibleObject idAccessor;
+    private final PropertyDescriptorWrapper[] propertyDescriptors;
+    private final PropertyDescriptorWrapper idPropertyDescriptor;
+
+    /**
+     * Compiled row mappers, keyed by the column labels of a result set.
+     */
+    private final ConcurrentMap<String, EntityRowMapper<?>> rowMappers = new ConcurrentHashMap<>();
+
+    private EntityMetadata(Class<?> type) {
+        this.type = type;
+        this.idAccessor = Entities.getIdAccessorOrNull(type);
+        this.propertyDescriptors = idAccessor instanceof Method
+            ? PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(type)
+            : PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(type);
+
+        PropertyDescriptorWrapper idProperty = null;
+        for (PropertyDescriptorWrapper propertyDescriptor : propertyDescriptors) {
+            if (Entities.isIdAccessor(propertyDescriptor.getAccessibleObject())) {
+                idProperty = propertyDescriptor;
+                break;
+            }
+        }
+        this.idPropertyDescriptor = idProperty;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the field or method annotated with {@code @Id}, null for keyless entities
+     */
+    public AccessibleObject getIdAccessor() {
+        return idAccessor;
+    }
+
+    /**
+     * @return the shared property descriptors, callers must not modify the array
+     */
+    public PropertyDescriptorWrapper[] getPropertyDescriptors() {
+        return propertyDescriptors;
+    }
+
+    public PropertyDescriptorWrapper getIdPropertyDescriptor() {
+        return idPropertyDescriptor;
+    }
+
+    /**
+     * @return the id of the given entity, or null if it has none yet
+     */
+    public Object getId(Object entity) {
+        if (idPropertyDescriptor == null) {
+            throw new IllegalArgumentException(type.getName() + " does not have a field or property annotated with @Id");
+        }
+        return idPropertyDescriptor.get(entity);
+    }
+
+    /**
+     * Looks up the row mapper of a result set shape, compiling it on the first call for that shape.
+     *
+     * @param foreignKeySuffix the suffix the column mapping was computed with, part of the cache key
+     */
+    @SuppressWarnings("unchecked")
+    <T> EntityRowMapper<T> rowMapper(ResultSetMetaData rsmd, String foreignKeySuffix, ColumnMapper columnMapper) throws SQLException {
+        String layout = layoutOf(rsmd, foreignKeySuffix);
+        EntityRowMapper<?> rowMapper = rowMappers.get(layout);
+        if (rowMapper == null) {
+            rowMapper = EntityRowMapper.compile(type, propertyDescriptors, columnMapper.map(rsmd, propertyDescriptors));
+            EntityRowMapper<?> existing = rowMappers.putIfAbsent(layout, rowMapper);
+            if (existing != null) {
+                rowMapper = existing;
+            }
+        }
+        return (EntityRowMapper<T>) rowMapper;
+    }
+
+    private static String layoutOf(ResultSetMetaData rsmd, String foreignKeySuffix) throws SQLException {
+        int cols = rsmd.getColumnCount();
+        StringBuilder layout = new StringBuilder(cols * 12).append(foreignKeySuffix);
+        for (int col = 1; col <= cols; col++) {
+            String columnName = rsmd.getColumnLabel(col);
+            if (columnName == null || columnName.length() == 0) {
+                columnName = rsmd.getColumnName(col);
+            }
+            layout.append(LAYOUT_SEPARATOR).append(columnName);
+        }
+        return layout.toString();
+    }
+
+    @FunctionalInterface
+    interface ColumnMapper {
+        int[] map(ResultSetMetaData rsmd, PropertyDescriptorWrapper[] props) throws SQLException;
+    }
+}
@@ -0,0 +1,379 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleInfo;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Maps the rows of one result set layout onto new instances of an entity.
+ *
+ * Everything reflective is resolved once when the mapper is compiled: each mapped column is read by ordinal with the
+ * typed {@link ResultSet} getter of its property and written through a setter bound with {@link LambdaMetafactory}, or
+ * through a {@link MethodHandle} when the property has no public setter. Primitive int, long and double properties
+ * are set without boxing.
+ *
+ * Relations are left to {@link JpaBeanProcessor}. Thread-safe, instances are cached per layout by {@link EntityMetadata}.
+ */
+public final class EntityRowMapper<T> {
+
+    private static final int PROPERTY_NOT_FOUND = -1;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> type;
+    private final Supplier<T> constructor;
+    private final ColumnWriter[] writers;
+    private final PropertyDescriptorWrapper[] props;
+    private final int[] columnToProperty;
+    private final boolean hasRelations;
+
+    private EntityRowMapper(Class<T> type, PropertyDescriptorWrapper[] props, int[] columnToProperty) {
+        this.type = type;
+        this.props = props;
+        this.columnToProperty = columnToProperty;
+        this.constructor = constructorOf(type);
+
+        List<ColumnWriter> columnWriters = new ArrayList<>();
+        boolean relations = false;
+        for (int column = 1; column < columnToProperty.length; column++) {
+            if (columnToProperty[column] == PROPERTY_NOT_FOUND) {
+                continue;
+            }
+            PropertyDescriptorWrapper prop = props[columnToProperty[column]];
+            if (Entities.isRelation(prop.getAccessibleObject())) {
+                relations = true;
+            } else {
+                columnWriters.add(writerOf(type, column, prop));
+            }
+        }
+        this.writers = columnWriters.toArray(new ColumnWriter[0]);
+        this.hasRelations = relations;
+    }
+
+    /**
+     * @param props            the mapped properties of the entity
+     * @param columnToProperty index into {@code props} for each column, starting at 1, -1 for unmapped columns
+     */
+    public static <T> EntityRowMapper<T> compile(Class<T> type, PropertyDescriptorWrapper[] props, int[] columnToProperty) {
+        return new EntityRowMapper<>(type, props, columnToProperty);
+    }
+
+    /**
+     * @return a new entity holding the non relation columns of the current row
+     */
+    public T map(ResultSet rs) throws SQLException {
+        T bean = constructor.get();
+        for (ColumnWriter writer : writers) {
+            writer.write(rs, bean);
+        }
+        return bean;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    boolean hasRelations() {
+        return hasRelations;
+    }
+
+    PropertyDescriptorWrapper[] getPropertyDescriptors() {
+        return props;
+    }
+
+    int[] getColumnToProperty() {
+        return columnToProperty;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructorOf(Class<T> type) {
+        Constructor<T> constructor;
+        try {
+            constructor = type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " does not have a public no-arg constructor", e);
+        }
+
+        try {
+            MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+            if (canBind(type)) {
+                return (Supplier<T>) bind(Supplier.class, MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+            }
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return (T) generic.invokeExact();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot instantiate " + type.getName(), e);
+        }
+    }
+
+    private static ColumnWriter writerOf(Class<?> type, int column, PropertyDescriptorWrapper prop) {
+        Class<?> propType = prop.getPropertyType();
+        MethodHandle setter = setterOf(type, prop);
+        boolean bindable = canBind(type) && isDirect(setter);
+
+        if (bindable && propType == int.class) {
+            ObjIntConsumer<Object> set = bind(ObjIntConsumer.class, MethodType.methodType(void.class, Object.class, int.class), setter, setter.type());
+            return (rs, bean) -> set.accept(bean, rs.getInt(column));
+        }
+        if (bindable && propType == long.class) {
+            ObjLongConsumer<Object> set = bind(ObjLongConsumer.class, MethodType.methodType(void.class, Object.class, long.class), setter, setter.type());
+            return (rs, bean) -> set.accept(bean, rs.getLong(column));
+        }
+        if (bindable && propType == double.class) {
+            ObjDoubleConsumer<Object> set = bind(ObjDoubleConsumer.class, MethodType.methodType(void.class, Object.class, double.class), setter, setter.type());
+            return (rs, bean) -> set.accept(bean, rs.getDouble(column));
+        }
+
+        ColumnReader reader = readerOf(column, propType, prop.getName());
+        if (bindable) {
+            MethodType instantiated = MethodType.methodType(void.class, setter.type().parameterType(0), MethodType.methodType(propType).wrap().returnType());
+            BiConsumer<Object, Object> set = bind(BiConsumer.class, MethodType.methodType(void.class, Object.class, Object.class), setter, instantiated);
+            return (rs, bean) -> set.accept(bean, reader.read(rs));
+        }
+
+        MethodHandle generic = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (rs, bean) -> {
+            Object value = reader.read(rs);
+            try {
+                generic.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new SQLException("Cannot set " + prop.getName() + ": " + e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * Prefers the public setter of a field mapped property so it can be bound as a lambda, falling back to the field.
+     */
+    private static MethodHandle setterOf(Class<?> type, PropertyDescriptorWrapper prop) {
+        try {
+            Method writeMethod = prop.getWriteMethod();
+            if (writeMethod == null && prop.getMember() instanceof Field) {
+                Field field = (Field) prop.getMember();
+                String name = field.getName();
+                try {
+                    writeMethod = type.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), field.getType());
+                } catch (NoSuchMethodException e) {
+                    field.setAccessible(true);
+                    return LOOKUP.unreflectSetter(field);
+                }
+            }
+            if (writeMethod == null) {
+                throw new IllegalArgumentException("No setter for " + prop.getName() + " in " + type.getName());
+            }
+            if (!Modifier.isPublic(writeMethod.getDeclaringClass().getModifiers())) {
+                writeMethod.setAccessible(true);
+            }
+            return LOOKUP.unreflect(writeMethod);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot set " + prop.getName() + " in " + type.getName(), e);
+        }
+    }
+
+    private static ColumnReader readerOf(int column, Class<?> propType, String propName) {
+        if (propType == String.class) {
+            return rs -> rs.getString(column);
+        }
+        if (propType == BigDecimal.class) {
+            return rs -> rs.getBigDecimal(column);
+        }
+        if (propType == Integer.class) {
+            return rs -> {
+                int value = rs.getInt(column);
+                return rs.wasNull() ? null : Integer.valueOf(value);
+            };
+        }
+        if (propType == Long.class) {
+            return rs -> {
+                long value = rs.getLong(column);
+                return rs.wasNull() ? null : Long.valueOf(value);
+            };
+        }
+        if (propType == Double.class) {
+            return rs -> {
+                double value = rs.getDouble(column);
+                return rs.wasNull() ? null : Double.valueOf(value);
+            };
+        }
+        if (propType == Float.class) {
+            return rs -> {
+                float value = rs.getFloat(column);
+                return rs.wasNull() ? null : Float.valueOf(value);
+            };
+        }
+        if (propType == Short.class) {
+            return rs -> {
+                short value = rs.getShort(column);
+                return rs.wasNull() ? null : Short.valueOf(value);
+            };
+        }
+        if (propType == Byte.class) {
+            return rs -> {
+                byte value = rs.getByte(column);
+                return rs.wasNull() ? null : Byte.valueOf(value);
+            };
+        }
+        if (propType == Boolean.class) {
+            return rs -> {
+                boolean value = rs.getBoolean(column);
+                return rs.wasNull() ? null : Boolean.valueOf(value);
+            };
+        }
+        // SQL NULL leaves primitives at the defaults the ResultSet getters return
+        if (propType == int.class) {
+            return rs -> rs.getInt(column);
+        }
+        if (propType == long.class) {
+            return rs -> rs.getLong(column);
+        }
+        if (propType == double.class) {
+            return rs -> rs.getDouble(column);
+        }
+        if (propType == float.class) {
+            return rs -> rs.getFloat(column);
+        }
+        if (propType == short.class) {
+            return rs -> rs.getShort(column);
+        }
+        if (propType == byte.class) {
+            return rs -> rs.getByte(column);
+        }
+        if (propType == boolean.class) {
+            return rs -> rs.getBoolean(column);
+        }
+        if (propType == char.class || propType == Character.class) {
+            boolean primitive = propType.isPrimitive();
+            return rs -> {
+                String value = rs.getString(column);
+                if (value == null || value.isEmpty()) {
+                    return primitive ? Character.valueOf((char) 0) : null;
+                }
+                return value.charAt(0);
+            };
+        }
+        if (propType == LocalDate.class) {
+            return rs -> {
+                java.sql.Date value = rs.getDate(column);
+                return value == null ? null : value.toLocalDate();
+            };
+        }
+        if (propType == org.joda.time.LocalDate.class) {
+            return rs -> {
+                java.sql.Date value = rs.getDate(column);
+                return value == null ? null : org.joda.time.LocalDate.fromDateFields(value);
+            };
+        }
+        if (propType == LocalDateTime.class) {
+            return rs -> {
+                Timestamp value = rs.getTimestamp(column);
+                return value == null ? null : value.toLocalDateTime();
+            };
+        }
+        if (propType == java.sql.Date.class) {
+            return rs -> rs.getDate(column);
+        }
+        if (propType == java.sql.Time.class) {
+            return rs -> rs.getTime(column);
+        }
+        if (propType == Timestamp.class || propType == java.util.Date.class) {
+            return rs -> rs.getTimestamp(column);
+        }
+        if (propType == byte[].class) {
+            return rs -> rs.getBytes(column);
+        }
+        if (propType.isEnum()) {
+            return enumReader(column, propType);
+        }
+
+        return rs -> {
+            Object value = rs.getObject(column);
+            if (value != null && !propType.isInstance(value)) {
+                throw new SQLException("Cannot set " + propName + ": incompatible types.");
+            }
+            return value;
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ColumnReader enumReader(int column, Class<?> enumType) {
+        return rs -> {
+            String value = rs.getString(column);
+            return value == null ? null : Enum.valueOf((Class<Enum>) enumType, value);
+        };
+    }
+
+    /**
+     * Lambdas are spun in this class' loader, so the entity must be visible from it (not the case with e.g. a
+     * separate restart class loader).
+     */
+    private static boolean canBind(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, EntityRowMapper.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDirect(MethodHandle setter) {
+        try {
+            return LOOKUP.revealDirect(setter).getReferenceKind() != MethodHandleInfo.REF_putField;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <I> I bind(Class<? super I> functionalInterface, MethodType samType, MethodHandle implementation, MethodType instantiatedType) {
+        String samName = functionalInterface == Supplier.class ? "get" : "accept";
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, samName, MethodType.methodType(functionalInterface),
+                samType, implementation, instantiatedType);
+            return (I) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot bind " + implementation + " to " + functionalInterface.getName(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnWriter {
+        void write(ResultSet rs, Object bean) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs) throws SQLException;
+    }
+}
@@ -20,26 +20,8 @@ public class JpaBeanProcessor extends BeanProcessor {
      */
     private static final int PROPERTY_NOT_FOUND = -1;
 
-    /*
-     * Set a bean's primitive properties to these defaults when SQL NULL is
-     * returned. These are the same as the defaults that ResultSet get* methods
-     * return in the event of a NULL column.
-     */
-    private static final Map<Class<?>, Object> primitiveDefaults = new HashMap<>();
-
     private final String foreignKeySuffix;
 
-    static {
-        primitiveDefaults.put(Integer.TYPE, Integer.valueOf(0));
-        primitiveDefaults.put(Short.TYPE, Short.valueOf((short) 0));
-        primitiveDefaults.put(Byte.TYPE, Byte.valueOf((byte) 0));
-        primitiveDefaults.put(Float.TYPE, Float.valueOf(0f));
-        primitiveDefaults.put(Double.TYPE, Double.valueOf(0d));
-        primitiveDefaults.put(Long.TYPE, Long.valueOf(0L));
-        primitiveDefaults.put(Boolean.TYPE, Boolean.FALSE);
-        primitiveDefaults.put(Character.TYPE, Character.valueOf((char) 0));
-    }
-
     /**
      * Uses _id as foreignKeySuffix
      */
@@ -55,14 +37,8 @@ public class JpaBeanProcessor extends BeanProcessor {
     }
 
     @Override
-        public <T> T toBean(ResultSet rs, Class<? extends T> type) throws SQLException {
-        checkIsEntity(type);
-        PropertyDescriptorWrapper[] props = propertyDescriptors(type);
-
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int[] columnToProperty = mapColumnsToProperties(rsmd, props);
-
-        return createBean(rs, type, props, columnToProperty);
+    public <T> T toBean(ResultSet rs, Class<? extends T> type) throws SQLException {
+        return createBean(rs, rowMapper(rs, type));
     }
 
     @Override
@@ -75,17 +51,37 @@ public class JpaBeanProcessor extends BeanProcessor {
 
         List<T> results = new ArrayList<>();
 
-        PropertyDescriptorWrapper[] props = propertyDescriptors(type);
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int[] columnsToProperties = mapColumnsToProperties(rsmd, props);
+        EntityRowMapper<? extends T> rowMapper = rowMapper(rs, type);
 
         do {
-            results.add(this.createBean(rs, type, props, columnsToProperties));
+            results.add(this.createBean(rs, rowMapper));
         } while (rs.next());
 
         return results;
     }
 
+    /**
+     * Maps the current row with a mapper obtained from {@link #rowMapper(ResultSet, Class)} for the same result set.
+     */
+    public <T> T toBean(ResultSet rs, EntityRowMapper<T> rowMapper) throws SQLException {
+        return createBean(rs, rowMapper);
+    }
+
+    /**
+     * @return the compiled mapper of the given entity for the columns of the result set
+     */
+    public <T> EntityRowMapper<T> rowMapper(ResultSet rs, Class<T> type) throws SQLException {
+        checkIsEntity(type);
+        return projectionRowMapper(rs, type);
+    }
+
+    /**
+     * @return the compiled mapper of a {@link Projection#getRowType()}, which need not be an entity
+     */
+    <T> EntityRowMapper<T> projectionRowMapper(ResultSet rs, Class<T> type) throws SQLException {
+        return EntityMetadata.of(type).rowMapper(rs.getMetaData(), foreignKeySuffix, this::mapColumnsToProperties);
+    }
+
     @Override
     protected int[] mapColumnsToProperties(ResultSetMetaData rsmd, PropertyDescriptor[] props) throws SQLException {
 
@@ -128,22 +124,6 @@ public class JpaBeanProcessor extends BeanProcessor {
         }
     }
 
-    private <T> PropertyDescriptorWrapper[] propertyDescriptors(Class<T> type) {
-        AccessibleObject idAccessor = getIdAccessor(type);
-
-        PropertyDescriptorWrapper[] propertyDescriptors;
-        if (idAccessor instanceof Method) {
-            propertyDescriptors = PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(type);
-        } else {
-            propertyDescriptors = PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(type);
-        }
-        return propertyDescriptors;
-    }
-
-    private <T> AccessibleObject getIdAccessor(Class<T> type) {
-        return Entities.getIdAccessor(type);
-    }
-
     private <T> void checkIsEntity(Class<T> type) {
         if (!type.isAnnotationPresent(Entity.class) && !type.isAnnotationPresent(PersistEntity.class)) {
             throw new IllegalArgumentException(type.getName() + " is not a JPA @Entity");
@@ -157,62 +137,58 @@ public class JpaBeanProcessor extends BeanProcessor {
      *          The type of bean to create
      * @param rs
      *          The result set.
-     * @param type
-     *          The bean type (the return type of the object).
-     * @param props
-     *          The property descriptors.
-     * @param columnToProperty
-     *          The column indices in the result set.
+     * @param rowMapper
+     *          The mapper compiled for the columns of the result set.
      * @return An initialized object.
      * @throws SQLException
      *           if a database error occurs.
      */
-    private <T> T createBean(ResultSet rs, Class<T> type, PropertyDescriptorWrapper[] props, int[] columnToProperty)
-        throws SQLException {
+    private <T> T createBean(ResultSet rs, EntityRowMapper<T> rowMapper) throws SQLException {
 
-        T bean = this.newInstance(type);
+        T bean = rowMapper.map(rs);
 
+        if (!rowMapper.hasRelations()) {
+            return bean;
+        }
+
+        PropertyDescriptorWrapper[] props = rowMapper.getPropertyDescriptors();
+        int[] columnToProperty = rowMapper.getColumnToProperty();
         for (int i = 1; i < columnToProperty.length; i++) {
             if (columnToProperty[i] == PROPERTY_NOT_FOUND) {
                 continue;
             }
 
             PropertyDescriptorWrapper prop = props[columnToProperty[i]];
-            Class<?> propType = prop.getPropertyType();
-            Object value = null;
             AccessibleObject accessibleObject = prop.getAccessibleObject();
-            if (Entities.isRelation(accessibleObject)) {
-                String tableName = Entities.getName(prop.getPropertyType());
-                ResultSetMetaData metaData = rs.getMetaData();
-
-                if (Entities.isToOneRelation(accessibleObject)) {
-                    Class<?> joinType = prop.getPropertyType();
-                    PropertyDescriptorWrapper[] joinPropertyDescriptors = propertyDescriptors(joinType);
-                    for (int j = 1; j <= metaData.getColumnCount(); j++) {
-                        if (!tableName.equalsIgnoreCase(metaData.getTableName(j))) {
-                            continue;
-                        }
+            if (!Entities.isRelation(accessibleObject)) {
+                continue;
+            }
 
-                        String joinColumnName = metaData.getColumnLabel(j);
+            Object value = null;
+            String tableName = Entities.getName(prop.getPropertyType());
+            ResultSetMetaData metaData = rs.getMetaData();
+
+            if (Entities.isToOneRelation(accessibleObject)) {
+                Class<?> joinType = prop.getPropertyType();
+                PropertyDescriptorWrapper[] joinPropertyDescriptors = EntityMetadata.of(joinType).getPropertyDescriptors();
+                for (int j = 1; j <= metaData.getColumnCount(); j++) {
+                    if (!tableName.equalsIgnoreCase(metaData.getTableName(j))) {
+                        continue;
+                    }
 
-                        for (PropertyDescriptorWrapper joinPropertyDescriptor : joinPropertyDescriptors) {
-                            if (Entities.getName(joinPropertyDescriptor.getAccessibleObject()).equalsIgnoreCase(joinColumnName)) {
-                                if (value == null) {
-                                    value = newInstance(joinType);
-                                }
+                    String joinColumnName = metaData.getColumnLabel(j);
 
-                                callSetter(value, joinPropertyDescriptor, processColumn(rs, j, joinPropertyDescriptor.getPropertyType()));
-                                break;
+                    for (PropertyDescriptorWrapper joinPropertyDescriptor : joinPropertyDescriptors) {
+                        if (Entities.getName(joinPropertyDescriptor.getAccessibleObject()).equalsIgnoreCase(joinColumnName)) {
+                            if (value == null) {
+                                value = newInstance(joinType);
                             }
+
+                            callSetter(value, joinPropertyDescriptor, processColumn(rs, j, joinPropertyDescriptor.getPropertyType()));
+                            break;
                         }
                     }
                 }
-            } else {
-                value = this.processColumn(rs, i, propType);
-
-                if (value == null && propType.isPrimitive()) {
-                    value = primitiveDefaults.get(propType);
-                }
             }
 
             this.callSetter(bean, prop, value);
@@ -3,6 +3,8 @@ package au.com.normist.capital.repository.cap.dbutilsjpa;
 import au.com.normist.capital.repository.cap.AdsConnDriver;
 import org.apache.commons.dbutils.*;
 import org.apache.commons.dbutils.handlers.BeanHandler;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.apache.commons.dbutils.handlers.ColumnListHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,9 +12,17 @@ import org.slf4j.LoggerFactory;
 import javax.persistence.Column;
 import java.lang.reflect.*;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Provides a JPA-friendly interface to the underlying QueryRunner.
@@ -24,24 +34,13 @@ public class JpaQueryRunner {
 
     public static final ScalarHandler<Long> DEFAULT_GENERATED_KEYS_HANDLER = new ScalarHandler<>();
     public static final SqlWriter DEFAULT_SQL_WRITER = new SqlWriter();
-    public static final BasicRowProcessor DEFAULT_ROW_PROCESSOR = new BasicRowProcessor(new JpaBeanProcessor());
+    public static final JpaBeanProcessor DEFAULT_BEAN_PROCESSOR = new JpaBeanProcessor();
+    public static final JpaRowProcessor DEFAULT_ROW_PROCESSOR = new JpaRowProcessor(DEFAULT_BEAN_PROCESSOR);
+    public static final int DEFAULT_BATCH_SIZE = 500;
     public static final NewEntityTester DEFAULT_ENTITY_TESTER = new NewEntityTester() {
         @Override
         public boolean isNew(Object entity) {
-            AccessibleObject idAccessor = Entities.getIdAccessor(entity.getClass());
-            try {
-                if (idAccessor instanceof Field) {
-                    Field field = (Field) idAccessor;
-
-                    return field.get(entity) == null;
-                } else {
-                    return ((Method) idAccessor).invoke(entity) == null;
-                }
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException(e.getCause());
-            }
+            return EntityMetadata.of(entity.getClass()).getId(entity) == null;
         }
     };
 
@@ -149,6 +148,181 @@ public class JpaQueryRunner {
         }
     }
 
+    /**
+     * Find by primary keys with a single IN list.
+     *
+     * @param conn
+     *          the connection to run the query on, it is left open
+     * @param entityClass
+     *          entity class
+     * @param primaryKeys
+     *          primary keys, bound in order to the IN list
+     * @return the found entity instances in database order, keys without a row are skipped
+     */
+    public <T> List<T> queryByIds(Connection conn, Class<T> entityClass, Collection<?> primaryKeys) {
+        try {
+            return queryRunner.query(conn, sqlWriter.selectByIds(entityClass, primaryKeys.size()),
+                new BeanListHandler<>(entityClass, rowProcessor), primaryKeys.toArray());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * One page of the entity's table, ordered by id, see {@link SqlWriter#selectPage(Class, int, int)}.
+     */
+    public <T> List<T> queryPage(Class<T> entityClass, int offset, int limit) {
+        Connection conn = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            return queryRunner.query(conn, sqlWriter.selectPage(entityClass, offset, limit), new BeanListHandler<>(entityClass, rowProcessor));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    /**
+     * The entities matching a condition, see {@link SqlWriter#selectWhere(Class, String)}.
+     *
+     * @param params
+     *          the values of the condition's {@code ?} parameters
+     */
+    public <T> List<T> queryWhere(Class<T> entityClass, String condition, Object... params) {
+        Connection conn = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            return queryRunner.query(conn, sqlWriter.selectWhere(entityClass, condition), new BeanListHandler<>(entityClass, rowProcessor), params);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    /**
+     * The number of entities matching a condition, see {@link SqlWriter#countWhere(Class, String)}.
+     *
+     * @param params
+     *          the values of the condition's {@code ?} parameters
+     */
+    public long countWhere(Class<?> entityClass, String condition, Object... params) {
+        Connection conn = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            Number count = queryRunner.query(conn, sqlWriter.countWhere(entityClass, condition), new ScalarHandler<Number>(), params);
+            return count == null ? 0 : count.longValue();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    /**
+     * One page of the entities matching a condition, see {@link SqlWriter#selectPageWhere(Class, String, int, int)}.
+     *
+     * @param params
+     *          the values of the condition's {@code ?} parameters
+     */
+    public <T> List<T> queryPageWhere(Class<T> entityClass, String condition, int offset, int limit, Object... params) {
+        Connection conn = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            return queryRunner.query(conn, sqlWriter.selectPageWhere(entityClass, condition, offset, limit),
+                new BeanListHandler<>(entityClass, rowProcessor), params);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    /**
+     * One page of the entity's table in keyset mode, see {@link SqlWriter#selectPageAfter(Class, int, boolean)}.
+     *
+     * @param lastKey
+     *          the id of the last entity of the previous page, null for the first page
+     */
+    public <T> List<T> queryPageAfter(Class<T> entityClass, Object lastKey, int limit) {
+        Connection conn = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            BeanListHandler<T> handler = new BeanListHandler<>(entityClass, rowProcessor);
+            if (lastKey == null) {
+                return queryRunner.query(conn, sqlWriter.selectPageAfter(entityClass, limit, true), handler);
+            }
+            return queryRunner.query(conn, sqlWriter.selectPageAfter(entityClass, limit, false), handler, lastKey);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    /**
+     * Runs a query on a forward-only, read-only cursor of its own pooled connection and maps the rows lazily, so only
+     * the rows of the current fetch are held in memory.
+     *
+     * The stream must be closed (e.g. with try-with-resources) unless it is read to the end, or the connection leaks.
+     *
+     * @param fetchSize
+     *          rows fetched per round trip, 0 leaves the driver default
+     */
+    public <T> Stream<T> stream(Class<T> entityClass, String sql, int fetchSize, Object... params) {
+        return stream(sql, fetchSize, params,
+            (conn, statement, rs) -> new ResultSetSpliterator<>(conn, statement, rs, rowProcessor, entityClass));
+    }
+
+    /**
+     * Streams all rows of the entity's table, see {@link #stream(Class, String, int, Object...)}.
+     */
+    public <T> Stream<T> streamAll(Class<T> entityClass, int fetchSize) {
+        return stream(entityClass, sqlWriter.select(entityClass), fetchSize);
+    }
+
+    /**
+     * Streams the rows matching a condition, see {@link #stream(Class, String, int, Object...)} and
+     * {@link SqlWriter#selectWhere(Class, String)}.
+     */
+    public <T> Stream<T> streamWhere(Class<T> entityClass, String condition, int fetchSize, Object... params) {
+        return stream(entityClass, sqlWriter.selectWhere(entityClass, condition), fetchSize, params);
+    }
+
+    /**
+     * The projected columns of all rows of the entity's table, see {@link Projection}.
+     */
+    public <P> List<P> queryAll(Class<?> entityClass, Class<P> projectionType) {
+        Projection<P> projection = Projection.of(entityClass, projectionType);
+        return queryProjection(sqlWriter.select(entityClass, projection), projection);
+    }
+
+    /**
+     * The projected columns of the rows matching a condition, see {@link #queryWhere(Class, String, Object...)}.
+     */
+    public <P> List<P> queryWhere(Class<?> entityClass, Class<P> projectionType, String condition, Object... params) {
+        Projection<P> projection = Projection.of(entityClass, projectionType);
+        return queryProjection(sqlWriter.selectWhere(entityClass, projection, condition), projection, params);
+    }
+
+    /**
+     * One page of the projected columns, see {@link #queryPage(Class, int, int)}.
+     */
+    public <P> List<P> queryPage(Class<?> entityClass, Class<P> projectionType, int offset, int limit) {
+        Projection<P> projection = Projection.of(entityClass, projectionType);
+        return queryProjection(sqlWriter.selectPage(entityClass, projection, offset, limit), projection);
+    }
+
+    /**
+     * Streams the projected columns of all rows, see {@link #stream(Class, String, int, Object...)}.
+     */
+    public <P> Stream<P> streamAll(Class<?> entityClass, Class<P> projectionType, int fetchSize) {
+        Projection<P> projection = Projection.of(entityClass, projectionType);
+        return stream(sqlWriter.select(entityClass, projection), fetchSize, new Object[0],
+            (conn, statement, rs) -> new ResultSetSpliterator<>(conn, statement, rs, rowProcessor, projection));
+    }
+
     /**
      * Insert if new, update if already exists.
      *
@@ -156,78 +330,329 @@ public class JpaQueryRunner {
      * @return The number of rows updated
      */
     public int save(Object entity) {
+        return entityTester.isNew(entity) ? insert(entity, false) : update(entity);
+    }
+
+    /**
+     * Inserts the entity. An entity without id gets the generated key, one with an id (e.g. a natural key) is inserted
+     * with it.
+     *
+     * @return The number of rows inserted
+     */
+    public int insert(Object entity) {
+        return insert(entity, EntityMetadata.of(entity.getClass()).getId(entity) != null);
+    }
+
+    /**
+     * Updates the row of the entity's id.
+     *
+     * @return The number of rows updated
+     */
+    public int update(Object entity) {
         try {
-            Class<? extends Object> entityClass = entity.getClass();
-            boolean isNew = entityTester.isNew(entity);
+            Class<?> entityClass = entity.getClass();
+            return queryRunner.update(sqlWriter.updateById(entityClass), args(entity, writeColumns(entityClass, WriteMode.UPDATE)));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
-            List<PropertyDescriptorWrapper> relevantPropertyDescriptors = new ArrayList<>();
-            PropertyDescriptorWrapper idPropertyDescriptor = null;
-            PropertyDescriptorWrapper[] propertyDescriptorWrappers = null;
-            if (idAccessor instanceof Method) {
-                propertyDescriptorWrappers = PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(entityClass);
-            } else {
-                propertyDescriptorWrappers = PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(entityClass);
+    /**
+     * Saves the entities with {@link #DEFAULT_BATCH_SIZE} statements per batch, see {@link #saveAll(Collection, int)}.
+     */
+    public int saveAll(Collection<?> entities) {
+        return saveAll(entities, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Inserts the new and updates the existing entities with JDBC batches, in one transaction on one connection.
+     *
+     * The entities are grouped by class and new-vs-existing, so each group runs one statement from {@link SqlWriter}
+     * in batches of at most {@code batchSize} rows. New entities get their generated keys. Nothing is written if any
+     * statement fails.
+     *
+     * @return The number of rows inserted or updated
+     */
+    public int saveAll(Collection<?> entities, int batchSize) {
+        checkBatchSize(batchSize);
+        Map<Class<?>, List<Object>> inserts = new LinkedHashMap<>();
+        Map<Class<?>, List<Object>> updates = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            Map<Class<?>, List<Object>> group = entityTester.isNew(entity) ? inserts : updates;
+            group.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
+
+        return inTransaction(conn -> {
+            int rows = 0;
+            for (Map.Entry<Class<?>, List<Object>> group : inserts.entrySet()) {
+                rows += insertBatch(conn, group.getKey(), group.getValue(), batchSize);
+            }
+            for (Map.Entry<Class<?>, List<Object>> group : updates.entrySet()) {
+                List<PropertyDescriptorWrapper> columns = writeColumns(group.getKey(), WriteMode.UPDATE);
+                rows += batch(conn, sqlWriter.updateById(group.getKey()), group.getValue(), entity -> args(entity, columns), batchSize);
             }
+            return rows;
+        });
+    }
 
-            for (PropertyDescriptorWrapper propertyDescriptorWrapper : propertyDescriptorWrappers) {
-                AccessibleObject accessibleObject = propertyDescriptorWrapper.getAccessibleObject();
-                Member member = propertyDescriptorWrapper.getMember();
+    /**
+     * Deletes the entities with {@link #DEFAULT_BATCH_SIZE} statements per batch, see {@link #deleteAll(Collection, int)}.
+     */
+    public int deleteAll(Collection<?> entities) {
+        return deleteAll(entities, DEFAULT_BATCH_SIZE);
+    }
 
-                if (!Entities.isMapped(member.getDeclaringClass()) || Entities.isRelation(accessibleObject)) {
-                    continue;
-                }
+    /**
+     * Deletes the entities by id with JDBC batches of at most {@code batchSize} rows per class, in one transaction on
+     * one connection.
+     *
+     * @return The number of rows deleted
+     */
+    public int deleteAll(Collection<?> entities, int batchSize) {
+        checkBatchSize(batchSize);
+        Map<Class<?>, List<Object>> deletes = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            deletes.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
 
-                if (Entities.isIdAccessor(accessibleObject)) {
-                    idPropertyDescriptor = propertyDescriptorWrapper;
-                    continue;
-                }
+        return inTransaction(conn -> {
+            int rows = 0;
+            for (Map.Entry<Class<?>, List<Object>> group : deletes.entrySet()) {
+                EntityMetadata metadata = EntityMetadata.of(group.getKey());
+                rows += batch(conn, sqlWriter.deleteById(group.getKey()), group.getValue(), entity -> new Object[]{metadata.getId(entity)}, batchSize);
+            }
+            return rows;
+        });
+    }
+
+    public int delete(Class<?> entityClass, Object primaryKey) {
+        try {
+            return queryRunner.update(sqlWriter.deleteById(entityClass), primaryKey);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private <T> Stream<T> stream(String sql, int fetchSize, Object[] params, SpliteratorFactory<T> spliterators) {
+        Connection conn = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            if (conn == null) {
+                throw new SQLException("No connection to the Capital database");
+            }
+            statement = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            queryRunner.fillStatement(statement, params);
+            rs = statement.executeQuery();
+            return spliterators.create(conn, statement, rs).stream();
+        } catch (SQLException e) {
+            DbUtils.closeQuietly(conn, statement, rs);
+            throw new RuntimeException(e);
+        }
+    }
 
-                if (isNotSettable(isNew, accessibleObject)) {
-                    continue;
+    private <P> List<P> queryProjection(String sql, Projection<P> projection, Object... params) {
+        Connection conn = null;
+        try {
+            conn = adsConnDriver.getDbConnection();
+            return queryRunner.query(conn, sql, rs -> {
+                List<P> results = new ArrayList<>();
+                if (!rs.next()) {
+                    return results;
+                }
+                if (!(rowProcessor instanceof JpaRowProcessor)) {
+                    do {
+                        results.add(projection.view(rowProcessor.toBean(rs, projection.getRowType())));
+                    } while (rs.next());
+                    return results;
                 }
+                EntityRowMapper<?> rowMapper = ((JpaRowProcessor) rowProcessor).getBeanProcessor()
+                    .projectionRowMapper(rs, projection.getRowType());
+                do {
+                    results.add(projection.view(rowMapper.map(rs)));
+                } while (rs.next());
+                return results;
+            }, params);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
 
-                relevantPropertyDescriptors.add(propertyDescriptorWrapper);
+    private int insert(Object entity, boolean withId) {
+        try {
+            Class<?> entityClass = entity.getClass();
+            if (withId) {
+                return queryRunner.update(sqlWriter.insertWithId(entityClass), args(entity, writeColumns(entityClass, WriteMode.INSERT_WITH_ID)));
             }
 
-            if (!isNew) {
-                relevantPropertyDescriptors.add(idPropertyDescriptor);
+            Object newId = queryRunner.insert(sqlWriter.insert(entityClass), generatedKeysHandler, args(entity, writeColumns(entityClass, WriteMode.INSERT)));
+            EntityMetadata.of(entityClass).getIdPropertyDescriptor().set(entity, newId);
+
+            return 1;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int insertBatch(Connection conn, Class<?> entityClass, List<Object> entities, int batchSize) throws SQLException {
+        List<PropertyDescriptorWrapper> columns = writeColumns(entityClass, WriteMode.INSERT);
+        String sql = sqlWriter.insert(entityClass);
+        PropertyDescriptorWrapper idPropertyDescriptor = EntityMetadata.of(entityClass).getIdPropertyDescriptor();
+
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<Object> chunk = entities.subList(from, Math.min(from + batchSize, entities.size()));
+            Object[][] params = new Object[chunk.size()][];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = args(chunk.get(i), columns);
             }
 
-            Object[] args = new Object[relevantPropertyDescriptors.size()];
-            for (int i = 0; i < args.length; i++) {
-                PropertyDescriptorWrapper propertyDescriptor = relevantPropertyDescriptors.get(i);
-                args[i] = propertyDescriptor.get(entity);
-                if (args[i] != null && Enum.class.isAssignableFrom(args[i].getClass())) {
-                    args[i] = args[i].toString();
-                }
+            List<Object> newIds = queryRunner.insertBatch(conn, sql, new ColumnListHandler<>(1), params);
+            // drivers may not return the keys of a batch, the rows are inserted anyway
+            for (int i = 0; i < newIds.size() && i < chunk.size(); i++) {
+                idPropertyDescriptor.set(chunk.get(i), newIds.get(i));
             }
+        }
+        return entities.size();
+    }
 
-            if (isNew) {
-                Object newId = queryRunner.insert(sqlWriter.insert(entityClass), generatedKeysHandler, args);
-                idPropertyDescriptor.set(entity, newId);
+    private int batch(Connection conn, String sql, List<Object> entities, Function<Object, Object[]> toArgs, int batchSize) throws SQLException {
+        int rows = 0;
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<Object> chunk = entities.subList(from, Math.min(from + batchSize, entities.size()));
+            Object[][] params = new Object[chunk.size()][];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = toArgs.apply(chunk.get(i));
+            }
 
-                return 1;
-            } else {
-                return queryRunner.update(sqlWriter.updateById(entityClass), args);
+            for (int count : queryRunner.batch(conn, sql, params)) {
+                // SUCCESS_NO_INFO: the statement ran, the driver just doesn't tell how many rows it hit
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
             }
+        }
+        return rows;
+    }
+
+    private int inTransaction(SqlWork work) {
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = adsConnDriver != null ? adsConnDriver.getDbConnection() : queryRunner.getDataSource().getConnection();
+            if (conn == null) {
+                throw new SQLException("No connection to the Capital database");
+            }
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            int rows = work.run(conn);
+            conn.commit();
+            return rows;
         } catch (SQLException e) {
+            rollbackQuietly(conn);
             throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    // pooled connections go back with the auto-commit they came with
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException e) {
+                    log.warn("Could not restore auto-commit of the connection", e);
+                }
+            }
+            DbUtils.closeQuietly(conn);
         }
     }
 
-    public int delete(Class<?> entityClass, Object primaryKey) {
+    private static void checkBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
         try {
-            return queryRunner.update(sqlWriter.deleteById(entityClass), primaryKey);
+            conn.rollback();
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            log.warn("Could not roll the batch back", e);
+        }
+    }
+
+    /**
+     * The properties bound to the statement {@link SqlWriter} writes for the mode, in its column order.
+     */
+    private List<PropertyDescriptorWrapper> writeColumns(Class<?> entityClass, WriteMode mode) {
+        boolean isNew = mode != WriteMode.UPDATE;
+        List<PropertyDescriptorWrapper> relevantPropertyDescriptors = new ArrayList<>();
+        PropertyDescriptorWrapper idPropertyDescriptor = null;
+
+        for (PropertyDescriptorWrapper propertyDescriptorWrapper : EntityMetadata.of(entityClass).getPropertyDescriptors()) {
+            AccessibleObject accessibleObject = propertyDescriptorWrapper.getAccessibleObject();
+            Member member = propertyDescriptorWrapper.getMember();
+
+            if (!Entities.isMapped(member.getDeclaringClass()) || Entities.isRelation(accessibleObject)) {
+                continue;
+            }
+
+            if (Entities.isIdAccessor(accessibleObject)) {
+                idPropertyDescriptor = propertyDescriptorWrapper;
+                if (mode == WriteMode.INSERT_WITH_ID) {
+                    relevantPropertyDescriptors.add(propertyDescriptorWrapper);
+                }
+                continue;
+            }
+
+            if (isNotSettable(isNew, accessibleObject)) {
+                continue;
+            }
+
+            relevantPropertyDescriptors.add(propertyDescriptorWrapper);
+        }
+
+        if (mode == WriteMode.UPDATE) {
+            relevantPropertyDescriptors.add(idPropertyDescriptor);
+        }
+        return relevantPropertyDescriptors;
+    }
+
+    private static Object[] args(Object entity, List<PropertyDescriptorWrapper> columns) {
+        Object[] args = new Object[columns.size()];
+        for (int i = 0; i < args.length; i++) {
+            PropertyDescriptorWrapper propertyDescriptor = columns.get(i);
+            args[i] = propertyDescriptor.get(entity);
+            if (args[i] != null && Enum.class.isAssignableFrom(args[i].getClass())) {
+                args[i] = args[i].toString();
+            }
         }
+        return args;
     }
 
     private boolean isNotSettable(boolean isNew, AccessibleObject accessibleObject) {
         return (isNew && accessibleObject.isAnnotationPresent(Column.class) && !accessibleObject.getAnnotation(Column.class).insertable()) || (!isNew && accessibleObject.isAnnotationPresent(Column.class) && !accessibleObject.getAnnotation(Column.class).updatable());
     }
 
+    private enum WriteMode {
+        INSERT, INSERT_WITH_ID, UPDATE
+    }
+
+    @FunctionalInterface
+    private interface SpliteratorFactory<T> {
+        ResultSetSpliterator<T> create(Connection conn, PreparedStatement statement, ResultSet rs) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        int run(Connection conn) throws SQLException;
+    }
+
     public AdsConnDriver getAdsConnDriver() {
         return adsConnDriver;
     }
@@ -0,0 +1,21 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import org.apache.commons.dbutils.BasicRowProcessor;
+
+/**
+ * A {@link BasicRowProcessor} converting rows with a {@link JpaBeanProcessor}, whose compiled row mappers the streams
+ * and projections of {@link JpaQueryRunner} reuse for all the rows of a result set.
+ */
+public class JpaRowProcessor extends BasicRowProcessor {
+
+    private final JpaBeanProcessor beanProcessor;
+
+    public JpaRowProcessor(JpaBeanProcessor beanProcessor) {
+        super(beanProcessor);
+        this.beanProcessor = beanProcessor;
+    }
+
+    public JpaBeanProcessor getBeanProcessor() {
+        return beanProcessor;
+    }
+}
@@ -0,0 +1,153 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The columns of an entity a caller needs, so only those are selected and mapped.
+ *
+ * A projection is either
+ * <ul>
+ *   <li>a class whose {@code @Column} fields name some columns of the entity, the rows are mapped onto it like onto an
+ *   entity, or</li>
+ *   <li>an interface with some getters of the entity, the rows are mapped onto entities holding only the projected
+ *   columns, seen through the interface.</li>
+ * </ul>
+ *
+ * Thread-safe, projections are cached per entity and projection type.
+ */
+public final class Projection<P> {
+
+    private static final ConcurrentMap<List<Class<?>>, Projection<?>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @return the cached projection of the given entity onto the given class or interface
+     * @throws IllegalArgumentException if the projection does not map any column
+     */
+    @SuppressWarnings("unchecked")
+    public static <P> Projection<P> of(Class<?> entityClass, Class<P> type) {
+        List<Class<?>> key = Arrays.asList(entityClass, type);
+        Projection<?> projection = CACHE.get(key);
+        if (projection == null) {
+            projection = CACHE.computeIfAbsent(key, k -> new Projection<>(entityClass, type));
+        }
+        return (Projection<P>) projection;
+    }
+
+    private final Class<P> type;
+    private final Class<?> rowType;
+    private final String[] columns;
+
+    /**
+     * The entity getter behind each interface getter, empty for class projections.
+     */
+    private final Map<Method, Method> getters = new HashMap<>();
+
+    private Projection(Class<?> entityClass, Class<P> type) {
+        this.type = type;
+
+        Set<String> columnNames = new LinkedHashSet<>();
+        if (type.isInterface()) {
+            this.rowType = entityClass;
+            // the order of getMethods() is unspecified, sort them so the statement is stable
+            Method[] methods = type.getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (method.getParameterCount() > 0 || method.isDefault()) {
+                    continue;
+                }
+                Method getter;
+                try {
+                    getter = entityClass.getMethod(method.getName());
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalArgumentException(entityClass.getName() + " has no getter " + method.getName() + " of " + type.getName(), e);
+                }
+                String column = Entities.getColumnNameOfGetter(getter);
+                if (column == null) {
+                    throw new IllegalArgumentException(getter + " is not mapped to a column");
+                }
+                columnNames.add(column);
+                getters.put(method, getter);
+            }
+        } else {
+            this.rowType = type;
+            for (PropertyDescriptorWrapper propertyDescriptor : EntityMetadata.of(type).getPropertyDescriptors()) {
+                if (!Entities.isRelation(propertyDescriptor.getAccessibleObject())) {
+                    columnNames.add(Entities.getName(propertyDescriptor.getAccessibleObject()));
+                }
+            }
+        }
+
+        if (columnNames.isEmpty()) {
+            throw new IllegalArgumentException(type.getName() + " does not project any column of " + entityClass.getName());
+        }
+        this.columns = columnNames.toArray(new String[0]);
+    }
+
+    public Class<P> getType() {
+        return type;
+    }
+
+    /**
+     * @return the class the rows are mapped onto: the projection class, or the entity for interface projections
+     */
+    public Class<?> getRowType() {
+        return rowType;
+    }
+
+    /**
+     * @return the selected column names, callers must not modify the array
+     */
+    public String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the projection of a row mapped onto {@link #getRowType()}
+     */
+    @SuppressWarnings("unchecked")
+    P view(Object row) {
+        if (!type.isInterface()) {
+            return type.cast(row);
+        }
+        return (P) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Method getter = getters.get(method);
+            if (getter != null) {
+                try {
+                    return getter.invoke(row);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName() + describe(row);
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        });
+    }
+
+    private List<String> describe(Object row) throws ReflectiveOperationException {
+        List<String> values = new ArrayList<>(getters.size());
+        for (Map.Entry<Method, Method> getter : getters.entrySet()) {
+            values.add(getter.getKey().getName() + "=" + getter.getValue().invoke(row));
+        }
+        return values;
+    }
+}
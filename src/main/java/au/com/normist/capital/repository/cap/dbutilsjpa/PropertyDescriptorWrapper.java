@@ -7,7 +7,9 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PropertyDescriptorWrapper extends PropertyDescriptor {
 
@@ -35,20 +37,30 @@ public class PropertyDescriptorWrapper extends PropertyDescriptor {
         }
     }
 
+    /**
+     * The fields of the class and of its superclasses, e.g. the ROWID of {@code CapBaseModel}. A field hidden by a
+     * field of the same name in a subclass is left out.
+     */
     public static PropertyDescriptorWrapper[] getPropertyDescriptorsFromFields(Class<?> c) {
         List<PropertyDescriptorWrapper> propertyDescriptors = new ArrayList<>();
+        Set<String> propertyNames = new HashSet<>();
 
-        for (Field field : c.getDeclaredFields()) {
-            if (Entities.isTransient(field) || Entities.isStatic(field)) {
-                continue;
-            }
+        for (Class<?> type = c; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Entities.isTransient(field) || Entities.isStatic(field)) {
+                    continue;
+                }
 
-            String propertyName = Entities.getName(field);
+                String propertyName = Entities.getName(field);
+                if (!propertyNames.add(propertyName)) {
+                    continue;
+                }
 
-            try {
-                propertyDescriptors.add(new PropertyDescriptorWrapper(propertyName, field));
-            } catch (IntrospectionException e) {
-                throw new RuntimeException(e);
+                try {
+                    propertyDescriptors.add(new PropertyDescriptorWrapper(propertyName, field));
+                } catch (IntrospectionException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
 
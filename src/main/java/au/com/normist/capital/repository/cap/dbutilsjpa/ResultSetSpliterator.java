@@ -0,0 +1,108 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.RowProcessor;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily maps the rows of an open result set onto entities, one row per {@link #tryAdvance(Consumer)}, with the row
+ * processor of the runner. The row mapper of a {@link JpaRowProcessor} is compiled once for all the rows.
+ *
+ * Owns the connection, statement and result set: they are closed as soon as the last row has been read, when mapping
+ * fails, or when the stream is closed, whichever comes first.
+ */
+class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+    private final Connection conn;
+    private final Statement statement;
+    private final ResultSet rs;
+    private final RowProcessor processor;
+    // null when the processor isn't a JpaRowProcessor
+    private final JpaBeanProcessor beanProcessor;
+    private final Class<T> type;
+    private final Projection<T> projection;
+
+    private EntityRowMapper<?> rowMapper;
+    private boolean closed;
+
+    ResultSetSpliterator(Connection conn, Statement statement, ResultSet rs, RowProcessor processor, Class<T> type) {
+        this(conn, statement, rs, processor, type, null);
+    }
+
+    /**
+     * Maps the rows onto the {@link Projection#getRowType()} of the projection and views them through it.
+     */
+    ResultSetSpliterator(Connection conn, Statement statement, ResultSet rs, RowProcessor processor, Projection<T> projection) {
+        this(conn, statement, rs, processor, projection.getType(), projection);
+    }
+
+    private ResultSetSpliterator(Connection conn, Statement statement, ResultSet rs, RowProcessor processor, Class<T> type, Projection<T> projection) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.conn = conn;
+        this.statement = statement;
+        this.rs = rs;
+        this.processor = processor;
+        this.beanProcessor = processor instanceof JpaRowProcessor ? ((JpaRowProcessor) processor).getBeanProcessor() : null;
+        this.type = type;
+        this.projection = projection;
+    }
+
+    /**
+     * @return a sequential stream over the rows, which must be closed when not read to the end
+     */
+    Stream<T> stream() {
+        return StreamSupport.stream(this, false).onClose(this::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!rs.next()) {
+                close();
+                return false;
+            }
+            if (projection != null) {
+                action.accept(projection.view(toBean(projection.getRowType())));
+                return true;
+            }
+            action.accept(type.cast(toBean(type)));
+            return true;
+        } catch (SQLException e) {
+            close();
+            throw new RuntimeException(e);
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Object toBean(Class<?> rowType) throws SQLException {
+        if (beanProcessor == null) {
+            return processor.toBean(rs, rowType);
+        }
+        if (rowMapper == null) {
+            rowMapper = projection != null ? beanProcessor.projectionRowMapper(rs, rowType) : beanProcessor.rowMapper(rs, rowType);
+        }
+        return beanProcessor.toBean(rs, rowMapper);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            DbUtils.closeQuietly(conn, statement, rs);
+        }
+    }
+}
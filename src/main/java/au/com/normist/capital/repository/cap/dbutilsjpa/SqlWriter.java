@@ -2,6 +2,13 @@ package au.com.normist.capital.repository.cap.dbutilsjpa;
 
 
 import au.com.normist.capital.repository.cap.sqlwriter.Queries;
+import au.com.normist.capital.repository.cap.sqlwriter.builders.SelectBuilder;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.Dialect;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.StandardDialect;
+import au.com.normist.capital.repository.cap.sqlwriter.mapping.TableInfo;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import javax.persistence.Column;
 import java.beans.IntrospectionException;
@@ -12,48 +19,249 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
 
+/**
+ * Writes the CRUD statements of entity classes.
+ *
+ * The statements only depend on the entity class (and the IN list or page size), so they
+ * are built once and then served from a bounded, thread-safe cache. {@link #stats()} tells how well it does.
+ *
+ * The SQL is written in the given {@link Dialect}, {@link StandardDialect} by default.
+ */
 public class SqlWriter {
 
+    public static final long DEFAULT_MAXIMUM_CACHE_SIZE = 1024;
+
+    private final Dialect dialect;
+
+    private final Queries.Query queries;
+
+    private final Cache<SqlKey, String> cache;
+
+    public SqlWriter() {
+        this(new StandardDialect(), DEFAULT_MAXIMUM_CACHE_SIZE);
+    }
+
+    /**
+     * @param maximumCacheSize the number of statements kept, 0 disables the cache
+     */
+    public SqlWriter(long maximumCacheSize) {
+        this(new StandardDialect(), maximumCacheSize);
+    }
+
+    public SqlWriter(Dialect dialect) {
+        this(dialect, DEFAULT_MAXIMUM_CACHE_SIZE);
+    }
+
+    /**
+     * @param maximumCacheSize the number of statements kept, 0 disables the cache
+     */
+    public SqlWriter(Dialect dialect, long maximumCacheSize) {
+        this.dialect = dialect;
+        this.queries = Queries.query(dialect);
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumCacheSize).recordStats().build();
+    }
+
     public String selectById(Class<?> entityClass) {
-        AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
+        return cached(Operation.SELECT_BY_ID, entityClass, 0, () -> {
+            AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
+
+            return queries.select().from(entityClass).where().eq(Entities.getName(idAccessor)).toString();
+        });
+    }
 
-        return Queries.select().from(entityClass).where().eq(Entities.getName(idAccessor)).toString();
+    /**
+     * @param idCount the number of ids bound to the IN list
+     */
+    public String selectByIds(Class<?> entityClass, int idCount) {
+        return cached(Operation.SELECT_BY_IDS, entityClass, idCount, () -> {
+            AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
+
+            return queries.select().from(entityClass).where().in(Entities.getName(idAccessor), idCount).toString();
+        });
     }
 
     public String select(Class<?> entityClass) {
-        return Queries.select().from(entityClass).toString();
+        return cached(Operation.SELECT, entityClass, 0, () -> queries.select().from(entityClass).toString());
+    }
+
+    /**
+     * One page of the table, ordered by id when the entity has one. The paging is written by the dialect, e.g.
+     * {@code LIMIT/OFFSET} or ADS {@code TOP n START AT m}.
+     *
+     * Not cached, every page has its own literals.
+     *
+     * @param offset the number of rows skipped
+     * @param limit the maximum number of rows returned
+     */
+    public String selectPage(Class<?> entityClass, int offset, int limit) {
+        SelectBuilder select = queries.select().from(entityClass);
+        AccessibleObject idAccessor = Entities.getIdAccessorOrNull(entityClass);
+        if (idAccessor != null) {
+            select.asc(Entities.getName(idAccessor));
+        }
+
+        return select.limit(limit).offset(offset).toString();
+    }
+
+    /**
+     * One page of the table in keyset (seek) mode: ordered by id and, unless it is the first page, starting after the
+     * id bound to the only parameter. Unlike {@link #selectPage(Class, int, int)} the server never skips rows.
+     *
+     * @param limit the maximum number of rows returned
+     * @param first whether this is the first page, which has no id parameter
+     */
+    public String selectPageAfter(Class<?> entityClass, int limit, boolean first) {
+        return cached(first ? Operation.SELECT_FIRST_PAGE : Operation.SELECT_PAGE_AFTER, entityClass, limit, () -> {
+            String idColumn = Entities.getName(Entities.getIdAccessor(entityClass));
+            SelectBuilder select = queries.select().from(entityClass);
+
+            return (first ? select.asc(idColumn) : select.after(idColumn)).limit(limit).toString();
+        });
+    }
+
+    /**
+     * The rows matching a condition with {@code ?} parameters, e.g. one written by LambdaToAdsSql. The statement is
+     * cached per condition, so the condition must not inline its values.
+     */
+    public String selectWhere(Class<?> entityClass, String condition) {
+        return cached(Operation.SELECT_WHERE, entityClass, 0, condition,
+            () -> queries.select().from(entityClass).where().condition(condition).toString());
+    }
+
+    /**
+     * The number of rows matching a condition, see {@link #selectWhere(Class, String)}.
+     */
+    public String countWhere(Class<?> entityClass, String condition) {
+        return cached(Operation.COUNT_WHERE, entityClass, 0, condition,
+            () -> "SELECT COUNT(*) FROM " + new TableInfo(entityClass, dialect) + " WHERE (" + condition + ")");
+    }
+
+    /**
+     * One page of the rows matching a condition, ordered by id when the entity has one, see
+     * {@link #selectPage(Class, int, int)}. Not cached, every page has its own literals.
+     */
+    public String selectPageWhere(Class<?> entityClass, String condition, int offset, int limit) {
+        SelectBuilder select = queries.select().from(entityClass);
+        select.where().condition(condition);
+        AccessibleObject idAccessor = Entities.getIdAccessorOrNull(entityClass);
+        if (idAccessor != null) {
+            select.asc(Entities.getName(idAccessor));
+        }
+
+        return select.limit(limit).offset(offset).toString();
+    }
+
+    /**
+     * The projected columns of the whole table, see {@link Projection}.
+     */
+    public String select(Class<?> entityClass, Projection<?> projection) {
+        return cached(Operation.SELECT_PROJECTION, entityClass, 0, projection.getType(),
+            () -> queries.select().from(entityClass).columns(projection.getColumns()).toString());
+    }
+
+    /**
+     * The projected columns of the rows matching a condition, see {@link #selectWhere(Class, String)}.
+     */
+    public String selectWhere(Class<?> entityClass, Projection<?> projection, String condition) {
+        return cached(Operation.SELECT_PROJECTION_WHERE, entityClass, 0, Arrays.asList(projection.getType(), condition), () -> {
+            SelectBuilder select = queries.select().from(entityClass).columns(projection.getColumns());
+            select.where().condition(condition);
+
+            return select.toString();
+        });
+    }
+
+    /**
+     * One page of the projected columns, see {@link #selectPage(Class, int, int)}. Not cached.
+     */
+    public String selectPage(Class<?> entityClass, Projection<?> projection, int offset, int limit) {
+        SelectBuilder select = queries.select().from(entityClass).columns(projection.getColumns());
+        AccessibleObject idAccessor = Entities.getIdAccessorOrNull(entityClass);
+        if (idAccessor != null) {
+            select.asc(Entities.getName(idAccessor));
+        }
+
+        return select.limit(limit).offset(offset).toString();
     }
 
     public String insert(Class<?> entityClass) {
-        String[] columnNames = getColumnNames(entityClass, Entities.getIdAccessor(entityClass), NOT_INSERTABLE);
+        return cached(Operation.INSERT, entityClass, 0, () -> {
+            String[] columnNames = getColumnNames(entityClass, Entities.getIdAccessor(entityClass), NOT_INSERTABLE, false);
 
-        return Queries.insert(entityClass).columns(columnNames).toString();
+            return queries.insert(entityClass).columns(columnNames).toString();
+        });
+    }
+
+    /**
+     * Insert for entities whose id is assigned by the application rather than generated, e.g. Capital's natural keys.
+     */
+    public String insertWithId(Class<?> entityClass) {
+        return cached(Operation.INSERT_WITH_ID, entityClass, 0, () -> {
+            String[] columnNames = getColumnNames(entityClass, Entities.getIdAccessor(entityClass), NOT_INSERTABLE, true);
+
+            return queries.insert(entityClass).columns(columnNames).toString();
+        });
     }
 
     public String deleteById(Class<?> entityClass) {
-        return Queries.delete(entityClass).where().eq(Entities.getName(Entities.getIdAccessor(entityClass))).toString();
+        return cached(Operation.DELETE_BY_ID, entityClass, 0,
+            () -> queries.delete(entityClass).where().eq(Entities.getName(Entities.getIdAccessor(entityClass))).toString());
     }
 
     /**
      * @param columns Optional. If omitted, all columns are updated, except the ones marked with @Column(updatable=false)
      */
     public String updateById(Class<?> entityClass, String... columns) {
-        AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
-        String[] columnNames = columns.length == 0 ? getColumnNames(entityClass, idAccessor, NOT_UPDATABLE) : columns;
+        if (columns.length > 0) {
+            // ad hoc column lists are not worth a cache entry
+            return updateById(entityClass, Entities.getIdAccessor(entityClass), columns);
+        }
+        return cached(Operation.UPDATE_BY_ID, entityClass, 0, () -> {
+            AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
+
+            return updateById(entityClass, idAccessor, getColumnNames(entityClass, idAccessor, NOT_UPDATABLE, false));
+        });
+    }
+
+    /**
+     * Hit and miss counts of the statement cache since this writer was created.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private String updateById(Class<?> entityClass, AccessibleObject idAccessor, String[] columnNames) {
+        return queries.update(entityClass).set(columnNames).where().eq(Entities.getName(idAccessor)).toString();
+    }
+
+    private String cached(Operation operation, Class<?> entityClass, int size, Supplier<String> writer) {
+        return cached(operation, entityClass, size, null, writer);
+    }
 
-        return Queries.update(entityClass).set(columnNames).where().eq(Entities.getName(idAccessor)).toString();
+    private String cached(Operation operation, Class<?> entityClass, int size, Object detail, Supplier<String> writer) {
+        SqlKey key = new SqlKey(operation, entityClass, size, detail);
+        String sql = cache.getIfPresent(key);
+        if (sql == null) {
+            // two threads may both write a missing statement, they write the same text
+            sql = writer.get();
+            cache.put(key, sql);
+        }
+        return sql;
     }
 
-    private String[] getColumnNames(Class<?> entityClass, AccessibleObject idAccessor, ColumnIgnorer columnIgnorer) {
+    private String[] getColumnNames(Class<?> entityClass, AccessibleObject idAccessor, ColumnIgnorer columnIgnorer, boolean includeId) {
         List<String> columnNames = new ArrayList<>();
         try {
             if (idAccessor instanceof Field) {
                 for (Field field : entityClass.getDeclaredFields()) {
-                    if (columnIgnorer.ignore(field) || isIgnorable(field) || isMultiValued(field.getType())) {
+                    if (columnIgnorer.ignore(field) || isIgnorable(field, includeId) || isMultiValued(field.getType())) {
                         continue;
                     }
                     columnNames.add(Entities.getName(field));
@@ -61,7 +269,7 @@ public class SqlWriter {
             } else {
                 for (PropertyDescriptor propertyDescriptor : Introspector.getBeanInfo(entityClass).getPropertyDescriptors()) {
                     Method readMethod = propertyDescriptor.getReadMethod();
-                    if (columnIgnorer.ignore(readMethod) || isIgnorable(readMethod) || isMultiValued(propertyDescriptor.getPropertyType())) {
+                    if (columnIgnorer.ignore(readMethod) || isIgnorable(readMethod, includeId) || isMultiValued(propertyDescriptor.getPropertyType())) {
                         continue;
                     }
                     columnNames.add(Entities.getName(readMethod));
@@ -73,8 +281,8 @@ public class SqlWriter {
         return columnNames.toArray(new String[0]);
     }
 
-    private boolean isIgnorable(AccessibleObject accessibleObject) {
-        return Entities.isStatic(((Member) accessibleObject)) || !Entities.isMapped(((Member) accessibleObject).getDeclaringClass()) || Entities.isTransient(accessibleObject) || Entities.isIdAccessor(accessibleObject) || Entities.isRelation(accessibleObject);
+    private boolean isIgnorable(AccessibleObject accessibleObject, boolean includeId) {
+        return Entities.isStatic(((Member) accessibleObject)) || !Entities.isMapped(((Member) accessibleObject).getDeclaringClass()) || Entities.isTransient(accessibleObject) || (!includeId && Entities.isIdAccessor(accessibleObject)) || Entities.isRelation(accessibleObject);
     }
 
     private boolean isMultiValued(Class<?> type) {
@@ -98,4 +306,42 @@ public class SqlWriter {
             return object.isAnnotationPresent(Column.class) && !object.getAnnotation(Column.class).insertable();
         }
     };
+
+    private enum Operation {
+        SELECT, SELECT_WHERE, COUNT_WHERE, SELECT_PROJECTION, SELECT_PROJECTION_WHERE, SELECT_BY_ID, SELECT_BY_IDS, SELECT_FIRST_PAGE, SELECT_PAGE_AFTER, INSERT, INSERT_WITH_ID, UPDATE_BY_ID, DELETE_BY_ID
+    }
+
+    private static final class SqlKey {
+
+        private final Operation operation;
+        private final Class<?> entityClass;
+        private final int size;
+        // e.g. the condition or projection of the statement
+        private final Object detail;
+
+        SqlKey(Operation operation, Class<?> entityClass, int size, Object detail) {
+            this.operation = operation;
+            this.entityClass = entityClass;
+            this.size = size;
+            this.detail = detail;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SqlKey sqlKey = (SqlKey) o;
+            return size == sqlKey.size && operation == sqlKey.operation && entityClass == sqlKey.entityClass
+                && Objects.equals(detail, sqlKey.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, entityClass, size, detail);
+        }
+    }
 }
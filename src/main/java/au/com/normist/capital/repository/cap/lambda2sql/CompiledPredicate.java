@@ -0,0 +1,118 @@
+package au.com.normist.capital.repository.cap.lambda2sql;
+
+import au.com.normist.capital.repository.cap.lambda2sql.ToAdsSqlVisitor.ParameterExtractor;
+
+import java.io.Serializable;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SQL template of one lambda (i.e. one lambda class) and how to bind the values of an instance of it.
+ */
+final class CompiledPredicate {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final String sql;
+
+    private final ParameterExtractor[] parameters;
+
+    private final CapturedArgsReader capturedArgsReader;
+
+    CompiledPredicate(Class<?> lambdaClass, String sql, List<ParameterExtractor> parameters) {
+        this.sql = sql;
+        this.parameters = parameters.toArray(new ParameterExtractor[0]);
+        this.capturedArgsReader = CapturedArgsReader.of(lambdaClass);
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    ParameterizedSql bind(Object lambda) {
+        if (parameters.length == 0) {
+            return new ParameterizedSql(sql);
+        }
+        try {
+            Object[] capturedArgs = capturedArgsReader.read(lambda);
+            Object[] values = new Object[parameters.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toJdbc(parameters[i].extract(capturedArgs));
+            }
+            return new ParameterizedSql(sql, values);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read the captured values of " + lambda, e);
+        }
+    }
+
+    /**
+     * The ADS driver predates java.time, dates are bound as their {@code java.sql} types.
+     */
+    private static Object toJdbc(Object value) {
+        if (value instanceof LocalDate) {
+            return Date.valueOf((LocalDate) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        if (value instanceof org.joda.time.LocalDate) {
+            return new Date(((org.joda.time.LocalDate) value).toDate().getTime());
+        }
+        return value;
+    }
+
+    /**
+     * Reads the captured arguments of lambda instances, through {@code writeReplace} for serializable lambdas and the
+     * fields of the lambda class otherwise.
+     */
+    @FunctionalInterface
+    private interface CapturedArgsReader {
+
+        Object[] read(Object lambda) throws ReflectiveOperationException;
+
+        static CapturedArgsReader of(Class<?> lambdaClass) {
+            if (Serializable.class.isAssignableFrom(lambdaClass)) {
+                try {
+                    Method writeReplace = lambdaClass.getDeclaredMethod("writeReplace");
+                    writeReplace.setAccessible(true);
+                    return lambda -> {
+                        SerializedLambda serializedLambda = (SerializedLambda) writeReplace.invoke(lambda);
+                        Object[] args = new Object[serializedLambda.getCapturedArgCount()];
+                        for (int i = 0; i < args.length; i++) {
+                            args[i] = serializedLambda.getCapturedArg(i);
+                        }
+                        return args;
+                    };
+                } catch (NoSuchMethodException e) {
+                    // not a lambda after all, fall back to its fields
+                }
+            }
+
+            List<Field> fields = new ArrayList<>();
+            for (Field field : lambdaClass.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            if (fields.isEmpty()) {
+                return lambda -> NO_ARGS;
+            }
+            return lambda -> {
+                Object[] args = new Object[fields.size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = fields.get(i).get(lambda);
+                }
+                return args;
+            };
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.trigersoft.jaque.expression.LambdaExpression;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 
 import static java.lang.System.getProperty;
@@ -18,6 +21,8 @@ import static java.util.Objects.requireNonNull;
 public class LambdaToAdsSql {
     private static final String DUMP_CLASSES_PROP = "jdk.internal.lambda.dumpProxyClasses";
 
+    private static final ConcurrentMap<Class<?>, CompiledPredicate> COMPILED = new ConcurrentHashMap<>();
+
     static {
         init();
     }
@@ -41,12 +46,70 @@ public class LambdaToAdsSql {
      * <pre>{@code person -> person.getAge() > 50 && person.isActive() }</pre>
      * Becomes a string:
      * <pre>{@code "age > 50 AND active" }</pre>
-     * Supported operators: >,>=,<,<=,=,!=,&&,||,!
+     * Supported operators: >,>=,<,<=,=,!=,&&,||,!, {@code equals}, {@code compareTo} against 0 (e.g. of String keys)
+     * and {@code == null}
+     *
+     * Getters are written as the {@code @Column} name of their field (e.g. {@code stock.getLocation()} as
+     * {@code LOCATION}), quoted if it is an ADS reserved word. Members without a column keep their property name.
+     *
+     * The values are written as literals, prefer {@link #convertToParameterizedAdsSql(Predicate)} to run the SQL.
      */
     public static <T> String convertToAdsSql(Predicate<T> predicate) {
+        ParameterizedSql parameterizedSql = convertToParameterizedAdsSql(predicate);
+        Object[] parameters = parameterizedSql.getParameters();
+        String sql = parameterizedSql.getSql();
+
+        StringBuilder sb = new StringBuilder(sql.length() + parameters.length * 8);
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?' && parameter < parameters.length) {
+                appendLiteral(sb, parameters[parameter++]);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts a predicate lambda to ADS SQL with a {@code ?} for every value, see {@link #convertToAdsSql(Predicate)}.
+     * <pre>{@code person -> person.getAge() > minAge }</pre>
+     * Becomes {@code "age > ?"} with the value of {@code minAge} as parameter.
+     *
+     * The lambda bytecode is parsed once per lambda class, later instances of the same lambda (e.g. with other
+     * captured values) only have their values read. Only serializable lambdas are cached, as the captured values of
+     * other lambdas can't be told apart from the literals of the lambda body.
+     */
+    public static <T> ParameterizedSql convertToParameterizedAdsSql(Predicate<T> predicate) {
         requireNonNull(getProperty(DUMP_CLASSES_PROP), "Call init() before creating the predicate.");
+        Class<?> lambdaClass = predicate.getClass();
+        if (!(predicate instanceof Serializable)) {
+            return compile(predicate).bind(predicate);
+        }
+
+        CompiledPredicate compiled = COMPILED.get(lambdaClass);
+        if (compiled == null) {
+            compiled = COMPILED.computeIfAbsent(lambdaClass, c -> compile(predicate));
+        }
+        return compiled.bind(predicate);
+    }
+
+    private static <T> CompiledPredicate compile(Predicate<T> predicate) {
         LambdaExpression<Predicate<T>> lambdaExpression = LambdaExpression.parse(predicate);
-        return lambdaExpression.accept(new ToAdsSqlVisitor()).toString();
+        ToAdsSqlVisitor visitor = new ToAdsSqlVisitor();
+        String sql = lambdaExpression.accept(visitor).toString();
+        return new CompiledPredicate(predicate.getClass(), sql, visitor.getParameters());
+    }
+
+    private static void appendLiteral(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("NULL");
+        } else if (value instanceof String || value instanceof Character) {
+            sb.append('\'').append(value.toString().replace("'", "''")).append('\'');
+        } else {
+            sb.append(value);
+        }
     }
 
 }
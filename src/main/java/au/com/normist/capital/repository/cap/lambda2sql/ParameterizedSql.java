@@ -0,0 +1,31 @@
+package au.com.normist.capital.repository.cap.lambda2sql;
+
+import java.util.Arrays;
+
+/**
+ * SQL with {@code ?} placeholders and the values to bind to them, in order.
+ */
+public final class ParameterizedSql {
+
+    private final String sql;
+
+    private final Object[] parameters;
+
+    public ParameterizedSql(String sql, Object... parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Object[] getParameters() {
+        return parameters.clone();
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + Arrays.toString(parameters);
+    }
+}
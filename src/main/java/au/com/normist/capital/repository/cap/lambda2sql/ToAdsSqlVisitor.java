@@ -1,25 +1,63 @@
 package au.com.normist.capital.repository.cap.lambda2sql;
 
+import au.com.normist.capital.repository.cap.dbutilsjpa.Entities;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.AdsDialect;
 import com.trigersoft.jaque.expression.*;
 
+import javax.persistence.Column;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.trigersoft.jaque.expression.ExpressionType.Convert;
 import static com.trigersoft.jaque.expression.ExpressionType.Equal;
+import static com.trigersoft.jaque.expression.ExpressionType.IsNull;
 import static com.trigersoft.jaque.expression.ExpressionType.LogicalAnd;
+import static com.trigersoft.jaque.expression.ExpressionType.LogicalNot;
 import static com.trigersoft.jaque.expression.ExpressionType.LogicalOr;
+import static com.trigersoft.jaque.expression.ExpressionType.NotEqual;
 
+/**
+ * Writes the SQL of a parsed predicate with a {@code ?} for every value, and collects how to get the values.
+ *
+ * Literals of the lambda body are bound as they are. Captured variables (the leading parameters of the lambda's
+ * implementation method) and getters or fields read from them or statically are bound through extractors reading the
+ * captured arguments of each predicate instance, so one template serves every instance of a lambda.
+ */
 public class ToAdsSqlVisitor implements ExpressionVisitor<StringBuilder>  {
 
+    private static final AdsDialect ADS_DIALECT = new AdsDialect();
+
     private StringBuilder sb = new StringBuilder();
     private Expression body;
 
+    private final List<ParameterExtractor> parameters = new ArrayList<>();
+
+    // parameters of the predicate itself, the implementation method has the captured variables in front of them
+    private int predicateParameterCount = -1;
+    private int capturedCount;
+
     @Override
     public StringBuilder visit(BinaryExpression e) {
         boolean quote = e != body && e.getExpressionType() == LogicalOr;
 
         if( quote ) sb.append('(');
 
-        e.getFirst().accept(this);
-        sb.append(' ').append(toSqlOp(e.getExpressionType())).append(' ');
-        e.getSecond().accept(this);
+        InvocationExpression compareTo = compareTo(e.getFirst(), e.getSecond());
+        if (compareTo != null) {
+            // a.compareTo(b) OP 0 compares a with b
+            MemberExpression member = (MemberExpression) compareTo.getTarget();
+            argument(compareTo, member.getInstance()).accept(this);
+            sb.append(' ').append(toSqlOp(e.getExpressionType())).append(' ');
+            argument(compareTo, member.getParameters().get(0)).accept(this);
+        } else {
+            e.getFirst().accept(this);
+            sb.append(' ').append(toSqlOp(e.getExpressionType())).append(' ');
+            e.getSecond().accept(this);
+        }
 
         if( quote ) sb.append(')');
 
@@ -29,6 +67,7 @@ public class ToAdsSqlVisitor implements ExpressionVisitor<StringBuilder>  {
     public static String toSqlOp(int expressionType) {
         switch(expressionType) {
             case Equal: return "=";
+            case NotEqual: return "<>";
             case LogicalAnd: return "AND";
             case LogicalOr: return "OR";
         }
@@ -37,40 +76,203 @@ public class ToAdsSqlVisitor implements ExpressionVisitor<StringBuilder>  {
 
     @Override
     public StringBuilder visit(ConstantExpression e) {
-        if (e.getValue() instanceof String) {
-            return sb.append("'").append(e.getValue().toString()).append("'");
-        }
-        return sb.append(e.getValue().toString());
+        Object value = e.getValue();
+        return bind(capturedArgs -> value);
     }
 
     @Override
     public StringBuilder visit(InvocationExpression e) {
-        return e.getTarget().accept(this);
+        InvocableExpression target = e.getTarget();
+        if (target instanceof MemberExpression) {
+            MemberExpression member = (MemberExpression) target;
+            Expression instance = argument(e, member.getInstance());
+            String comparison = comparison(member.getMember());
+            if (comparison != null) {
+                instance.accept(this);
+                sb.append(' ').append(comparison).append(' ');
+                return argument(e, member.getParameters().get(0)).accept(this);
+            }
+            if (isValue(instance)) {
+                return bind(read(member.getMember(), instance));
+            }
+            return column(member.getMember());
+        }
+        return target.accept(this);
     }
 
     @Override
     public StringBuilder visit(LambdaExpression<?> e) {
+        if (predicateParameterCount < 0) {
+            predicateParameterCount = e.getParameters().size();
+        } else {
+            // the implementation method a capturing lambda is invoked through
+            capturedCount = e.getParameters().size() - predicateParameterCount;
+        }
         this.body = e.getBody();
         return body.accept(this);
     }
 
     @Override
     public StringBuilder visit(MemberExpression e) {
-        String name = e.getMember().getName();
-        name = name.replaceAll("^(get)", "");
-        name = name.substring(0, 1).toLowerCase() + name.substring(1);
-        return sb.append(name);
+        if (isValue(e.getInstance())) {
+            return bind(read(e.getMember(), e.getInstance()));
+        }
+        return column(e.getMember());
     }
 
     @Override
     public StringBuilder visit(ParameterExpression e) {
+        if (isCaptured(e)) {
+            int index = e.getIndex();
+            return bind(capturedArgs -> capturedArgs[index]);
+        }
         return sb;
     }
 
     @Override
     public StringBuilder visit(UnaryExpression e) {
-        sb.append(ExpressionType.toString(e.getExpressionType()));
-        return e.getFirst().accept(this);
+        Expression operand = e.getFirst();
+        switch (e.getExpressionType()) {
+            case Convert:
+                // (un)boxing and widening casts
+                return operand.accept(this);
+            case IsNull:
+                operand.accept(this);
+                return sb.append(" IS NULL");
+            case LogicalNot:
+                if (operand.getExpressionType() == IsNull) {
+                    ((UnaryExpression) operand).getFirst().accept(this);
+                    return sb.append(" IS NOT NULL");
+                }
+                sb.append("NOT ");
+                // an OR brackets itself
+                boolean quote = operand instanceof BinaryExpression && operand.getExpressionType() != LogicalOr;
+                if (quote) sb.append('(');
+                operand.accept(this);
+                if (quote) sb.append(')');
+                return sb;
+            default:
+                sb.append(ExpressionType.toString(e.getExpressionType()));
+                return operand.accept(this);
+        }
+    }
+
+    /**
+     * @return how to get the value of each {@code ?}, in order
+     */
+    List<ParameterExtractor> getParameters() {
+        return parameters;
+    }
+
+    private StringBuilder bind(ParameterExtractor parameter) {
+        parameters.add(parameter);
+        return sb.append('?');
+    }
+
+    private StringBuilder column(Member member) {
+        return sb.append(columnName(member));
+    }
+
+    /**
+     * The {@link Column} name of a getter's field or of a field, in square brackets if it is an ADS reserved word.
+     * Members without a column keep their property name, quoted the same way.
+     */
+    static String columnName(Member member) {
+        String column = member instanceof Method
+            ? Entities.getColumnNameOfGetter((Method) member)
+            : columnName((Field) member);
+        if (column != null) {
+            return ADS_DIALECT.quote(column);
+        }
+
+        String name = member.getName();
+        if (member instanceof Method) {
+            name = name.replaceAll("^(get)", "");
+            name = name.substring(0, 1).toLowerCase() + name.substring(1);
+        }
+        return ADS_DIALECT.quote(name);
+    }
+
+    private static String columnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        return column == null || column.name().isEmpty() ? null : column.name();
     }
 
+    /**
+     * The instance and the arguments of an invoked member are parameters of the member, bound to the invocation
+     * arguments by index.
+     */
+    private static Expression argument(InvocationExpression invocation, Expression e) {
+        return e instanceof ParameterExpression ? invocation.getArguments().get(((ParameterExpression) e).getIndex()) : e;
+    }
+
+    /**
+     * {@code equals} and the comparisons of the date types, e.g. {@code date.isBefore(other)}.
+     *
+     * @return the SQL operator of a comparing method, null for other members
+     */
+    private static String comparison(Member member) {
+        if (!(member instanceof Method) || ((Method) member).getParameterCount() != 1) {
+            return null;
+        }
+        switch (member.getName()) {
+            case "equals":
+            case "isEqual":
+                return "=";
+            case "isBefore":
+                return "<";
+            case "isAfter":
+                return ">";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the {@code compareTo} invocation of {@code a.compareTo(b) OP 0}, e.g. of the String keys, null for other
+     * operands
+     */
+    private static InvocationExpression compareTo(Expression first, Expression second) {
+        if (!(first instanceof InvocationExpression) || !(second instanceof ConstantExpression)
+            || !Integer.valueOf(0).equals(((ConstantExpression) second).getValue())) {
+            return null;
+        }
+        InvocableExpression target = ((InvocationExpression) first).getTarget();
+        if (!(target instanceof MemberExpression)) {
+            return null;
+        }
+        Member member = ((MemberExpression) target).getMember();
+        boolean isCompareTo = member instanceof Method && member.getName().equals("compareTo")
+            && ((Method) member).getParameterCount() == 1;
+        return isCompareTo ? (InvocationExpression) first : null;
+    }
+
+    private boolean isCaptured(Expression e) {
+        return e instanceof ParameterExpression && ((ParameterExpression) e).getIndex() < capturedCount;
+    }
+
+    /**
+     * A member of a captured variable, or a static one, is a value rather than a column.
+     */
+    private boolean isValue(Expression instance) {
+        return instance == null || isCaptured(instance);
+    }
+
+    private ParameterExtractor read(Member member, Expression instance) {
+        ((AccessibleObject) member).setAccessible(true);
+        int index = instance == null ? -1 : ((ParameterExpression) instance).getIndex();
+
+        return capturedArgs -> {
+            Object target = index < 0 ? null : capturedArgs[index];
+            return member instanceof Method ? ((Method) member).invoke(target) : ((Field) member).get(target);
+        };
+    }
+
+    /**
+     * Gets the value bound to one parameter from the captured arguments of a predicate instance.
+     */
+    @FunctionalInterface
+    interface ParameterExtractor {
+        Object extract(Object[] capturedArgs) throws ReflectiveOperationException;
+    }
 }
@@ -1,75 +1,135 @@
 package au.com.normist.capital.repository.cap.resultset2entity;
 
 import au.com.normist.capital.core.annotation.cap.PersistEntity;
+import au.com.normist.capital.repository.cap.dbutilsjpa.Entities;
+import au.com.normist.capital.repository.cap.dbutilsjpa.EntityRowMapper;
+import au.com.normist.capital.repository.cap.dbutilsjpa.PropertyDescriptorWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.Column;
+import java.beans.IntrospectionException;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Maps result sets onto {@link PersistEntity} classes by the {@link Column} names of their fields, including the
+ * fields inherited from mapped super classes such as {@code CapBaseModel.rowId}.
+ *
+ * The column to field binding is compiled once per class and column layout; mapping a row is then a tight loop of
+ * typed getters and setters.
+ */
 public class ResultSetMapper<T> {
     private final Logger log = LoggerFactory.getLogger(ResultSetMapper.class);
 
+    private static final int FIELD_NOT_FOUND = -1;
+
+    private static final ConcurrentMap<Class<?>, MappingPlan<?>> PLANS = new ConcurrentHashMap<>();
+
     @SuppressWarnings("unchecked")
     public List<T> mapResultSetToObject(ResultSet rs, Class outputClass) {
+        // make sure resultset is not null
+        if (rs == null) {
+            return Collections.emptyList();
+        }
+        // check if outputClass has 'Entity' annotation
+        if (!outputClass.isAnnotationPresent(PersistEntity.class)) {
+            throw new IllegalArgumentException(outputClass.getName() + " is not a @PersistEntity");
+        }
 
-        List<T> outputList = null;
+        List<T> outputList = new ArrayList<>();
         try {
-            // make sure resultset is not null
-            if (rs != null) {
-                // check if outputClass has 'Entity' annotation
-                if (outputClass.isAnnotationPresent(PersistEntity.class)) {
-                    // get the resultset metadata
-                    ResultSetMetaData rsmd = rs.getMetaData();
-                    // get all the attributes of outputClass
-                    Field[] fields = outputClass.getDeclaredFields();
-                    while (rs.next()) {
-                        T bean = (T) outputClass.newInstance();
-                        for (int _iterator = 0; _iterator < rsmd
-                            .getColumnCount(); _iterator++) {
-                            // getting the SQL column name
-                            String columnName = rsmd
-                                .getColumnName(_iterator + 1);
-                            // reading the value of the SQL column
-                            Object columnValue = rs.getObject(_iterator + 1);
-                            // iterating over outputClass attributes to check if any attribute has 'Column' annotation with matching 'name' value
-                            for (Field field : fields) {
-                                if (field.isAnnotationPresent(Column.class)) {
-                                    Column column = field
-                                        .getAnnotation(Column.class);
-                                    if (column.name().equalsIgnoreCase(
-                                        columnName)
-                                        && columnValue != null) {
-
-                                        field.setAccessible(true);
-                                        field.set(bean, columnValue);
-//                                        BeanUtils.setProperty(bean, field.getName(), columnValue);
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                        if (outputList == null) {
-                            outputList = new ArrayList<>();
-                        }
-                        outputList.add(bean);
+            EntityRowMapper<T> rowMapper = ((MappingPlan<T>) plan(outputClass)).rowMapper(rs.getMetaData());
+            while (rs.next()) {
+                outputList.add(rowMapper.map(rs));
+            }
+        } catch (SQLException e) {
+            log.error("error translate resultset to object", e);
+        }
+        return outputList;
+    }
+
+    private static MappingPlan<?> plan(Class<?> outputClass) {
+        MappingPlan<?> plan = PLANS.get(outputClass);
+        if (plan == null) {
+            plan = PLANS.computeIfAbsent(outputClass, MappingPlan::new);
+        }
+        return plan;
+    }
+
+    /**
+     * The {@link Column} annotated fields of a class and the row mappers compiled for each column layout seen so far.
+     */
+    private static final class MappingPlan<T> {
+
+        private final Class<T> type;
+
+        private final PropertyDescriptorWrapper[] fields;
+
+        private final String[] columnNames;
+
+        private final ConcurrentMap<String, EntityRowMapper<T>> rowMappers = new ConcurrentHashMap<>();
+
+        MappingPlan(Class<T> type) {
+            this.type = type;
+
+            List<PropertyDescriptorWrapper> columnFields = new ArrayList<>();
+            // subclass fields first, so they win over a super class field mapped to the same column
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || !field.isAnnotationPresent(Column.class)) {
+                        continue;
+                    }
+                    try {
+                        columnFields.add(new PropertyDescriptorWrapper(Entities.getName(field), field));
+                    } catch (IntrospectionException e) {
+                        throw new IllegalArgumentException(e);
                     }
+                }
+            }
+            this.fields = columnFields.toArray(new PropertyDescriptorWrapper[0]);
+            this.columnNames = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                columnNames[i] = fields[i].getName();
+            }
+        }
 
-                } else {
-                    // throw some error
+        EntityRowMapper<T> rowMapper(ResultSetMetaData rsmd) throws SQLException {
+            int cols = rsmd.getColumnCount();
+            String[] resultColumns = new String[cols];
+            for (int col = 1; col <= cols; col++) {
+                resultColumns[col - 1] = rsmd.getColumnName(col);
+            }
+
+            String layout = String.join("\u001F", resultColumns);
+            EntityRowMapper<T> rowMapper = rowMappers.get(layout);
+            if (rowMapper == null) {
+                rowMapper = rowMappers.computeIfAbsent(layout, key -> compile(resultColumns));
+            }
+            return rowMapper;
+        }
+
+        private EntityRowMapper<T> compile(String[] resultColumns) {
+            int[] columnToField = new int[resultColumns.length + 1];
+            Arrays.fill(columnToField, FIELD_NOT_FOUND);
+            for (int col = 1; col <= resultColumns.length; col++) {
+                for (int i = 0; i < columnNames.length; i++) {
+                    if (columnNames[i].equalsIgnoreCase(resultColumns[col - 1])) {
+                        columnToField[col] = i;
+                        break;
+                    }
                 }
-            } else {
-                return Collections.emptyList();
             }
-        } catch (IllegalAccessException | SQLException | InstantiationException e) {
-            log.error("error translate resultset to object", e);
+            return EntityRowMapper.compile(type, fields, columnToField);
         }
-        return outputList;
     }
 }
@@ -29,6 +29,14 @@ public class QualifierBuilder {
     return limit;
   }
 
+  public boolean hasOffset() {
+    return offset > -1;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
   QualifierBuilder limit(int limit) {
     this.limit = limit;
     return this;
@@ -126,6 +126,15 @@ public class SelectBuilder {
     return this;
   }
 
+  /**
+   * Keyset pagination: the rows of the current entity whose column is greater than the parameter, in column order.
+   * Bind the last value of the previous page, the column should be indexed (usually the primary key).
+   */
+  public SelectBuilder after(String column) {
+    where().gt(column);
+    return asc(column);
+  }
+
   public SelectBuilder limit(int limit) {
     qualifier.limit(limit);
     return this;
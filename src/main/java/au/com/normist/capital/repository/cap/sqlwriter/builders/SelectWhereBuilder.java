@@ -67,6 +67,14 @@ public class SelectWhereBuilder {
     return this;
   }
 
+  /**
+   * Adds a condition written elsewhere, e.g. by LambdaToAdsSql, in brackets. Its columns are not qualified.
+   */
+  public SelectWhereBuilder condition(String condition) {
+    where.condition(condition);
+    return this;
+  }
+
   /**
    * @return the StringBuilder passed in, after having appended to it
    */
@@ -61,6 +61,19 @@ public class WhereBuilder {
     return this;
   }
 
+  /**
+   * Adds a condition written elsewhere, e.g. by LambdaToAdsSql, in brackets. Its columns are not qualified.
+   */
+  public WhereBuilder condition(String condition) {
+    clauseBuilder.append(' ');
+    if (!first || clauseBuilder.length() > 1) {
+      clauseBuilder.append(Bool.AND).append(' ');
+    }
+    clauseBuilder.append('(').append(condition).append(')');
+
+    return this;
+  }
+
   /**
    * @return the StringBuilder passed in, after having appended to it
    */
@@ -1,8 +1,123 @@
 package au.com.normist.capital.repository.cap.sqlwriter.dialects;
 
+
+import au.com.normist.capital.repository.cap.sqlwriter.builders.QualifierBuilder;
+import au.com.normist.capital.repository.cap.sqlwriter.builders.SelectWhereBuilder;
+import au.com.normist.capital.repository.cap.sqlwriter.mapping.TableInfo;
+import au.com.normist.capital.repository.cap.sqlwriter.utils.Strings;
+
+import javax.persistence.Column;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
 /**
  * Advantage database server sql dialect
+ *
+ * <ul>
+ *   <li>limit and offset become {@code SELECT TOP n START AT m}, ADS has no LIMIT/OFFSET. START AT is 1-based.</li>
+ *   <li>table and column names that are ADS reserved words, e.g. Capital's {@code KEY} and {@code NUMBER}, are quoted
+ *   with square brackets.</li>
+ *   <li>{@code ROWID} is a pseudo column: it is never quoted and {@code T.*} doesn't return it, so it is selected
+ *   explicitly for entities that map it.</li>
+ * </ul>
  */
-public class AdsDialect {
+public class AdsDialect extends StandardDialect {
+
+  public static final String ROWID = "ROWID";
+
+  /**
+   * The ADS reserved words that may plausibly show up as table or column names.
+   */
+  public static final Set<String> RESERVED_WORDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    "ADD", "ALL", "ALTER", "AND", "ANY", "AS", "ASC", "AT", "BETWEEN", "BY", "CASE", "CAST", "CHAR", "CHARACTER",
+    "CHECK", "COLUMN", "CONSTRAINT", "CREATE", "CURRENT", "DATE", "DEFAULT", "DELETE", "DESC", "DISTINCT", "DROP",
+    "ELSE", "END", "EXISTS", "FOR", "FOREIGN", "FROM", "FULL", "GROUP", "HAVING", "IN", "INDEX", "INNER", "INSERT",
+    "INTO", "IS", "JOIN", "KEY", "LEFT", "LIKE", "MONEY", "NOT", "NULL", "NUMBER", "ON", "OR", "ORDER", "OUTER",
+    "PRIMARY", "REFERENCES", "RIGHT", "SELECT", "SET", "START", "TABLE", "THEN", "TIME", "TIMESTAMP", "TOP", "UNION",
+    "UNIQUE", "UPDATE", "USER", "VALUE", "VALUES", "WHEN", "WHERE"
+  )));
+
+  // START AT without a limit still needs a TOP
+  private static final int NO_LIMIT = Integer.MAX_VALUE;
+
+  @Override
+  public String select(TableInfo rootTable, List<TableInfo> tables, List<SelectWhereBuilder> wheres, QualifierBuilder qualifier) {
+    StringBuilder builder = new StringBuilder("SELECT ");
+
+    if (qualifier.hasLimit() || qualifier.hasOffset()) {
+      builder.append("TOP ").append(qualifier.hasLimit() ? qualifier.getLimit() : NO_LIMIT).append(' ');
+      if (qualifier.hasOffset()) {
+        builder.append("START AT ").append(qualifier.getOffset() + 1).append(' ');
+      }
+    }
+
+    for (TableInfo table : tables) {
+      table.toColumnsString(builder);
+      if (table.columns.isEmpty() && mapsRowId(table.entityClass)) {
+        builder.append(", ").append(column(table, ROWID, null));
+      }
+      builder.append(", ");
+    }
+
+    Strings.chompChomp(builder).append(" FROM ").append(rootTable);
+    rootTable.toJoinString(builder);
+
+    if (!wheres.isEmpty()) {
+      builder.append(" WHERE");
+      for (SelectWhereBuilder where : wheres) {
+        where.toString(builder);
+      }
+    }
+
+    return builder.append(qualifier).toString();
+  }
+
+  @Override
+  public String table(TableInfo table) {
+    return quote(table.name);
+  }
+
+  @Override
+  public String column(TableInfo table, String name, String alias) {
+    return super.column(table, quote(name), alias);
+  }
+
+  @Override
+  public String function(String name, TableInfo table, String column, String alias) {
+    return super.function(name, table, quote(column), alias);
+  }
+
+  /**
+   * Only the ORDER BY, the paging is done by {@code TOP n START AT m}.
+   */
+  @Override
+  public String qualify(String order, int limit, int offset) {
+    return order;
+  }
+
+  /**
+   * @return the name, in square brackets if it is an ADS reserved word
+   */
+  public String quote(String name) {
+    if (name == null || ROWID.equalsIgnoreCase(name) || !RESERVED_WORDS.contains(name.toUpperCase(Locale.ROOT))) {
+      return name;
+    }
+    return "[" + name + "]";
+  }
 
+  private static boolean mapsRowId(Class<?> entityClass) {
+    for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (field.isAnnotationPresent(Column.class) && ROWID.equalsIgnoreCase(field.getAnnotation(Column.class).name())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 }
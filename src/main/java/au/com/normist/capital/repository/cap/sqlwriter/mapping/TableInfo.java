@@ -91,7 +91,7 @@ public class TableInfo {
 
   public StringBuilder toColumnsString(StringBuilder builder) {
     if (columns.isEmpty()) {
-      return builder.append(name).append(".*");
+      return builder.append(this).append(".*");
     }
 
     for (ColumnInfo column : columns) {
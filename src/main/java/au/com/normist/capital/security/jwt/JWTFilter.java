@@ -1,5 +1,7 @@
 package au.com.normist.capital.security.jwt;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
@@ -14,10 +16,18 @@ import java.io.IOException;
 
 /**
  * Filters incoming requests and installs a Spring Security principal if a header corresponding to a valid user is
- * found.
+ * found, or for the stream of Server-Sent Events of the report generations an {@code access_token} parameter.
+ * <p>
+ * A token in the query string ends up in the access logs of the server and of the proxies on the way, and in the
+ * history of the browser, so it is only taken from that one stream.
  */
 public class JWTFilter extends GenericFilterBean {
 
+    public static final String ACCESS_TOKEN_PARAMETER = "access_token";
+
+    // the only path whose token can be a parameter
+    public static final String EVENT_STREAM_PATH = "/api/report-generations/events";
+
     private TokenProvider tokenProvider;
 
     public JWTFilter(TokenProvider tokenProvider) {
@@ -41,6 +51,12 @@ public class JWTFilter extends GenericFilterBean {
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
             return bearerToken.substring(7, bearerToken.length());
         }
+        // browsers' EventSource can't set headers, the stream of Server-Sent Events passes the token as a parameter
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (EVENT_STREAM_PATH.equals(path) && accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            return request.getParameter(ACCESS_TOKEN_PARAMETER);
+        }
         return null;
     }
 }
@@ -106,6 +106,24 @@ public class ReportGenerationQueryService extends QueryService<ReportGeneration>
             if (criteria.getComment() != null) {
                 specification = specification.and(buildStringSpecification(criteria.getComment(), ReportGeneration_.comment));
             }
+            if (criteria.getProgress() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getProgress(), ReportGeneration_.progress));
+            }
+            if (criteria.getParameters() != null) {
+                specification = specification.and(buildStringSpecification(criteria.getParameters(), ReportGeneration_.parameters));
+            }
+            if (criteria.getLeaseOwner() != null) {
+                specification = specification.and(buildStringSpecification(criteria.getLeaseOwner(), ReportGeneration_.leaseOwner));
+            }
+            if (criteria.getLeaseExpiresOn() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getLeaseExpiresOn(), ReportGeneration_.leaseExpiresOn));
+            }
+            if (criteria.getAttempts() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getAttempts(), ReportGeneration_.attempts));
+            }
+            if (criteria.getRetryOn() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getRetryOn(), ReportGeneration_.retryOn));
+            }
             if (criteria.getReportId() != null) {
                 specification = specification.and(buildReferringEntitySpecification(criteria.getReportId(), ReportGeneration_.report, Report_.id));
             }
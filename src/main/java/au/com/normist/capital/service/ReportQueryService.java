@@ -85,6 +85,12 @@ public class ReportQueryService extends QueryService<Report> {
             if (criteria.getDisplayOrder() != null) {
                 specification = specification.and(buildRangeSpecification(criteria.getDisplayOrder(), Report_.displayOrder));
             }
+            if (criteria.getSchedule() != null) {
+                specification = specification.and(buildStringSpecification(criteria.getSchedule(), Report_.schedule));
+            }
+            if (criteria.getNextRunOn() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getNextRunOn(), Report_.nextRunOn));
+            }
         }
         return specification;
     }
@@ -0,0 +1,546 @@
+package au.com.normist.capital.service;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.cap.catalog.Staux000;
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import au.com.normist.capital.repository.cap.catalog.IStaux000Repository;
+import au.com.normist.capital.repository.cap.catalog.IStockRepository;
+import au.com.normist.capital.repository.cap.changes.TableChangedEvent;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The whole STOCK catalogue with the catalogue 1 specials of STAUX000 in memory, for price and availability lookups
+ * that don't go to the server.
+ *
+ * Enabled by {@code application.capital.catalog-index.enabled}. The catalogue is loaded once the application is
+ * ready, the two tables streaming in parallel, and reloaded every {@code refresh-interval}; {@link #refresh(Collection)}
+ * updates single products in between, e.g. after writing them, and is driven by the {@link TableChangedEvent}s of
+ * STOCK and STAUX000 when change capture polls them. A catalogue whose estimated footprint is over
+ * {@code max-size-mb} is not indexed.
+ *
+ * Lookups are lock-free and answer nothing until the catalogue is loaded, callers then read the repositories.
+ */
+@Service
+public class StockCatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(StockCatalogIndex.class);
+
+    /**
+     * The STOCK columns the index keeps.
+     */
+    public interface StockRow {
+        String getStockId();
+
+        String getProductCode();
+
+        String getShortDescription();
+
+        String getLocation();
+
+        BigDecimal getSellPrice();
+
+        String getStockIn();
+
+        String getAllocatedStock();
+
+        String getOnOrderStock();
+
+        Boolean getOnHold();
+    }
+
+    /**
+     * The STAUX000 columns the index keeps.
+     */
+    public interface SpecialRow {
+        String getKey();
+
+        BigDecimal getCatalogue1SellPrice();
+
+        LocalDate getCatalogue1StartDate();
+
+        LocalDate getCatalogue1EndDate();
+    }
+
+    private final IStockRepository stockRepository;
+
+    private final IStaux000Repository staux000Repository;
+
+    private final ApplicationProperties.CapitalConfig.CatalogIndex config;
+
+    private final ExecutorService loader = Executors.newFixedThreadPool(2,
+        new ThreadFactoryBuilder().setNameFormat("catalog-index-%d").setDaemon(true).build());
+
+    // null until the catalogue is loaded, or when it is over budget
+    private volatile Index index;
+
+    public StockCatalogIndex(IStockRepository stockRepository, IStaux000Repository staux000Repository,
+                             ApplicationProperties applicationProperties) {
+        this.stockRepository = stockRepository;
+        this.staux000Repository = staux000Repository;
+        this.config = applicationProperties.getCapital().getCatalogIndex();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (config.isEnabled()) {
+            loader.execute(this::reload);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.capital.catalog-index.refresh-interval:600000}",
+        initialDelayString = "${application.capital.catalog-index.refresh-interval:600000}")
+    public void scheduledReload() {
+        if (config.isEnabled()) {
+            reload();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Reads the whole catalogue into a new index, which replaces the current one once it is complete. The current
+     * index is kept if the catalogue can't be read, and dropped if it is over budget.
+     */
+    public synchronized void reload() {
+        long start = System.nanoTime();
+        long budget = budget();
+        Future<Map<String, Special>> specials = loader.submit(this::loadSpecials);
+        try {
+            List<Entry> entries = new ArrayList<>();
+            long bytes = 0;
+            try (Stream<StockRow> rows = stockRepository.streamAll(StockRow.class)) {
+                for (StockRow row : (Iterable<StockRow>) rows::iterator) {
+                    Entry entry = new Entry(row, null);
+                    bytes += entry.estimatedBytes();
+                    if (bytes > budget) {
+                        specials.cancel(true);
+                        index = null;
+                        log.error("The stock catalogue is over the budget of {} MB after {} products, it is not indexed",
+                            config.getMaxSizeMb(), entries.size());
+                        return;
+                    }
+                    entries.add(entry);
+                }
+            }
+
+            Map<String, Special> specialsByKey = specials.get();
+            Index loaded = new Index();
+            for (Entry entry : entries) {
+                Special special = specialsByKey.get(entry.specialKey);
+                loaded.put(special == null ? entry : entry.withSpecial(special));
+            }
+            index = loaded;
+            log.info("Indexed {} stock products, about {} KB, in {} ms", loaded.size(), loaded.estimatedBytes.get() / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            specials.cancel(true);
+        } catch (ExecutionException | RuntimeException e) {
+            specials.cancel(true);
+            log.warn("Unable to load the stock catalogue, the index is left as it was", e instanceof ExecutionException ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Reads the given products again, e.g. after they were written. Products no longer in the catalogue are removed.
+     * Does nothing until the catalogue is loaded, and waits for a running reload.
+     */
+    public void refresh(Collection<String> stockIds) {
+        Preconditions.checkNotNull(stockIds);
+        if (index == null || stockIds.isEmpty()) {
+            return;
+        }
+
+        // the entity caches may hold the old records
+        stockRepository.evict(stockIds);
+        List<Stock> stocks = stockRepository.getByIds(stockIds);
+        List<String> specialKeys = stocks.stream()
+            .map(stock -> specialKey(stock.getProductCode(), stock.getLocation()))
+            .collect(Collectors.toList());
+        staux000Repository.evict(specialKeys);
+        Map<String, Special> specials = new HashMap<>();
+        for (Staux000 staux : staux000Repository.getByIds(specialKeys)) {
+            addSpecial(specials, staux.getKey(), staux.getCatalogue1SellPrice(), staux.getCatalogue1StartDate(),
+                staux.getCatalogue1EndDate());
+        }
+
+        synchronized (this) {
+            Index current = index;
+            if (current == null) {
+                return;
+            }
+            Set<String> missing = new LinkedHashSet<>();
+            for (String stockId : stockIds) {
+                if (stockId != null) {
+                    missing.add(trim(stockId));
+                }
+            }
+            for (Stock stock : stocks) {
+                Entry entry = new Entry(stock, null);
+                Special special = specials.get(entry.specialKey);
+                current.put(special == null ? entry : entry.withSpecial(special));
+                missing.remove(entry.stockId);
+            }
+            missing.forEach(current::remove);
+
+            if (current.estimatedBytes.get() > budget()) {
+                index = null;
+                log.error("The stock catalogue grew over the budget of {} MB, it is no longer indexed", config.getMaxSizeMb());
+            }
+        }
+    }
+
+    /**
+     * Refreshes the products whose STOCK row, or STAUX000 row of their specials, another application changed.
+     */
+    @EventListener
+    public void onTableChanged(TableChangedEvent event) {
+        Index current = index;
+        if (current == null) {
+            return;
+        }
+        if (event.getEntityClass() == Stock.class) {
+            refresh(event.getChangedIds());
+        } else if (event.getEntityClass() == Staux000.class) {
+            Set<String> keys = new HashSet<>(event.getChangedIds());
+            refresh(current.byStockId.values().stream()
+                .filter(entry -> keys.contains(entry.specialKey))
+                .map(Entry::getStockId)
+                .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * @return whether the catalogue is loaded, lookups answer nothing until it is
+     */
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    public Optional<Entry> getByStockId(String stockId) {
+        Index current = index;
+        return current == null || stockId == null ? Optional.empty() : Optional.ofNullable(current.byStockId.get(trim(stockId)));
+    }
+
+    /**
+     * @return the product at each location it is stocked at
+     */
+    public List<Entry> getByProductCode(String productCode) {
+        Index current = index;
+        return current == null || productCode == null ? Collections.emptyList() : values(current.byProductCode.get(trim(productCode)));
+    }
+
+    public Optional<Entry> get(String productCode, String location) {
+        return getByProductCode(productCode).stream()
+            .filter(entry -> entry.location.equals(trim(location)))
+            .findFirst();
+    }
+
+    public List<Entry> getByLocation(String location) {
+        Index current = index;
+        return current == null || location == null ? Collections.emptyList() : values(current.byLocation.get(trim(location)));
+    }
+
+    /**
+     * @return the number of indexed products, 0 until the catalogue is loaded
+     */
+    public int size() {
+        Index current = index;
+        return current == null ? 0 : current.size();
+    }
+
+    /**
+     * @return the estimated heap footprint of the index in bytes, 0 until the catalogue is loaded
+     */
+    public long getEstimatedBytes() {
+        Index current = index;
+        return current == null ? 0 : current.estimatedBytes.get();
+    }
+
+    private Map<String, Special> loadSpecials() {
+        Map<String, Special> specials = new HashMap<>();
+        try (Stream<SpecialRow> rows = staux000Repository.streamAll(SpecialRow.class)) {
+            rows.forEach(row -> addSpecial(specials, row.getKey(), row.getCatalogue1SellPrice(),
+                row.getCatalogue1StartDate(), row.getCatalogue1EndDate()));
+        }
+        return specials;
+    }
+
+    private long budget() {
+        return config.getMaxSizeMb() * 1024 * 1024;
+    }
+
+    private static void addSpecial(Map<String, Special> specials, String key, BigDecimal price, LocalDate start, LocalDate end) {
+        if (price != null) {
+            specials.put(trim(key), new Special(price, start, end));
+        }
+    }
+
+    private static List<Entry> values(Map<String, Entry> entries) {
+        return entries == null ? Collections.emptyList() : new ArrayList<>(entries.values());
+    }
+
+    /**
+     * STAUX000 is keyed by the product code followed by the location, as Capital pads them.
+     */
+    private static String specialKey(String productCode, String location) {
+        return trim(Objects.toString(productCode, "") + Objects.toString(location, ""));
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * The indexed columns of one product at one location. Immutable.
+     */
+    public static final class Entry {
+
+        // object header, fields and the nodes of the three maps holding it
+        private static final int ENTRY_BYTES = 184;
+        private static final int DECIMAL_BYTES = 40;
+        private static final int DATE_BYTES = 24;
+
+        private final String stockId;
+        private final String productCode;
+        private final String location;
+        private final String description;
+        private final BigDecimal sellPrice;
+        private final String stockIn;
+        private final String allocatedStock;
+        private final String onOrderStock;
+        private final boolean onHold;
+        private final String specialKey;
+        private final Special special;
+
+        private Entry(StockRow row, Special special) {
+            this(row.getStockId(), row.getProductCode(), row.getLocation(), row.getShortDescription(), row.getSellPrice(),
+                row.getStockIn(), row.getAllocatedStock(), row.getOnOrderStock(), row.getOnHold(), special);
+        }
+
+        private Entry(Stock stock, Special special) {
+            this(stock.getStockId(), stock.getProductCode(), stock.getLocation(), stock.getShortDescription(),
+                stock.getSellPrice(), stock.getStockIn(), stock.getAllocatedStock(), stock.getOnOrderStock(),
+                stock.getOnHold(), special);
+        }
+
+        private Entry(String stockId, String productCode, String location, String description, BigDecimal sellPrice,
+                      String stockIn, String allocatedStock, String onOrderStock, Boolean onHold, Special special) {
+            this.stockId = trim(stockId);
+            this.productCode = Objects.toString(trim(productCode), "");
+            // a catalogue has a handful of locations
+            this.location = Objects.toString(trim(location), "").intern();
+            this.description = trim(description);
+            this.sellPrice = sellPrice;
+            this.stockIn = trim(stockIn);
+            this.allocatedStock = trim(allocatedStock);
+            this.onOrderStock = trim(onOrderStock);
+            this.onHold = Boolean.TRUE.equals(onHold);
+            this.specialKey = specialKey(productCode, location);
+            this.special = special;
+        }
+
+        private Entry(Entry entry, Special special) {
+            this.stockId = entry.stockId;
+            this.productCode = entry.productCode;
+            this.location = entry.location;
+            this.description = entry.description;
+            this.sellPrice = entry.sellPrice;
+            this.stockIn = entry.stockIn;
+            this.allocatedStock = entry.allocatedStock;
+            this.onOrderStock = entry.onOrderStock;
+            this.onHold = entry.onHold;
+            this.specialKey = entry.specialKey;
+            this.special = special;
+        }
+
+        private Entry withSpecial(Special special) {
+            return new Entry(this, special);
+        }
+
+        public String getStockId() {
+            return stockId;
+        }
+
+        public String getProductCode() {
+            return productCode;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public BigDecimal getSellPrice() {
+            return sellPrice;
+        }
+
+        /**
+         * @return the catalogue 1 special price, null if the product has none
+         */
+        public BigDecimal getSpecialPrice() {
+            return special == null ? null : special.price;
+        }
+
+        public LocalDate getSpecialStartDate() {
+            return special == null ? null : special.start;
+        }
+
+        public LocalDate getSpecialEndDate() {
+            return special == null ? null : special.end;
+        }
+
+        /**
+         * @return the special price on the given day if the special runs then, the standard sell price otherwise
+         */
+        public BigDecimal getPrice(LocalDate date) {
+            if (special != null
+                && (special.start == null || !date.isBefore(special.start))
+                && (special.end == null || !date.isAfter(special.end))) {
+                return special.price;
+            }
+            return sellPrice;
+        }
+
+        public String getStockIn() {
+            return stockIn;
+        }
+
+        public String getAllocatedStock() {
+            return allocatedStock;
+        }
+
+        public String getOnOrderStock() {
+            return onOrderStock;
+        }
+
+        public boolean isOnHold() {
+            return onHold;
+        }
+
+        /**
+         * Rough, assuming compressed oops: the strings, decimals and dates are counted, the interned location isn't.
+         */
+        long estimatedBytes() {
+            long bytes = ENTRY_BYTES + bytes(stockId) + bytes(productCode) + bytes(description) + bytes(stockIn)
+                + bytes(allocatedStock) + bytes(onOrderStock) + bytes(specialKey);
+            if (sellPrice != null) {
+                bytes += DECIMAL_BYTES;
+            }
+            if (special != null) {
+                bytes += special.estimatedBytes();
+            }
+            return bytes;
+        }
+
+        private static long bytes(String value) {
+            // String plus its char array
+            return value == null ? 0 : 40 + 2L * value.length();
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{stockId='" + stockId + "', productCode='" + productCode + "', location='" + location + "'}";
+        }
+    }
+
+    private static final class Special {
+
+        private final BigDecimal price;
+        private final LocalDate start;
+        private final LocalDate end;
+
+        private Special(BigDecimal price, LocalDate start, LocalDate end) {
+            this.price = price;
+            this.start = start;
+            this.end = end;
+        }
+
+        private long estimatedBytes() {
+            return 24 + Entry.DECIMAL_BYTES + (start == null ? 0 : Entry.DATE_BYTES) + (end == null ? 0 : Entry.DATE_BYTES);
+        }
+    }
+
+    /**
+     * The entries by trimmed stock id, and by product code and location. Updated in place by {@link #refresh(Collection)}
+     * only, under the lock of the catalogue index.
+     */
+    private static final class Index {
+
+        private final Map<String, Entry> byStockId = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, Entry>> byProductCode = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, Entry>> byLocation = new ConcurrentHashMap<>();
+        private final AtomicLong estimatedBytes = new AtomicLong();
+
+        private void put(Entry entry) {
+            Entry previous = byStockId.put(entry.stockId, entry);
+            if (previous != null) {
+                unlink(previous);
+            }
+            byProductCode.computeIfAbsent(entry.productCode, code -> new ConcurrentHashMap<>()).put(entry.stockId, entry);
+            byLocation.computeIfAbsent(entry.location, location -> new ConcurrentHashMap<>()).put(entry.stockId, entry);
+            estimatedBytes.addAndGet(entry.estimatedBytes());
+        }
+
+        private void remove(String stockId) {
+            Entry previous = byStockId.remove(stockId);
+            if (previous != null) {
+                unlink(previous);
+            }
+        }
+
+        private void unlink(Entry entry) {
+            unlink(byProductCode, entry.productCode, entry.stockId);
+            unlink(byLocation, entry.location, entry.stockId);
+            estimatedBytes.addAndGet(-entry.estimatedBytes());
+        }
+
+        private static void unlink(Map<String, Map<String, Entry>> entries, String key, String stockId) {
+            entries.computeIfPresent(key, (k, byId) -> {
+                byId.remove(stockId);
+                return byId.isEmpty() ? null : byId;
+            });
+        }
+
+        private int size() {
+            return byStockId.size();
+        }
+    }
+}
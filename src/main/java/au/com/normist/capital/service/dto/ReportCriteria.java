@@ -8,6 +8,7 @@ import io.github.jhipster.service.filter.FloatFilter;
 import io.github.jhipster.service.filter.IntegerFilter;
 import io.github.jhipster.service.filter.LongFilter;
 import io.github.jhipster.service.filter.StringFilter;
+import io.github.jhipster.service.filter.InstantFilter;
 
 
 
@@ -34,6 +35,10 @@ public class ReportCriteria implements Serializable {
 
     private IntegerFilter displayOrder;
 
+    private StringFilter schedule;
+
+    private InstantFilter nextRunOn;
+
     public ReportCriteria() {
     }
 
@@ -69,6 +74,22 @@ public class ReportCriteria implements Serializable {
         this.displayOrder = displayOrder;
     }
 
+    public StringFilter getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(StringFilter schedule) {
+        this.schedule = schedule;
+    }
+
+    public InstantFilter getNextRunOn() {
+        return nextRunOn;
+    }
+
+    public void setNextRunOn(InstantFilter nextRunOn) {
+        this.nextRunOn = nextRunOn;
+    }
+
     @Override
     public String toString() {
         return "ReportCriteria{" +
@@ -76,6 +97,8 @@ public class ReportCriteria implements Serializable {
                 (name != null ? "name=" + name + ", " : "") +
                 (description != null ? "description=" + description + ", " : "") +
                 (displayOrder != null ? "displayOrder=" + displayOrder + ", " : "") +
+                (schedule != null ? "schedule=" + schedule + ", " : "") +
+                (nextRunOn != null ? "nextRunOn=" + nextRunOn + ", " : "") +
             "}";
     }
 
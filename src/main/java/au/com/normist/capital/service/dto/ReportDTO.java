@@ -1,5 +1,6 @@
 package au.com.normist.capital.service.dto;
 
+import java.time.Instant;
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -16,6 +17,10 @@ public class ReportDTO implements Serializable {
 
     private Integer displayOrder;
 
+    private String schedule;
+
+    private Instant nextRunOn;
+
     public Long getId() {
         return id;
     }
@@ -48,6 +53,22 @@ public class ReportDTO implements Serializable {
         this.displayOrder = displayOrder;
     }
 
+    public String getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(String schedule) {
+        this.schedule = schedule;
+    }
+
+    public Instant getNextRunOn() {
+        return nextRunOn;
+    }
+
+    public void setNextRunOn(Instant nextRunOn) {
+        this.nextRunOn = nextRunOn;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -76,6 +97,8 @@ public class ReportDTO implements Serializable {
             ", name='" + getName() + "'" +
             ", description='" + getDescription() + "'" +
             ", displayOrder=" + getDisplayOrder() +
+            ", schedule='" + getSchedule() + "'" +
+            ", nextRunOn='" + getNextRunOn() + "'" +
             "}";
     }
 }
@@ -62,6 +62,18 @@ public class ReportGenerationCriteria implements Serializable {
 
     private StringFilter comment;
 
+    private LongFilter progress;
+
+    private StringFilter parameters;
+
+    private StringFilter leaseOwner;
+
+    private InstantFilter leaseExpiresOn;
+
+    private IntegerFilter attempts;
+
+    private InstantFilter retryOn;
+
     private LongFilter reportId;
 
     public ReportGenerationCriteria() {
@@ -155,6 +167,54 @@ public class ReportGenerationCriteria implements Serializable {
         this.comment = comment;
     }
 
+    public LongFilter getProgress() {
+        return progress;
+    }
+
+    public void setProgress(LongFilter progress) {
+        this.progress = progress;
+    }
+
+    public StringFilter getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(StringFilter parameters) {
+        this.parameters = parameters;
+    }
+
+    public StringFilter getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(StringFilter leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public InstantFilter getLeaseExpiresOn() {
+        return leaseExpiresOn;
+    }
+
+    public void setLeaseExpiresOn(InstantFilter leaseExpiresOn) {
+        this.leaseExpiresOn = leaseExpiresOn;
+    }
+
+    public IntegerFilter getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(IntegerFilter attempts) {
+        this.attempts = attempts;
+    }
+
+    public InstantFilter getRetryOn() {
+        return retryOn;
+    }
+
+    public void setRetryOn(InstantFilter retryOn) {
+        this.retryOn = retryOn;
+    }
+
     public LongFilter getReportId() {
         return reportId;
     }
@@ -177,6 +237,12 @@ public class ReportGenerationCriteria implements Serializable {
                 (startedOn != null ? "startedOn=" + startedOn + ", " : "") +
                 (completionDate != null ? "completionDate=" + completionDate + ", " : "") +
                 (comment != null ? "comment=" + comment + ", " : "") +
+                (progress != null ? "progress=" + progress + ", " : "") +
+                (parameters != null ? "parameters=" + parameters + ", " : "") +
+                (leaseOwner != null ? "leaseOwner=" + leaseOwner + ", " : "") +
+                (leaseExpiresOn != null ? "leaseExpiresOn=" + leaseExpiresOn + ", " : "") +
+                (attempts != null ? "attempts=" + attempts + ", " : "") +
+                (retryOn != null ? "retryOn=" + retryOn + ", " : "") +
                 (reportId != null ? "reportId=" + reportId + ", " : "") +
             "}";
     }
@@ -33,6 +33,22 @@ public class ReportGenerationDTO implements Serializable {
 
     private String comment;
 
+    private Long progress;
+
+    private String parameters;
+
+    private String leaseOwner;
+
+    private Instant leaseExpiresOn;
+
+    private Integer attempts;
+
+    private Instant retryOn;
+
+    private Long checkpointRows;
+
+    private Long checkpointOffset;
+
     private Long reportId;
 
     public Long getId() {
@@ -123,6 +139,70 @@ public class ReportGenerationDTO implements Serializable {
         this.comment = comment;
     }
 
+    public Long getProgress() {
+        return progress;
+    }
+
+    public void setProgress(Long progress) {
+        this.progress = progress;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(String parameters) {
+        this.parameters = parameters;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public Instant getLeaseExpiresOn() {
+        return leaseExpiresOn;
+    }
+
+    public void setLeaseExpiresOn(Instant leaseExpiresOn) {
+        this.leaseExpiresOn = leaseExpiresOn;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getRetryOn() {
+        return retryOn;
+    }
+
+    public void setRetryOn(Instant retryOn) {
+        this.retryOn = retryOn;
+    }
+
+    public Long getCheckpointRows() {
+        return checkpointRows;
+    }
+
+    public void setCheckpointRows(Long checkpointRows) {
+        this.checkpointRows = checkpointRows;
+    }
+
+    public Long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+
+    public void setCheckpointOffset(Long checkpointOffset) {
+        this.checkpointOffset = checkpointOffset;
+    }
+
     public Long getReportId() {
         return reportId;
     }
@@ -166,6 +246,14 @@ public class ReportGenerationDTO implements Serializable {
             ", startedOn='" + getStartedOn() + "'" +
             ", completionDate='" + getCompletionDate() + "'" +
             ", comment='" + getComment() + "'" +
+            ", progress=" + getProgress() +
+            ", parameters='" + getParameters() + "'" +
+            ", leaseOwner='" + getLeaseOwner() + "'" +
+            ", leaseExpiresOn='" + getLeaseExpiresOn() + "'" +
+            ", attempts=" + getAttempts() +
+            ", retryOn='" + getRetryOn() + "'" +
+            ", checkpointRows=" + getCheckpointRows() +
+            ", checkpointOffset=" + getCheckpointOffset() +
             ", report=" + getReportId() +
             "}";
     }
@@ -2,12 +2,15 @@ package au.com.normist.capital.service.impl;
 
 import au.com.normist.capital.service.ReportGenerationService;
 import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
 import au.com.normist.capital.repository.ReportGenerationRepository;
 import au.com.normist.capital.service.dto.ReportGenerationDTO;
 import au.com.normist.capital.service.mapper.ReportGenerationMapper;
+import au.com.normist.capital.service.report.ReportGenerationEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -28,13 +31,23 @@ public class ReportGenerationServiceImpl implements ReportGenerationService {
 
     private final ReportGenerationMapper reportGenerationMapper;
 
-    public ReportGenerationServiceImpl(ReportGenerationRepository reportGenerationRepository, ReportGenerationMapper reportGenerationMapper) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ReportGenerationServiceImpl(ReportGenerationRepository reportGenerationRepository, ReportGenerationMapper reportGenerationMapper,
+                                       ApplicationEventPublisher eventPublisher) {
         this.reportGenerationRepository = reportGenerationRepository;
         this.reportGenerationMapper = reportGenerationMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Save a reportGeneration.
+     * Save a reportGeneration, and publish its {@link ReportGenerationEvent}.
+     * <p>
+     * The status, the lock, the run, the file, the lease, the attempts and the checkpoint of a job belong to the
+     * engine: a new job is always pending, unlocked and has none of the others. An existing job only gets its
+     * description, file type, parameters and report updated, in one update of those columns, so neither what the
+     * client sent nor what it read before the engine claimed or ended the job is written back. Its creator and
+     * creation date are kept as well, they decide who may download its file and when it runs.
      *
      * @param reportGenerationDTO the entity to save
      * @return the persisted entity
@@ -43,7 +56,27 @@ public class ReportGenerationServiceImpl implements ReportGenerationService {
     public ReportGenerationDTO save(ReportGenerationDTO reportGenerationDTO) {
         log.debug("Request to save ReportGeneration : {}", reportGenerationDTO);
         ReportGeneration reportGeneration = reportGenerationMapper.toEntity(reportGenerationDTO);
-        reportGeneration = reportGenerationRepository.save(reportGeneration);
+        if (reportGeneration.getId() != null && reportGenerationRepository.updateDefinition(reportGeneration.getId(),
+                reportGeneration.getDescription(), reportGeneration.getFileType(), reportGeneration.getParameters(),
+                reportGeneration.getReport()) == 1) {
+            reportGeneration = reportGenerationRepository.findById(reportGeneration.getId()).get();
+        } else {
+            reportGeneration.setStatus(ReportGenerationStatus.PENDING);
+            reportGeneration.setIsLocked(false);
+            reportGeneration.setStartedOn(null);
+            reportGeneration.setCompletionDate(null);
+            reportGeneration.setComment(null);
+            reportGeneration.setProgress(null);
+            reportGeneration.setFullPath(null);
+            reportGeneration.setLeaseOwner(null);
+            reportGeneration.setLeaseExpiresOn(null);
+            reportGeneration.setAttempts(null);
+            reportGeneration.setRetryOn(null);
+            reportGeneration.setCheckpointRows(null);
+            reportGeneration.setCheckpointOffset(null);
+            reportGeneration = reportGenerationRepository.save(reportGeneration);
+        }
+        eventPublisher.publishEvent(ReportGenerationEvent.of(reportGeneration));
         return reportGenerationMapper.toDto(reportGeneration);
     }
 
@@ -12,6 +12,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 
 import java.util.Optional;
@@ -34,7 +35,7 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * Save a report.
+     * Save a report. The next run of its schedule is kept, or left to the scheduler when the schedule changed.
      *
      * @param reportDTO the entity to save
      * @return the persisted entity
@@ -43,6 +44,11 @@ public class ReportServiceImpl implements ReportService {
     public ReportDTO save(ReportDTO reportDTO) {
         log.debug("Request to save Report : {}", reportDTO);
         Report report = reportMapper.toEntity(reportDTO);
+        report.setSchedule(StringUtils.hasText(report.getSchedule()) ? report.getSchedule().trim() : null);
+        Report current = report.getId() == null ? null : reportRepository.findById(report.getId()).orElse(null);
+        boolean sameSchedule = current != null && report.getSchedule() != null
+            && report.getSchedule().equals(current.getSchedule());
+        report.setNextRunOn(sameSchedule ? current.getNextRunOn() : null);
         report = reportRepository.save(report);
         return reportMapper.toDto(report);
     }
@@ -0,0 +1,138 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.cap.salesforce.CrmHistory;
+import au.com.normist.capital.repository.cap.Partitions;
+import au.com.normist.capital.repository.cap.salesforce.ICrmHistoryRepository;
+import org.danekja.java.util.function.serializable.SerializablePredicate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The CRM history of the year up to the day the job was created, read from Capital as it is written. With an
+ * {@code application.report.parallelism} over 1 the year is split into as many date ranges, read at the same time on
+ * their own connections, and the lines come as they are read, or in date order for documents.
+ *
+ * Segmented, the year is split into twelve ranges of about a month, read in order, as many at a time. The lines of
+ * the past ones don't change, the history is only ever appended to, so a job cut short goes on from its last whole
+ * range.
+ */
+@Component
+public class CrmHistoryReportDataSource implements ReportDataSource {
+
+    public static final String REPORT_NAME = "CRM History";
+
+    private static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+        "Date", "Invoice No", "Line Ref", "Account", "Name", "Stock Id", "Title", "Type", "Category", "Supplier",
+        "Location", "Salesman", "State", "Qty", "Measure", "Cost", "Sold For", "Tax Charge", "Tax Incl"));
+
+    private static final int SEGMENTS = 12;
+
+    private final ICrmHistoryRepository crmHistoryRepository;
+
+    private final ApplicationProperties applicationProperties;
+
+    public CrmHistoryReportDataSource(ICrmHistoryRepository crmHistoryRepository,
+                                      ApplicationProperties applicationProperties) {
+        this.crmHistoryRepository = crmHistoryRepository;
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Override
+    public String getReportName() {
+        return REPORT_NAME;
+    }
+
+    @Override
+    public List<String> getColumns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public Stream<Object[]> rows(ReportGeneration generation) {
+        return rows(generation, false);
+    }
+
+    /**
+     * The ranges are still read at the same time, their lines wait for those of the earlier ranges.
+     */
+    @Override
+    public Stream<Object[]> orderedRows(ReportGeneration generation) {
+        return rows(generation, true);
+    }
+
+    /**
+     * The lines of each range, counted by the server.
+     */
+    @Override
+    public long[] getSegments(ReportGeneration generation) {
+        List<SerializablePredicate<CrmHistory>> months = partitions(generation, SEGMENTS);
+        long[] segments = new long[months.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = crmHistoryRepository.countWhere(months.get(i));
+        }
+        return segments;
+    }
+
+    @Override
+    public Stream<Object[]> rows(ReportGeneration generation, int fromSegment) {
+        List<SerializablePredicate<CrmHistory>> months = partitions(generation, SEGMENTS);
+        return crmHistoryRepository.streamWhere(months.subList(fromSegment, months.size()),
+            applicationProperties.getReport().getParallelism(REPORT_NAME), true)
+            .map(CrmHistoryReportDataSource::row);
+    }
+
+    /**
+     * The days of the year and the number of their lines: the history is only ever appended to.
+     */
+    @Override
+    public String getWatermark(ReportGeneration generation) {
+        LocalDate to = to(generation);
+        LocalDate from = to.minusYears(1);
+        long count = crmHistoryRepository.countWhere(h -> !h.getDate().isBefore(from) && h.getDate().isBefore(to));
+        return from + "/" + to + "/" + count;
+    }
+
+    private Stream<Object[]> rows(ReportGeneration generation, boolean ordered) {
+        int parallelism = applicationProperties.getReport().getParallelism(REPORT_NAME);
+        return crmHistoryRepository.streamWhere(partitions(generation, parallelism), parallelism, ordered)
+            .map(CrmHistoryReportDataSource::row);
+    }
+
+    // date ranges splitting the year
+    private static List<SerializablePredicate<CrmHistory>> partitions(ReportGeneration generation, int count) {
+        LocalDate to = to(generation);
+        List<LocalDate> days = Partitions.dateBoundaries(to.minusYears(1), to, count);
+        List<SerializablePredicate<CrmHistory>> partitions = new ArrayList<>(days.size() - 1);
+        for (int i = 0; i + 1 < days.size(); i++) {
+            LocalDate from = days.get(i);
+            LocalDate until = days.get(i + 1);
+            partitions.add(h -> !h.getDate().isBefore(from) && h.getDate().isBefore(until));
+        }
+        return partitions;
+    }
+
+    // the day after the job was created
+    private static LocalDate to(ReportGeneration generation) {
+        Instant created = generation.getCreationDate() == null ? Instant.now() : generation.getCreationDate();
+        return created.atZone(ZoneId.systemDefault()).toLocalDate().plusDays(1);
+    }
+
+    private static Object[] row(CrmHistory history) {
+        return new Object[] {
+            history.getDate(), history.getInvoiceNo(), history.getLineRef(), history.getAccount(), history.getName(),
+            history.getStockId(), history.getTitle(), history.getType(), history.getCategory(), history.getSupplier(),
+            history.getLocation(), history.getSalesman(), history.getState(), history.getQty(), history.getMeasure(),
+            history.getCost(), history.getSoldFor(), history.getTaxCharge(), history.getTaxIncl()
+        };
+    }
+}
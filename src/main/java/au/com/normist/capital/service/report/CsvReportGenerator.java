@@ -0,0 +1,147 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes CSV reports (RFC 4180) row by row as they are read from their {@link ReportDataSource}, through a buffered
+ * file channel, so a report takes the same memory whatever its number of rows.
+ *
+ * The rows of a data source split into {@link ReportDataSource#getSegments segments} are written segment after
+ * segment, with a checkpoint at the end of each. A later run of a job cut short cuts the partial file back to its
+ * checkpoint and goes on from the next segment, as long as the segments before it still have the same rows.
+ */
+@Component
+public class CsvReportGenerator extends TabularReportGenerator {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    @Override
+    public ReportFileType getFileType() {
+        return ReportFileType.CSV;
+    }
+
+    @Override
+    public void generate(ReportGeneration generation, Path output, ReportProgress progress) throws IOException {
+        ReportDataSource dataSource = dataSource(generation);
+        long[] segments = dataSource.getSegments(generation);
+        int fromSegment = resumedSegment(generation, segments, output);
+        boolean resumed = fromSegment > 0;
+
+        try (FileChannel channel = resumed
+                ? FileChannel.open(output, StandardOpenOption.WRITE)
+                : FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(
+                 new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Stream<Object[]> rows = segments == null
+                 ? dataSource.rows(generation)
+                 : dataSource.rows(generation, fromSegment)) {
+            long written;
+            if (resumed) {
+                written = generation.getCheckpointRows();
+                channel.truncate(generation.getCheckpointOffset());
+                channel.position(generation.getCheckpointOffset());
+            } else {
+                written = 0;
+                writeRow(writer, dataSource.getColumns().toArray());
+            }
+
+            // the rows written at the end of each segment
+            long[] ends = segments == null ? new long[0] : ends(segments);
+            int segment = nextSegment(ends, fromSegment, written);
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writeRow(writer, iterator.next());
+                written++;
+                if (segment + 1 < ends.length && written == ends[segment]) {
+                    writer.flush();
+                    channel.force(false);
+                    progress.checkpoint(written, channel.position());
+                    segment = nextSegment(ends, segment, written);
+                } else {
+                    progress.update(written);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the segment after the checkpoint of the job when its partial file can be gone on from, 0 otherwise
+     */
+    private static int resumedSegment(ReportGeneration generation, long[] segments, Path output) throws IOException {
+        Long rows = generation.getCheckpointRows();
+        Long offset = generation.getCheckpointOffset();
+        if (segments == null || rows == null || offset == null || rows <= 0
+            || !Files.isRegularFile(output) || Files.size(output) < offset) {
+            return 0;
+        }
+        long[] ends = ends(segments);
+        for (int i = 0; i + 1 < ends.length; i++) {
+            if (ends[i] == rows) {
+                return i + 1;
+            }
+        }
+        // the rows before the checkpoint changed
+        return 0;
+    }
+
+    private static long[] ends(long[] segments) {
+        long[] ends = new long[segments.length];
+        long end = 0;
+        for (int i = 0; i < segments.length; i++) {
+            end += segments[i];
+            ends[i] = end;
+        }
+        return ends;
+    }
+
+    // the first segment from the given one not written whole, empty segments end where the one before them does
+    private static int nextSegment(long[] ends, int segment, long written) {
+        while (segment + 1 < ends.length && ends[segment] <= written) {
+            segment++;
+        }
+        return segment;
+    }
+
+    private static void writeRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeValue(writer, format(values[i]));
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    private static void writeValue(Writer writer, String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
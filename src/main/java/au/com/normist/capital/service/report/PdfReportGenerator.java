@@ -0,0 +1,74 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Writes PDF reports page by page as the rows are read from their {@link ReportDataSource}, in the order of the
+ * report, see {@link PdfTableWriter}. At most {@code application.report.pdf-permits} reports are rendered at a time, the other
+ * jobs wait on their worker for a permit.
+ */
+@Component
+public class PdfReportGenerator extends TabularReportGenerator {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Semaphore permits;
+
+    public PdfReportGenerator(ApplicationProperties applicationProperties) {
+        this.permits = new Semaphore(Math.max(1, applicationProperties.getReport().getPdfPermits()));
+    }
+
+    @Override
+    public ReportFileType getFileType() {
+        return ReportFileType.PDF;
+    }
+
+    @Override
+    public void generate(ReportGeneration generation, Path output, ReportProgress progress) throws IOException {
+        ReportDataSource dataSource = dataSource(generation);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to render " + generation);
+        }
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+             Stream<Object[]> rows = dataSource.orderedRows(generation)) {
+            PdfTableWriter writer = new PdfTableWriter(out, title(generation), dataSource.getColumns());
+            long written = 0;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeRow(iterator.next());
+                progress.update(++written);
+            }
+            writer.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static String title(ReportGeneration generation) {
+        String title = generation.getReport().getName();
+        if (generation.getParameters() != null) {
+            title += " " + generation.getParameters();
+        }
+        return title;
+    }
+}
@@ -0,0 +1,381 @@
+package au.com.normist.capital.service.report;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a table as a PDF, one page at a time: a page is written out as soon as it is full, and the writer only keeps
+ * the offsets of the objects written, so the memory taken doesn't grow with the rows, and the time grows with the
+ * pages.
+ *
+ * The table is set in Courier, the PDF standard font needing no embedding, on A4 landscape pages. The width of each
+ * column is taken from its header and the cells of the first page. Nothing is cut: longer text goes on over the next
+ * lines of its row, numbers are written whole, pushing the rest of their line, and what passes the margin goes on the
+ * next line. Numbers are right aligned. Columns too many for one line are set in bands, one under the other, in the
+ * header as in every row, and the rows are then set apart by a blank line.
+ * Text is written in WinAnsiEncoding, the characters it lacks as {@code ?}.
+ */
+class PdfTableWriter implements Closeable {
+
+    // A4 landscape, in points
+    private static final int PAGE_WIDTH = 842;
+    private static final int PAGE_HEIGHT = 595;
+    private static final int MARGIN = 36;
+
+    private static final int FONT_SIZE = 7;
+    private static final int LEADING = 9;
+    // Courier is 600/1000 of the font size wide
+    private static final int LINE_CHARS = (PAGE_WIDTH - 2 * MARGIN) * 1000 / (600 * FONT_SIZE);
+    private static final int MAX_COLUMN_CHARS = 40;
+    private static final String COLUMN_GAP = "  ";
+
+    private static final int PAGE_LINES = (PAGE_HEIGHT - 2 * MARGIN) / LEADING;
+    // the title, a blank line, a header of one line and its rule
+    private static final int HEADER_LINES = 4;
+    // the rows of one line on a page, and the rows the widths of the columns are taken from
+    static final int ROWS_PER_PAGE = PAGE_LINES - HEADER_LINES;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT = 3;
+
+    private final CountingOutputStream out;
+
+    private final String title;
+
+    private final String[] columns;
+
+    // offsets of the objects by number - 1
+    private final List<Long> offsets = new ArrayList<>();
+
+    private final List<Integer> pages = new ArrayList<>();
+
+    // the rows of the first page, until the widths of the columns are known
+    private List<String[]> firstRows = new ArrayList<>();
+
+    private int[] widths;
+
+    // the first column of each band, the columns of a band fit in a line
+    private int[] bands;
+
+    private List<String> header;
+
+    // the lines of rows a page takes under its header
+    private int bodyLines;
+
+    private final boolean[] rightAligned;
+
+    private ByteArrayOutputStream page;
+
+    private int pageLines;
+
+    PdfTableWriter(OutputStream out, String title, List<String> columns) throws IOException {
+        this.out = new CountingOutputStream(out);
+        this.title = title;
+        this.columns = columns.toArray(new String[0]);
+        this.rightAligned = new boolean[this.columns.length];
+
+        // binary comment, tells transfer tools the file isn't text
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        reserve(CATALOG);
+        reserve(PAGES);
+        reserve(FONT);
+        beginObject(FONT);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Courier /Encoding /WinAnsiEncoding >>\nendobj\n");
+    }
+
+    /**
+     * @param values the cells of the row, in the order of the columns
+     */
+    void writeRow(Object[] values) throws IOException {
+        String[] cells = new String[columns.length];
+        for (int i = 0; i < cells.length; i++) {
+            Object value = i < values.length ? values[i] : null;
+            cells[i] = TabularReportGenerator.format(value);
+            if (value instanceof Number && firstRows != null) {
+                rightAligned[i] = true;
+            }
+        }
+
+        if (firstRows != null) {
+            firstRows.add(cells);
+            if (firstRows.size() == ROWS_PER_PAGE) {
+                flushFirstRows();
+            }
+            return;
+        }
+        row(cells);
+    }
+
+    /**
+     * Writes the last page and what ties the pages together.
+     */
+    @Override
+    public void close() throws IOException {
+        if (firstRows != null) {
+            flushFirstRows();
+        }
+        if (page != null) {
+            endPage();
+        }
+
+        beginObject(PAGES);
+        StringBuilder kids = new StringBuilder();
+        for (Integer pageObject : pages) {
+            kids.append(pageObject).append(" 0 R ");
+        }
+        write("<< /Type /Pages /Count " + pages.size() + " /Kids [" + kids + "] >>\nendobj\n");
+        beginObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+
+        long xref = out.count;
+        write("xref\n0 " + (offsets.size() + 1) + "\n0000000000 65535 f \n");
+        for (Long offset : offsets) {
+            write(String.format(Locale.ROOT, "%010d 00000 n \n", offset));
+        }
+        write("trailer\n<< /Size " + (offsets.size() + 1) + " /Root " + CATALOG + " 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+        out.flush();
+    }
+
+    /**
+     * @return the number of pages written so far
+     */
+    int getPageCount() {
+        return pages.size();
+    }
+
+    private void flushFirstRows() throws IOException {
+        widths = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            widths[i] = columns[i].length();
+        }
+        for (String[] cells : firstRows) {
+            for (int i = 0; i < cells.length; i++) {
+                widths[i] = Math.max(widths[i], cells[i].length());
+            }
+        }
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = Math.max(1, Math.min(widths[i], MAX_COLUMN_CHARS));
+        }
+
+        List<Integer> starts = new ArrayList<>();
+        int lineWidth = 0;
+        for (int i = 0; i < widths.length; i++) {
+            if (i == 0 || lineWidth + COLUMN_GAP.length() + widths[i] > LINE_CHARS) {
+                starts.add(i);
+                lineWidth = widths[i];
+            } else {
+                lineWidth += COLUMN_GAP.length() + widths[i];
+            }
+        }
+        bands = starts.stream().mapToInt(Integer::intValue).toArray();
+        header = lines(columns, true);
+        bodyLines = Math.max(1, PAGE_LINES - 3 - header.size());
+
+        List<String[]> rows = firstRows;
+        firstRows = null;
+        if (rows.isEmpty()) {
+            // a table without rows still has its header
+            beginPage();
+        }
+        for (String[] cells : rows) {
+            row(cells);
+        }
+    }
+
+    private void row(String[] cells) throws IOException {
+        List<String> lines = lines(cells, false);
+        if (bands.length > 1) {
+            lines.add("");
+        }
+        // a row isn't split over two pages, unless it is longer than a page
+        if (page != null && pageLines + lines.size() > bodyLines && lines.size() <= bodyLines) {
+            endPage();
+        }
+        for (String line : lines) {
+            if (page == null) {
+                beginPage();
+            }
+            text(line);
+            if (++pageLines == bodyLines) {
+                endPage();
+            }
+        }
+    }
+
+    private void beginPage() throws IOException {
+        page = new ByteArrayOutputStream();
+        pageLines = 0;
+        write(page, "BT /F1 " + FONT_SIZE + " Tf " + LEADING + " TL " + MARGIN + " " + (PAGE_HEIGHT - MARGIN) + " Td\n");
+        text(title + "   page " + (pages.size() + 1));
+        write(page, "T*\n");
+        int ruleLength = 0;
+        for (String line : header) {
+            text(line);
+            ruleLength = Math.max(ruleLength, line.length());
+        }
+        char[] rule = new char[ruleLength];
+        Arrays.fill(rule, '-');
+        text(new String(rule));
+    }
+
+    private void endPage() throws IOException {
+        write(page, "ET\n");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(page.size() / 3);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            page.writeTo(deflater);
+        }
+        page = null;
+
+        int content = offsets.size() + 1;
+        beginObject(content);
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        compressed.writeTo(out);
+        write("\nendstream\nendobj\n");
+
+        int pageObject = content + 1;
+        beginObject(pageObject);
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT + "]"
+            + " /Resources << /Font << /F1 " + FONT + " 0 R >> >> /Contents " + content + " 0 R >>\nendobj\n");
+        pages.add(pageObject);
+    }
+
+    /**
+     * @return the lines of a row, or of the header: each band of columns one under the other, over as many lines as
+     * its longest text takes
+     */
+    private List<String> lines(String[] cells, boolean header) {
+        List<String> lines = new ArrayList<>();
+        for (int band = 0; band < bands.length; band++) {
+            int start = bands[band];
+            int end = band + 1 < bands.length ? bands[band + 1] : cells.length;
+            int bandLines = 1;
+            for (int i = start; i < end; i++) {
+                if (!(rightAligned[i] && !header)) {
+                    bandLines = Math.max(bandLines, (cells[i].length() + widths[i] - 1) / widths[i]);
+                }
+            }
+            for (int part = 0; part < bandLines; part++) {
+                addLine(lines, formatLine(cells, start, end, part, header));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return the given part of the cells of a band, each text cut in parts of the width of its column
+     */
+    private String formatLine(String[] cells, int start, int end, int part, boolean header) {
+        StringBuilder line = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                line.append(COLUMN_GAP);
+            }
+            if (rightAligned[i] && !header) {
+                // written whole on the first line
+                String cell = part == 0 ? cells[i] : "";
+                pad(line, widths[i] - cell.length()).append(cell);
+            } else {
+                int from = Math.min(part * widths[i], cells[i].length());
+                String cell = cells[i].substring(from, Math.min(from + widths[i], cells[i].length()));
+                pad(line.append(cell), widths[i] - cell.length());
+            }
+        }
+        // trailing blanks are noise
+        int length = line.length();
+        while (length > 0 && line.charAt(length - 1) == ' ') {
+            length--;
+        }
+        line.setLength(length);
+        return line.toString();
+    }
+
+    /**
+     * Adds a line, what passes the margin on the next lines.
+     */
+    private static void addLine(List<String> lines, String line) {
+        int from = 0;
+        do {
+            lines.add(line.substring(from, Math.min(from + LINE_CHARS, line.length())));
+            from += LINE_CHARS;
+        } while (from < line.length());
+    }
+
+    private void text(String text) throws IOException {
+        StringBuilder escaped = new StringBuilder(text.length() + 8).append('(');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < ' ') {
+                escaped.append(' ');
+            } else if (c >= '\u007f' && c <= '\u009f' || c > '\u00ff') {
+                // not in WinAnsiEncoding, which is Latin-1 but for these
+                escaped.append('?');
+            } else {
+                escaped.append(c);
+            }
+        }
+        write(page, escaped.append(") Tj T*\n").toString());
+    }
+
+    private void reserve(int object) {
+        while (offsets.size() < object) {
+            offsets.add(0L);
+        }
+    }
+
+    private void beginObject(int object) throws IOException {
+        reserve(object);
+        offsets.set(object - 1, out.count);
+        write(object + " 0 obj\n");
+    }
+
+    private void write(String text) throws IOException {
+        write(out, text);
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static StringBuilder pad(StringBuilder builder, int count) {
+        for (int i = 0; i < count; i++) {
+            builder.append(' ');
+        }
+        return builder;
+    }
+
+    /**
+     * Counts the bytes written, for the offsets of the cross-reference table.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
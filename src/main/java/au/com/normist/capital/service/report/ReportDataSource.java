@@ -0,0 +1,76 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.ReportGeneration;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The rows of one report, by {@link au.com.normist.capital.domain.Report} name. Data sources are Spring beans picked
+ * up by the generators that write tabular files.
+ */
+public interface ReportDataSource {
+
+    /**
+     * @return the name of the Report the rows are of
+     */
+    String getReportName();
+
+    /**
+     * @return the header of the columns, in the order of the values of a row
+     */
+    List<String> getColumns();
+
+    /**
+     * Reads the rows lazily, the caller closes the stream.
+     *
+     * @param generation the job the rows are for
+     */
+    Stream<Object[]> rows(ReportGeneration generation);
+
+    /**
+     * Reads the rows lazily in the order of the report, for documents read from top to bottom, where
+     * {@link #rows(ReportGeneration)} may give them as they come, e.g. from several ranges read at the same time. The
+     * caller closes the stream.
+     *
+     * @param generation the job the rows are for
+     */
+    default Stream<Object[]> orderedRows(ReportGeneration generation) {
+        return rows(generation);
+    }
+
+    /**
+     * A value that changes whenever the rows of the job would, cheaper to get than the rows, e.g. a count or the
+     * latest modification. A job with the same report, parameters and watermark as an earlier one reuses its file.
+     *
+     * @param generation the job the rows are for
+     * @return the watermark, null if the data source can't tell, then jobs are always generated
+     */
+    default String getWatermark(ReportGeneration generation) {
+        return null;
+    }
+
+    /**
+     * Splits the rows of the job into segments read one after the other, whose rows don't change from one read of
+     * the job to the next, e.g. the past months of a history only appended to. A run of the job cut short by the loss
+     * of its node is then gone on from the first segment it hadn't written whole, rather than from the start.
+     *
+     * @param generation the job the rows are for
+     * @return the number of rows of each segment, in the order they come, null if the rows can't be segmented
+     */
+    default long[] getSegments(ReportGeneration generation) {
+        return null;
+    }
+
+    /**
+     * Reads the rows of the segments from the given one on, segment after segment, see {@link #getSegments}. The
+     * caller closes the stream.
+     *
+     * @param generation the job the rows are for
+     * @param fromSegment the index of the first segment read
+     * @throws UnsupportedOperationException if the rows can't be segmented
+     */
+    default Stream<Object[]> rows(ReportGeneration generation, int fromSegment) {
+        throw new UnsupportedOperationException("The rows of " + getReportName() + " can't be segmented");
+    }
+}
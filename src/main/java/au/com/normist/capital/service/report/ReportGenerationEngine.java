@@ -0,0 +1,447 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the PENDING ReportGeneration jobs on a pool of worker threads of its own, so reports don't hold HTTP
+ * or async task threads.
+ *
+ * A job is only claimed when a worker is free and its report runs fewer than
+ * {@code application.report.max-concurrent-per-report} jobs. The claim locks the row ({@code isLocked}) and moves it
+ * to GENERATING in one conditional update, so of several nodes polling the same jobs only one runs each. The job ends
+ * GENERATED with the {@code fullPath} of its file, or ERROR with the reason in its comment, and unlocked. While it
+ * runs, the rows written so far are saved in its {@code progress}. Every change of status or progress is published as
+ * a {@link ReportGenerationEvent}.
+ *
+ * A job of the same report, parameters, file type and data as an earlier one gets the file of the earlier one instead
+ * of being generated again, see {@link ReportResultCache}.
+ *
+ * The claim also leases the job to this node for {@code application.report.lease.duration}, renewed while the job
+ * runs from a thread of its own rather than Spring's scheduler, whose one thread other tasks may hold for longer
+ * than a lease. The job of a lost node is given back once its lease expires, see {@link ReportGenerationReaper}, and a
+ * generator able to go on from the partial file of the lost run does so, see {@link ReportProgress#checkpoint}. The
+ * partial file is named after the job in the output directory for this, and a job this node finds given to another
+ * node is stopped and leaves it there.
+ */
+@Service
+public class ReportGenerationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportGenerationEngine.class);
+
+    // the longest comment the column takes
+    private static final int MAX_COMMENT_LENGTH = 255;
+
+    static final String EXPIRED_COMMENT = "The file expired from the cache, generate the report again";
+
+    private final ReportGenerationRepository reportGenerationRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties.ReportConfig config;
+
+    private final Map<ReportFileType, ReportGenerator> generators = new EnumMap<>(ReportFileType.class);
+
+    private final ExecutorService workers;
+
+    private final Semaphore freeWorkers;
+
+    // running jobs per report id, on this node only
+    private final ConcurrentMap<Long, Semaphore> reportPermits = new ConcurrentHashMap<>();
+
+    // null when results aren't reused
+    private final ReportResultCache resultCache;
+
+    // the owner of the leases of this node
+    private final String nodeId;
+
+    // the jobs running on this node by id
+    private final ConcurrentMap<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService leaseRenewer;
+
+    public ReportGenerationEngine(ReportGenerationRepository reportGenerationRepository,
+                                  ApplicationEventPublisher eventPublisher, ApplicationProperties applicationProperties) {
+        this.reportGenerationRepository = reportGenerationRepository;
+        this.eventPublisher = eventPublisher;
+        this.config = applicationProperties.getReport();
+
+        int threads = Math.max(1, config.getWorkerThreads());
+        this.workers = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("report-worker-%d").setDaemon(true).build());
+        this.freeWorkers = new Semaphore(threads);
+
+        ApplicationProperties.ReportConfig.Cache cache = config.getCache();
+        this.resultCache = cache.isEnabled()
+            ? new ReportResultCache(Paths.get(config.getOutputDirectory()).resolve("cache"), cache.getMaxSizeMb() * 1024 * 1024)
+            : null;
+
+        String node = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+        this.nodeId = node.length() > 100 ? node.substring(node.length() - 100) : node;
+
+        long renewInterval = Math.max(1, config.getLease().getRenewInterval());
+        this.leaseRenewer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("report-lease-renewer").setDaemon(true).build());
+        this.leaseRenewer.scheduleWithFixedDelay(this::scheduledRenewLeases, renewInterval, renewInterval,
+            TimeUnit.MILLISECONDS);
+    }
+
+    @Autowired(required = false)
+    public void setGenerators(List<ReportGenerator> generators) {
+        for (ReportGenerator generator : generators) {
+            this.generators.put(generator.getFileType(), generator);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.report.poll-interval:5000}")
+    public void scheduledDispatch() {
+        if (config.isEnabled()) {
+            dispatch();
+        }
+    }
+
+    // a failure would cancel the next renewals
+    private void scheduledRenewLeases() {
+        try {
+            renewLeases();
+        } catch (RuntimeException e) {
+            log.error("Unable to renew the leases of the running generations", e);
+        }
+    }
+
+    /**
+     * Renews the leases of the jobs running on this node, and stops those given to another node, or not renewed for
+     * the duration of a lease, but those recording their result, which released their lease themselves. Runs every
+     * {@code application.report.lease.renew-interval} on the lease renewer thread.
+     */
+    public void renewLeases() {
+        long durationNanos = TimeUnit.MILLISECONDS.toNanos(config.getLease().getDuration());
+        for (RunningJob job : runningJobs.values()) {
+            long now = System.nanoTime();
+            RuntimeException failure = null;
+            try {
+                if (reportGenerationRepository.renewLease(job.id, nodeId, leaseExpiry()) == 1) {
+                    job.renewed = now;
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                if (now - job.renewed < durationNanos) {
+                    log.warn("Unable to renew the lease of generation {}", job.id, e);
+                    continue;
+                }
+                failure = e;
+            }
+            if (!job.stop()) {
+                continue;
+            }
+            if (failure == null) {
+                log.warn("Stopped generation {}, it was given to another node", job.id);
+            } else {
+                log.error("Stopped generation {}, its lease couldn't be renewed and may be given to another node", job.id, failure);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        leaseRenewer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Claims pending jobs, oldest first, as long as workers are free, and starts them.
+     *
+     * @return the number of jobs started
+     */
+    public synchronized int dispatch() {
+        int started = 0;
+        boolean claimed = true;
+        while (claimed && freeWorkers.availablePermits() > 0) {
+            claimed = false;
+            // the jobs of reports at their limit are skipped, look a little further than the free workers
+            int lookAhead = freeWorkers.availablePermits() * 4;
+            List<ReportGeneration> pending = reportGenerationRepository.findUnlocked(ReportGenerationStatus.PENDING,
+                Instant.now(), PageRequest.of(0, lookAhead));
+            for (ReportGeneration generation : pending) {
+                if (!freeWorkers.tryAcquire()) {
+                    return started;
+                }
+                Semaphore reportPermit = reportPermit(generation);
+                if (reportPermit != null && !reportPermit.tryAcquire()) {
+                    freeWorkers.release();
+                    continue;
+                }
+                if (claim(generation)) {
+                    RunningJob job = new RunningJob(generation.getId());
+                    runningJobs.put(job.id, job);
+                    workers.execute(() -> run(generation, reportPermit, job));
+                    started++;
+                    claimed = true;
+                } else {
+                    release(reportPermit);
+                }
+            }
+        }
+        return started;
+    }
+
+    /**
+     * @return the number of jobs running on this node
+     */
+    public int getRunningCount() {
+        return Math.max(1, config.getWorkerThreads()) - freeWorkers.availablePermits();
+    }
+
+    /**
+     * @return the owner of the leases of this node
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean claim(ReportGeneration generation) {
+        Instant now = Instant.now();
+        Instant leaseExpiresOn = leaseExpiry();
+        boolean claimed = reportGenerationRepository.claim(generation.getId(), ReportGenerationStatus.PENDING,
+            ReportGenerationStatus.GENERATING, now, nodeId, leaseExpiresOn) == 1;
+        if (claimed) {
+            generation.status(ReportGenerationStatus.GENERATING)
+                .isLocked(true)
+                .startedOn(now)
+                .progress(generation.getCheckpointRows() == null ? 0L : generation.getCheckpointRows())
+                .leaseOwner(nodeId)
+                .leaseExpiresOn(leaseExpiresOn)
+                .attempts(generation.getAttempts() == null ? 1 : generation.getAttempts() + 1);
+            eventPublisher.publishEvent(ReportGenerationEvent.of(generation));
+        }
+        return claimed;
+    }
+
+    private Instant leaseExpiry() {
+        return Instant.now().plusMillis(config.getLease().getDuration());
+    }
+
+    private void run(ReportGeneration generation, Semaphore reportPermit, RunningJob job) {
+        ReportProgress progress = new ReportProgress(reportGenerationRepository, generation.getId(), nodeId,
+            config.getProgressInterval(), rows -> eventPublisher.publishEvent(new ReportGenerationEvent(generation.getId(),
+                generation.getCreator(), ReportGenerationStatus.GENERATING, rows, null)));
+        // of the job, jobs of the same fingerprint may run together, and a later run goes on from it
+        Path part = null;
+        boolean keepPart = false;
+        try {
+            job.start();
+            log.debug("Generating {}", generation);
+            ReportGenerator generator = generators.get(generation.getFileType());
+            if (generator == null) {
+                throw new IllegalStateException("No generator of " + generation.getFileType() + " reports");
+            }
+            part = partPath(config.getOutputDirectory(), generation);
+
+            String fingerprint = resultCache == null ? null
+                : resultCache.fingerprint(generation, generator.getWatermark(generation));
+            if (fingerprint != null) {
+                Path cached = resultCache.get(fingerprint, generation.getFileType());
+                if (cached != null) {
+                    log.debug("Reusing {} for {}", cached, generation);
+                    job.finish();
+                    complete(generation, progress, ReportGenerationStatus.GENERATED, cached.toString(), null);
+                    return;
+                }
+            }
+
+            Path output = fingerprint == null ? outputPath(generation) : resultCache.path(fingerprint, generation.getFileType());
+            Files.createDirectories(output.getParent());
+            generator.generate(generation, part, progress);
+            Files.move(part, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (fingerprint != null) {
+                expire(resultCache.put(output));
+            }
+            job.finish();
+            complete(generation, progress, ReportGenerationStatus.GENERATED, output.toString(), null);
+        } catch (Exception e) {
+            if (job.stopped || progress.isLeaseLost()) {
+                // the node it was given to goes on from the partial file
+                log.warn("Stopped generating {}: {}", generation, e.toString());
+                keepPart = true;
+            } else {
+                log.error("Unable to generate {}", generation, e);
+                String reason = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+                job.finish();
+                complete(generation, progress, ReportGenerationStatus.ERROR, null, reason);
+            }
+        } finally {
+            job.end();
+            runningJobs.remove(job.id);
+            if (part != null && !keepPart) {
+                deletePart(part);
+            }
+            release(reportPermit);
+        }
+    }
+
+    private void complete(ReportGeneration generation, ReportProgress progress, ReportGenerationStatus status,
+                          String fullPath, String comment) {
+        try {
+            Instant completionDate = Instant.now();
+            if (comment != null && comment.length() > MAX_COMMENT_LENGTH) {
+                comment = comment.substring(0, MAX_COMMENT_LENGTH);
+            }
+            // only while this node holds the lease, a job given back or to another node meanwhile is left as it is
+            if (reportGenerationRepository.complete(generation.getId(), nodeId, status, completionDate, progress.getRows(),
+                fullPath, comment) == 0) {
+                log.warn("Dropping the {} of {}, it was deleted or given to another node", status, generation);
+                return;
+            }
+            eventPublisher.publishEvent(new ReportGenerationEvent(generation.getId(), generation.getCreator(), status,
+                progress.getRows(), completionDate));
+        } catch (RuntimeException e) {
+            log.error("Unable to record {} of {}", status, generation, e);
+        }
+    }
+
+    /**
+     * Ends in error the generated jobs whose file was deleted from the cache of results, they have to be run again.
+     */
+    private void expire(List<Path> deleted) {
+        for (Path file : deleted) {
+            try {
+                for (ReportGeneration generation
+                    : reportGenerationRepository.findByStatusAndFullPath(ReportGenerationStatus.GENERATED, file.toString())) {
+                    // unless it was deleted or changed meanwhile
+                    if (reportGenerationRepository.expire(generation.getId(), file.toString(), ReportGenerationStatus.GENERATED,
+                        ReportGenerationStatus.ERROR, EXPIRED_COMMENT) == 1) {
+                        log.debug("Expired {}, its file was deleted from the cache", generation);
+                        eventPublisher.publishEvent(new ReportGenerationEvent(generation.getId(), generation.getCreator(),
+                            ReportGenerationStatus.ERROR, generation.getProgress(), generation.getCompletionDate()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to expire the generations of {}", file, e);
+            }
+        }
+    }
+
+    private Path outputPath(ReportGeneration generation) {
+        return Paths.get(config.getOutputDirectory())
+            .resolve(generation.getId() + "." + generation.getFileType().name().toLowerCase(Locale.ROOT))
+            .toAbsolutePath();
+    }
+
+    /**
+     * @return the partial file of the generation while it runs, left for the next attempt when its node is lost
+     */
+    static Path partPath(String outputDirectory, ReportGeneration generation) {
+        return Paths.get(outputDirectory)
+            .resolve(generation.getId() + "." + generation.getFileType().name().toLowerCase(Locale.ROOT) + ".part")
+            .toAbsolutePath();
+    }
+
+    static void deletePart(Path part) {
+        try {
+            Files.deleteIfExists(part);
+        } catch (IOException e) {
+            log.warn("Unable to delete {}", part, e);
+        }
+    }
+
+    private Semaphore reportPermit(ReportGeneration generation) {
+        int limit = config.getMaxConcurrentPerReport();
+        if (limit <= 0 || generation.getReport() == null || generation.getReport().getId() == null) {
+            return null;
+        }
+        return reportPermits.computeIfAbsent(generation.getReport().getId(), id -> new Semaphore(limit));
+    }
+
+    private void release(Semaphore reportPermit) {
+        if (reportPermit != null) {
+            reportPermit.release();
+        }
+        freeWorkers.release();
+    }
+
+    /**
+     * A job running on this node, stopped by interrupting its worker.
+     */
+    private static final class RunningJob {
+
+        private final Long id;
+
+        // when its lease was last renewed, in nanoseconds
+        private volatile long renewed = System.nanoTime();
+
+        private volatile boolean stopped;
+
+        // once it records its result, which releases its lease, it isn't stopped any more
+        private boolean finishing;
+
+        // the worker running it, null before and after
+        private Thread worker;
+
+        private RunningJob(Long id) {
+            this.id = id;
+        }
+
+        private synchronized void start() {
+            if (stopped) {
+                throw new IllegalStateException("Generation " + id + " was given to another node");
+            }
+            worker = Thread.currentThread();
+        }
+
+        /**
+         * @return whether it was stopped, false if it is recording its result
+         */
+        private synchronized boolean stop() {
+            if (finishing) {
+                return false;
+            }
+            stopped = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+            return true;
+        }
+
+        private synchronized void finish() {
+            finishing = true;
+        }
+
+        private synchronized void end() {
+            worker = null;
+            // not to interrupt the next job of the worker
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+
+import java.time.Instant;
+
+/**
+ * A ReportGeneration job was saved, changed status or made progress. Published in-process to the
+ * {@link ReportGenerationEventBroadcaster}, which pushes it to the browsers watching the job.
+ */
+public class ReportGenerationEvent {
+
+    private final Long id;
+
+    private final String creator;
+
+    private final ReportGenerationStatus status;
+
+    private final Long progress;
+
+    private final Instant completionDate;
+
+    public ReportGenerationEvent(Long id, String creator, ReportGenerationStatus status, Long progress,
+                                 Instant completionDate) {
+        this.id = id;
+        this.creator = creator;
+        this.status = status;
+        this.progress = progress;
+        this.completionDate = completionDate;
+    }
+
+    /**
+     * @return the event of the job as it is
+     */
+    public static ReportGenerationEvent of(ReportGeneration generation) {
+        return new ReportGenerationEvent(generation.getId(), generation.getCreator(), generation.getStatus(),
+            generation.getProgress(), generation.getCompletionDate());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public ReportGenerationStatus getStatus() {
+        return status;
+    }
+
+    public Long getProgress() {
+        return progress;
+    }
+
+    public Instant getCompletionDate() {
+        return completionDate;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportGenerationEvent{" +
+            "id=" + id +
+            ", status=" + status +
+            ", progress=" + progress +
+            "}";
+    }
+}
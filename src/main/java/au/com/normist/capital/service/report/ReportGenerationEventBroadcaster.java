@@ -0,0 +1,162 @@
+package au.com.normist.capital.service.report;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the {@link ReportGenerationEvent}s to the browsers watching the jobs as Server-Sent Events, so they don't
+ * have to poll the jobs. A subscriber gets the events of the jobs it created, or of all jobs.
+ *
+ * The events are queued to each subscriber after the transaction that published them commits, and sent from a thread
+ * draining its queue, so a slow browser holds neither a report worker nor the other subscribers. A subscriber more
+ * than {@value #MAX_PENDING_EVENTS} events behind is dropped, its browser subscribes again when it gets back. A comment
+ * is sent to every subscriber every {@code application.report.events-heartbeat}, which keeps proxies from closing the
+ * idle streams and forgets the subscribers that went away.
+ */
+@Component
+public class ReportGenerationEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportGenerationEventBroadcaster.class);
+
+    static final String EVENT_NAME = "report-generation";
+
+    static final int MAX_PENDING_EVENTS = 100;
+
+    private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+    // at most one thread per subscriber at a time, only those with events to send hold one
+    private final ExecutorService sender = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("report-events-%d").setDaemon(true).build());
+
+    /**
+     * @param login the login of the subscriber
+     * @param allJobs whether the subscriber gets the events of the jobs of every user
+     * @return the emitter of the subscriber's events, it never times out
+     */
+    public SseEmitter subscribe(String login, boolean allJobs) {
+        return subscribe(new SseEmitter(0L), login, allJobs);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, String login, boolean allJobs) {
+        Subscriber subscriber = new Subscriber(emitter, login, allJobs);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.debug("{} subscribed to the report generation events, {} subscribers", login, subscribers.size());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReportGenerationEvent(ReportGenerationEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.allJobs || subscriber.login.equals(event.getCreator())) {
+                queue(subscriber, SseEmitter.event().name(EVENT_NAME).data(event, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.report.events-heartbeat:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            queue(subscriber, SseEmitter.event().comment(""));
+        }
+    }
+
+    /**
+     * @return the number of browsers watching the jobs
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sender.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void queue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.pending.offer(event)) {
+            log.debug("Dropping the report generation events of {}, {} events behind", subscriber.login,
+                MAX_PENDING_EVENTS);
+            drop(subscriber, new IOException("Too slow to get the report generation events"));
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while (subscriber.dropped == null && (event = subscriber.pending.poll()) != null) {
+                send(subscriber, event);
+            }
+            if (subscriber.dropped != null) {
+                // completed here, completing waits for the send of the emitter to return
+                subscriber.pending.clear();
+                subscriber.emitter.completeWithError(subscriber.dropped);
+                return;
+            }
+            subscriber.draining.set(false);
+            // unless an event was queued after the last poll
+        } while (!subscriber.pending.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // gone, or completed meanwhile
+            log.debug("Dropping the report generation events of {}: {}", subscriber.login, e.toString());
+            drop(subscriber, e);
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        subscribers.remove(subscriber);
+        if (subscriber.dropped == null) {
+            subscriber.dropped = cause;
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final String login;
+
+        private final boolean allJobs;
+
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ArrayBlockingQueue<>(MAX_PENDING_EVENTS);
+
+        // whether a thread of the sender is sending the pending events
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile Exception dropped;
+
+        private Subscriber(SseEmitter emitter, String login, boolean allJobs) {
+            this.emitter = emitter;
+            this.login = login;
+            this.allJobs = allJobs;
+        }
+    }
+}
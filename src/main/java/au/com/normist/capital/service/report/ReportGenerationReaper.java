@@ -0,0 +1,102 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+/**
+ * Gives back the generating jobs whose lease expired, those of a node that stopped or lost the database, for the
+ * {@link ReportGenerationEngine} of any node to claim again. A job is retried after
+ * {@code application.report.lease.retry-backoff}, doubled at each attempt, and ends in error once it was attempted
+ * {@code application.report.lease.max-attempts} times, so a job that brings its node down doesn't bring down every
+ * node in turn.
+ *
+ * The jobs generating without a lease, claimed before leases, are given back once they were started longer ago than
+ * a lease lasts.
+ */
+@Service
+public class ReportGenerationReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportGenerationReaper.class);
+
+    // the backoff stops doubling after this many attempts
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    private final ReportGenerationRepository reportGenerationRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties.ReportConfig config;
+
+    public ReportGenerationReaper(ReportGenerationRepository reportGenerationRepository,
+                                  ApplicationEventPublisher eventPublisher, ApplicationProperties applicationProperties) {
+        this.reportGenerationRepository = reportGenerationRepository;
+        this.eventPublisher = eventPublisher;
+        this.config = applicationProperties.getReport();
+    }
+
+    @Scheduled(fixedDelayString = "${application.report.lease.reap-interval:30000}")
+    public void scheduledReap() {
+        if (config.isEnabled()) {
+            reap(Instant.now());
+        }
+    }
+
+    /**
+     * Gives back, or ends, the jobs whose lease expired at the given time.
+     *
+     * @return the number of jobs given back or ended
+     */
+    public int reap(Instant now) {
+        ApplicationProperties.ReportConfig.Lease lease = config.getLease();
+        int reaped = 0;
+        for (ReportGeneration generation : reportGenerationRepository.findLeaseExpired(ReportGenerationStatus.GENERATING,
+            now, now.minusMillis(lease.getDuration()))) {
+            try {
+                if (reap(generation, now, lease)) {
+                    reaped++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to reap {}", generation, e);
+            }
+        }
+        return reaped;
+    }
+
+    private boolean reap(ReportGeneration generation, Instant now, ApplicationProperties.ReportConfig.Lease lease) {
+        int attempts = generation.getAttempts() == null ? 1 : generation.getAttempts();
+        if (attempts >= lease.getMaxAttempts()) {
+            String comment = "Abandoned after " + attempts + " attempts, the lease of " + generation.getLeaseOwner()
+                + " expired";
+            if (reportGenerationRepository.abandon(generation.getId(), generation.getLeaseExpiresOn(),
+                ReportGenerationStatus.GENERATING, ReportGenerationStatus.ERROR, now, comment) != 1) {
+                // renewed, or reaped by another node
+                return false;
+            }
+            log.warn("Abandoned {}: {}", generation, comment);
+            if (generation.getFileType() != null) {
+                ReportGenerationEngine.deletePart(ReportGenerationEngine.partPath(config.getOutputDirectory(), generation));
+            }
+            generation.status(ReportGenerationStatus.ERROR).isLocked(false).completionDate(now).comment(comment);
+        } else {
+            Instant retryOn = now.plusMillis(lease.getRetryBackoff() << Math.min(attempts - 1, MAX_BACKOFF_SHIFT));
+            if (reportGenerationRepository.requeue(generation.getId(), generation.getLeaseExpiresOn(),
+                ReportGenerationStatus.GENERATING, ReportGenerationStatus.PENDING, retryOn) != 1) {
+                return false;
+            }
+            log.warn("Requeued {} after attempt {}, the lease of {} expired, retrying on {}", generation, attempts,
+                generation.getLeaseOwner(), retryOn);
+            generation.status(ReportGenerationStatus.PENDING).isLocked(false).retryOn(retryOn);
+        }
+        eventPublisher.publishEvent(ReportGenerationEvent.of(generation));
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the file of a ReportGeneration job, for one file type. Generators are Spring beans picked up by the
+ * {@link ReportGenerationEngine}, which runs them on its worker threads.
+ */
+public interface ReportGenerator {
+
+    ReportFileType getFileType();
+
+    /**
+     * @param generation the claimed job, GENERATING
+     * @return what changes whenever the data of the job does, see {@link ReportDataSource#getWatermark}, null if the
+     * generator can't tell and the job must always be generated
+     */
+    default String getWatermark(ReportGeneration generation) {
+        return null;
+    }
+
+    /**
+     * @param generation the claimed job, GENERATING
+     * @param output the file to write, the engine moves it to its final place once it is complete
+     * @param progress where to report the rows written so far
+     */
+    void generate(ReportGeneration generation, Path output, ReportProgress progress) throws IOException;
+}
@@ -0,0 +1,118 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * The progress of one running job, given to its {@link ReportGenerator}. A generator reports the rows it has written
+ * as often as it likes, they are saved on the ReportGeneration at most every
+ * {@code application.report.progress-interval}.
+ *
+ * A generator able to go on from a partial file also records checkpoints, saved right away while the node holds the
+ * lease of the job, see {@link #checkpoint(long, long)}.
+ */
+public class ReportProgress {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportProgress.class);
+
+    private final ReportGenerationRepository reportGenerationRepository;
+
+    private final Long generationId;
+
+    // the node holding the lease of the job, null when checkpoints aren't saved
+    private final String leaseOwner;
+
+    private final long intervalNanos;
+
+    // told the rows saved, null for nobody
+    private final LongConsumer listener;
+
+    private volatile long rows;
+
+    private long lastSaved;
+
+    private volatile boolean leaseLost;
+
+    ReportProgress(ReportGenerationRepository reportGenerationRepository, Long generationId, long intervalMillis) {
+        this(reportGenerationRepository, generationId, null, intervalMillis, null);
+    }
+
+    /**
+     * @param leaseOwner the node holding the lease of the job
+     * @param listener told the rows every time they are saved
+     */
+    ReportProgress(ReportGenerationRepository reportGenerationRepository, Long generationId, String leaseOwner,
+                   long intervalMillis, LongConsumer listener) {
+        this.reportGenerationRepository = reportGenerationRepository;
+        this.generationId = generationId;
+        this.leaseOwner = leaseOwner;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.listener = listener;
+        this.lastSaved = System.nanoTime();
+    }
+
+    /**
+     * @param rows the rows written so far
+     */
+    public void update(long rows) {
+        this.rows = rows;
+        long now = System.nanoTime();
+        if (now - lastSaved >= intervalNanos) {
+            lastSaved = now;
+            save(rows);
+        }
+    }
+
+    /**
+     * Saves the rows written so far as the point a later run of the job goes on from, if this one is cut short by the
+     * loss of its node.
+     *
+     * @param rows the rows written so far, all of them in the file, on disk
+     * @param offset the length of the file holding them
+     * @throws IllegalStateException if the job was given to another node meanwhile
+     */
+    public void checkpoint(long rows, long offset) {
+        this.rows = rows;
+        if (leaseOwner == null) {
+            return;
+        }
+        lastSaved = System.nanoTime();
+        if (reportGenerationRepository.checkpoint(generationId, leaseOwner, rows, offset) == 0) {
+            leaseLost = true;
+            throw new IllegalStateException("Generation " + generationId + " was given to another node");
+        }
+        if (listener != null) {
+            listener.accept(rows);
+        }
+    }
+
+    /**
+     * @return the rows written so far
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return whether a checkpoint found the job given to another node
+     */
+    public boolean isLeaseLost() {
+        return leaseLost;
+    }
+
+    private void save(long rows) {
+        try {
+            reportGenerationRepository.updateProgress(generationId, rows);
+            if (listener != null) {
+                listener.accept(rows);
+            }
+        } catch (RuntimeException e) {
+            // the job goes on, its progress is saved again with the next update
+            log.warn("Unable to save the progress of generation {}", generationId, e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The files of generated reports, by the fingerprint of what they were generated from: the report, its parameters,
+ * the file type and the watermark of the data. A job whose fingerprint has a file gets that file instead of being
+ * generated again.
+ *
+ * The files live in a directory of their own, named by fingerprint, so they outlive restarts. When they take more than
+ * the budget, the least recently used are deleted, and {@link #put} tells which so that the jobs that had them can be
+ * ended: they can't be downloaded any more and have to be run again. A file is used when it is written or reused, which
+ * sets its last access time.
+ */
+class ReportResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportResultCache.class);
+
+    private static final String PART = ".part";
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    ReportResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param watermark what changes with the data of the report, see {@link ReportDataSource#getWatermark}
+     * @return the fingerprint of the job, null if its data has no watermark and its result can't be reused
+     */
+    String fingerprint(ReportGeneration generation, String watermark) {
+        if (watermark == null) {
+            return null;
+        }
+        Hasher hasher = Hashing.sha256().newHasher();
+        put(hasher, generation.getReport() == null ? null : String.valueOf(generation.getReport().getId()));
+        put(hasher, generation.getParameters());
+        put(hasher, generation.getFileType() == null ? null : generation.getFileType().name());
+        put(hasher, watermark);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @return the file of the fingerprint, marked as used, or null if there is none
+     */
+    Path get(String fingerprint, ReportFileType fileType) {
+        Path file = path(fingerprint, fileType);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            touch(file);
+        } catch (IOException e) {
+            // deleted meanwhile
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * @return where to write the file of the fingerprint
+     */
+    Path path(String fingerprint, ReportFileType fileType) {
+        return directory.resolve(fingerprint + "." + fileType.name().toLowerCase(Locale.ROOT)).toAbsolutePath();
+    }
+
+    /**
+     * Marks a new file as used, and deletes the least recently used files over the budget, never this one.
+     *
+     * @return the deleted files, which the jobs that had them can't be downloaded from any more
+     */
+    synchronized List<Path> put(Path file) throws IOException {
+        touch(file);
+
+        List<CachedFile> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for (Path path : paths) {
+                if (path.getFileName().toString().endsWith(PART)) {
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    files.add(new CachedFile(path, attributes.size(), attributes.lastAccessTime()));
+                    total += attributes.size();
+                }
+            }
+        }
+        List<Path> deleted = new ArrayList<>();
+        if (total <= maxBytes) {
+            return deleted;
+        }
+
+        files.sort(Comparator.comparing(cached -> cached.lastAccess));
+        for (CachedFile cached : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (cached.path.equals(file)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(cached.path);
+                total -= cached.size;
+                deleted.add(cached.path);
+                log.debug("Deleted the cached report {}", cached.path);
+            } catch (IOException e) {
+                log.warn("Unable to delete the cached report {}", cached.path, e);
+            }
+        }
+        return deleted;
+    }
+
+    private static void touch(Path file) throws IOException {
+        Files.getFileAttributeView(file, BasicFileAttributeView.class)
+            .setTimes(null, FileTime.from(Instant.now()), null);
+    }
+
+    private static void put(Hasher hasher, String value) {
+        // the length tells null from "null" and keeps the values apart
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class CachedFile {
+
+        private final Path path;
+
+        private final long size;
+
+        private final FileTime lastAccess;
+
+        private CachedFile(Path path, long size, FileTime lastAccess) {
+            this.path = path;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.config.Constants;
+import au.com.normist.capital.domain.Report;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import au.com.normist.capital.repository.ReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the ReportGeneration jobs of the reports of a {@link Report#getSchedule() schedule} when their
+ * {@code nextRunOn} is due, for the {@link ReportGenerationEngine} to run. The jobs are created by
+ * {@link Constants#SYSTEM_ACCOUNT}, without parameters, of the file type of {@code application.report.schedule}.
+ *
+ * The next run of a report is its next time in the schedule plus a random delay of at most
+ * {@code application.report.schedule.max-jitter}, so the reports of the same time don't all start together. It is kept
+ * in the report: a node only creates the job when it moves {@code nextRunOn} from the run that is due to the next one
+ * in the same conditional update, so of several nodes, or of one started again, only one creates each run. A run missed
+ * while no node was up is created once, not once per time missed.
+ *
+ * A run due while the previous scheduled job of the report is still pending or generating is skipped. A run due while
+ * {@code application.report.schedule.max-concurrent} scheduled jobs are pending or generating waits for one to end.
+ * How many jobs of a report, and of all reports, generate at a time is then up to the engine.
+ */
+@Service
+public class ReportScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportScheduler.class);
+
+    private static final Set<ReportGenerationStatus> ACTIVE =
+        EnumSet.of(ReportGenerationStatus.PENDING, ReportGenerationStatus.GENERATING);
+
+    private final ReportRepository reportRepository;
+
+    private final ReportGenerationRepository reportGenerationRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.ReportConfig.Schedule config;
+
+    public ReportScheduler(ReportRepository reportRepository, ReportGenerationRepository reportGenerationRepository,
+                           ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                           ApplicationProperties applicationProperties) {
+        this.reportRepository = reportRepository;
+        this.reportGenerationRepository = reportGenerationRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = applicationProperties.getReport().getSchedule();
+    }
+
+    @Scheduled(fixedDelayString = "${application.report.schedule.poll-interval:30000}")
+    public void scheduledRun() {
+        if (config.isEnabled()) {
+            run(Instant.now());
+        }
+    }
+
+    /**
+     * Creates the jobs of the runs due at the given time, and sets the first run of the new schedules.
+     *
+     * @return the number of jobs created
+     */
+    public synchronized int run(Instant now) {
+        int created = 0;
+        for (Report report : reportRepository.findAllByScheduleIsNotNull()) {
+            try {
+                if (run(report, now)) {
+                    created++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to run the schedule of {}", report, e);
+            }
+        }
+        return created;
+    }
+
+    private boolean run(Report report, Instant now) {
+        if (!CronSequenceGenerator.isValidExpression(report.getSchedule())) {
+            log.warn("Ignoring the invalid schedule of {}", report);
+            return false;
+        }
+        CronSequenceGenerator cron = new CronSequenceGenerator(report.getSchedule());
+        Instant due = report.getNextRunOn();
+        if (due == null) {
+            reportRepository.initNextRun(report.getId(), nextRun(cron, now));
+            return false;
+        }
+        if (due.isAfter(now)) {
+            return false;
+        }
+
+        Instant next = nextRun(cron, now);
+        if (reportGenerationRepository.existsByReportIdAndCreatorAndStatusIn(report.getId(), Constants.SYSTEM_ACCOUNT, ACTIVE)) {
+            if (reportRepository.advanceNextRun(report.getId(), due, next) == 1) {
+                log.info("Skipping the run of {} due on {}, the previous one is still running", report, due);
+            }
+            return false;
+        }
+        if (config.getMaxConcurrent() > 0
+            && reportGenerationRepository.countByCreatorAndStatusIn(Constants.SYSTEM_ACCOUNT, ACTIVE) >= config.getMaxConcurrent()) {
+            log.debug("Deferring the run of {} due on {}, {} scheduled jobs are running", report, due, config.getMaxConcurrent());
+            return false;
+        }
+
+        ReportGeneration generation = transactionTemplate.execute(status -> {
+            if (reportRepository.advanceNextRun(report.getId(), due, next) != 1) {
+                // created by another node
+                return null;
+            }
+            return reportGenerationRepository.save(new ReportGeneration()
+                .creator(Constants.SYSTEM_ACCOUNT)
+                .creationDate(now)
+                .status(ReportGenerationStatus.PENDING)
+                .fileType(config.getFileType())
+                .isLocked(false)
+                .report(report));
+        });
+        if (generation == null) {
+            return false;
+        }
+        log.debug("Created {} of the run of {} due on {}, next run on {}", generation, report, due, next);
+        eventPublisher.publishEvent(ReportGenerationEvent.of(generation));
+        return true;
+    }
+
+    /**
+     * @return the next time of the schedule after the given one, delayed by the jitter but not past the time after it
+     */
+    private Instant nextRun(CronSequenceGenerator cron, Instant after) {
+        Date next = cron.next(Date.from(after));
+        long maxJitter = Math.min(config.getMaxJitter(),
+            Duration.between(next.toInstant(), cron.next(next).toInstant()).toMillis() - 1);
+        long jitter = maxJitter > 0 ? ThreadLocalRandom.current().nextLong(maxJitter + 1) : 0;
+        return next.toInstant().plusMillis(jitter);
+    }
+}
@@ -0,0 +1,63 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.ReportGeneration;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base of the generators that write the rows of a {@link ReportDataSource}, picked by the name of the job's report.
+ */
+public abstract class TabularReportGenerator implements ReportGenerator {
+
+    private final Map<String, ReportDataSource> dataSources = new HashMap<>();
+
+    @Autowired(required = false)
+    public void setDataSources(List<ReportDataSource> dataSources) {
+        for (ReportDataSource dataSource : dataSources) {
+            this.dataSources.put(dataSource.getReportName(), dataSource);
+        }
+    }
+
+    @Override
+    public String getWatermark(ReportGeneration generation) {
+        ReportDataSource dataSource = dataSources.get(reportName(generation));
+        return dataSource == null ? null : dataSource.getWatermark(generation);
+    }
+
+    /**
+     * @throws IllegalStateException if the report of the job has no data source
+     */
+    protected ReportDataSource dataSource(ReportGeneration generation) {
+        String reportName = reportName(generation);
+        ReportDataSource dataSource = dataSources.get(reportName);
+        if (dataSource == null) {
+            throw new IllegalStateException("No data of report " + reportName);
+        }
+        return dataSource;
+    }
+
+    /**
+     * @return the text of a value: empty for null, numbers without exponent
+     */
+    protected static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if ((value instanceof Double || value instanceof Float) && Double.isFinite(((Number) value).doubleValue())) {
+            // no exponent, 0.0001 rather than 1.0E-4
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return value.toString();
+    }
+
+    private static String reportName(ReportGeneration generation) {
+        return generation.getReport() == null ? null : generation.getReport().getName();
+    }
+}
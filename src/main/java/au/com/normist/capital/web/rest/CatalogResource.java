@@ -0,0 +1,86 @@
+package au.com.normist.capital.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import au.com.normist.capital.domain.cap.catalog.Staux000;
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import au.com.normist.capital.repository.cap.KeysetPage;
+import au.com.normist.capital.repository.cap.catalog.IStaux000Repository;
+import au.com.normist.capital.repository.cap.catalog.IStockRepository;
+import au.com.normist.capital.web.rest.errors.BadRequestAlertException;
+import au.com.normist.capital.web.rest.util.PaginationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * REST controller for reading the Capital catalogue.
+ *
+ * The tables are paged in keyset mode: follow the {@code next} link of the Link header, whose {@code cursor} is the
+ * continuation token of the next page.
+ */
+@RestController
+@RequestMapping("/api/capital")
+public class CatalogResource {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogResource.class);
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final IStockRepository stockRepository;
+
+    private final IStaux000Repository staux000Repository;
+
+    public CatalogResource(IStockRepository stockRepository, IStaux000Repository staux000Repository) {
+        this.stockRepository = stockRepository;
+        this.staux000Repository = staux000Repository;
+    }
+
+    /**
+     * GET  /capital/stocks : get a page of stocks, ordered by product number.
+     *
+     * @param cursor the continuation token of the previous page, omitted for the first page
+     * @param size the page size, at most {@value #MAX_PAGE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of stocks in body, or with status 400 (Bad Request) if the cursor or size is invalid
+     */
+    @GetMapping("/stocks")
+    @Timed
+    public ResponseEntity<List<Stock>> getStocks(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get a page of Stocks after cursor {}", cursor);
+        return page(stockRepository::getPageAfter, cursor, size, "/api/capital/stocks", "stock");
+    }
+
+    /**
+     * GET  /capital/staux000 : get a page of stock auxiliary records, ordered by product key.
+     *
+     * @param cursor the continuation token of the previous page, omitted for the first page
+     * @param size the page size, at most {@value #MAX_PAGE_SIZE}
+     * @return the ResponseEntity with status 200 (OK) and the list of records in body, or with status 400 (Bad Request) if the cursor or size is invalid
+     */
+    @GetMapping("/staux000")
+    @Timed
+    public ResponseEntity<List<Staux000>> getStaux000(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get a page of Staux000 after cursor {}", cursor);
+        return page(staux000Repository::getPageAfter, cursor, size, "/api/capital/staux000", "staux000");
+    }
+
+    private <T> ResponseEntity<List<T>> page(BiFunction<String, Integer, KeysetPage<T>> reader, String cursor, int size,
+                                             String baseUrl, String entityName) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("The page size must be between 1 and " + MAX_PAGE_SIZE, entityName, "pagesize");
+        }
+        if (cursor != null && !KeysetPage.isValidToken(cursor)) {
+            throw new BadRequestAlertException("Invalid cursor", entityName, "cursor");
+        }
+        KeysetPage<T> page = reader.apply(cursor, size);
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page.getNextToken(), size, baseUrl);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+}
@@ -1,8 +1,15 @@
 package au.com.normist.capital.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.security.AuthoritiesConstants;
+import au.com.normist.capital.security.SecurityUtils;
 import au.com.normist.capital.service.ReportGenerationService;
+import au.com.normist.capital.service.report.ReportGenerationEventBroadcaster;
 import au.com.normist.capital.web.rest.errors.BadRequestAlertException;
+import au.com.normist.capital.web.rest.util.FileDownloadUtil;
 import au.com.normist.capital.web.rest.util.HeaderUtil;
 import au.com.normist.capital.web.rest.util.PaginationUtil;
 import au.com.normist.capital.service.dto.ReportGenerationDTO;
@@ -15,11 +22,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import java.util.List;
 import java.util.Optional;
@@ -39,9 +55,16 @@ public class ReportGenerationResource {
 
     private final ReportGenerationQueryService reportGenerationQueryService;
 
-    public ReportGenerationResource(ReportGenerationService reportGenerationService, ReportGenerationQueryService reportGenerationQueryService) {
+    private final ApplicationProperties applicationProperties;
+
+    private final ReportGenerationEventBroadcaster reportGenerationEventBroadcaster;
+
+    public ReportGenerationResource(ReportGenerationService reportGenerationService, ReportGenerationQueryService reportGenerationQueryService,
+                                    ApplicationProperties applicationProperties, ReportGenerationEventBroadcaster reportGenerationEventBroadcaster) {
         this.reportGenerationService = reportGenerationService;
         this.reportGenerationQueryService = reportGenerationQueryService;
+        this.applicationProperties = applicationProperties;
+        this.reportGenerationEventBroadcaster = reportGenerationEventBroadcaster;
     }
 
     /**
@@ -102,6 +125,23 @@ public class ReportGenerationResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /report-generations/events : watch the status and progress of the reportGenerations.
+     * <p>
+     * Every change is pushed as a "report-generation" Server-Sent Event whose data is a
+     * {@link au.com.normist.capital.service.report.ReportGenerationEvent}, for the jobs the current user created, or
+     * all jobs for an admin. The stream stays open until the client closes it.
+     *
+     * @return the stream of events
+     */
+    @GetMapping(value = "/report-generations/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Timed
+    public SseEmitter getReportGenerationEvents() {
+        String login = SecurityUtils.getCurrentUserLogin().orElse("");
+        log.debug("REST request to watch the ReportGenerations of : {}", login);
+        return reportGenerationEventBroadcaster.subscribe(login, SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.ADMIN));
+    }
+
     /**
      * GET  /report-generations/:id : get the "id" reportGeneration.
      *
@@ -116,6 +156,68 @@ public class ReportGenerationResource {
         return ResponseUtil.wrapOrNotFound(reportGenerationDTO);
     }
 
+    /**
+     * GET  /report-generations/:id/file : download the file of the "id" reportGeneration.
+     * <p>
+     * Only its creator and the administrators can download it, like they are the only ones told of its events. The file
+     * is streamed, downloads can be resumed with a Range and checked with their ETag or Last-Modified, see
+     * {@link FileDownloadUtil}.
+     *
+     * @param id the id of the reportGeneration whose file to download
+     * @param request the request, for its range, conditional and encoding headers
+     * @return the ResponseEntity with status 200 (OK) or 206 (Partial Content) and with body the file,
+     * or with status 304 (Not Modified), or with status 404 (Not Found) if there is no such reportGeneration or file,
+     * if it isn't the current user's, or if the file isn't inside the output directory of the reports,
+     * or with status 400 (Bad Request) if the reportGeneration isn't generated
+     * @throws IOException if the file can't be read
+     */
+    @GetMapping("/report-generations/{id}/file")
+    @Timed
+    public ResponseEntity<StreamingResponseBody> downloadReportGenerationFile(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        log.debug("REST request to download the file of ReportGeneration : {}", id);
+        Optional<ReportGenerationDTO> reportGenerationDTO = reportGenerationService.findOne(id);
+        if (!reportGenerationDTO.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        ReportGenerationDTO generation = reportGenerationDTO.get();
+        // as if there were no such job, not to tell the ids of the jobs of others
+        if (!SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.ADMIN)
+            && !SecurityUtils.getCurrentUserLogin().filter(login -> login.equals(generation.getCreator())).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (generation.getStatus() != ReportGenerationStatus.GENERATED || generation.getFullPath() == null) {
+            throw new BadRequestAlertException("The report is not generated", ENTITY_NAME, "notgenerated");
+        }
+        Path file = reportFile(generation.getFullPath());
+        if (file == null) {
+            log.warn("Refused to download {} of ReportGeneration {}, it isn't a report file", generation.getFullPath(), id);
+            return ResponseEntity.notFound().build();
+        }
+        boolean csv = generation.getFileType() == ReportFileType.CSV;
+        MediaType contentType = csv ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+            : generation.getFileType() == ReportFileType.PDF ? MediaType.APPLICATION_PDF : MediaType.APPLICATION_OCTET_STREAM;
+        return FileDownloadUtil.download(request, file, contentType, file.getFileName().toString(),
+            csv && applicationProperties.getReport().isGzipDownloads());
+    }
+
+    /**
+     * Resolves the file of a job, following its links, and checks it's inside the output directory of the reports,
+     * where the engine writes the files and keeps its cache.
+     *
+     * @param fullPath the full path of the file of the job
+     * @return the real path of the file, or null if it or the output directory doesn't exist, or if it's outside the directory
+     * @throws IOException if the paths can't be resolved
+     */
+    private Path reportFile(String fullPath) throws IOException {
+        try {
+            Path file = Paths.get(fullPath).toRealPath();
+            Path outputDirectory = Paths.get(applicationProperties.getReport().getOutputDirectory()).toRealPath();
+            return file.startsWith(outputDirectory) ? file : null;
+        } catch (InvalidPathException | NoSuchFileException e) {
+            return null;
+        }
+    }
+
     /**
      * DELETE  /report-generations/:id : delete the "id" reportGeneration.
      *
@@ -16,6 +16,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
@@ -58,6 +60,7 @@ public class ReportResource {
         if (reportDTO.getId() != null) {
             throw new BadRequestAlertException("A new report cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        checkSchedule(reportDTO);
         ReportDTO result = reportService.save(reportDTO);
         return ResponseEntity.created(new URI("/api/reports/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
@@ -80,6 +83,7 @@ public class ReportResource {
         if (reportDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
+        checkSchedule(reportDTO);
         ReportDTO result = reportService.save(reportDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, reportDTO.getId().toString()))
@@ -129,4 +133,12 @@ public class ReportResource {
         reportService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
+
+    private void checkSchedule(ReportDTO reportDTO) {
+        String schedule = reportDTO.getSchedule();
+        if (StringUtils.hasText(schedule) && !CronSequenceGenerator.isValidExpression(schedule.trim())) {
+            throw new BadRequestAlertException("Invalid schedule, expected a cron expression of 6 fields", ENTITY_NAME,
+                "invalidschedule");
+        }
+    }
 }
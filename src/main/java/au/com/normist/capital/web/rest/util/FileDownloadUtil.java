@@ -0,0 +1,175 @@
+package au.com.normist.capital.web.rest.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class for downloads of files of the server.
+ *
+ * The file is streamed from its channel to the response, never read in memory. Downloads can be resumed: a single
+ * byte range is answered with 206 (Partial Content), several ranges with the whole file. The ETag and Last-Modified
+ * of the file answer conditional requests with 304 (Not Modified), and a Range with an If-Range that no longer
+ * matches with the whole file. A compressible file is gzipped for the clients that accept it, unless a range is
+ * asked.
+ */
+public final class FileDownloadUtil {
+
+    private static final String BYTES = "bytes";
+
+    private static final String GZIP = "gzip";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private FileDownloadUtil() {
+    }
+
+    /**
+     * @param request the download request, for its conditional, range and encoding headers
+     * @param file the file to send, it must not change while it is downloaded
+     * @param contentType the type of the file
+     * @param filename the name the client saves the file as
+     * @param compressible whether the file is worth gzipping
+     * @return the response, 404 (Not Found) if there is no such file
+     * @throws IOException if the file can't be read
+     */
+    public static ResponseEntity<StreamingResponseBody> download(HttpServletRequest request, Path file,
+                                                                 MediaType contentType, String filename,
+                                                                 boolean compressible) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return ResponseEntity.notFound().build();
+        }
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        HttpHeaders requestHeaders = new ServletServerHttpRequest(request).getHeaders();
+        boolean gzip = compressible && acceptsGzip(requestHeaders);
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + (gzip ? "-gz" : "") + "\"";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+        headers.set(HttpHeaders.ACCEPT_RANGES, BYTES);
+        if (compressible) {
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (isNotModified(requestHeaders, etag, lastModified)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename.replace("\"", "") + "\"");
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangeApplies(requestHeaders, etag, lastModified) ? requestHeaders.getRange() : null;
+        } catch (IllegalArgumentException e) {
+            // a malformed Range is ignored
+            ranges = null;
+        }
+        if (ranges != null && ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                headers.set(HttpHeaders.CONTENT_RANGE, BYTES + " */" + length);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            headers.set(HttpHeaders.CONTENT_RANGE, BYTES + " " + start + "-" + end + "/" + length);
+            headers.setContentLength(end - start + 1);
+            return new ResponseEntity<>(out -> transfer(file, start, end - start + 1, out), headers,
+                HttpStatus.PARTIAL_CONTENT);
+        }
+
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            return new ResponseEntity<>(out -> {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                transfer(file, 0, length, compressed);
+                // finishes the gzip stream, the container closes the response
+                compressed.finish();
+            }, headers, HttpStatus.OK);
+        }
+        headers.setContentLength(length);
+        return new ResponseEntity<>(out -> transfer(file, 0, length, out), headers, HttpStatus.OK);
+    }
+
+    private static boolean acceptsGzip(HttpHeaders requestHeaders) {
+        List<String> acceptEncodings = requestHeaders.get(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncodings == null) {
+            return false;
+        }
+        for (String acceptEncoding : acceptEncodings) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+                    return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotModified(HttpHeaders requestHeaders, String etag, long lastModified) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.contains(etag) || ifNoneMatch.contains("*");
+        }
+        try {
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            // HTTP dates are to the second
+            return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean rangeApplies(HttpHeaders requestHeaders, String etag, long lastModified) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long date = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            return date != -1 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends part of a file with {@link FileChannel#transferTo}, chunk by chunk, the file is never held in memory.
+     */
+    private static void transfer(Path file, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long sent = 0;
+            while (sent < count) {
+                long transferred = channel.transferTo(position + sent, count - sent, target);
+                if (transferred <= 0) {
+                    // the file is shorter than expected
+                    break;
+                }
+                sent += transferred;
+            }
+        }
+    }
+}
@@ -39,6 +39,32 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Link header of a keyset (seek) paginated resource: {@code next} carries the continuation token of the next page,
+     * there is no {@code last} or total count since keyset pages don't count rows.
+     *
+     * @param nextToken the continuation token of the next page, null if this is the last page
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(String nextToken, int size, String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (nextToken != null) {
+            link = "<" + generateKeysetUri(baseUrl, nextToken, size) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(baseUrl, null, size) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateKeysetUri(String baseUrl, String cursor, int size) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(baseUrl);
+        if (cursor != null) {
+            builder.queryParam("cursor", cursor);
+        }
+        return builder.queryParam("size", size).toUriString();
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
@@ -4,7 +4,7 @@ import { ActivatedRoute, Router } from '@angular/router';
 import { Subscription } from 'rxjs';
 import { JhiEventManager, JhiParseLinks, JhiAlertService } from 'ng-jhipster';
 
-import { IReportGeneration } from 'app/shared/model/report-generation.model';
+import { IReportGeneration, IReportGenerationEvent } from 'app/shared/model/report-generation.model';
 import { Principal } from 'app/core';
 
 import { ITEMS_PER_PAGE } from 'app/shared';
@@ -20,6 +20,7 @@ export class ReportGenerationComponent implements OnInit, OnDestroy {
     error: any;
     success: any;
     eventSubscriber: Subscription;
+    serverEventSubscriber: Subscription;
     routeData: any;
     links: any;
     totalItems: any;
@@ -97,10 +98,12 @@ export class ReportGenerationComponent implements OnInit, OnDestroy {
             this.currentAccount = account;
         });
         this.registerChangeInReportGenerations();
+        this.serverEventSubscriber = this.reportGenerationService.events().subscribe(event => this.onServerEvent(event));
     }
 
     ngOnDestroy() {
         this.eventManager.destroy(this.eventSubscriber);
+        this.serverEventSubscriber.unsubscribe();
     }
 
     trackId(index: number, item: IReportGeneration) {
@@ -119,6 +122,15 @@ export class ReportGenerationComponent implements OnInit, OnDestroy {
         return result;
     }
 
+    private onServerEvent(event: IReportGenerationEvent) {
+        const reportGeneration = (this.reportGenerations || []).find(item => item.id === event.id);
+        if (reportGeneration) {
+            reportGeneration.status = event.status;
+            reportGeneration.progress = event.progress;
+            reportGeneration.completionDate = event.completionDate;
+        }
+    }
+
     private paginateReportGenerations(data: IReportGeneration[], headers: HttpHeaders) {
         this.links = this.parseLinks.parse(headers.get('link'));
         this.totalItems = parseInt(headers.get('X-Total-Count'), 10);
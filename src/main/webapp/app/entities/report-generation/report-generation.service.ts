@@ -7,7 +7,8 @@ import { map } from 'rxjs/operators';
 
 import { SERVER_API_URL } from 'app/app.constants';
 import { createRequestOption } from 'app/shared';
-import { IReportGeneration } from 'app/shared/model/report-generation.model';
+import { AuthServerProvider } from 'app/core';
+import { IReportGeneration, IReportGenerationEvent } from 'app/shared/model/report-generation.model';
 
 type EntityResponseType = HttpResponse<IReportGeneration>;
 type EntityArrayResponseType = HttpResponse<IReportGeneration[]>;
@@ -16,7 +17,7 @@ type EntityArrayResponseType = HttpResponse<IReportGeneration[]>;
 export class ReportGenerationService {
     private resourceUrl = SERVER_API_URL + 'api/report-generations';
 
-    constructor(private http: HttpClient) {}
+    constructor(private http: HttpClient, private authServerProvider: AuthServerProvider) {}
 
     create(reportGeneration: IReportGeneration): Observable<EntityResponseType> {
         const copy = this.convertDateFromClient(reportGeneration);
@@ -49,6 +50,24 @@ export class ReportGenerationService {
         return this.http.delete<any>(`${this.resourceUrl}/${id}`, { observe: 'response' });
     }
 
+    /**
+     * The changes of status and progress of the jobs, pushed by the server. The browser reconnects by itself when the
+     * stream drops, unsubscribing closes it.
+     */
+    events(): Observable<IReportGenerationEvent> {
+        return new Observable<IReportGenerationEvent>(observer => {
+            // EventSource can't send the Authorization header
+            const token = this.authServerProvider.getToken();
+            const source = new EventSource(`${this.resourceUrl}/events` + (token ? `?access_token=${encodeURIComponent(token)}` : ''));
+            source.addEventListener('report-generation', (message: MessageEvent) => {
+                const event: IReportGenerationEvent = JSON.parse(message.data);
+                event.completionDate = event.completionDate != null ? moment(event.completionDate) : null;
+                observer.next(event);
+            });
+            return () => source.close();
+        });
+    }
+
     private convertDateFromClient(reportGeneration: IReportGeneration): IReportGeneration {
         const copy: IReportGeneration = Object.assign({}, reportGeneration, {
             creationDate:
@@ -60,7 +79,12 @@ export class ReportGenerationService {
             completionDate:
                 reportGeneration.completionDate != null && reportGeneration.completionDate.isValid()
                     ? reportGeneration.completionDate.toJSON()
-                    : null
+                    : null,
+            leaseExpiresOn:
+                reportGeneration.leaseExpiresOn != null && reportGeneration.leaseExpiresOn.isValid()
+                    ? reportGeneration.leaseExpiresOn.toJSON()
+                    : null,
+            retryOn: reportGeneration.retryOn != null && reportGeneration.retryOn.isValid() ? reportGeneration.retryOn.toJSON() : null
         });
         return copy;
     }
@@ -69,6 +93,8 @@ export class ReportGenerationService {
         res.body.creationDate = res.body.creationDate != null ? moment(res.body.creationDate) : null;
         res.body.startedOn = res.body.startedOn != null ? moment(res.body.startedOn) : null;
         res.body.completionDate = res.body.completionDate != null ? moment(res.body.completionDate) : null;
+        res.body.leaseExpiresOn = res.body.leaseExpiresOn != null ? moment(res.body.leaseExpiresOn) : null;
+        res.body.retryOn = res.body.retryOn != null ? moment(res.body.retryOn) : null;
         return res;
     }
 
@@ -77,6 +103,8 @@ export class ReportGenerationService {
             reportGeneration.creationDate = reportGeneration.creationDate != null ? moment(reportGeneration.creationDate) : null;
             reportGeneration.startedOn = reportGeneration.startedOn != null ? moment(reportGeneration.startedOn) : null;
             reportGeneration.completionDate = reportGeneration.completionDate != null ? moment(reportGeneration.completionDate) : null;
+            reportGeneration.leaseExpiresOn = reportGeneration.leaseExpiresOn != null ? moment(reportGeneration.leaseExpiresOn) : null;
+            reportGeneration.retryOn = reportGeneration.retryOn != null ? moment(reportGeneration.retryOn) : null;
         });
         return res;
     }
@@ -1,6 +1,8 @@
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpResponse } from '@angular/common/http';
 import { Observable } from 'rxjs';
+import * as moment from 'moment';
+import { map } from 'rxjs/operators';
 
 import { SERVER_API_URL } from 'app/app.constants';
 import { createRequestOption } from 'app/shared';
@@ -16,23 +18,52 @@ export class ReportService {
     constructor(private http: HttpClient) {}
 
     create(report: IReport): Observable<EntityResponseType> {
-        return this.http.post<IReport>(this.resourceUrl, report, { observe: 'response' });
+        const copy = this.convertDateFromClient(report);
+        return this.http
+            .post<IReport>(this.resourceUrl, copy, { observe: 'response' })
+            .pipe(map((res: EntityResponseType) => this.convertDateFromServer(res)));
     }
 
     update(report: IReport): Observable<EntityResponseType> {
-        return this.http.put<IReport>(this.resourceUrl, report, { observe: 'response' });
+        const copy = this.convertDateFromClient(report);
+        return this.http
+            .put<IReport>(this.resourceUrl, copy, { observe: 'response' })
+            .pipe(map((res: EntityResponseType) => this.convertDateFromServer(res)));
     }
 
     find(id: number): Observable<EntityResponseType> {
-        return this.http.get<IReport>(`${this.resourceUrl}/${id}`, { observe: 'response' });
+        return this.http
+            .get<IReport>(`${this.resourceUrl}/${id}`, { observe: 'response' })
+            .pipe(map((res: EntityResponseType) => this.convertDateFromServer(res)));
     }
 
     query(req?: any): Observable<EntityArrayResponseType> {
         const options = createRequestOption(req);
-        return this.http.get<IReport[]>(this.resourceUrl, { params: options, observe: 'response' });
+        return this.http
+            .get<IReport[]>(this.resourceUrl, { params: options, observe: 'response' })
+            .pipe(map((res: EntityArrayResponseType) => this.convertDateArrayFromServer(res)));
     }
 
     delete(id: number): Observable<HttpResponse<any>> {
         return this.http.delete<any>(`${this.resourceUrl}/${id}`, { observe: 'response' });
     }
+
+    private convertDateFromClient(report: IReport): IReport {
+        const copy: IReport = Object.assign({}, report, {
+            nextRunOn: report.nextRunOn != null && report.nextRunOn.isValid() ? report.nextRunOn.toJSON() : null
+        });
+        return copy;
+    }
+
+    private convertDateFromServer(res: EntityResponseType): EntityResponseType {
+        res.body.nextRunOn = res.body.nextRunOn != null ? moment(res.body.nextRunOn) : null;
+        return res;
+    }
+
+    private convertDateArrayFromServer(res: EntityArrayResponseType): EntityArrayResponseType {
+        res.body.forEach((report: IReport) => {
+            report.nextRunOn = report.nextRunOn != null ? moment(report.nextRunOn) : null;
+        });
+        return res;
+    }
 }
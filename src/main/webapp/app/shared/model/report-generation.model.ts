@@ -24,9 +24,25 @@ export interface IReportGeneration {
     startedOn?: Moment;
     completionDate?: Moment;
     comment?: string;
+    progress?: number;
+    parameters?: string;
+    leaseOwner?: string;
+    leaseExpiresOn?: Moment;
+    attempts?: number;
+    retryOn?: Moment;
+    checkpointRows?: number;
+    checkpointOffset?: number;
     reportId?: number;
 }
 
+export interface IReportGenerationEvent {
+    id?: number;
+    creator?: string;
+    status?: ReportGenerationStatus;
+    progress?: number;
+    completionDate?: Moment;
+}
+
 export class ReportGeneration implements IReportGeneration {
     constructor(
         public id?: number,
@@ -40,6 +56,14 @@ export class ReportGeneration implements IReportGeneration {
         public startedOn?: Moment,
         public completionDate?: Moment,
         public comment?: string,
+        public progress?: number,
+        public parameters?: string,
+        public leaseOwner?: string,
+        public leaseExpiresOn?: Moment,
+        public attempts?: number,
+        public retryOn?: Moment,
+        public checkpointRows?: number,
+        public checkpointOffset?: number,
         public reportId?: number
     ) {
         this.isLocked = false;
@@ -1,10 +1,21 @@
+import { Moment } from 'moment';
+
 export interface IReport {
     id?: number;
     name?: string;
     description?: string;
     displayOrder?: number;
+    schedule?: string;
+    nextRunOn?: Moment;
 }
 
 export class Report implements IReport {
-    constructor(public id?: number, public name?: string, public description?: string, public displayOrder?: number) {}
+    constructor(
+        public id?: number,
+        public name?: string,
+        public description?: string,
+        public displayOrder?: number,
+        public schedule?: string,
+        public nextRunOn?: Moment
+    ) {}
 }
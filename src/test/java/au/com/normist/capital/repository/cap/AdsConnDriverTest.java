@@ -0,0 +1,62 @@
+package au.com.normist.capital.repository.cap;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdsConnDriverTest {
+
+    @Test
+    public void should_configure_pool_from_application_properties() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getCapital().setConnectionString("jdbc:extendedsystems:advantage://localhost:6262/capital");
+        properties.getCapital().getPool().setMaximumPoolSize(4);
+        properties.getCapital().getPool().setLeakDetectionThreshold(20000);
+        properties.getCapital().getPool().getDataSourceProperties().put("TableType", "cdx");
+
+        AdsConnDriver driver = new AdsConnDriver(properties);
+        HikariDataSource dataSource = driver.getDataSource();
+
+        assertThat(dataSource.getPoolName()).isEqualTo(AdsConnDriver.POOL_NAME);
+        assertThat(dataSource.getDriverClassName()).isEqualTo(AdsConnDriver.ADS_DRIVER_CLASS_NAME);
+        assertThat(dataSource.getJdbcUrl()).isEqualTo("jdbc:extendedsystems:advantage://localhost:6262/capital");
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(4);
+        assertThat(dataSource.getLeakDetectionThreshold()).isEqualTo(20000);
+        assertThat(dataSource.getConnectionTestQuery()).isEqualTo("SELECT 1 FROM system.iota");
+        assertThat(dataSource.getDataSourceProperties()).containsEntry("TableType", "cdx");
+        assertThat(dataSource.isClosed()).isFalse();
+    }
+
+    @Test
+    public void should_return_null_connection_when_not_configured() {
+        AdsConnDriver driver = new AdsConnDriver(new ApplicationProperties());
+
+        assertThat(driver.getDbConnection()).isNull();
+
+        driver.close();
+        assertThat(driver.getDataSource().isClosed()).isTrue();
+    }
+
+    @Test
+    public void should_set_connection_string_before_pool_starts() {
+        AdsConnDriver driver = new AdsConnDriver(new ApplicationProperties());
+
+        driver.setConnectionString("jdbc:extendedsystems:advantage://localhost:6262/other");
+
+        assertThat(driver.getConnectionString()).isEqualTo("jdbc:extendedsystems:advantage://localhost:6262/other");
+        assertThat(driver.getDataSource().getJdbcUrl()).isEqualTo("jdbc:extendedsystems:advantage://localhost:6262/other");
+        driver.close();
+    }
+
+    @Test
+    public void should_refuse_connection_string_once_pool_is_closed() {
+        AdsConnDriver driver = new AdsConnDriver(new ApplicationProperties());
+        driver.close();
+
+        assertThatThrownBy(() -> driver.setConnectionString("jdbc:extendedsystems:advantage://localhost:6262/other"))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,604 @@
+package au.com.normist.capital.repository.cap;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.core.annotation.cap.PersistEntity;
+import au.com.normist.capital.domain.cap.CapBaseModel;
+import au.com.normist.capital.repository.cap.dbutilsjpa.SqlWriter;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.AdsDialect;
+import com.zaxxer.hikari.HikariDataSource;
+import org.danekja.java.util.function.serializable.SerializablePredicate;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdsRepositoryTest {
+
+    private static final String URL = "jdbc:h2:mem:adsrepository;DB_CLOSE_DELAY=-1";
+
+    // the ADS paging, and the square brackets of the reserved words, H2 has neither
+    private static final Pattern TOP_START_AT = Pattern.compile("^SELECT TOP (\\d+) (?:START AT (\\d+) )?");
+    private static final Pattern BRACKETS = Pattern.compile("\\[(\\w+)]");
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final AdsConnDriver adsConnDriver = mock(AdsConnDriver.class);
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<Connection> opened = new ArrayList<>();
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private Connection keepAlive;
+    private ItemRepository repository;
+
+    @Before
+    public void before() throws SQLException {
+        keepAlive = DriverManager.getConnection(URL);
+        try (Statement statement = keepAlive.createStatement()) {
+            // ROWID stands for the ADS pseudo column
+            statement.execute("CREATE TABLE ITEM(CODE CHAR(10) PRIMARY KEY, DESCR VARCHAR(40), \"KEY\" VARCHAR(10), ROWID CHAR(18))");
+            for (int i = 1; i <= 25; i++) {
+                statement.execute("INSERT INTO ITEM VALUES('" + code(i) + "', 'item " + i + "', 'K" + i + "', 'AAAAAAAAAAAAAA" + code(i).substring(3) + "')");
+            }
+        }
+
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> adsConnection());
+        when(adsConnDriver.getDataSource()).thenReturn(dataSource);
+        when(adsConnDriver.getApplicationProperties()).thenReturn(applicationProperties);
+        when(adsConnDriver.getSqlWriter()).thenReturn(new SqlWriter(new AdsDialect()));
+        when(adsConnDriver.getDbConnection()).thenAnswer(invocation -> {
+            connections.incrementAndGet();
+            Connection connection = adsConnection();
+            synchronized (opened) {
+                opened.add(connection);
+            }
+            return connection;
+        });
+        repository = new ItemRepository(adsConnDriver);
+    }
+
+    @After
+    public void after() throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP TABLE ITEM");
+        }
+        keepAlive.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void should_return_records_in_caller_order_over_chunks_on_one_connection() {
+        applicationProperties.getCapital().getQuery().setInListSize(4);
+        List<String> ids = Arrays.asList(code(9), code(2), "missing", code(25), code(1), code(13), code(7), code(20), code(3), code(2));
+
+        List<Item> items = repository.getByIds(ids);
+
+        assertThat(items).extracting(Item::getCode)
+            .containsExactly(code(9), code(2), code(25), code(1), code(13), code(7), code(20), code(3), code(2));
+        assertThat(items.get(0).getDescription()).isEqualTo("item 9");
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    public void should_spread_chunks_over_pooled_connections() {
+        applicationProperties.getCapital().getQuery().setInListSize(3);
+        applicationProperties.getCapital().getQuery().setInListParallelism(3);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        when(adsConnDriver.getQueryExecutor()).thenReturn(executor);
+        List<String> ids = new ArrayList<>();
+        for (int i = 25; i >= 1; i--) {
+            ids.add(code(i));
+        }
+
+        List<Item> items = repository.getByIds(ids);
+
+        assertThat(items.stream().map(Item::getCode).collect(Collectors.toList())).isEqualTo(ids);
+        assertThat(connections).hasValue(3);
+        executor.shutdown();
+    }
+
+    @Test
+    public void should_not_query_without_ids() {
+        assertThat(repository.getByIds(Collections.emptyList())).isEmpty();
+        assertThat(repository.getByIds(Collections.singletonList(null))).isEmpty();
+        assertThat(connections).hasValue(0);
+    }
+
+    @Test
+    public void should_stream_all_rows_and_release_the_connection_at_the_end() throws SQLException {
+        applicationProperties.getCapital().getQuery().setFetchSize(10);
+
+        try (Stream<Item> items = repository.streamAll()) {
+            Iterator<Item> iterator = items.iterator();
+            assertThat(iterator.next().getDescription()).startsWith("item ");
+            assertThat(opened.get(0).isClosed()).isFalse();
+
+            int count = 1;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            assertThat(count).isEqualTo(25);
+            assertThat(opened.get(0).isClosed()).isTrue();
+        }
+    }
+
+    @Test
+    public void should_release_the_connection_when_the_stream_is_closed_early() throws SQLException {
+        try (Stream<Item> items = repository.streamAll()) {
+            assertThat(items.limit(3).count()).isEqualTo(3);
+        }
+
+        assertThat(opened).hasSize(1);
+        assertThat(opened.get(0).isClosed()).isTrue();
+    }
+
+    @Test
+    public void should_get_all_rows() {
+        assertThat(repository.getAll()).hasSize(25);
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    public void should_read_a_page_ordered_by_id() {
+        List<Item> page = repository.getPage(10, 5);
+
+        assertThat(page).extracting(Item::getCode).containsExactly(code(11), code(12), code(13), code(14), code(15));
+        assertThat(repository.getPage(20, 10)).hasSize(5);
+    }
+
+    @Test
+    public void should_page_with_top_and_start_at() {
+        List<Item> page = repository.getPage(10, 5);
+
+        assertThat(page).extracting(Item::getCode).containsExactly(code(11), code(12), code(13), code(14), code(15));
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0)).startsWith("SELECT TOP 5 START AT 11 ").doesNotContain("LIMIT").doesNotContain("OFFSET");
+    }
+
+    @Test
+    public void should_page_a_predicate_and_a_keyset_with_top() {
+        repository.findWhere(item -> item.getDescription() != "item 1", 0, 5);
+        repository.getPageAfter(null, 10);
+
+        assertThat(statements).hasSize(2);
+        assertThat(statements.get(0)).startsWith("SELECT TOP 5 START AT 1 ").contains(" WHERE ");
+        assertThat(statements.get(1)).startsWith("SELECT TOP 10 ").doesNotContain("START AT");
+    }
+
+    @Test
+    public void should_quote_reserved_words() {
+        Item item = repository.getById(code(4));
+        assertThat(item.getKey()).isEqualTo("K4");
+
+        item.setKey("K44");
+        repository.update(item);
+
+        assertThat(repository.getById(code(4)).getKey()).isEqualTo("K44");
+        assertThat(statements).hasSize(3);
+        assertThat(statements.get(0)).isEqualTo("SELECT ITEM.*, ITEM.ROWID FROM ITEM WHERE ITEM.CODE = ?");
+        assertThat(statements.get(1)).isEqualTo("UPDATE ITEM SET ITEM.DESCR = ?, ITEM.[KEY] = ? WHERE ITEM.CODE = ?");
+    }
+
+    @Test
+    public void should_find_records_by_predicate() {
+        String description = "item 7";
+        List<Item> found = repository.findWhere(item -> item.getDescription() == "item 3" || item.getDescription().equals(description));
+
+        assertThat(found).extracting(item -> item.getCode().trim()).containsExactlyInAnyOrder(code(3), code(7));
+    }
+
+    @Test
+    public void should_read_a_page_of_records_matching_a_predicate() {
+        List<Item> page = repository.findWhere(item -> item.getDescription() != "item 1", 0, 5);
+
+        assertThat(page).extracting(item -> item.getCode().trim()).containsExactly(code(2), code(3), code(4), code(5), code(6));
+    }
+
+    @Test
+    public void should_count_records_matching_a_predicate() {
+        assertThat(repository.countWhere(item -> item.getDescription() != "item 1")).isEqualTo(24);
+        assertThat(repository.countWhere(item -> item.getDescription() == "none")).isZero();
+    }
+
+    @Test
+    public void should_stream_records_matching_a_predicate() throws SQLException {
+        try (Stream<Item> items = repository.streamWhere(item -> item.getDescription() == null || item.getDescription() == "item 25")) {
+            assertThat(items.map(item -> item.getCode().trim())).containsExactly(code(25));
+        }
+        assertThat(opened.get(0).isClosed()).isTrue();
+    }
+
+    @Test
+    public void should_stream_key_range_partitions_in_order_on_their_own_connections() throws SQLException {
+        when(adsConnDriver.getPartitionExecutor()).thenReturn(executor);
+        applicationProperties.getCapital().getQuery().setFetchSize(2);
+
+        try (Stream<Item> items = repository.streamWhere(keyRanges(4), 3, true)) {
+            assertThat(items.map(item -> item.getCode().trim()).collect(Collectors.toList()))
+                .isEqualTo(IntStream.rangeClosed(1, 25).mapToObj(AdsRepositoryTest::code).collect(Collectors.toList()));
+        }
+        assertThat(connections).hasValue(4);
+        assertThat(opened).allMatch(this::isClosed);
+    }
+
+    @Test
+    public void should_stream_partitions_as_they_are_read() {
+        when(adsConnDriver.getPartitionExecutor()).thenReturn(executor);
+
+        try (Stream<Item> items = repository.streamWhere(keyRanges(5), 5, false)) {
+            assertThat(items.map(item -> item.getCode().trim()))
+                .containsExactlyInAnyOrderElementsOf(IntStream.rangeClosed(1, 25).mapToObj(AdsRepositoryTest::code).collect(Collectors.toList()));
+        }
+        assertThat(connections).hasValue(5);
+    }
+
+    @Test
+    public void should_release_the_connections_of_partitions_closed_early() throws Exception {
+        when(adsConnDriver.getPartitionExecutor()).thenReturn(executor);
+        applicationProperties.getCapital().getQuery().setFetchSize(1);
+
+        try (Stream<Item> items = repository.streamWhere(keyRanges(3), 3, true)) {
+            assertThat(items.limit(2).count()).isEqualTo(2);
+        }
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(opened).allMatch(this::isClosed);
+    }
+
+    @Test
+    public void should_fail_the_stream_when_a_partition_fails() {
+        List<Supplier<Stream<String>>> partitions = Arrays.asList(
+            () -> Stream.of("a", "b"),
+            () -> {
+                throw new IllegalStateException("no connection");
+            });
+
+        try (Stream<String> records = PartitionedSpliterator.stream(partitions, executor, 2, 1, true)) {
+            Iterator<String> iterator = records.iterator();
+            assertThat(iterator.next()).isEqualTo("a");
+            assertThat(iterator.next()).isEqualTo("b");
+            assertThatThrownBy(iterator::hasNext).isInstanceOf(IllegalStateException.class).hasMessage("no connection");
+        }
+    }
+
+    @Test
+    public void should_read_an_interface_projection() {
+        List<ItemCode> codes = repository.getAll(ItemCode.class);
+
+        assertThat(codes).hasSize(25);
+        assertThat(codes.get(0).getCode().trim()).isEqualTo(code(1));
+    }
+
+    @Test
+    public void should_read_a_page_of_a_class_projection() {
+        List<ItemDescription> page = repository.getPage(5, 2, ItemDescription.class);
+
+        assertThat(page).extracting(ItemDescription::getDescription).containsExactly("item 6", "item 7");
+    }
+
+    @Test
+    public void should_stream_and_find_projections() throws SQLException {
+        try (Stream<ItemCode> codes = repository.streamAll(ItemCode.class)) {
+            assertThat(codes.count()).isEqualTo(25);
+        }
+        assertThat(opened.get(0).isClosed()).isTrue();
+
+        List<ItemDescription> found = repository.findWhere(item -> item.getDescription() == "item 9", ItemDescription.class);
+        assertThat(found).extracting(ItemDescription::getDescription).containsExactly("item 9");
+    }
+
+    @Test
+    public void should_walk_the_table_by_keyset_pages() {
+        List<String> codes = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            KeysetPage<Item> page = repository.getPageAfter(token, 10);
+            page.getContent().forEach(item -> codes.add(item.getCode().trim()));
+            token = page.getNextToken();
+            pages++;
+        } while (token != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(codes).hasSize(25).startsWith(code(1), code(2)).endsWith(code(25));
+    }
+
+    @Test
+    public void should_end_on_a_full_last_page_with_an_empty_page() {
+        KeysetPage<Item> page = repository.getPageAfter(null, 25);
+        assertThat(page.hasNext()).isTrue();
+
+        KeysetPage<Item> next = repository.getPageAfter(page.getNextToken(), 25);
+        assertThat(next.getContent()).isEmpty();
+        assertThat(next.hasNext()).isFalse();
+    }
+
+    @Test
+    public void should_reject_a_malformed_continuation_token() {
+        assertThatThrownBy(() -> repository.getPageAfter("not base64!", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(KeysetPage.isValidToken("not base64!")).isFalse();
+        assertThat(KeysetPage.isValidToken(repository.getPageAfter(null, 10).getNextToken())).isTrue();
+    }
+
+    @Test
+    public void should_update_all_records_in_batches_on_one_connection() {
+        applicationProperties.getCapital().getQuery().setBatchSize(10);
+        List<Item> items = repository.getAll();
+        connections.set(0);
+        items.forEach(item -> item.setDescription("repriced " + item.getCode().trim()));
+
+        int rows = repository.saveAll(items);
+
+        assertThat(rows).isEqualTo(25);
+        assertThat(connections).hasValue(1);
+        assertThat(repository.getById(code(17)).getDescription()).isEqualTo("repriced " + code(17));
+    }
+
+    @Test
+    public void should_roll_back_the_whole_save_if_a_batch_fails() throws SQLException {
+        applicationProperties.getCapital().getQuery().setBatchSize(10);
+        List<Item> items = repository.getAll();
+        items.forEach(item -> item.setDescription("repriced"));
+        items.get(22).setDescription(String.format("%50s", "too long"));
+
+        assertThatThrownBy(() -> repository.saveAll(items)).isInstanceOf(RuntimeException.class);
+
+        assertThat(descriptions()).doesNotContain("repriced");
+        assertThat(opened.stream().allMatch(this::isClosed)).isTrue();
+    }
+
+    @Test
+    public void should_delete_all_records_in_batches() throws SQLException {
+        applicationProperties.getCapital().getQuery().setBatchSize(4);
+
+        int rows = repository.deleteAll(repository.getByIds(Arrays.asList(code(1), code(2), code(3), code(4), code(5))));
+
+        assertThat(rows).isEqualTo(5);
+        assertThat(descriptions()).hasSize(20);
+    }
+
+    @Test
+    public void should_insert_update_and_delete_one_record_by_natural_key() throws SQLException {
+        Item item = new Item();
+        item.setCode(code(26));
+        item.setDescription("item 26");
+
+        assertThat(repository.insert(item)).isEqualTo(1);
+        item.setDescription("item twenty six");
+        repository.update(item);
+        assertThat(repository.getById(code(26)).getDescription()).isEqualTo("item twenty six");
+
+        assertThat(repository.delete(item)).isEqualTo(1);
+        assertThat(repository.getById(code(26))).isNull();
+    }
+
+    @Test
+    public void should_serve_cached_records_and_missing_ids_without_a_query() {
+        ItemRepository cached = new ItemRepository(adsConnDriver, newCache());
+
+        assertThat(cached.getById(code(3)).getDescription()).isEqualTo("item 3");
+        assertThat(cached.getById(code(99))).isNull();
+        connections.set(0);
+
+        assertThat(cached.getById(code(3) + "   ").getDescription()).isEqualTo("item 3");
+        assertThat(cached.getById(code(99))).isNull();
+        assertThat(connections).hasValue(0);
+    }
+
+    @Test
+    public void should_only_query_the_ids_missing_from_the_cache() {
+        ItemRepository cached = new ItemRepository(adsConnDriver, newCache());
+        cached.getById(code(2));
+        connections.set(0);
+
+        List<Item> items = cached.getByIds(Arrays.asList(code(4), code(2), code(99)));
+
+        assertThat(items).extracting(item -> item.getCode().trim()).containsExactly(code(4), code(2));
+        assertThat(connections).hasValue(1);
+        connections.set(0);
+        assertThat(cached.getByIds(Arrays.asList(code(2), code(4), code(99)))).hasSize(2);
+        assertThat(connections).hasValue(0);
+    }
+
+    @Test
+    public void should_evict_written_records_from_the_cache() {
+        ItemRepository cached = new ItemRepository(adsConnDriver, newCache());
+        assertThat(cached.getById(code(26))).isNull();
+
+        Item item = new Item();
+        item.setCode(code(26));
+        item.setDescription("item 26");
+        cached.insert(item);
+        assertThat(cached.getById(code(26)).getDescription()).isEqualTo("item 26");
+
+        item.setDescription("item twenty six");
+        cached.update(item);
+        assertThat(cached.getById(code(26)).getDescription()).isEqualTo("item twenty six");
+
+        cached.delete(item);
+        assertThat(cached.getById(code(26))).isNull();
+    }
+
+    @Test
+    public void should_not_cache_without_a_cache_manager_or_region() {
+        CacheManager cacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName()).getCacheManager();
+
+        assertThat(EntityCache.region(null, Item.class)).isNull();
+        assertThat(EntityCache.region(cacheManager, Item.class)).isNull();
+    }
+
+    private static Cache<Object, Object> newCache() {
+        CacheManager cacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName()).getCacheManager();
+        String name = Item.class.getName() + "." + UUID.randomUUID();
+        return cacheManager.createCache(name, new MutableConfiguration<>().setStoreByValue(false));
+    }
+
+    /**
+     * A connection to the H2 database recording the statements written for ADS, run as H2 statements.
+     */
+    private Connection adsConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(URL);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+                    statements.add((String) args[0]);
+                    args[0] = toH2((String) args[0]);
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private static String toH2(String sql) {
+        String h2 = BRACKETS.matcher(sql).replaceAll("\"$1\"");
+        Matcher paging = TOP_START_AT.matcher(h2);
+        if (!paging.find()) {
+            return h2;
+        }
+        long offset = paging.group(2) == null ? 0 : Long.parseLong(paging.group(2)) - 1;
+        return "SELECT " + h2.substring(paging.end()) + " LIMIT " + paging.group(1) + " OFFSET " + offset;
+    }
+
+    private List<String> descriptions() throws SQLException {
+        List<String> descriptions = new ArrayList<>();
+        try (Statement statement = keepAlive.createStatement(); ResultSet rs = statement.executeQuery("SELECT DESCR FROM ITEM")) {
+            while (rs.next()) {
+                descriptions.add(rs.getString(1));
+            }
+        }
+        return descriptions;
+    }
+
+    private boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<SerializablePredicate<Item>> keyRanges(int count) {
+        List<String> codes = IntStream.rangeClosed(1, 25).mapToObj(AdsRepositoryTest::code).collect(Collectors.toList());
+        List<String> boundaries = Partitions.keyBoundaries(codes, count);
+        List<SerializablePredicate<Item>> partitions = new ArrayList<>();
+        for (int i = 0; i <= boundaries.size(); i++) {
+            String from = i == 0 ? "" : boundaries.get(i - 1);
+            String to = i == boundaries.size() ? "9999999" : boundaries.get(i);
+            partitions.add(item -> item.getCode().compareTo(from) >= 0 && item.getCode().compareTo(to) < 0);
+        }
+        return partitions;
+    }
+
+    private static String code(int i) {
+        return String.format("%07d", i);
+    }
+
+    @PersistEntity
+    @Table(name = "ITEM")
+    public static class Item extends CapBaseModel {
+
+        @Id
+        @Column(name = "CODE")
+        private String code;
+
+        @Column(name = "DESCR")
+        private String description;
+
+        @Column(name = "KEY")
+        private String key;
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+    }
+
+    public interface ItemCode {
+        String getCode();
+    }
+
+    public static class ItemDescription {
+
+        @Column(name = "DESCR")
+        private String description;
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+    }
+
+    private static class ItemRepository extends AdsRepository<Item> {
+        ItemRepository(AdsConnDriver adsConnDriver) {
+            super(adsConnDriver, Item.class);
+        }
+
+        ItemRepository(AdsConnDriver adsConnDriver, Cache<Object, Object> cache) {
+            super(adsConnDriver, Item.class, cache);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package au.com.normist.capital.repository.cap;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionsTest {
+
+    @Test
+    public void should_split_dates_into_ranges_of_about_as_many_days() {
+        LocalDate from = LocalDate.of(2026, 1, 1);
+
+        assertThat(Partitions.dateBoundaries(from, from.plusDays(10), 3))
+            .containsExactly(from, from.plusDays(3), from.plusDays(6), from.plusDays(10));
+        assertThat(Partitions.dateBoundaries(from, from.plusDays(2), 4))
+            .containsExactly(from, from.plusDays(1), from.plusDays(2));
+        assertThat(Partitions.dateBoundaries(from, from, 4)).containsExactly(from, from);
+    }
+
+    @Test
+    public void should_split_keys_into_ranges_of_about_as_many_keys() {
+        assertThat(Partitions.keyBoundaries(Arrays.asList("a", "b", "c", "d", "e", "f"), 3)).containsExactly("c", "e");
+        assertThat(Partitions.keyBoundaries(Arrays.asList("a", "a", "a", "b"), 4)).containsExactly("b");
+        assertThat(Partitions.keyBoundaries(Arrays.asList("a", "b"), 1)).isEmpty();
+        assertThat(Partitions.keyBoundaries(Collections.emptyList(), 3)).isEmpty();
+    }
+}
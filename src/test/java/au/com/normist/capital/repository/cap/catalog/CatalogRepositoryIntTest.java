@@ -0,0 +1,41 @@
+package au.com.normist.capital.repository.cap.catalog;
+
+import au.com.normist.capital.CapitalappApp;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.cache.CacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the Capital catalogue repositories in the application context.
+ *
+ * @see StockAdsRepository
+ * @see Staux000AdsRepository
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = CapitalappApp.class)
+public class CatalogRepositoryIntTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private IStockRepository stockRepository;
+
+    @Autowired
+    private IStaux000Repository staux000Repository;
+
+    @Test
+    public void repositoriesStartWithoutAJCacheManager() {
+        // spring.cache.type is simple in the test profile
+        assertThat(applicationContext.getBeanNamesForType(CacheManager.class)).isEmpty();
+        assertThat(stockRepository).isInstanceOf(StockAdsRepository.class);
+        assertThat(staux000Repository).isInstanceOf(Staux000AdsRepository.class);
+    }
+}
@@ -0,0 +1,134 @@
+package au.com.normist.capital.repository.cap.changes;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import au.com.normist.capital.repository.cap.catalog.IStockRepository;
+import au.com.normist.capital.repository.cap.dbutilsjpa.JpaBeanProcessor;
+import org.h2.tools.SimpleResultSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class TableChangePollerTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final IStockRepository stockRepository = mock(IStockRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private TableChangePoller poller;
+
+    @Before
+    public void before() {
+        when(stockRepository.getEntityClass()).thenReturn(Stock.class);
+        applicationProperties.getCapital().getChangeCapture().setEnabled(true);
+        applicationProperties.getCapital().getChangeCapture().setTables(Arrays.asList("Stock", "Unknown"));
+        poller = new TableChangePoller(Collections.singletonList(stockRepository), applicationProperties, eventPublisher);
+    }
+
+    @Test
+    public void firstPollOnlyTakesTheSnapshot() {
+        when(stockRepository.streamAll()).thenAnswer(invocation -> Stream.of(stock("A1", "1", "10.00")));
+
+        poller.poll();
+        poller.poll();
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void pollPublishesTheInsertedUpdatedAndDeletedRows() {
+        when(stockRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+            stock("A1", "1", "10.00"), stock("A2", "2", "20.00"), stock("A3", "3", "30.00")));
+        poller.poll();
+
+        when(stockRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+            stock("A1", "1", "10.00"), stock("A2", "2", "21.00"), stock("A4", "4", "40.00")));
+        poller.poll();
+
+        TableChangedEvent event = publishedEvent();
+        assertThat(event.getEntityClass()).isEqualTo(Stock.class);
+        assertThat(event.getInserted()).containsExactly("4");
+        assertThat(event.getUpdated()).containsExactly("2");
+        assertThat(event.getDeleted()).containsExactly("3");
+        assertThat(event.getChangedIds()).containsExactly("4", "2", "3");
+    }
+
+    @Test
+    public void rowMovedToAnotherRowIdIsAnUpdate() {
+        assertThat(stock("A1", "1", "10.00").getRowId()).isEqualTo("A1");
+        when(stockRepository.streamAll()).thenAnswer(invocation -> Stream.of(stock("A1", "1", "10.00"), stock("A2", "2", "20.00")));
+        poller.poll();
+
+        // the table was packed: the record of 2 now sits at A1
+        when(stockRepository.streamAll()).thenAnswer(invocation -> Stream.of(stock("A1", "2", "20.00")));
+        poller.poll();
+
+        TableChangedEvent event = publishedEvent();
+        assertThat(event.getInserted()).isEmpty();
+        assertThat(event.getUpdated()).containsExactly("2");
+        assertThat(event.getDeleted()).containsExactly("1");
+    }
+
+    @Test
+    public void failedPollKeepsTheSnapshot() {
+        when(stockRepository.streamAll()).thenAnswer(invocation -> Stream.of(stock("A1", "1", "10.00")));
+        poller.poll();
+        when(stockRepository.streamAll()).thenThrow(new RuntimeException("server down"));
+        poller.poll();
+
+        doAnswer(invocation -> Stream.of(stock("A1", "1", "11.00"))).when(stockRepository).streamAll();
+        poller.poll();
+
+        assertThat(publishedEvent().getUpdated()).containsExactly("1");
+    }
+
+    @Test
+    public void disabledPollerDoesNotPoll() {
+        applicationProperties.getCapital().getChangeCapture().setEnabled(false);
+
+        poller.scheduledPoll();
+
+        verify(stockRepository, never()).streamAll();
+        verifyZeroInteractions(eventPublisher);
+    }
+
+    private TableChangedEvent publishedEvent() {
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        return (TableChangedEvent) event.getValue();
+    }
+
+    /**
+     * A stock mapped from a row as the server returns it, with its ROWID.
+     */
+    private static Stock stock(String rowId, String stockId, String sellPrice) {
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("NUMBER", Types.CHAR, 10, 0);
+        resultSet.addColumn("C", Types.DECIMAL, 12, 2);
+        resultSet.addColumn("ROWID", Types.CHAR, 18, 0);
+        resultSet.addRow(stockId, new BigDecimal(sellPrice), rowId);
+        try {
+            resultSet.next();
+            return new JpaBeanProcessor().toBean(resultSet, Stock.class);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
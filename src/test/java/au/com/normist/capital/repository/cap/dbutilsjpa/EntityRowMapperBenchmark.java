@@ -0,0 +1,121 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import au.com.normist.capital.domain.cap.salesforce.CrmHistory;
+import org.apache.commons.dbutils.BeanProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps CRMHISTORY rows with the reflective commons-dbutils {@link BeanProcessor} and with the compiled
+ * {@link EntityRowMapper} behind {@link JpaBeanProcessor}. Run with {@code -prof gc} to compare allocations.
+ *
+ * Not a unit test, run it from the IDE or through {@link #main(String[])}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityRowMapperBenchmark {
+
+    private static final String[] COLUMNS = {"stockId", "name", "location", "title", "type", "supplier", "invoiceNo",
+        "lineRef", "date", "account", "category", "salesman", "state", "depsales", "promo", "origin", "measure", "qty",
+        "cost", "soldFor", "taxCharge", "taxIncl"};
+
+    private static final Date DATE = Date.valueOf("2018-07-01");
+
+    @Param({"10000"})
+    public int rows;
+
+    private final BeanProcessor reflective = new BeanProcessor();
+
+    private final JpaBeanProcessor compiled = new JpaBeanProcessor();
+
+    private ResultSet resultSet;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        resultSet = crmHistoryResultSet(rows);
+    }
+
+    @Benchmark
+    public List<CrmHistory> reflective() throws SQLException {
+        return reflective.toBeanList(resultSet, CrmHistory.class);
+    }
+
+    @Benchmark
+    public List<CrmHistory> compiled() throws SQLException {
+        return compiled.toBeanList(resultSet, CrmHistory.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EntityRowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * An in-memory, forward-only result set of {@code rows} identical CRMHISTORY rows.
+     */
+    static ResultSet crmHistoryResultSet(int rows) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            ResultSetMetaData.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return COLUMNS.length;
+                    case "getColumnLabel":
+                    case "getColumnName":
+                        return COLUMNS[(Integer) args[0] - 1];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+        int[] row = {0};
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMetaData":
+                        return metaData;
+                    case "next":
+                        return ++row[0] <= rows;
+                    case "wasNull":
+                        return false;
+                    case "getDouble":
+                        return 9.95d;
+                    case "getDate":
+                        return DATE;
+                    case "getString":
+                        return COLUMNS[(Integer) args[0] - 1];
+                    case "getObject":
+                        String column = COLUMNS[(Integer) args[0] - 1];
+                        return "date".equals(column) ? DATE.toLocalDate() : column.startsWith("cost") || column.startsWith("soldFor")
+                            || column.startsWith("tax") ? (Object) 9.95d : column;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,102 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import au.com.normist.capital.domain.cap.salesforce.CrmHistory;
+import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.EnumEntity;
+import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.MultiplePropertyEntity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntityRowMapperTest {
+
+    private final JpaBeanProcessor processor = new JpaBeanProcessor();
+    private final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+
+    @Before
+    public void before() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+    }
+
+    @Test
+    public void should_map_keyless_entity_through_setters_with_typed_getters() throws SQLException {
+        setColumnNames("stockId", "date", "cost", "soldFor", "unknown");
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("0000042", "0000043");
+        when(resultSet.getDate(2)).thenReturn(Date.valueOf("2018-07-01"), (Date) null);
+        when(resultSet.getDouble(3)).thenReturn(12.5d, 0d);
+        when(resultSet.getDouble(4)).thenReturn(20d);
+        when(resultSet.wasNull()).thenReturn(false, false, true, false);
+
+        List<CrmHistory> histories = processor.toBeanList(resultSet, CrmHistory.class);
+
+        assertThat(histories).hasSize(2);
+        assertThat(histories.get(0).getStockId()).isEqualTo("0000042");
+        assertThat(histories.get(0).getDate()).isEqualTo(LocalDate.of(2018, 7, 1));
+        assertThat(histories.get(0).getCost()).isEqualTo(12.5d);
+        assertThat(histories.get(0).getSoldFor()).isEqualTo(20d);
+        assertThat(histories.get(1).getStockId()).isEqualTo("0000043");
+        assertThat(histories.get(1).getDate()).isNull();
+        assertThat(histories.get(1).getCost()).isNull();
+        verify(resultSet, never()).getObject(5);
+    }
+
+    @Test
+    public void should_map_public_fields_and_primitives() throws SQLException {
+        setColumnNames("id", "name", "age", "birthDate");
+        when(resultSet.getLong(1)).thenReturn(7L);
+        when(resultSet.getString(2)).thenReturn("my name");
+        when(resultSet.getInt(3)).thenReturn(0);
+        when(resultSet.wasNull()).thenReturn(false);
+
+        MultiplePropertyEntity entity = processor.toBean(resultSet, MultiplePropertyEntity.class);
+
+        assertThat(entity.id).isEqualTo(7L);
+        assertThat(entity.name).isEqualTo("my name");
+        assertThat(entity.age).isEqualTo(0);
+        assertThat(entity.birthDate).isNull();
+    }
+
+    @Test
+    public void should_map_enum_by_name() throws SQLException {
+        setColumnNames("id", "anEnum");
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getString(2)).thenReturn(EnumEntity.SomeEnum.VALUE_2.name());
+
+        EnumEntity entity = processor.toBean(resultSet, EnumEntity.class);
+
+        assertThat(entity.anEnum).isEqualTo(EnumEntity.SomeEnum.VALUE_2);
+    }
+
+    @Test
+    public void should_compile_once_per_column_layout() throws SQLException {
+        setColumnNames("id", "anEnum");
+
+        EntityRowMapper<EnumEntity> first = processor.rowMapper(resultSet, EnumEntity.class);
+        EntityRowMapper<EnumEntity> second = processor.rowMapper(resultSet, EnumEntity.class);
+        setColumnNames("anEnum", "id");
+        EntityRowMapper<EnumEntity> reordered = processor.rowMapper(resultSet, EnumEntity.class);
+
+        assertThat(second).isSameAs(first);
+        assertThat(reordered).isNotSameAs(first);
+    }
+
+    private void setColumnNames(String... columnNames) throws SQLException {
+        when(metaData.getColumnCount()).thenReturn(columnNames.length);
+        for (int i = 0; i < columnNames.length; i++) {
+            when(metaData.getColumnName(i + 1)).thenReturn(columnNames[i]);
+        }
+    }
+}
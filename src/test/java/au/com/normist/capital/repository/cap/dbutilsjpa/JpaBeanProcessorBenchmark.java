@@ -0,0 +1,128 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares mapping STOCK rows with the entity metadata discovered on every call ("before" the cache) against
+ * mapping them with the cached metadata.
+ *
+ * Not a unit test, run it from the IDE or with
+ * {@code java -cp target/test-classes:<test classpath> au.com.normist.capital.repository.cap.dbutilsjpa.JpaBeanProcessorBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JpaBeanProcessorBenchmark {
+
+    private static final String[] COLUMNS = {"NUMBER", "NAME", "TITLE", "NAME2", "STOCK_IN", "BIN", "ON_ORDER",
+        "ALLOCATED", "A", "C", "TYPE", "TAXRATE", "MEASURE", "LOCATION", "HOLD", "WEIGHT", "DIMINISH", "VOLUME",
+        "SUPPLIER"};
+
+    @Param({"1", "100"})
+    public int rows;
+
+    private final JpaBeanProcessor processor = new JpaBeanProcessor();
+
+    private ResultSet resultSet;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        resultSet = stockResultSet(rows);
+    }
+
+    @Benchmark
+    public List<Stock> uncachedMetadata() throws SQLException {
+        EntityMetadata.clear();
+        return processor.toBeanList(resultSet, Stock.class);
+    }
+
+    @Benchmark
+    public List<Stock> cachedMetadata() throws SQLException {
+        return processor.toBeanList(resultSet, Stock.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JpaBeanProcessorBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * An in-memory, forward-only result set of {@code rows} identical STOCK rows.
+     */
+    static ResultSet stockResultSet(int rows) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            ResultSetMetaData.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return COLUMNS.length;
+                    case "getColumnLabel":
+                    case "getColumnName":
+                        return COLUMNS[(Integer) args[0] - 1];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+        int[] row = {0};
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMetaData":
+                        return metaData;
+                    case "next":
+                        return ++row[0] <= rows;
+                    case "wasNull":
+                        return false;
+                    case "getBoolean":
+                        return true;
+                    case "getString":
+                    case "getObject":
+                        return valueOf(COLUMNS[(Integer) args[0] - 1]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static Object valueOf(String column) {
+        switch (column) {
+            case "A":
+            case "C":
+            case "WEIGHT":
+            case "VOLUME":
+                return BigDecimal.TEN;
+            case "HOLD":
+            case "DIMINISH":
+                return Boolean.FALSE;
+            default:
+                return column;
+        }
+    }
+}
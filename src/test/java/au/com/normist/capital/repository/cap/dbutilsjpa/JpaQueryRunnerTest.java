@@ -1,17 +1,31 @@
 package au.com.normist.capital.repository.cap.dbutilsjpa;
 
+import au.com.normist.capital.repository.cap.AdsConnDriver;
 import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.CustomNamePropertyEntity;
 import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.NonUpdatableEntity;
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.RowProcessor;
+import org.apache.commons.dbutils.handlers.ColumnListHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class JpaQueryRunnerTest {
 
@@ -84,4 +98,79 @@ public class JpaQueryRunnerTest {
 
     verify(queryRunner).insert(Mockito.eq("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?)"), Mockito.any(ResultSetHandler.class), Mockito.eq(entity.getName()), Mockito.eq(entity.getNotUpdated()));
   }
+
+  @Test
+  public void should_batch_inserts_and_updates_per_class_in_one_transaction() throws SQLException {
+    Connection conn = givenConnection();
+    NonUpdatableEntity first = new NonUpdatableEntity();
+    first.setId(1L);
+    NonUpdatableEntity second = new NonUpdatableEntity();
+    second.setId(2L);
+    NonUpdatableEntity third = new NonUpdatableEntity();
+    third.setId(3L);
+    NonUpdatableEntity created = new NonUpdatableEntity();
+    created.setName("new");
+    String updateSql = "UPDATE NonUpdatableEntity SET NonUpdatableEntity.name = ?, NonUpdatableEntity.notInserted = ? WHERE NonUpdatableEntity.id = ?";
+    when(queryRunner.batch(Mockito.eq(conn), Mockito.eq(updateSql), Mockito.any(Object[][].class))).thenReturn(new int[]{1, 1}, new int[]{-2});
+    when(queryRunner.insertBatch(Mockito.eq(conn), Mockito.anyString(), Mockito.any(ColumnListHandler.class), Mockito.any(Object[][].class)))
+      .thenReturn(Collections.singletonList(9L));
+
+    int rows = runner.saveAll(Arrays.asList(first, created, second, third), 2);
+
+    assertThat(rows).isEqualTo(4);
+    assertThat(created.getId()).isEqualTo(9L);
+    InOrder inOrder = Mockito.inOrder(conn, queryRunner);
+    inOrder.verify(conn).setAutoCommit(false);
+    inOrder.verify(queryRunner).insertBatch(Mockito.eq(conn), Mockito.eq("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?)"),
+      Mockito.any(ColumnListHandler.class), Mockito.eq(new Object[][]{{"new", null}}));
+    inOrder.verify(queryRunner).batch(Mockito.eq(conn), Mockito.eq(updateSql), Mockito.eq(new Object[][]{{null, null, 1L}, {null, null, 2L}}));
+    inOrder.verify(queryRunner).batch(Mockito.eq(conn), Mockito.eq(updateSql), Mockito.eq(new Object[][]{{null, null, 3L}}));
+    inOrder.verify(conn).commit();
+    inOrder.verify(conn).setAutoCommit(true);
+    inOrder.verify(conn).close();
+  }
+
+  @Test
+  public void should_roll_back_all_batches_if_one_fails() throws SQLException {
+    Connection conn = givenConnection();
+    NonUpdatableEntity entity = new NonUpdatableEntity();
+    entity.setId(1L);
+    when(queryRunner.batch(Mockito.eq(conn), Mockito.anyString(), Mockito.any(Object[][].class))).thenThrow(new SQLException("boom"));
+
+    assertThatThrownBy(() -> runner.deleteAll(Collections.singletonList(entity))).hasCauseInstanceOf(SQLException.class);
+
+    verify(conn).rollback();
+    verify(conn, Mockito.never()).commit();
+    verify(conn).close();
+  }
+
+  @Test
+  public void should_stream_through_the_configured_row_processor() throws SQLException {
+    AdsConnDriver adsConnDriver = Mockito.mock(AdsConnDriver.class);
+    Connection conn = Mockito.mock(Connection.class);
+    PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+    ResultSet rs = Mockito.mock(ResultSet.class);
+    when(adsConnDriver.getDbConnection()).thenReturn(conn);
+    when(conn.prepareStatement(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(statement);
+    when(statement.executeQuery()).thenReturn(rs);
+    when(rs.next()).thenReturn(true, false);
+    CustomNamePropertyEntity entity = new CustomNamePropertyEntity();
+    RowProcessor rowProcessor = Mockito.mock(RowProcessor.class);
+    when(rowProcessor.toBean(rs, CustomNamePropertyEntity.class)).thenReturn(entity);
+    JpaQueryRunner runner = new JpaQueryRunner.Builder().rowProcessor(rowProcessor).adsConnDriver(adsConnDriver).build(queryRunner);
+
+    try (Stream<CustomNamePropertyEntity> entities = runner.streamAll(CustomNamePropertyEntity.class, 10)) {
+      assertThat(entities).containsExactly(entity);
+    }
+    verify(conn).close();
+  }
+
+  private Connection givenConnection() throws SQLException {
+    DataSource dataSource = Mockito.mock(DataSource.class);
+    Connection conn = Mockito.mock(Connection.class);
+    when(queryRunner.getDataSource()).thenReturn(dataSource);
+    when(dataSource.getConnection()).thenReturn(conn);
+    when(conn.getAutoCommit()).thenReturn(true);
+    return conn;
+  }
 }
@@ -0,0 +1,52 @@
+package au.com.normist.capital.repository.cap.dbutilsjpa;
+
+import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.CustomNamePropertyEntity;
+import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.SimpleEntity;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlWriterCacheTest {
+
+  @Test
+  public void should_write_each_statement_once() {
+    SqlWriter sqlWriter = new SqlWriter();
+
+    String first = sqlWriter.updateById(SimpleEntity.class);
+    String second = sqlWriter.updateById(SimpleEntity.class);
+    sqlWriter.insert(SimpleEntity.class);
+
+    assertThat(second).isSameAs(first);
+    assertThat(sqlWriter.stats().hitCount()).isEqualTo(1);
+    assertThat(sqlWriter.stats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_key_in_lists_by_size() {
+    SqlWriter sqlWriter = new SqlWriter();
+
+    assertThat(sqlWriter.selectByIds(SimpleEntity.class, 2)).isNotEqualTo(sqlWriter.selectByIds(SimpleEntity.class, 3));
+    assertThat(sqlWriter.stats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_cache_ad_hoc_update_columns() {
+    SqlWriter sqlWriter = new SqlWriter();
+
+    sqlWriter.updateById(SimpleEntity.class, "name");
+
+    assertThat(sqlWriter.stats().requestCount()).isZero();
+  }
+
+  @Test
+  public void should_stay_within_maximum_size() {
+    SqlWriter sqlWriter = new SqlWriter(1);
+
+    sqlWriter.deleteById(SimpleEntity.class);
+    sqlWriter.deleteById(CustomNamePropertyEntity.class);
+    sqlWriter.deleteById(SimpleEntity.class);
+
+    assertThat(sqlWriter.stats().evictionCount()).isGreaterThan(0);
+    assertThat(sqlWriter.stats().hitCount()).isZero();
+  }
+}
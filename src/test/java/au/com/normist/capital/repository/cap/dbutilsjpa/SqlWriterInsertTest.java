@@ -24,4 +24,11 @@ public class SqlWriterInsertTest {
 
     assertEquals("INSERT INTO myTableName(customDateColumn) VALUES(?)", Utils.singleLine(sql));
   }
+
+  @Test
+  public void should_include_assigned_id() {
+    String sql = sqlWriter.insertWithId(SimpleEntity.class);
+
+    assertEquals("INSERT INTO SimpleEntity(id, name) VALUES(?, ?)", Utils.singleLine(sql));
+  }
 }
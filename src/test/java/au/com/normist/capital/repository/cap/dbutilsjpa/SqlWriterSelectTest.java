@@ -1,7 +1,9 @@
 package au.com.normist.capital.repository.cap.dbutilsjpa;
 
 
+import au.com.normist.capital.domain.cap.catalog.Stock;
 import au.com.normist.capital.repository.cap.dbutilsjpa.testutils.*;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.AdsDialect;
 import junit.framework.Assert;
 import org.junit.Test;
 
@@ -13,6 +15,24 @@ public class SqlWriterSelectTest {
     assertEquals("SELECT myTableName.* FROM myTableName", sqlWriter.select(CustomNameEntity.class));
   }
 
+  @Test
+  public void should_select_page_ordered_by_id() {
+    assertEquals("SELECT myTableName.* FROM myTableName ORDER BY myTableName.customNameId ASC LIMIT 10 OFFSET 20", sqlWriter.selectPage(CustomNameEntity.class, 20, 10));
+  }
+
+  @Test
+  public void should_select_page_in_dialect() {
+    SqlWriter adsWriter = new SqlWriter(new AdsDialect());
+
+    assertEquals("SELECT TOP 10 START AT 21 myTableName.* FROM myTableName ORDER BY myTableName.customNameId ASC", adsWriter.selectPage(CustomNameEntity.class, 20, 10));
+  }
+
+  @Test
+  public void should_seek_after_the_last_id() {
+    assertEquals("SELECT myTableName.* FROM myTableName ORDER BY myTableName.customNameId ASC LIMIT 10", sqlWriter.selectPageAfter(CustomNameEntity.class, 10, true));
+    assertEquals("SELECT myTableName.* FROM myTableName WHERE myTableName.customNameId > ? ORDER BY myTableName.customNameId ASC LIMIT 10", sqlWriter.selectPageAfter(CustomNameEntity.class, 10, false));
+  }
+
   @Test
   public void should_use_field_annotations() {
     String sql = sqlWriter.selectById(CustomNameEntity.class);
@@ -55,6 +75,45 @@ public class SqlWriterSelectTest {
     assertEquals("SELECT EmptyNameEntity.* FROM EmptyNameEntity WHERE EmptyNameEntity.id = ?", sql);
   }
 
+  @Test
+  public void should_select_where_condition() {
+    String sql = sqlWriter.selectWhere(CustomNameEntity.class, "customNameId = ? OR customNameId IS NULL");
+
+    assertEquals("SELECT myTableName.* FROM myTableName WHERE (customNameId = ? OR customNameId IS NULL)", sql);
+    Assert.assertSame(sql, sqlWriter.selectWhere(CustomNameEntity.class, "customNameId = ? OR customNameId IS NULL"));
+  }
+
+  @Test
+  public void should_count_where_condition() {
+    String sql = sqlWriter.countWhere(CustomNameEntity.class, "customNameId > ?");
+
+    assertEquals("SELECT COUNT(*) FROM myTableName WHERE (customNameId > ?)", sql);
+    Assert.assertSame(sql, sqlWriter.countWhere(CustomNameEntity.class, "customNameId > ?"));
+  }
+
+  @Test
+  public void should_select_page_where_condition() {
+    assertEquals("SELECT myTableName.* FROM myTableName WHERE (customNameId > ?) ORDER BY myTableName.customNameId ASC LIMIT 10 OFFSET 20",
+      sqlWriter.selectPageWhere(CustomNameEntity.class, "customNameId > ?", 20, 10));
+  }
+
+  @Test
+  public void should_select_only_the_projected_columns() {
+    SqlWriter adsWriter = new SqlWriter(new AdsDialect());
+
+    assertEquals("SELECT STOCK.HOLD, STOCK.TITLE, STOCK.[NUMBER] FROM STOCK", adsWriter.select(Stock.class, Projection.of(Stock.class, StockLine.class)));
+    assertEquals("SELECT TOP 10 START AT 21 STOCK.HOLD, STOCK.TITLE, STOCK.[NUMBER] FROM STOCK ORDER BY STOCK.[NUMBER] ASC",
+      adsWriter.selectPage(Stock.class, Projection.of(Stock.class, StockLine.class), 20, 10));
+  }
+
+  public interface StockLine {
+    String getStockId();
+
+    String getShortDescription();
+
+    Boolean getOnHold();
+  }
+
   private void assertEquals(String expected, String actual) {
     Assert.assertEquals(expected, Utils.singleLine(actual));
   }
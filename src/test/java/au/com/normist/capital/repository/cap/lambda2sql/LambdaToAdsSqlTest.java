@@ -1,12 +1,19 @@
 package au.com.normist.capital.repository.cap.lambda2sql;
 
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import au.com.normist.capital.domain.cap.salesforce.CrmHistory;
 import org.danekja.java.util.function.serializable.SerializablePredicate;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 
 public class LambdaToAdsSqlTest {
@@ -32,12 +39,12 @@ public class LambdaToAdsSqlTest {
         assertEqual("age < 1", e -> e.getAge() < 1);
         assertEqual("age >= 1", e -> e.getAge() >= 1);
         assertEqual("age <= 1", e -> e.getAge() <= 1);
-        assertEqual("age != 1", e -> e.getAge() != 1);
+        assertEqual("age <> 1", e -> e.getAge() != 1);
     }
 
     @Test
     public void testLogicalOps() throws Exception {
-        assertEqual("!isActive", e -> ! e.isActive() );
+        assertEqual("NOT isActive", e -> ! e.isActive() );
         assertEqual("age < 100 AND height > 200", e -> e.getAge() < 100 && e.getHeight() > 200 );
         assertEqual("age < 100 OR height > 200", e -> e.getAge() < 100 || e.getHeight() > 200 );
     }
@@ -49,6 +56,81 @@ public class LambdaToAdsSqlTest {
     }
 
 
+    @Test
+    public void testLiteralsAreBound() throws Exception {
+        ParameterizedSql sql = LambdaToAdsSql.convertToParameterizedAdsSql((SerializablePredicate<TestPerson>) e -> e.getAge() > 50 && e.getName() == "bob");
+
+        assertEquals("age > ? AND name = ?", sql.getSql());
+        assertArrayEquals(new Object[]{50, "bob"}, sql.getParameters());
+    }
+
+    @Test
+    public void testCapturedValuesAreBoundPerInstance() throws Exception {
+        ParameterizedSql first = LambdaToAdsSql.convertToParameterizedAdsSql(named("bob"));
+        ParameterizedSql second = LambdaToAdsSql.convertToParameterizedAdsSql(named("O'Brien"));
+
+        assertEquals("name = ?", first.getSql());
+        assertSame(first.getSql(), second.getSql());
+        assertArrayEquals(new Object[]{"bob"}, first.getParameters());
+        assertArrayEquals(new Object[]{"O'Brien"}, second.getParameters());
+    }
+
+    @Test
+    public void testLiteralsAreEscaped() throws Exception {
+        assertEquals("name = 'O''Brien'", LambdaToAdsSql.convertToAdsSql(named("O'Brien")));
+    }
+
+    @Test
+    public void testColumnNames() throws Exception {
+        ParameterizedSql sql = LambdaToAdsSql.convertToParameterizedAdsSql((SerializablePredicate<Stock>) stock -> stock.getLocation() == "SYD" && stock.getOnHold() == false);
+
+        assertEquals("LOCATION = ? AND NOT HOLD", sql.getSql());
+        assertArrayEquals(new Object[]{"SYD"}, sql.getParameters());
+    }
+
+    @Test
+    public void testReservedColumnNamesAreQuoted() throws Exception {
+        assertEquals("[NUMBER] = ? OR ROWID = ?", LambdaToAdsSql.convertToParameterizedAdsSql((SerializablePredicate<Stock>) stock -> stock.getStockId() == "X" || stock.getRowId() == "1").getSql());
+    }
+
+    @Test
+    public void testNullChecks() throws Exception {
+        assertEqual("name IS NULL", e -> e.getName() == null);
+        assertEqual("name IS NOT NULL", e -> e.getName() != null);
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        assertEqual("name = 'bob'", e -> e.getName().equals("bob"));
+        assertEqual("'bob' = name", e -> "bob".equals(e.getName()));
+    }
+
+    @Test
+    public void testDateComparisons() throws Exception {
+        LocalDate from = LocalDate.of(2018, 7, 1);
+        LocalDate to = LocalDate.of(2019, 7, 1);
+        ParameterizedSql sql = LambdaToAdsSql.convertToParameterizedAdsSql((SerializablePredicate<TestPerson>) e -> !e.getBirthday().isBefore(from) && e.getBirthday().isBefore(to));
+
+        assertEquals("NOT birthday < ? AND birthday < ?", sql.getSql());
+        assertArrayEquals(new Object[]{Date.valueOf(from), Date.valueOf(to)}, sql.getParameters());
+        assertEquals("[date] > ?", LambdaToAdsSql.convertToParameterizedAdsSql((SerializablePredicate<CrmHistory>) h -> h.getDate().isAfter(from)).getSql());
+    }
+
+    @Test
+    public void testCompareToComparisons() throws Exception {
+        String from = "B";
+        String to = "M";
+        ParameterizedSql sql = LambdaToAdsSql.convertToParameterizedAdsSql((SerializablePredicate<TestPerson>) e -> e.getName().compareTo(from) >= 0 && e.getName().compareTo(to) < 0);
+
+        assertEquals("name >= ? AND name < ?", sql.getSql());
+        assertArrayEquals(new Object[]{"B", "M"}, sql.getParameters());
+        assertEqual("name > 'B'", e -> e.getName().compareTo("B") > 0);
+    }
+
+    private static SerializablePredicate<TestPerson> named(String name) {
+        return e -> e.getName() == name;
+    }
+
     private void assertEqual(String expectedSql, SerializablePredicate<TestPerson> p) {
         String sql = LambdaToAdsSql.convertToAdsSql(p);
         assertEquals(expectedSql, sql);
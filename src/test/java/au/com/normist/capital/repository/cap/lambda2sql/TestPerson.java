@@ -1,5 +1,7 @@
 package au.com.normist.capital.repository.cap.lambda2sql;
 
+import java.time.LocalDate;
+
 public interface TestPerson {
     String getName();
 
@@ -8,4 +10,6 @@ public interface TestPerson {
     int getHeight();
 
     boolean isActive();
+
+    LocalDate getBirthday();
 }
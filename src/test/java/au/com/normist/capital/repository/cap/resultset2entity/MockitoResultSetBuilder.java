@@ -1,400 +1,255 @@
-//package au.com.normist.capital.repository.cap.resultset2entity;
-//
-//import de.siegmar.fastcsv.reader.CsvParser;
-//import de.siegmar.fastcsv.reader.CsvReader;
-//import de.siegmar.fastcsv.reader.CsvRow;
-//import org.mockito.invocation.InvocationOnMock;
-//import org.mockito.stubbing.Answer;
-//
-//import java.io.File;
-//import java.io.FileReader;
-//import java.io.IOException;
-//import java.io.Reader;
-//import java.sql.JDBCType;
-//import java.sql.ResultSet;
-//import java.sql.ResultSetMetaData;
-//import java.sql.SQLException;
-//import java.util.ArrayList;
-//import java.util.List;
-//
-//import static org.mockito.ArgumentMatchers.any;
-//import static org.mockito.Mockito.mock;
-//import static org.mockito.Mockito.when;
-//
-///**
-// *
-// */
-//public class MockitoResultSetBuilder {
-//
-//    private File file;
-//    private String path;
-//    private Reader reader;
-//    private Character delimiter;
-//
-//    public MockitoResultSetBuilder withFile(File file) {
-//        this.file = file;
-//        return this;
-//    }
-//
-//    public MockitoResultSetBuilder withReader(Reader reader) {
-//        this.reader = reader;
-//        return this;
-//    }
-//
-//    public MockitoResultSetBuilder withPath(String path) {
-//        this.path = path;
-//        return this;
-//    }
-//
-//    public MockitoResultSetBuilder withDelimiter(Character delimiter) {
-//        this.delimiter = delimiter;
-//        return this;
-//    }
-//
-//
-//    public ResultSet build() throws SQLException, IOException {
-//
-//        CsvReader csvReader = new CsvReader();
-//
-//        csvReader.setContainsHeader(true);
-//
-//        if (delimiter != null) {
-//            csvReader.setTextDelimiter(delimiter);
-//        }
-//
-//        Reader fileReader;
-//
-//        if (reader != null) {
-//            fileReader = reader;
-//        } else if (file != null) {
-//            fileReader = new FileReader(file);
-//        } else if (path != null) {
-//            fileReader = new FileReader(path);
-//        } else {
-//            throw new IOException("No file, path or reader was specified.");
-//        }
-//
-//        class ResultSetState {
-//
-//            public ResultSetState() {
-//            }
-//
-//            int currentRow = -1;
-//            int totalRows;
-//
-//            List<List<String>> data = new ArrayList<>();
-//
-//            List<String> columnNames = new ArrayList<>();
-//
-//            public String getCurrentValue(int columnNumber) {
-//                return data.get(currentRow).get(columnNumber);
-//            }
-//
-//            public String getCurrentValue(String columnName) {
-//                return data.get(currentRow).get(columnNames.indexOf(columnName));
-//            }
-//
-//        }
-//
-//
-//        try (CsvParser csvParser = csvReader.parse(fileReader)) {
-//
-//            final ResultSetState state = new ResultSetState();
-//
-//            CsvRow row;
-//
-//            while ((row = csvParser.nextRow()) != null) {
-//
-//                List<String> rowData = new ArrayList<>();
-//
-//                for (int columnIndex = 0; columnIndex < row.getFieldCount(); columnIndex++) {
-//                    String columnValue = row.getField(columnIndex);
-//                    rowData.add(columnValue);
-//
-//                }
-//
-//                state.data.add(rowData);
-//            }
-//
-//
-//            List<String> headers = csvParser.getHeader();
-//
-//            ResultSet resultSet = mock(ResultSet.class);
-//
-//            ResultSetMetaData metaData = mock(ResultSetMetaData.class);
-//            when(resultSet.getMetaData()).thenReturn(metaData);
-//            when(metaData.getColumnCount()).thenReturn(headers.size());
-//
-//            // parse headers
-//
-//            int headerIndex = 1;
-//
-//            List<JDBCType> columnTypes = new ArrayList<>(headers.size());
-//
-//            for (String header : headers) {
-//
-//                String[] split = header.split(" ");
-//                String columnName = split[0];
-//                String columnTypeString = split[1];
-//                JDBCType columnType = JDBCType.valueOf(columnTypeString);
-//
-//                when(metaData.getColumnName(headerIndex)).thenReturn(columnName);
-//                when(metaData.getColumnType(1)).thenReturn(columnType.getVendorTypeNumber());
-//                headerIndex++;
-//                columnTypes.add(columnType);
-//                state.columnNames.add(columnName);
-//            }
-//
-//            int rowIndex = 0;
-//
-//            csvReader = new CsvReader();
-//            csvReader.setContainsHeader(true);
-//
-//            try (CsvParser csvParser2 = csvReader.parse(new FileReader(path))) {
-//                csvParser2.nextRow();    // read off headers
-//                csvParser.getHeader();
-//
-//                while ((row = csvParser2.nextRow()) != null) {
-//
-//                    for (int columnIndex = 0; columnIndex < headers.size(); columnIndex++) {
-//
-//                        String columnName = headers.get(columnIndex);
-//                        String columnValue = row.getField(columnIndex);
-//                        JDBCType columnType = columnTypes.get(columnIndex);
-//
-//                        // https://db.apache.org/ojb/docu/guides/jdbc-types.html#Mapping+of+JDBC+Types+to+Java+Types
-//
-//                        // get string can be called for all column types
-//
-//                        when(resultSet.getString(any(Integer.class))).thenAnswer(invocation -> {
-//
-//                            int columnNumber = invocation.getArgument(0);
-//
-//                            if (columnNumber > 0) {
-//                                return state.getCurrentValue(columnNumber - 1);
-//                            } else {
-//                                return "";
-//                            }
-//                        });
-//
-//                        when(resultSet.getString(any(String.class))).thenAnswer(invocation -> {
-//
-//                            String columnName1 = invocation.getArgument(0);
-//
-//                            if (columnName1 != null) {
-//                                return state.getCurrentValue(columnName1);
-//                            } else {
-//                                return "";
-//                            }
-//                        });
-//
-//                        switch (columnType) {
-//                            case TINYINT:
-//                                when(resultSet.getByte(headers.get(columnIndex))).thenReturn(columnValue.getBytes()[0]);
-//                                when(resultSet.getByte(columnName)).thenReturn(columnValue.getBytes()[0]);
-//                                break;
-//                            case SMALLINT:
-//                                try {
-//                                    short shortValue = Short.valueOf(columnValue);
-//                                    when(resultSet.getShort(headers.get(columnIndex))).thenReturn(shortValue);
-//                                    when(resultSet.getShort(columnName)).thenReturn(shortValue);
-//
-//                                } catch (NumberFormatException e) {
-//                                }
-//                                break;
-//                            case INTEGER:
-//
-//                                when(resultSet.getInt(any(Integer.class))).thenAnswer(invocation -> {
-//
-//                                    int columnNumber = invocation.getArgument(0);
-//
-//                                    if (columnNumber > 0) {
-//                                        return Integer.parseInt(state.getCurrentValue(columnNumber - 1));
-//                                    } else {
-//                                        return 0;
-//                                    }
-//                                });
-//
-//                                when(resultSet.getInt(any(String.class))).thenAnswer(invocation -> {
-//
-//                                    String columnName1 = invocation.getArgument(0);
-//
-//                                    if (columnName1 != null) {
-//                                        return Integer.parseInt(state.getCurrentValue(columnName1));
-//                                    } else {
-//                                        return 0;
-//                                    }
-//                                });
-//
-//
-//                                break;
-//                            case BIGINT:
-//                                try {
-//                                    long longValue = Long.valueOf(columnValue);
-//                                    when(resultSet.getLong(headers.get(columnIndex))).thenReturn(longValue);
-//                                    when(resultSet.getLong(columnName)).thenReturn(longValue);
-//                                } catch (NumberFormatException e) {
-//                                }
-//                                break;
-//
-//                            case REAL:
-//                                try {
-//                                    float floatValue = Float.valueOf(columnValue);
-//                                    when(resultSet.getFloat(headers.get(columnIndex))).thenReturn(floatValue);
-//                                    when(resultSet.getFloat(columnName)).thenReturn(floatValue);
-//                                } catch (NumberFormatException e) {
-//                                }
-//                                break;
-//                            case FLOAT:
-//                            case DOUBLE:
-//                                try {
-//                                    double doubleValue = Double.valueOf(columnValue);
-//                                    when(resultSet.getDouble(headers.get(columnIndex))).thenReturn(doubleValue);
-//                                    when(resultSet.getDouble(columnName)).thenReturn(doubleValue);
-//                                } catch (NumberFormatException e) {
-//                                }
-//                                break;
-//                            case NUMERIC:
-//                            case DECIMAL:
-//                                when(resultSet.getBigDecimal(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getBigDecimal(columnName)).thenReturn(null);
-//                                break;
-//                            case CHAR:
-//                            case NCHAR:
-//                                when(resultSet.getString(headers.get(columnIndex))).thenReturn(columnValue);
-//                                when(resultSet.getString(columnName)).thenReturn(columnValue);
-//                                break;
-//                            case NVARCHAR:
-//                            case LONGNVARCHAR:
-//                            case VARCHAR:
-//                            case LONGVARCHAR:
-//
-//                                // these can all be retrieved via getString
-//
-//                                break;
-//                            case DATE:
-//                                when(resultSet.getDate(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getDate(columnName)).thenReturn(null);
-//                                break;
-//                            case TIME:
-//                                when(resultSet.getTime(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getTime(columnName)).thenReturn(null);
-//                                break;
-//                            case TIMESTAMP:
-//                                when(resultSet.getTimestamp(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getTimestamp(columnName)).thenReturn(null);
-//                                break;
-//                            case BINARY:
-//                            case VARBINARY:
-//                            case LONGVARBINARY:
-//                                when(resultSet.getBinaryStream(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getBinaryStream(columnName)).thenReturn(null);
-//
-//                                when(resultSet.getBytes(headers.get(columnIndex))).thenReturn(columnValue.getBytes());
-//                                when(resultSet.getBytes(columnName)).thenReturn(null);
-//                                break;
-//                            case NULL:
-//                                break;
-//                            case OTHER:
-//                                break;
-//                            case JAVA_OBJECT:
-//                                break;
-//                            case DISTINCT:
-//                                break;
-//                            case STRUCT:
-//                                break;
-//                            case ARRAY:
-//                                when(resultSet.getArray(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getArray(columnName)).thenReturn(null);
-//                                break;
-//                            case BLOB:
-//                                when(resultSet.getBlob(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getBlob(columnName)).thenReturn(null);
-//                                break;
-//                            case CLOB:
-//                                when(resultSet.getClob(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getClob(columnName)).thenReturn(null);
-//                                break;
-//                            case REF:
-//                                when(resultSet.getRef(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getRef(columnName)).thenReturn(null);
-//                                break;
-//                            case DATALINK:
-//                                break;
-//                            case BIT:
-//                            case BOOLEAN:
-//                                when(resultSet.getBoolean(headers.get(columnIndex))).thenReturn(Boolean.valueOf(columnValue));
-//                                when(resultSet.getBoolean(columnName)).thenReturn(Boolean.valueOf(columnValue));
-//                                break;
-//                            case ROWID:
-//                                when(resultSet.getRowId(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getRowId(columnName)).thenReturn(() -> columnValue.getBytes());
-//                                break;
-//                            case NCLOB:
-//                                when(resultSet.getNClob(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getNClob(columnName)).thenReturn(null);
-//                                break;
-//                            case SQLXML:
-//                                when(resultSet.getSQLXML(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getSQLXML(columnName)).thenReturn(null);
-//                                break;
-//                            case REF_CURSOR:
-//                                break;
-//                            case TIME_WITH_TIMEZONE:
-//                                when(resultSet.getTimestamp(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getTimestamp(columnName)).thenReturn(null);
-//                                break;
-//                            case TIMESTAMP_WITH_TIMEZONE:
-//                                when(resultSet.getTimestamp(headers.get(columnIndex))).thenReturn(null);
-//                                when(resultSet.getTimestamp(columnName)).thenReturn(null);
-//                                break;
-//                        }
-//
-//                        // TODO: move these to switch. The only mocked methods below this should be
-//                        // 'gets' that apply to all data types
-//
-////                    when(resultSet.getAsciiStream(headers.get(columnIndex))).thenReturn(null);
-////                    when(resultSet.getAsciiStream(columnName)).thenReturn(null);
-////
-////                    when(resultSet.getCharacterStream(headers.get(columnIndex))).thenReturn(null);
-////                    when(resultSet.getCharacterStream(columnName)).thenReturn(null);
-////
-////                    when(resultSet.getNCharacterStream(headers.get(columnIndex))).thenReturn(null);
-////                    when(resultSet.getNCharacterStream(columnName)).thenReturn(null);
-////
-////                    when(resultSet.getNString(headers.get(columnIndex))).thenReturn(columnValue);
-////                    when(resultSet.getNString(columnName)).thenReturn(columnValue);
-////
-////                    when(resultSet.getObject(headers.get(columnIndex))).thenReturn(columnValue);
-////                    when(resultSet.getObject(columnName)).thenReturn(columnValue);
-////
-////                    when(resultSet.getURL(headers.get(columnIndex))).thenReturn(null);
-////                    when(resultSet.getURL(columnName)).thenReturn(null);
-//                    }
-//
-//                    // state.data.add(rowData);
-//                    rowIndex++;
-//                }
-//            }
-//            state.totalRows = rowIndex;
-//
-//            when(resultSet.next()).thenAnswer(new Answer<Object>() {
-//
-//
-//                @Override
-//                public Object answer(InvocationOnMock invocation) throws Throwable {
-//                    boolean hasNext = state.currentRow < state.totalRows;
-//                    state.currentRow++;
-//                    return hasNext;
-//                }
-//
-//            });
-//
-//            return resultSet;
-//
-//        }
-//
-//
-//    }
-//
-//}
+package au.com.normist.capital.repository.cap.resultset2entity;
+
+import de.siegmar.fastcsv.reader.CsvParser;
+import de.siegmar.fastcsv.reader.CsvReader;
+import de.siegmar.fastcsv.reader.CsvRow;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.JDBCType;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Builds a forward-only {@link ResultSet} mock from a CSV file whose header holds the column names and JDBC types,
+ * e.g. {@code id INTEGER,name VARCHAR}. Empty fields are SQL NULL.
+ *
+ * The mocks are stub-only, so they don't record invocations and can serve large result sets.
+ */
+public class MockitoResultSetBuilder {
+
+    private File file;
+    private String path;
+    private Reader reader;
+    private Character delimiter;
+
+    public MockitoResultSetBuilder withFile(File file) {
+        this.file = file;
+        return this;
+    }
+
+    public MockitoResultSetBuilder withReader(Reader reader) {
+        this.reader = reader;
+        return this;
+    }
+
+    public MockitoResultSetBuilder withPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    public MockitoResultSetBuilder withDelimiter(Character delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    public ResultSet build() throws SQLException, IOException {
+
+        CsvReader csvReader = new CsvReader();
+
+        csvReader.setContainsHeader(true);
+
+        if (delimiter != null) {
+            csvReader.setFieldSeparator(delimiter);
+        }
+
+        Reader fileReader;
+
+        if (reader != null) {
+            fileReader = reader;
+        } else if (file != null) {
+            fileReader = new FileReader(file);
+        } else if (path != null) {
+            fileReader = new FileReader(path);
+        } else {
+            throw new IOException("No file, path or reader was specified.");
+        }
+
+        ResultSetState state = new ResultSetState();
+
+        try (CsvParser csvParser = csvReader.parse(fileReader)) {
+
+            CsvRow row;
+
+            while ((row = csvParser.nextRow()) != null) {
+                String[] rowData = new String[row.getFieldCount()];
+                for (int columnIndex = 0; columnIndex < rowData.length; columnIndex++) {
+                    String columnValue = row.getField(columnIndex).trim();
+                    rowData[columnIndex] = columnValue.isEmpty() ? null : columnValue;
+                }
+                state.data.add(rowData);
+            }
+
+            // parse headers
+            for (String header : csvParser.getHeader()) {
+                String[] split = header.trim().split("\\s+");
+                state.columnNames.add(split[0]);
+                state.columnTypes.add(split.length > 1 ? JDBCType.valueOf(split[1]) : JDBCType.VARCHAR);
+            }
+        }
+
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class, withSettings().stubOnly().defaultAnswer(state::answerMetaData));
+        state.metaData = metaData;
+
+        return mock(ResultSet.class, withSettings().stubOnly().defaultAnswer(state));
+    }
+
+    private static class ResultSetState implements Answer<Object> {
+
+        int currentRow = -1;
+
+        boolean wasNull;
+
+        ResultSetMetaData metaData;
+
+        final List<String[]> data = new ArrayList<>();
+
+        final List<String> columnNames = new ArrayList<>();
+
+        final List<JDBCType> columnTypes = new ArrayList<>();
+
+        Object answerMetaData(InvocationOnMock invocation) {
+            switch (invocation.getMethod().getName()) {
+                case "getColumnCount":
+                    return columnNames.size();
+                case "getColumnName":
+                case "getColumnLabel":
+                    return columnNames.get((Integer) invocation.getArgument(0) - 1);
+                case "getColumnType":
+                    return columnTypes.get((Integer) invocation.getArgument(0) - 1).getVendorTypeNumber();
+                case "getColumnTypeName":
+                    return columnTypes.get((Integer) invocation.getArgument(0) - 1).getName();
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public Object answer(InvocationOnMock invocation) throws SQLException {
+            String method = invocation.getMethod().getName();
+            switch (method) {
+                case "getMetaData":
+                    return metaData;
+                case "next":
+                    return ++currentRow < data.size();
+                case "beforeFirst":
+                    currentRow = -1;
+                    return null;
+                case "wasNull":
+                    return wasNull;
+                case "getRow":
+                    return currentRow + 1;
+                case "findColumn":
+                    return findColumn(invocation.getArgument(0));
+                default:
+                    break;
+            }
+
+            if (!method.startsWith("get") || invocation.getArguments().length == 0) {
+                return null;
+            }
+
+            Object column = invocation.getArgument(0);
+            int columnIndex = column instanceof String ? findColumn((String) column) : (Integer) column;
+            String value = data.get(currentRow)[columnIndex - 1];
+            wasNull = value == null;
+
+            switch (method) {
+                case "getString":
+                    return value;
+                case "getObject":
+                    return value == null ? null : toObject(value, columnTypes.get(columnIndex - 1));
+                case "getInt":
+                    return value == null ? 0 : Integer.parseInt(value);
+                case "getLong":
+                    return value == null ? 0L : Long.parseLong(value);
+                case "getShort":
+                    return value == null ? (short) 0 : Short.parseShort(value);
+                case "getByte":
+                    return value == null ? (byte) 0 : Byte.parseByte(value);
+                case "getDouble":
+                    return value == null ? 0d : Double.parseDouble(value);
+                case "getFloat":
+                    return value == null ? 0f : Float.parseFloat(value);
+                case "getBoolean":
+                    return value != null && toBoolean(value);
+                case "getBigDecimal":
+                    return value == null ? null : new BigDecimal(value);
+                case "getDate":
+                    return value == null ? null : Date.valueOf(value);
+                case "getTime":
+                    return value == null ? null : Time.valueOf(value);
+                case "getTimestamp":
+                    return value == null ? null : Timestamp.valueOf(value);
+                case "getBytes":
+                    return value == null ? null : value.getBytes();
+                default:
+                    throw new SQLException(method + " is not supported by the mocked result set");
+            }
+        }
+
+        private int findColumn(String columnName) throws SQLException {
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+                    return i + 1;
+                }
+            }
+            throw new SQLException("Unknown column " + columnName);
+        }
+
+        // https://db.apache.org/ojb/docu/guides/jdbc-types.html#Mapping+of+JDBC+Types+to+Java+Types
+        private static Object toObject(String value, JDBCType columnType) {
+            switch (columnType) {
+                case TINYINT:
+                    return Byte.valueOf(value);
+                case SMALLINT:
+                    return Short.valueOf(value);
+                case INTEGER:
+                    return Integer.valueOf(value);
+                case BIGINT:
+                    return Long.valueOf(value);
+                case REAL:
+                    return Float.valueOf(value);
+                case FLOAT:
+                case DOUBLE:
+                    return Double.valueOf(value);
+                case NUMERIC:
+                case DECIMAL:
+                    return new BigDecimal(value);
+                case BIT:
+                case BOOLEAN:
+                    return toBoolean(value);
+                case DATE:
+                    return Date.valueOf(value);
+                case TIME:
+                    return Time.valueOf(value);
+                case TIMESTAMP:
+                    return Timestamp.valueOf(value);
+                case BINARY:
+                case VARBINARY:
+                case LONGVARBINARY:
+                    return value.getBytes();
+                default:
+                    return value;
+            }
+        }
+
+        private static boolean toBoolean(String value) {
+            return "1".equals(value) || "T".equalsIgnoreCase(value) || Boolean.parseBoolean(value);
+        }
+    }
+}
@@ -3,24 +3,54 @@ package au.com.normist.capital.repository.cap.resultset2entity;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 public class MockitoResultSetTest {
 
     @Test
     public void testMockResultSetBuilder() throws IOException, SQLException {
 
-//        MockitoResultSetBuilder builder = new MockitoResultSetBuilder();
-//
-//        ResultSet resultSet = builder.withPath("src/test/resources/data/jdbc-data.csv").build();
-//
-//        while(resultSet.next()) {
-//            System.out.println("RESULT: " + resultSet.getInt("id"));
-//            System.out.println("RESULT: " + resultSet.getString("id"));
-//        }
+        MockitoResultSetBuilder builder = new MockitoResultSetBuilder();
+
+        ResultSet resultSet = builder.withPath("src/test/resources/data/jdbc-data.csv").build();
+
+        assertThat(resultSet.getMetaData().getColumnCount()).isEqualTo(3);
+        assertThat(resultSet.getMetaData().getColumnName(2)).isEqualTo("name");
 
-        // TODO: assert results are correct
+        int rows = 0;
+        while (resultSet.next()) {
+            rows++;
+            assertThat(resultSet.getInt("id")).isEqualTo(rows);
+            assertThat(resultSet.getString("id")).isEqualTo(String.valueOf(rows));
+            assertThat(resultSet.getObject(1)).isEqualTo(rows);
+            assertThat(resultSet.getString(2)).isEqualTo("test" + rows);
+            resultSet.getString("ROWID");
+            assertThat(resultSet.wasNull()).isEqualTo(rows == 6);
+        }
 
+        assertThat(rows).isEqualTo(6);
+    }
+
+    @Test
+    public void testNullsAndRewind() throws IOException, SQLException {
+        ResultSet resultSet = new MockitoResultSetBuilder()
+            .withReader(new StringReader("A NUMERIC;B DOUBLE\n12.50;\n"))
+            .withDelimiter(';')
+            .build();
+
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getBigDecimal(1)).isEqualByComparingTo(new BigDecimal("12.5"));
+        assertThat(resultSet.getDouble(2)).isEqualTo(0d);
+        assertThat(resultSet.wasNull()).isTrue();
+        assertThat(resultSet.next()).isFalse();
+
+        resultSet.beforeFirst();
+        assertThat(resultSet.next()).isTrue();
     }
 
 }
@@ -0,0 +1,106 @@
+package au.com.normist.capital.repository.cap.resultset2entity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.persistence.Column;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a 100k row result set built with {@link MockitoResultSetBuilder}, comparing the compiled
+ * {@link ResultSetMapper} with the previous per-cell annotation scan. The mocked driver itself is slow, so the
+ * absolute times mostly measure Mockito; compare the two scores.
+ *
+ * Not a unit test, run it from the IDE or through {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultSetMapperBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private final ResultSetMapper<TestEntityForResultSetMap> resultSetMapper = new ResultSetMapper<>();
+
+    private ResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void buildResultSet() throws IOException, SQLException {
+        StringBuilder csv = new StringBuilder("id INTEGER,name VARCHAR,ROWID VARCHAR,comment VARCHAR\n");
+        for (int i = 1; i <= ROWS; i++) {
+            csv.append(i).append(",name").append(i).append(",AAAA").append(i).append(",unmapped\n");
+        }
+        resultSet = new MockitoResultSetBuilder().withReader(new StringReader(csv.toString())).build();
+    }
+
+    @Setup(Level.Invocation)
+    public void rewind() throws SQLException {
+        resultSet.beforeFirst();
+    }
+
+    @Benchmark
+    public List<TestEntityForResultSetMap> compiledPlan() {
+        return resultSetMapper.mapResultSetToObject(resultSet, TestEntityForResultSetMap.class);
+    }
+
+    @Benchmark
+    public List<TestEntityForResultSetMap> annotationScan() throws Exception {
+        return annotationScan(resultSet, TestEntityForResultSetMap.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResultSetMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The mapping loop ResultSetMapper used before the compiled plan, kept as the baseline.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> annotationScan(ResultSet rs, Class<T> outputClass) throws Exception {
+        List<T> outputList = new ArrayList<>();
+        ResultSetMetaData rsmd = rs.getMetaData();
+        Field[] fields = outputClass.getDeclaredFields();
+        while (rs.next()) {
+            T bean = outputClass.newInstance();
+            for (int column = 0; column < rsmd.getColumnCount(); column++) {
+                String columnName = rsmd.getColumnName(column + 1);
+                Object columnValue = rs.getObject(column + 1);
+                for (Field field : fields) {
+                    if (field.isAnnotationPresent(Column.class)) {
+                        Column annotation = field.getAnnotation(Column.class);
+                        if (annotation.name().equalsIgnoreCase(columnName) && columnValue != null) {
+                            field.setAccessible(true);
+                            field.set(bean, columnValue);
+                            break;
+                        }
+                    }
+                }
+            }
+            outputList.add(bean);
+        }
+        return outputList;
+    }
+}
@@ -1,19 +1,17 @@
 package au.com.normist.capital.repository.cap.resultset2entity;
 
-import org.junit.After;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.sql.ResultSet;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-//TODO test with d2
 public class ResultSetMapperTest {
 
-//    private MockitoResultSetBuilder resultSetBuilder;
+    private MockitoResultSetBuilder resultSetBuilder;
     private ResultSet resultSet;
 
     ResultSetMapper<TestEntityForResultSetMap> resultSetMapper;
@@ -21,27 +19,54 @@ public class ResultSetMapperTest {
 
     @Before
     public void setUp() throws Exception {
-//        resultSetBuilder = new MockitoResultSetBuilder();
-//        resultSet = resultSetBuilder.withPath("src/test/resources/data/jdbc-data.csv").build();
+        resultSetBuilder = new MockitoResultSetBuilder();
+        resultSet = resultSetBuilder.withPath("src/test/resources/data/jdbc-data.csv").build();
 
         resultSetMapper = new ResultSetMapper<>();
     }
 
-    @After
-    public void tearDown() throws Exception {
-    }
-
-    @Ignore
     @Test
     public void mapResultSetToObject() {
         List<TestEntityForResultSetMap> actualObjectList = resultSetMapper.mapResultSetToObject(resultSet, TestEntityForResultSetMap.class);
 
         assertThat(actualObjectList).isNotNull();
         assertThat(actualObjectList.size()).isEqualTo(6);
+        assertThat(actualObjectList.get(0).getId()).isEqualTo(1);
+        assertThat(actualObjectList.get(0).getName()).isEqualTo("test1");
+    }
+
+    @Test
+    public void mapInheritedRowId() {
+        List<TestEntityForResultSetMap> actualObjectList = resultSetMapper.mapResultSetToObject(resultSet, TestEntityForResultSetMap.class);
+
+        assertThat(actualObjectList.get(0).getRowId()).isEqualTo("AAAAAAAAAAAB");
+        assertThat(actualObjectList.get(5).getRowId()).isNull();
+    }
+
+    @Test
+    public void mapColumnsInAnyOrderAndIgnoreUnknownColumns() throws Exception {
+        ResultSet reordered = new MockitoResultSetBuilder()
+            .withReader(new StringReader("NAME VARCHAR,OTHER VARCHAR,ID INTEGER\nfirst,x,10\n"))
+            .build();
 
+        List<TestEntityForResultSetMap> actualObjectList = resultSetMapper.mapResultSetToObject(reordered, TestEntityForResultSetMap.class);
 
+        assertThat(actualObjectList).hasSize(1);
+        assertThat(actualObjectList.get(0).getId()).isEqualTo(10);
+        assertThat(actualObjectList.get(0).getName()).isEqualTo("first");
     }
 
+    @Test
+    public void mapEmptyResultSet() throws Exception {
+        ResultSet empty = new MockitoResultSetBuilder().withReader(new StringReader("id INTEGER,name VARCHAR\n")).build();
 
+        assertThat(resultSetMapper.mapResultSetToObject(empty, TestEntityForResultSetMap.class)).isEmpty();
+        assertThat(resultSetMapper.mapResultSetToObject(null, TestEntityForResultSetMap.class)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectClassesThatAreNotEntities() {
+        resultSetMapper.mapResultSetToObject(resultSet, String.class);
+    }
 
 }
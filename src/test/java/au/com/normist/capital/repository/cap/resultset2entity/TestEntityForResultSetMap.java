@@ -1,11 +1,12 @@
 package au.com.normist.capital.repository.cap.resultset2entity;
 
 import au.com.normist.capital.core.annotation.cap.PersistEntity;
+import au.com.normist.capital.domain.cap.CapBaseModel;
 
 import javax.persistence.Column;
 
 @PersistEntity
-public class TestEntityForResultSetMap {
+public class TestEntityForResultSetMap extends CapBaseModel {
     @Column(name = "id")
     private Integer id;
 
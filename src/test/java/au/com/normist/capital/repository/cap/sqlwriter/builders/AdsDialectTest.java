@@ -0,0 +1,54 @@
+package au.com.normist.capital.repository.cap.sqlwriter.builders;
+
+import au.com.normist.capital.repository.cap.sqlwriter.Queries;
+import au.com.normist.capital.repository.cap.sqlwriter.dialects.AdsDialect;
+import au.com.normist.capital.repository.cap.sqlwriter.testutils.ReservedNames;
+import au.com.normist.capital.repository.cap.sqlwriter.testutils.Simple;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdsDialectTest {
+
+  private final Queries.Query query = Queries.query(new AdsDialect());
+
+  @Test
+  public void should_page_with_top_and_start_at() {
+    String sql = query.select().from(Simple.class).asc("id").limit(10).offset(20).sql();
+    assertEquals("SELECT TOP 10 START AT 21 Simple.* FROM Simple ORDER BY Simple.id ASC", sql);
+  }
+
+  @Test
+  public void should_seek_after_the_last_key() {
+    String sql = query.select().from(ReservedNames.class).after("NUMBER").limit(50).sql();
+    assertEquals("SELECT TOP 50 STOCK.*, STOCK.ROWID FROM STOCK WHERE STOCK.[NUMBER] > ? ORDER BY STOCK.[NUMBER] ASC", sql);
+  }
+
+  @Test
+  public void should_limit_with_top() {
+    assertEquals("SELECT TOP 5 Simple.* FROM Simple", query.select().from(Simple.class).limit(5).sql());
+  }
+
+  @Test
+  public void should_skip_rows_without_limit() {
+    assertEquals("SELECT TOP 2147483647 START AT 4 Simple.* FROM Simple", query.select().from(Simple.class).offset(3).sql());
+  }
+
+  @Test
+  public void should_quote_reserved_words() {
+    String sql = query.select().from(ReservedNames.class).columns("KEY", "TITLE").where().eq("NUMBER").sql();
+    assertEquals("SELECT STOCK.[KEY], STOCK.TITLE FROM STOCK WHERE STOCK.[NUMBER] = ?", sql);
+  }
+
+  @Test
+  public void should_quote_reserved_words_in_updates_and_inserts() {
+    assertEquals("UPDATE STOCK SET STOCK.[KEY] = ? WHERE STOCK.[NUMBER] = ?", query.update(ReservedNames.class).set("KEY").where().eq("NUMBER").sql());
+    assertEquals("INSERT INTO STOCK([NUMBER], [KEY]) VALUES(?, ?)", query.insert(ReservedNames.class).columns("NUMBER", "KEY").sql());
+  }
+
+  @Test
+  public void should_select_rowid_pseudo_column_of_entities_mapping_it() {
+    assertEquals("SELECT STOCK.*, STOCK.ROWID FROM STOCK WHERE STOCK.[NUMBER] = ?", query.select().from(ReservedNames.class).where().eq("NUMBER").sql());
+    assertEquals("SELECT STOCK.ROWID FROM STOCK", query.select().from(ReservedNames.class).columns("ROWID").sql());
+  }
+}
@@ -0,0 +1,22 @@
+package au.com.normist.capital.repository.cap.sqlwriter.testutils;
+
+import au.com.normist.capital.domain.cap.CapBaseModel;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Table(name = "STOCK")
+public class ReservedNames extends CapBaseModel {
+
+  @Id
+  @Column(name = "NUMBER")
+  private String number;
+
+  @Column(name = "KEY")
+  private String key;
+
+  @Column(name = "TITLE")
+  private String title;
+
+}
@@ -0,0 +1,175 @@
+package au.com.normist.capital.service;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.cap.catalog.Staux000;
+import au.com.normist.capital.domain.cap.catalog.Stock;
+import au.com.normist.capital.repository.cap.catalog.IStaux000Repository;
+import au.com.normist.capital.repository.cap.catalog.IStockRepository;
+import au.com.normist.capital.repository.cap.changes.TableChangedEvent;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class StockCatalogIndexTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final IStockRepository stockRepository = mock(IStockRepository.class);
+    private final IStaux000Repository staux000Repository = mock(IStaux000Repository.class);
+
+    private StockCatalogIndex index;
+
+    @Before
+    public void before() {
+        applicationProperties.getCapital().getCatalogIndex().setEnabled(true);
+        when(stockRepository.streamAll(StockCatalogIndex.StockRow.class)).thenAnswer(invocation -> Stream.of(
+            stockRow("0000000001", "BOLT      ", "01", "12.50", "7"),
+            stockRow("0000000002", "BOLT      ", "02", "12.50", "0"),
+            stockRow("0000000003", "NUT       ", "01", "1.20", "100")));
+        when(staux000Repository.streamAll(StockCatalogIndex.SpecialRow.class)).thenAnswer(invocation -> Stream.of(
+            specialRow("BOLT      01", "9.99", new LocalDate(2026, 10, 1), new LocalDate(2026, 10, 31)),
+            specialRow("NUT       01", null, null, null)));
+        index = new StockCatalogIndex(stockRepository, staux000Repository, applicationProperties);
+    }
+
+    @After
+    public void after() {
+        index.destroy();
+    }
+
+    @Test
+    public void lookupsAnswerNothingUntilLoaded() {
+        assertThat(index.isLoaded()).isFalse();
+        assertThat(index.getByStockId("0000000001")).isEmpty();
+        assertThat(index.getByProductCode("BOLT")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    public void reloadIndexesTheCatalogueWithItsSpecials() {
+        index.reload();
+
+        assertThat(index.isLoaded()).isTrue();
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getEstimatedBytes()).isPositive();
+        assertThat(index.getByStockId("0000000001 ").get().getProductCode()).isEqualTo("BOLT");
+        assertThat(index.getByProductCode("BOLT")).extracting(StockCatalogIndex.Entry::getStockId)
+            .containsExactlyInAnyOrder("0000000001", "0000000002");
+        assertThat(index.getByLocation("01")).extracting(StockCatalogIndex.Entry::getStockId)
+            .containsExactlyInAnyOrder("0000000001", "0000000003");
+
+        StockCatalogIndex.Entry bolt = index.get("BOLT", "01").get();
+        assertThat(bolt.getSpecialPrice()).isEqualByComparingTo("9.99");
+        assertThat(bolt.getPrice(new LocalDate(2026, 10, 18))).isEqualByComparingTo("9.99");
+        assertThat(bolt.getPrice(new LocalDate(2026, 11, 1))).isEqualByComparingTo("12.50");
+        assertThat(index.get("BOLT", "02").get().getSpecialPrice()).isNull();
+        assertThat(index.get("NUT", "01").get().getSpecialPrice()).isNull();
+    }
+
+    @Test
+    public void catalogueOverBudgetIsNotIndexed() {
+        index.reload();
+        applicationProperties.getCapital().getCatalogIndex().setMaxSizeMb(0);
+
+        index.reload();
+
+        assertThat(index.isLoaded()).isFalse();
+        assertThat(index.getByStockId("0000000001")).isEmpty();
+    }
+
+    @Test
+    public void failedReloadKeepsTheIndex() {
+        index.reload();
+        when(stockRepository.streamAll(StockCatalogIndex.StockRow.class)).thenThrow(new RuntimeException("server down"));
+
+        index.reload();
+
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void refreshUpdatesTheGivenProducts() {
+        index.reload();
+        Stock moved = stock("0000000001", "BOLT      ", "03", "13.00", "5");
+        when(stockRepository.getByIds(Arrays.asList("0000000001", "0000000003"))).thenReturn(Collections.singletonList(moved));
+        when(staux000Repository.getByIds(Collections.singletonList("BOLT      03"))).thenReturn(Collections.emptyList());
+
+        index.refresh(Arrays.asList("0000000001", "0000000003"));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getByStockId("0000000003")).isEmpty();
+        assertThat(index.getByLocation("01")).isEmpty();
+        StockCatalogIndex.Entry bolt = index.get("BOLT", "03").get();
+        assertThat(bolt.getStockIn()).isEqualTo("5");
+        assertThat(bolt.getSpecialPrice()).isNull();
+        assertThat(index.getByProductCode("BOLT")).hasSize(2);
+    }
+
+    @Test
+    public void changedSpecialRefreshesItsProducts() {
+        index.reload();
+        Stock bolt = stock("0000000001", "BOLT      ", "01", "12.50", "7");
+        when(stockRepository.getByIds(Collections.singletonList("0000000001"))).thenReturn(Collections.singletonList(bolt));
+
+        index.onTableChanged(new TableChangedEvent(Staux000.class, Collections.emptyList(),
+            Collections.singletonList("BOLT      01"), Collections.emptyList()));
+
+        verify(staux000Repository).evict(Collections.singletonList("BOLT      01"));
+        assertThat(index.get("BOLT", "01").get().getSpecialPrice()).isNull();
+        assertThat(index.get("BOLT", "02")).isPresent();
+    }
+
+    @Test
+    public void disabledIndexIsNotLoaded() {
+        applicationProperties.getCapital().getCatalogIndex().setEnabled(false);
+
+        index.loadOnStartup();
+        index.scheduledReload();
+        index.refresh(Collections.singletonList("0000000001"));
+
+        verifyZeroInteractions(stockRepository, staux000Repository);
+        assertThat(index.isLoaded()).isFalse();
+    }
+
+    private static StockCatalogIndex.StockRow stockRow(String stockId, String productCode, String location, String sellPrice,
+                                                       String stockIn) {
+        StockCatalogIndex.StockRow row = mock(StockCatalogIndex.StockRow.class);
+        when(row.getStockId()).thenReturn(stockId);
+        when(row.getProductCode()).thenReturn(productCode);
+        when(row.getLocation()).thenReturn(location);
+        when(row.getSellPrice()).thenReturn(new BigDecimal(sellPrice));
+        when(row.getStockIn()).thenReturn(stockIn);
+        when(row.getOnHold()).thenReturn(false);
+        return row;
+    }
+
+    private static Stock stock(String stockId, String productCode, String location, String sellPrice, String stockIn) {
+        Stock stock = new Stock();
+        stock.setStockId(stockId);
+        stock.setProductCode(productCode);
+        stock.setLocation(location);
+        stock.setSellPrice(new BigDecimal(sellPrice));
+        stock.setStockIn(stockIn);
+        return stock;
+    }
+
+    private static StockCatalogIndex.SpecialRow specialRow(String key, String price, LocalDate start, LocalDate end) {
+        StockCatalogIndex.SpecialRow row = mock(StockCatalogIndex.SpecialRow.class);
+        when(row.getKey()).thenReturn(key);
+        when(row.getCatalogue1SellPrice()).thenReturn(price == null ? null : new BigDecimal(price));
+        when(row.getCatalogue1StartDate()).thenReturn(start);
+        when(row.getCatalogue1EndDate()).thenReturn(end);
+        return row;
+    }
+}
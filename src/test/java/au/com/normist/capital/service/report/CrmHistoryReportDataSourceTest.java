@@ -0,0 +1,57 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.repository.cap.salesforce.ICrmHistoryRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CrmHistoryReportDataSourceTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final ICrmHistoryRepository crmHistoryRepository = mock(ICrmHistoryRepository.class);
+
+    private CrmHistoryReportDataSource dataSource;
+
+    @Before
+    public void before() {
+        applicationProperties.getReport().setParallelism(
+            Collections.singletonMap(CrmHistoryReportDataSource.REPORT_NAME, 4));
+        when(crmHistoryRepository.streamWhere(anyList(), anyInt(), anyBoolean())).thenReturn(Stream.empty());
+        dataSource = new CrmHistoryReportDataSource(crmHistoryRepository, applicationProperties);
+    }
+
+    @Test
+    public void rowsComeAsTheyAreRead() {
+        assertThat(dataSource.rows(generation())).isEmpty();
+
+        verify(crmHistoryRepository).streamWhere(argThat(partitions -> partitions.size() == 4), eq(4), eq(false));
+    }
+
+    @Test
+    public void orderedRowsComeInDateOrder() {
+        assertThat(dataSource.orderedRows(generation())).isEmpty();
+
+        verify(crmHistoryRepository).streamWhere(argThat(partitions -> partitions.size() == 4), eq(4), eq(true));
+    }
+
+    private static ReportGeneration generation() {
+        ReportGeneration generation = new ReportGeneration();
+        generation.setCreationDate(Instant.parse("2026-03-01T00:00:00Z"));
+        return generation;
+    }
+}
@@ -0,0 +1,159 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.Report;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CsvReportGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ReportGenerationRepository repository = mock(ReportGenerationRepository.class);
+    private final ReportDataSource dataSource = mock(ReportDataSource.class);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final CsvReportGenerator generator = new CsvReportGenerator();
+
+    @Before
+    public void before() {
+        when(dataSource.getReportName()).thenReturn("Sales");
+        when(dataSource.getColumns()).thenReturn(Arrays.asList("Date", "Name", "Cost"));
+        generator.setDataSources(Collections.singletonList(dataSource));
+    }
+
+    @Test
+    public void writesTheHeaderAndEveryRow() throws Exception {
+        when(dataSource.rows(any())).thenReturn(Stream.of(
+            new Object[] {LocalDate.of(2026, 3, 1), "Smith, John", 0.0001},
+            new Object[] {null, "the \"best\"", new BigDecimal("1E+3")},
+            new Object[] {LocalDate.of(2026, 3, 2), "two\nlines", 12.5}
+        ).onClose(() -> closed.set(true)));
+        Path output = folder.getRoot().toPath().resolve("1.csv");
+        ReportProgress progress = new ReportProgress(repository, 1L, 0);
+
+        generator.generate(generation("Sales"), output, progress);
+
+        assertThat(new String(Files.readAllBytes(output), StandardCharsets.UTF_8)).isEqualTo(
+            "Date,Name,Cost\r\n"
+                + "2026-03-01,\"Smith, John\",0.0001\r\n"
+                + ",\"the \"\"best\"\"\",1000\r\n"
+                + "2026-03-02,\"two\nlines\",12.5\r\n");
+        assertThat(progress.getRows()).isEqualTo(3);
+        assertThat(closed).isTrue();
+        verify(repository).updateProgress(1L, 3L);
+    }
+
+    @Test
+    public void progressIsSavedAtMostEveryInterval() throws Exception {
+        when(dataSource.rows(any())).thenReturn(Stream.of(new Object[] {"a"}, new Object[] {"b"}));
+        ReportProgress progress = new ReportProgress(repository, 1L, 60000);
+
+        generator.generate(generation("Sales"), folder.getRoot().toPath().resolve("1.csv"), progress);
+
+        assertThat(progress.getRows()).isEqualTo(2);
+        verify(repository, never()).updateProgress(any(), anyLong());
+    }
+
+    @Test
+    public void checkpointsAtTheEndOfEachSegment() throws Exception {
+        when(dataSource.getSegments(any())).thenReturn(new long[] {2, 0, 1});
+        when(dataSource.rows(any(), eq(0))).thenReturn(Stream.of(new Object[] {"a"}, new Object[] {"b"}, new Object[] {"c"}));
+        when(repository.checkpoint(eq(1L), eq("node"), anyLong(), anyLong())).thenReturn(1);
+        ReportProgress progress = new ReportProgress(repository, 1L, "node", 60000, null);
+
+        generator.generate(generation("Sales"), folder.getRoot().toPath().resolve("1.csv"), progress);
+
+        assertThat(progress.getRows()).isEqualTo(3);
+        verify(repository).checkpoint(1L, "node", 2L, (long) "Date,Name,Cost\r\na\r\nb\r\n".length());
+        verify(repository, times(1)).checkpoint(any(), any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void goesOnFromTheCheckpointOfAnEarlierRun() throws Exception {
+        String checkpointed = "Date,Name,Cost\r\na\r\nb\r\n";
+        Path output = folder.getRoot().toPath().resolve("1.csv");
+        Files.write(output, (checkpointed + "c\r\nd").getBytes(StandardCharsets.UTF_8));
+        when(dataSource.getSegments(any())).thenReturn(new long[] {2, 2});
+        when(dataSource.rows(any(), eq(1))).thenReturn(Stream.of(new Object[] {"c"}, new Object[] {"d"}));
+        ReportGeneration generation = generation("Sales").checkpointRows(2L).checkpointOffset((long) checkpointed.length());
+        ReportProgress progress = new ReportProgress(repository, 1L, "node", 0, null);
+
+        generator.generate(generation, output, progress);
+
+        assertThat(new String(Files.readAllBytes(output), StandardCharsets.UTF_8)).isEqualTo(checkpointed + "c\r\nd\r\n");
+        assertThat(progress.getRows()).isEqualTo(4);
+        verify(dataSource, never()).rows(any());
+        verify(dataSource, never()).rows(any(), eq(0));
+    }
+
+    @Test
+    public void startsOverWhenTheRowsBeforeTheCheckpointChanged() throws Exception {
+        Path output = folder.getRoot().toPath().resolve("1.csv");
+        Files.write(output, "Date,Name,Cost\r\na\r\nb\r\n".getBytes(StandardCharsets.UTF_8));
+        when(dataSource.getSegments(any())).thenReturn(new long[] {3, 1});
+        when(dataSource.rows(any(), eq(0))).thenReturn(Stream.of(new Object[] {"a"}, new Object[] {"b"},
+            new Object[] {"x"}, new Object[] {"c"}));
+        when(repository.checkpoint(any(), any(), anyLong(), anyLong())).thenReturn(1);
+        ReportGeneration generation = generation("Sales").checkpointRows(2L).checkpointOffset(22L);
+
+        generator.generate(generation, output, new ReportProgress(repository, 1L, "node", 0, null));
+
+        assertThat(new String(Files.readAllBytes(output), StandardCharsets.UTF_8))
+            .isEqualTo("Date,Name,Cost\r\na\r\nb\r\nx\r\nc\r\n");
+    }
+
+    @Test
+    public void stopsWhenTheJobWasGivenToAnotherNode() {
+        when(dataSource.getSegments(any())).thenReturn(new long[] {1, 1});
+        when(dataSource.rows(any(), eq(0))).thenReturn(Stream.of(new Object[] {"a"}, new Object[] {"b"}));
+        ReportProgress progress = new ReportProgress(repository, 1L, "node", 0, null);
+
+        assertThatThrownBy(() -> generator.generate(generation("Sales"), folder.getRoot().toPath().resolve("1.csv"),
+            progress))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Generation 1 was given to another node");
+        assertThat(progress.isLeaseLost()).isTrue();
+    }
+
+    @Test
+    public void reportWithoutDataFails() {
+        assertThatThrownBy(() -> generator.generate(generation("Unknown"), folder.getRoot().toPath().resolve("1.csv"),
+            new ReportProgress(repository, 1L, 0)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("No data of report Unknown");
+    }
+
+    private static ReportGeneration generation(String reportName) {
+        Report report = new Report();
+        report.setName(reportName);
+        ReportGeneration generation = new ReportGeneration().report(report);
+        generation.setId(1L);
+        return generation;
+    }
+}
@@ -0,0 +1,190 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.Report;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PdfReportGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final ReportGenerationRepository repository = mock(ReportGenerationRepository.class);
+    private final ReportDataSource dataSource = mock(ReportDataSource.class);
+
+    private PdfReportGenerator generator;
+
+    @Before
+    public void before() {
+        applicationProperties.getReport().setPdfPermits(1);
+        when(dataSource.getReportName()).thenReturn("Sales");
+        when(dataSource.getColumns()).thenReturn(Arrays.asList("Name", "Cost"));
+        generator = new PdfReportGenerator(applicationProperties);
+        generator.setDataSources(Collections.singletonList(dataSource));
+    }
+
+    @Test
+    public void writesAPageEveryRowsPerPage() throws Exception {
+        int count = PdfTableWriter.ROWS_PER_PAGE * 2 + 1;
+        when(dataSource.orderedRows(any())).thenReturn(
+            IntStream.range(0, count).mapToObj(i -> new Object[] {"name (" + i + ")", i * 1.5}));
+        Path output = folder.getRoot().toPath().resolve("1.pdf");
+        ReportProgress progress = new ReportProgress(repository, 1L, 0);
+
+        generator.generate(generation(), output, progress);
+
+        String pdf = new String(Files.readAllBytes(output), StandardCharsets.ISO_8859_1);
+        assertThat(pdf).startsWith("%PDF-1.4\n").endsWith("%%EOF\n");
+        assertThat(pdf).contains("/Type /Pages /Count 3 ");
+        assertThat(progress.getRows()).isEqualTo(count);
+        // the widths are those of the first page: later text goes on over the next line, numbers are written whole
+        assertThat(text(pdf)).contains("(Sales 2026   page 1) Tj", "(name \\(0\\)", "(name \\(108   162) Tj T*\n(\\)) Tj",
+            "154.5) Tj");
+    }
+
+    @Test
+    public void rowsWiderThanALineLoseNothing() throws Exception {
+        // as many columns as CRM History, of the longest cells
+        List<String> columns = IntStream.rangeClosed(1, 19).mapToObj(i -> "Column " + i).collect(Collectors.toList());
+        when(dataSource.getColumns()).thenReturn(columns);
+        Object[] row = new Object[19];
+        for (int i = 0; i < 18; i++) {
+            row[i] = String.format("%02d", i) + String.join("", Collections.nCopies(38, String.valueOf((char) ('a' + i))));
+        }
+        row[19 - 1] = new BigDecimal("1234567.89");
+        Object[] longer = row.clone();
+        longer[0] = "the text of this cell is longer than its column, it goes on below";
+        longer[18] = new BigDecimal("12345678901234.56");
+        when(dataSource.orderedRows(any())).thenReturn(Stream.of(row, longer));
+        Path output = folder.getRoot().toPath().resolve("1.pdf");
+
+        generator.generate(generation(), output, new ReportProgress(repository, 1L, 0));
+
+        String text = text(new String(Files.readAllBytes(output), StandardCharsets.ISO_8859_1));
+        for (int i = 0; i < 18; i++) {
+            assertThat(text).contains((String) row[i]);
+        }
+        assertThat(text).contains("Column 19", "1234567.89", "12345678901234.56",
+            "the text of this cell is longer than its", " column, it goes on below");
+        Matcher lines = Pattern.compile("\\((.*)\\) Tj").matcher(text);
+        while (lines.find()) {
+            assertThat(lines.group(1).length()).isLessThanOrEqualTo(183);
+        }
+    }
+
+    @Test
+    public void crossReferencesPointAtTheirObjects() throws Exception {
+        when(dataSource.orderedRows(any())).thenReturn(Stream.of(new Object[] {"a", 1}, new Object[] {"b", 2}));
+        Path output = folder.getRoot().toPath().resolve("1.pdf");
+
+        generator.generate(generation(), output, new ReportProgress(repository, 1L, 0));
+
+        String pdf = new String(Files.readAllBytes(output), StandardCharsets.ISO_8859_1);
+        int xref = Integer.parseInt(pdf.substring(pdf.lastIndexOf("startxref\n") + 10, pdf.lastIndexOf("\n%%EOF")));
+        assertThat(pdf.substring(xref)).startsWith("xref\n0 6\n");
+        Matcher entries = Pattern.compile("(\\d{10}) 00000 n ").matcher(pdf.substring(xref));
+        int object = 0;
+        while (entries.find()) {
+            object++;
+            assertThat(pdf.substring(Integer.parseInt(entries.group(1)))).startsWith(object + " 0 obj\n");
+        }
+        assertThat(object).isEqualTo(5);
+    }
+
+    @Test
+    public void reportsAreRenderedUpToThePermits() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dataSource.orderedRows(any())).thenAnswer(invocation -> Stream.<Object[]>of(new Object[] {"a", 1}).peek(row -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Thread first = render("1.pdf");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread second = render("2.pdf");
+
+        second.join(200);
+        verify(dataSource, times(1)).orderedRows(any());
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+        verify(dataSource, timeout(5000).times(2)).orderedRows(any());
+        assertThat(folder.getRoot().toPath().resolve("2.pdf")).exists();
+    }
+
+    private Thread render(String name) {
+        Thread thread = new Thread(() -> {
+            try {
+                generator.generate(generation(), folder.getRoot().toPath().resolve(name),
+                    new ReportProgress(repository, 1L, 0));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static ReportGeneration generation() {
+        Report report = new Report();
+        report.setName("Sales");
+        ReportGeneration generation = new ReportGeneration().report(report).parameters("2026");
+        generation.setId(1L);
+        return generation;
+    }
+
+    // the inflated content streams of the pages
+    private static String text(String pdf) throws Exception {
+        StringBuilder text = new StringBuilder();
+        Matcher streams = Pattern.compile("/Length (\\d+) /Filter /FlateDecode >>\nstream\n").matcher(pdf);
+        while (streams.find()) {
+            byte[] compressed = pdf.substring(streams.end(), streams.end() + Integer.parseInt(streams.group(1)))
+                .getBytes(StandardCharsets.ISO_8859_1);
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                content.write(buffer, 0, inflater.inflate(buffer));
+            }
+            inflater.end();
+            text.append(new String(content.toByteArray(), StandardCharsets.ISO_8859_1));
+        }
+        return text.toString();
+    }
+}
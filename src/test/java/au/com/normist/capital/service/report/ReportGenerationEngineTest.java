@@ -0,0 +1,411 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.Report;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportGenerationEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final ReportGenerationRepository repository = mock(ReportGenerationRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    // the rows of the jobs by id, and the ids of the jobs ended, in order
+    private final Map<Long, ReportGeneration> rows = new ConcurrentHashMap<>();
+    private final BlockingQueue<Long> completedIds = new LinkedBlockingQueue<>();
+
+    // ends the row of a job like the conditional update, only while the engine holds its lease
+    private final Answer<Integer> complete = invocation -> {
+        ReportGeneration generation = rows.get(invocation.<Long>getArgument(0));
+        if (generation == null || !invocation.getArgument(1).equals(generation.getLeaseOwner())) {
+            return 0;
+        }
+        generation.status(invocation.getArgument(2))
+            .completionDate(invocation.getArgument(3))
+            .progress(invocation.getArgument(4))
+            .isLocked(false)
+            .leaseOwner(null)
+            .leaseExpiresOn(null)
+            .checkpointRows(null)
+            .checkpointOffset(null)
+            .fullPath(invocation.getArgument(5))
+            .comment(invocation.getArgument(6));
+        completedIds.add(generation.getId());
+        return 1;
+    };
+
+    private ReportGenerationEngine engine;
+
+    @Before
+    public void before() {
+        applicationProperties.getReport().setOutputDirectory(folder.getRoot().getPath());
+        when(repository.claim(anyLong(), eq(ReportGenerationStatus.PENDING), eq(ReportGenerationStatus.GENERATING), any(), any(), any()))
+            .thenReturn(1);
+        when(repository.complete(anyLong(), any(), any(), any(), any(), any(), any())).thenAnswer(complete);
+        when(repository.expire(anyLong(), any(), eq(ReportGenerationStatus.GENERATED), eq(ReportGenerationStatus.ERROR), any()))
+            .thenAnswer(invocation -> {
+                ReportGeneration generation = rows.get(invocation.<Long>getArgument(0));
+                if (generation == null || generation.getStatus() != ReportGenerationStatus.GENERATED
+                    || !invocation.getArgument(1).equals(generation.getFullPath())) {
+                    return 0;
+                }
+                generation.status(ReportGenerationStatus.ERROR).fullPath(null).comment(invocation.getArgument(4));
+                return 1;
+            });
+        engine = new ReportGenerationEngine(repository, eventPublisher, applicationProperties);
+    }
+
+    @After
+    public void after() {
+        engine.destroy();
+    }
+
+    @Test
+    public void generatesClaimedJob() throws Exception {
+        applicationProperties.getReport().setProgressInterval(0);
+        ReportGeneration generation = pending(1L, ReportFileType.CSV, 10L);
+        engine.setGenerators(Collections.singletonList(generator(ReportFileType.CSV, null)));
+
+        assertThat(engine.dispatch()).isEqualTo(1);
+
+        ReportGeneration saved = completed();
+        assertThat(saved.getStatus()).isEqualTo(ReportGenerationStatus.GENERATED);
+        assertThat(saved.isIsLocked()).isFalse();
+        assertThat(saved.getCompletionDate()).isNotNull();
+        assertThat(saved.getFullPath()).endsWith("1.csv");
+        assertThat(new String(Files.readAllBytes(Paths.get(saved.getFullPath())), StandardCharsets.UTF_8)).isEqualTo("a,b\n");
+        assertThat(folder.getRoot().list()).containsExactly("1.csv");
+        assertThat(saved.getProgress()).isEqualTo(1L);
+        assertThat(generation.getStartedOn()).isNotNull();
+
+        ArgumentCaptor<ReportGenerationEvent> events = ArgumentCaptor.forClass(ReportGenerationEvent.class);
+        verify(eventPublisher, timeout(5000).times(3)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(ReportGenerationEvent::getStatus).containsExactly(
+            ReportGenerationStatus.GENERATING, ReportGenerationStatus.GENERATING, ReportGenerationStatus.GENERATED);
+        assertThat(events.getAllValues()).extracting(ReportGenerationEvent::getProgress).containsExactly(0L, 1L, 1L);
+    }
+
+    @Test
+    public void failedJobEndsInError() throws Exception {
+        pending(2L, ReportFileType.PDF, 10L);
+
+        engine.dispatch();
+
+        ReportGeneration saved = completed();
+        assertThat(saved.getStatus()).isEqualTo(ReportGenerationStatus.ERROR);
+        assertThat(saved.getComment()).isEqualTo("No generator of PDF reports");
+        assertThat(saved.isIsLocked()).isFalse();
+        assertThat(saved.getFullPath()).isNull();
+    }
+
+    @Test
+    public void jobClaimedElsewhereIsNotRun() throws Exception {
+        pending(3L, ReportFileType.CSV, 10L);
+        when(repository.claim(eq(3L), any(), any(), any(), any(), any())).thenReturn(0);
+        ReportGenerator generator = generator(ReportFileType.CSV, null);
+        engine.setGenerators(Collections.singletonList(generator));
+
+        assertThat(engine.dispatch()).isZero();
+
+        assertThat(engine.getRunningCount()).isZero();
+        verify(generator, never()).generate(any(), any(), any());
+    }
+
+    @Test
+    public void jobsOfOneReportAreCapped() throws Exception {
+        applicationProperties.getReport().setMaxConcurrentPerReport(1);
+        ReportGeneration first = generation(4L, ReportFileType.CSV, 10L);
+        ReportGeneration second = generation(5L, ReportFileType.CSV, 10L);
+        ReportGeneration other = generation(6L, ReportFileType.CSV, 20L);
+        when(repository.findUnlocked(eq(ReportGenerationStatus.PENDING), any(), any()))
+            .thenReturn(Arrays.asList(first, second, other), Collections.emptyList());
+        CountDownLatch release = new CountDownLatch(1);
+        engine.setGenerators(Collections.singletonList(generator(ReportFileType.CSV, release)));
+
+        assertThat(engine.dispatch()).isEqualTo(2);
+
+        verify(repository, never()).claim(eq(5L), any(), any(), any(), any(), any());
+        assertThat(engine.getRunningCount()).isEqualTo(2);
+        release.countDown();
+        verify(repository, timeout(5000).times(2)).complete(anyLong(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void jobOfTheSameDataReusesTheFile() throws Exception {
+        ReportGeneration first = generation(7L, ReportFileType.CSV, 10L).parameters("p");
+        ReportGeneration second = generation(8L, ReportFileType.CSV, 10L).parameters("p");
+        when(repository.findUnlocked(eq(ReportGenerationStatus.PENDING), any(), any()))
+            .thenReturn(Collections.singletonList(first), Collections.emptyList(),
+                Collections.singletonList(second), Collections.emptyList());
+        ReportGenerator generator = generator(ReportFileType.CSV, null);
+        when(generator.getWatermark(any())).thenReturn("w");
+        engine.setGenerators(Collections.singletonList(generator));
+
+        engine.dispatch();
+        String firstPath = completed().getFullPath();
+        engine.dispatch();
+
+        ReportGeneration saved = completed();
+        assertThat(saved.getId()).isEqualTo(8L);
+        assertThat(saved.getStatus()).isEqualTo(ReportGenerationStatus.GENERATED);
+        assertThat(saved.getFullPath()).isEqualTo(firstPath);
+        verify(generator, times(1)).generate(any(), any(), any());
+    }
+
+    @Test
+    public void jobWhoseFileIsEvictedFromTheCacheEndsInError() throws Exception {
+        // every new file evicts the others
+        applicationProperties.getReport().getCache().setMaxSizeMb(0);
+        engine.destroy();
+        engine = new ReportGenerationEngine(repository, eventPublisher, applicationProperties);
+        ReportGeneration first = generation(11L, ReportFileType.CSV, 10L).parameters("p");
+        ReportGeneration second = generation(12L, ReportFileType.CSV, 10L).parameters("q");
+        when(repository.findUnlocked(eq(ReportGenerationStatus.PENDING), any(), any()))
+            .thenReturn(Collections.singletonList(first), Collections.emptyList(),
+                Collections.singletonList(second), Collections.emptyList());
+        ReportGenerator generator = generator(ReportFileType.CSV, null);
+        when(generator.getWatermark(any())).thenReturn("w");
+        engine.setGenerators(Collections.singletonList(generator));
+
+        engine.dispatch();
+        String firstPath = completed().getFullPath();
+        // the first job still has its file when the second evicts it
+        when(repository.findByStatusAndFullPath(ReportGenerationStatus.GENERATED, firstPath))
+            .thenReturn(Collections.singletonList(first));
+        engine.dispatch();
+
+        assertThat(completed()).isSameAs(second);
+        assertThat(Paths.get(firstPath)).doesNotExist();
+        assertThat(first.getStatus()).isEqualTo(ReportGenerationStatus.ERROR);
+        assertThat(first.getFullPath()).isNull();
+        assertThat(first.getComment()).isEqualTo(ReportGenerationEngine.EXPIRED_COMMENT);
+        assertThat(second.getStatus()).isEqualTo(ReportGenerationStatus.GENERATED);
+        assertThat(Paths.get(second.getFullPath())).exists();
+        verify(eventPublisher, timeout(5000)).publishEvent(argThat((Object event) -> event instanceof ReportGenerationEvent
+            && ((ReportGenerationEvent) event).getId() == 11L
+            && ((ReportGenerationEvent) event).getStatus() == ReportGenerationStatus.ERROR));
+    }
+
+    @Test
+    public void jobGivenToAnotherNodeIsStoppedAndKeepsItsPartialFile() throws Exception {
+        pending(9L, ReportFileType.CSV, 10L);
+        CountDownLatch started = new CountDownLatch(1);
+        ReportGenerator generator = mock(ReportGenerator.class);
+        when(generator.getFileType()).thenReturn(ReportFileType.CSV);
+        doAnswer(invocation -> {
+            Files.write(invocation.getArgument(1), "a,b\n".getBytes(StandardCharsets.UTF_8));
+            started.countDown();
+            Thread.sleep(5000);
+            return null;
+        }).when(generator).generate(any(), any(), any());
+        engine.setGenerators(Collections.singletonList(generator));
+
+        engine.dispatch();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        engine.renewLeases();
+
+        verify(repository).renewLease(eq(9L), eq(engine.getNodeId()), any());
+        verify(eventPublisher, timeout(5000).times(1)).publishEvent(any(ReportGenerationEvent.class));
+        for (int i = 0; i < 50 && engine.getRunningCount() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(engine.getRunningCount()).isZero();
+        verify(repository, never()).complete(anyLong(), any(), any(), any(), any(), any(), any());
+        assertThat(folder.getRoot().list()).containsExactly("9.csv.part");
+    }
+
+    @Test
+    public void leasesAreRenewedWhileAScheduledTaskHoldsTheScheduler() throws Exception {
+        applicationProperties.getReport().getLease().setRenewInterval(50);
+        engine.destroy();
+        engine = new ReportGenerationEngine(repository, eventPublisher, applicationProperties);
+        // Spring's default scheduler, held by a long task, e.g. a reload of the catalog index
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch held = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pending(15L, ReportFileType.CSV, 10L);
+        ReportGenerator generator = mock(ReportGenerator.class);
+        when(generator.getFileType()).thenReturn(ReportFileType.CSV);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(generator).generate(any(), any(), any());
+        when(repository.renewLease(eq(15L), any(), any())).thenReturn(1);
+        engine.setGenerators(Collections.singletonList(generator));
+        try {
+            assertThat(held.await(5, TimeUnit.SECONDS)).isTrue();
+
+            engine.dispatch();
+
+            verify(repository, timeout(5000).atLeast(3)).renewLease(eq(15L), eq(engine.getNodeId()), any());
+            assertThat(engine.getRunningCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void jobRecordingItsResultIsNotStopped() throws Exception {
+        pending(13L, ReportFileType.CSV, 10L);
+        engine.setGenerators(Collections.singletonList(generator(ReportFileType.CSV, null)));
+        // the leases are renewed while the result, which releases the lease, is saved
+        AtomicBoolean interrupted = new AtomicBoolean();
+        doAnswer(invocation -> {
+            engine.renewLeases();
+            interrupted.set(Thread.currentThread().isInterrupted());
+            return complete.answer(invocation);
+        }).when(repository).complete(anyLong(), any(), any(), any(), any(), any(), any());
+
+        engine.dispatch();
+
+        ReportGeneration saved = completed();
+        verify(repository).renewLease(eq(13L), eq(engine.getNodeId()), any());
+        assertThat(interrupted).isFalse();
+        assertThat(saved.getStatus()).isEqualTo(ReportGenerationStatus.GENERATED);
+    }
+
+    @Test
+    public void resultOfAJobGivenToAnotherNodeIsDropped() throws Exception {
+        ReportGeneration generation = pending(14L, ReportFileType.CSV, 10L);
+        ReportGenerator generator = mock(ReportGenerator.class);
+        when(generator.getFileType()).thenReturn(ReportFileType.CSV);
+        doAnswer(invocation -> {
+            Files.write(invocation.getArgument(1), "a,b\n".getBytes(StandardCharsets.UTF_8));
+            // requeued and claimed by another node before this one records the result
+            generation.status(ReportGenerationStatus.GENERATING).leaseOwner("other");
+            return null;
+        }).when(generator).generate(any(), any(), any());
+        engine.setGenerators(Collections.singletonList(generator));
+
+        engine.dispatch();
+
+        verify(repository, timeout(5000)).complete(eq(14L), eq(engine.getNodeId()), eq(ReportGenerationStatus.GENERATED),
+            any(), any(), any(), any());
+        for (int i = 0; i < 50 && engine.getRunningCount() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(generation.getStatus()).isEqualTo(ReportGenerationStatus.GENERATING);
+        assertThat(generation.getLeaseOwner()).isEqualTo("other");
+        assertThat(generation.getFullPath()).isNull();
+        verify(eventPublisher, never()).publishEvent(argThat((Object event) -> event instanceof ReportGenerationEvent
+            && ((ReportGenerationEvent) event).getStatus() == ReportGenerationStatus.GENERATED));
+    }
+
+    @Test
+    public void jobGoesOnFromItsCheckpoint() throws Exception {
+        ReportGeneration generation = pending(10L, ReportFileType.CSV, 10L).attempts(1).checkpointRows(5L);
+        engine.setGenerators(Collections.singletonList(generator(ReportFileType.CSV, null)));
+
+        engine.dispatch();
+
+        verify(repository).claim(eq(10L), eq(ReportGenerationStatus.PENDING), eq(ReportGenerationStatus.GENERATING),
+            any(), eq(engine.getNodeId()), any());
+        ReportGenerationEvent claimed = (ReportGenerationEvent) eventCaptured();
+        assertThat(claimed.getProgress()).isEqualTo(5L);
+        assertThat(generation.getAttempts()).isEqualTo(2);
+        ReportGeneration saved = completed();
+        assertThat(saved.getStatus()).isEqualTo(ReportGenerationStatus.GENERATED);
+        assertThat(saved.getLeaseOwner()).isNull();
+        assertThat(saved.getCheckpointRows()).isNull();
+    }
+
+    private Object eventCaptured() {
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, timeout(5000).atLeastOnce()).publishEvent(events.capture());
+        return events.getAllValues().get(0);
+    }
+
+    private ReportGeneration pending(Long id, ReportFileType fileType, Long reportId) {
+        ReportGeneration generation = generation(id, fileType, reportId);
+        when(repository.findUnlocked(eq(ReportGenerationStatus.PENDING), any(), any()))
+            .thenReturn(Collections.singletonList(generation), Collections.emptyList());
+        return generation;
+    }
+
+    private ReportGeneration generation(Long id, ReportFileType fileType, Long reportId) {
+        Report report = new Report();
+        report.setId(reportId);
+        ReportGeneration generation = new ReportGeneration()
+            .status(ReportGenerationStatus.PENDING)
+            .fileType(fileType)
+            .isLocked(false)
+            .report(report);
+        generation.setId(id);
+        rows.put(id, generation);
+        return generation;
+    }
+
+    /**
+     * @return the row of the next job ended
+     */
+    private ReportGeneration completed() throws InterruptedException {
+        Long id = completedIds.poll(5, TimeUnit.SECONDS);
+        assertThat(id).as("a job ended").isNotNull();
+        return rows.get(id);
+    }
+
+    private static ReportGenerator generator(ReportFileType fileType, CountDownLatch release) throws Exception {
+        ReportGenerator generator = mock(ReportGenerator.class);
+        when(generator.getFileType()).thenReturn(fileType);
+        doAnswer(invocation -> {
+            if (release != null) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            Files.write(invocation.getArgument(1), "a,b\n".getBytes(StandardCharsets.UTF_8));
+            invocation.<ReportProgress>getArgument(2).update(1);
+            return null;
+        }).when(generator).generate(any(), any(), any());
+        return generator;
+    }
+}
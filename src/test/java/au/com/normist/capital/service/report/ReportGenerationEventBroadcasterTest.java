@@ -0,0 +1,120 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportGenerationEventBroadcasterTest {
+
+    private final ReportGenerationEventBroadcaster broadcaster = new ReportGenerationEventBroadcaster();
+
+    private final CountDownLatch unstall = new CountDownLatch(1);
+
+    @After
+    public void after() {
+        unstall.countDown();
+        broadcaster.destroy();
+    }
+
+    @Test
+    public void aStalledSubscriberDoesntHoldTheOthers() throws Exception {
+        RecordingEmitter stalled = new RecordingEmitter(unstall);
+        RecordingEmitter watching = new RecordingEmitter(null);
+        broadcaster.subscribe(stalled, "stalled", true);
+        broadcaster.subscribe(watching, "watching", true);
+
+        broadcaster.onReportGenerationEvent(event(1L));
+        broadcaster.onReportGenerationEvent(event(2L));
+
+        assertThat(watching.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(watching.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(stalled.sent).isEmpty();
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void aSubscriberTooFarBehindIsDropped() throws Exception {
+        RecordingEmitter stalled = new RecordingEmitter(unstall);
+        broadcaster.subscribe(stalled, "stalled", true);
+
+        // one being sent, then a full queue and one more
+        broadcaster.onReportGenerationEvent(event(0L));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        for (long id = 1; id <= ReportGenerationEventBroadcaster.MAX_PENDING_EVENTS; id++) {
+            broadcaster.onReportGenerationEvent(event(id));
+        }
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+        broadcaster.onReportGenerationEvent(event(-1L));
+
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+        unstall.countDown();
+        assertThat(stalled.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stalled.sent).hasSize(1);
+        assertThat(stalled.error).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void subscribersOnlyGetTheEventsOfTheirJobs() throws Exception {
+        RecordingEmitter mine = new RecordingEmitter(null);
+        broadcaster.subscribe(mine, "creator", false);
+
+        broadcaster.onReportGenerationEvent(new ReportGenerationEvent(1L, "other", ReportGenerationStatus.GENERATED,
+            1L, Instant.now()));
+        broadcaster.onReportGenerationEvent(event(2L));
+
+        assertThat(mine.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(mine.sent.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private static ReportGenerationEvent event(Long id) {
+        return new ReportGenerationEvent(id, "creator", ReportGenerationStatus.GENERATING, id, null);
+    }
+
+    // an emitter whose browser may not read the stream
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+
+        private final CountDownLatch stall;
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private volatile Throwable error;
+
+        private RecordingEmitter(CountDownLatch stall) {
+            super(0L);
+            this.stall = stall;
+        }
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            sending.countDown();
+            if (stall != null) {
+                try {
+                    stall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(event);
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable error) {
+            this.error = error;
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportGenerationReaperTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final ReportGenerationRepository repository = mock(ReportGenerationRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final Instant now = Instant.parse("2026-10-18T10:00:00Z");
+
+    private ReportGenerationReaper reaper;
+
+    @Before
+    public void before() {
+        ApplicationProperties.ReportConfig.Lease lease = applicationProperties.getReport().getLease();
+        lease.setDuration(60000);
+        lease.setMaxAttempts(3);
+        lease.setRetryBackoff(60000);
+        when(repository.requeue(anyLong(), any(), any(), any(), any())).thenReturn(1);
+        when(repository.abandon(anyLong(), any(), any(), any(), any(), any())).thenReturn(1);
+        reaper = new ReportGenerationReaper(repository, eventPublisher, applicationProperties);
+    }
+
+    @Test
+    public void expiredJobIsRequeuedAfterTheBackoff() {
+        Instant expired = now.minusSeconds(10);
+        ReportGeneration generation = expired(1L, 1, expired);
+
+        assertThat(reaper.reap(now)).isEqualTo(1);
+
+        verify(repository).findLeaseExpired(ReportGenerationStatus.GENERATING, now, now.minusSeconds(60));
+        verify(repository).requeue(1L, expired, ReportGenerationStatus.GENERATING, ReportGenerationStatus.PENDING,
+            now.plusSeconds(60));
+        assertThat(generation.getStatus()).isEqualTo(ReportGenerationStatus.PENDING);
+        verify(eventPublisher).publishEvent(any(ReportGenerationEvent.class));
+    }
+
+    @Test
+    public void backoffDoublesWithEveryAttempt() {
+        Instant expired = now.minusSeconds(10);
+        expired(2L, 2, expired);
+
+        reaper.reap(now);
+
+        verify(repository).requeue(2L, expired, ReportGenerationStatus.GENERATING, ReportGenerationStatus.PENDING,
+            now.plusSeconds(120));
+    }
+
+    @Test
+    public void jobIsAbandonedAfterItsLastAttempt() {
+        Instant expired = now.minusSeconds(10);
+        ReportGeneration generation = expired(3L, 3, expired);
+
+        assertThat(reaper.reap(now)).isEqualTo(1);
+
+        verify(repository).abandon(eq(3L), eq(expired), eq(ReportGenerationStatus.GENERATING),
+            eq(ReportGenerationStatus.ERROR), eq(now), any());
+        verify(repository, never()).requeue(anyLong(), any(), any(), any(), any());
+        assertThat(generation.getStatus()).isEqualTo(ReportGenerationStatus.ERROR);
+        assertThat(generation.getComment()).startsWith("Abandoned after 3 attempts");
+    }
+
+    @Test
+    public void jobRenewedMeanwhileIsLeft() {
+        Instant expired = now.minusSeconds(10);
+        expired(4L, 1, expired);
+        when(repository.requeue(eq(4L), any(), any(), any(), any())).thenReturn(0);
+
+        assertThat(reaper.reap(now)).isZero();
+
+        verify(eventPublisher, never()).publishEvent(any(ReportGenerationEvent.class));
+    }
+
+    @Test
+    public void jobClaimedBeforeLeasesIsRequeued() {
+        expired(5L, null, null);
+
+        assertThat(reaper.reap(now)).isEqualTo(1);
+
+        verify(repository).requeue(5L, null, ReportGenerationStatus.GENERATING, ReportGenerationStatus.PENDING,
+            now.plusSeconds(60));
+    }
+
+    private ReportGeneration expired(Long id, Integer attempts, Instant leaseExpiresOn) {
+        ReportGeneration generation = new ReportGeneration()
+            .status(ReportGenerationStatus.GENERATING)
+            .isLocked(true)
+            .attempts(attempts)
+            .leaseOwner(leaseExpiresOn == null ? null : "lost")
+            .leaseExpiresOn(leaseExpiresOn);
+        generation.setId(id);
+        when(repository.findLeaseExpired(any(), any(), any())).thenReturn(Collections.singletonList(generation));
+        return generation;
+    }
+}
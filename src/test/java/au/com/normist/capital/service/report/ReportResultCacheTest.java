@@ -0,0 +1,96 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.domain.Report;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReportResultCache cache;
+
+    @Before
+    public void before() {
+        cache = new ReportResultCache(folder.getRoot().toPath(), 10);
+    }
+
+    @Test
+    public void sameJobHasTheSameFingerprint() {
+        String fingerprint = cache.fingerprint(generation(1L, "a", ReportFileType.CSV), "w1");
+
+        assertThat(cache.fingerprint(generation(1L, "a", ReportFileType.CSV), "w1")).isEqualTo(fingerprint);
+        assertThat(cache.fingerprint(generation(2L, "a", ReportFileType.CSV), "w1")).isNotEqualTo(fingerprint);
+        assertThat(cache.fingerprint(generation(1L, "b", ReportFileType.CSV), "w1")).isNotEqualTo(fingerprint);
+        assertThat(cache.fingerprint(generation(1L, null, ReportFileType.CSV), "w1")).isNotEqualTo(fingerprint);
+        assertThat(cache.fingerprint(generation(1L, "a", ReportFileType.PDF), "w1")).isNotEqualTo(fingerprint);
+        assertThat(cache.fingerprint(generation(1L, "a", ReportFileType.CSV), "w2")).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    public void jobWithoutWatermarkHasNoFingerprint() {
+        assertThat(cache.fingerprint(generation(1L, "a", ReportFileType.CSV), null)).isNull();
+    }
+
+    @Test
+    public void getFindsWrittenFiles() throws Exception {
+        assertThat(cache.get("f1", ReportFileType.CSV)).isNull();
+
+        Path file = write("f1", 4, 0);
+        cache.put(file);
+
+        assertThat(cache.get("f1", ReportFileType.CSV)).isEqualTo(file);
+        assertThat(cache.get("f1", ReportFileType.PDF)).isNull();
+    }
+
+    @Test
+    public void leastRecentlyUsedFilesOverTheBudgetAreDeleted() throws Exception {
+        Path oldest = write("f1", 4, 3000);
+        Path used = write("f2", 4, 2000);
+        Path older = write("f3", 4, 1000);
+        assertThat(cache.get("f2", ReportFileType.CSV)).isEqualTo(used);
+
+        Path added = write("f4", 4, 0);
+        assertThat(cache.put(added)).containsExactly(oldest, older);
+
+        assertThat(oldest).doesNotExist();
+        assertThat(older).doesNotExist();
+        assertThat(used).exists();
+        assertThat(added).exists();
+    }
+
+    @Test
+    public void fileOverTheBudgetIsKept() throws Exception {
+        Path big = write("f1", 20, 0);
+
+        assertThat(cache.put(big)).isEmpty();
+
+        assertThat(big).exists();
+    }
+
+    private Path write(String fingerprint, int size, long ageMillis) throws Exception {
+        Path file = cache.path(fingerprint, ReportFileType.CSV);
+        Files.write(file, new byte[size]);
+        FileTime time = FileTime.fromMillis(System.currentTimeMillis() - ageMillis);
+        Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(time, time, null);
+        return file;
+    }
+
+    private static ReportGeneration generation(Long reportId, String parameters, ReportFileType fileType) {
+        Report report = new Report();
+        report.setId(reportId);
+        return new ReportGeneration().report(report).parameters(parameters).fileType(fileType);
+    }
+}
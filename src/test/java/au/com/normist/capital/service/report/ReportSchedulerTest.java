@@ -0,0 +1,148 @@
+package au.com.normist.capital.service.report;
+
+import au.com.normist.capital.config.ApplicationProperties;
+import au.com.normist.capital.config.Constants;
+import au.com.normist.capital.domain.Report;
+import au.com.normist.capital.domain.ReportGeneration;
+import au.com.normist.capital.domain.enumeration.ReportFileType;
+import au.com.normist.capital.domain.enumeration.ReportGenerationStatus;
+import au.com.normist.capital.repository.ReportGenerationRepository;
+import au.com.normist.capital.repository.ReportRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportSchedulerTest {
+
+    // every night at 2
+    private static final String NIGHTLY = "0 0 2 * * *";
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private final ReportRepository reportRepository = mock(ReportRepository.class);
+    private final ReportGenerationRepository reportGenerationRepository = mock(ReportGenerationRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final Instant now = at(3, 10, 0);
+
+    private ReportScheduler scheduler;
+
+    @Before
+    public void before() {
+        applicationProperties.getReport().getSchedule().setMaxJitter(0);
+        when(reportRepository.advanceNextRun(anyLong(), any(), any())).thenReturn(1);
+        when(reportGenerationRepository.save(any())).then(invocation -> invocation.getArgument(0));
+        scheduler = new ReportScheduler(reportRepository, reportGenerationRepository, eventPublisher,
+            mock(PlatformTransactionManager.class), applicationProperties);
+    }
+
+    @Test
+    public void newScheduleGetsItsFirstRun() {
+        scheduled(1L, null);
+
+        assertThat(scheduler.run(now)).isZero();
+
+        verify(reportRepository).initNextRun(1L, at(4, 2, 0));
+        verify(reportGenerationRepository, never()).save(any());
+    }
+
+    @Test
+    public void dueRunCreatesAJob() {
+        Instant due = at(3, 2, 0);
+        scheduled(2L, due);
+
+        assertThat(scheduler.run(now)).isEqualTo(1);
+
+        verify(reportRepository).advanceNextRun(2L, due, at(4, 2, 0));
+        ArgumentCaptor<ReportGeneration> saved = ArgumentCaptor.forClass(ReportGeneration.class);
+        verify(reportGenerationRepository).save(saved.capture());
+        assertThat(saved.getValue().getCreator()).isEqualTo(Constants.SYSTEM_ACCOUNT);
+        assertThat(saved.getValue().getStatus()).isEqualTo(ReportGenerationStatus.PENDING);
+        assertThat(saved.getValue().getFileType()).isEqualTo(ReportFileType.CSV);
+        assertThat(saved.getValue().getReport().getId()).isEqualTo(2L);
+        verify(eventPublisher).publishEvent(any(ReportGenerationEvent.class));
+    }
+
+    @Test
+    public void runNotDueIsLeft() {
+        scheduled(3L, at(4, 2, 0));
+
+        assertThat(scheduler.run(now)).isZero();
+
+        verify(reportRepository, never()).advanceNextRun(anyLong(), any(), any());
+    }
+
+    @Test
+    public void runCreatedElsewhereIsNotCreatedAgain() {
+        Instant due = at(3, 2, 0);
+        scheduled(4L, due);
+        when(reportRepository.advanceNextRun(4L, due, at(4, 2, 0))).thenReturn(0);
+
+        assertThat(scheduler.run(now)).isZero();
+
+        verify(reportGenerationRepository, never()).save(any());
+    }
+
+    @Test
+    public void runIsSkippedWhileThePreviousOneRuns() {
+        Instant due = at(3, 2, 0);
+        scheduled(5L, due);
+        when(reportGenerationRepository.existsByReportIdAndCreatorAndStatusIn(eq(5L), eq(Constants.SYSTEM_ACCOUNT), any()))
+            .thenReturn(true);
+
+        assertThat(scheduler.run(now)).isZero();
+
+        verify(reportRepository).advanceNextRun(5L, due, at(4, 2, 0));
+        verify(reportGenerationRepository, never()).save(any());
+    }
+
+    @Test
+    public void runWaitsWhileScheduledJobsAreAtTheirLimit() {
+        scheduled(6L, at(3, 2, 0));
+        when(reportGenerationRepository.countByCreatorAndStatusIn(eq(Constants.SYSTEM_ACCOUNT), any()))
+            .thenReturn((long) applicationProperties.getReport().getSchedule().getMaxConcurrent());
+
+        assertThat(scheduler.run(now)).isZero();
+
+        verify(reportRepository, never()).advanceNextRun(anyLong(), any(), any());
+        verify(reportGenerationRepository, never()).save(any());
+    }
+
+    @Test
+    public void nextRunIsJittered() {
+        applicationProperties.getReport().getSchedule().setMaxJitter(60000);
+        Instant due = at(3, 2, 0);
+        scheduled(7L, due);
+
+        scheduler.run(now);
+
+        ArgumentCaptor<Instant> next = ArgumentCaptor.forClass(Instant.class);
+        verify(reportRepository).advanceNextRun(eq(7L), eq(due), next.capture());
+        assertThat(next.getValue()).isBetween(at(4, 2, 0), at(4, 2, 0).plusSeconds(60));
+    }
+
+    private void scheduled(Long id, Instant nextRunOn) {
+        Report report = new Report().name("Stock Valuation").schedule(NIGHTLY).nextRunOn(nextRunOn);
+        report.setId(id);
+        when(reportRepository.findAllByScheduleIsNotNull()).thenReturn(Collections.singletonList(report));
+    }
+
+    private static Instant at(int day, int hour, int minute) {
+        return LocalDateTime.of(2026, 10, day, hour, minute).atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
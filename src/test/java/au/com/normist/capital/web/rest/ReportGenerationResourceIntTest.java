@@ -1,15 +1,19 @@
 package au.com.normist.capital.web.rest;
 
 import au.com.normist.capital.CapitalappApp;
+import au.com.normist.capital.config.ApplicationProperties;
 
 import au.com.normist.capital.domain.ReportGeneration;
 import au.com.normist.capital.domain.Report;
 import au.com.normist.capital.repository.ReportGenerationRepository;
+import au.com.normist.capital.security.AuthoritiesConstants;
 import au.com.normist.capital.service.ReportGenerationService;
 import au.com.normist.capital.service.dto.ReportGenerationDTO;
 import au.com.normist.capital.service.mapper.ReportGenerationMapper;
 import au.com.normist.capital.web.rest.errors.ExceptionTranslator;
 import au.com.normist.capital.service.dto.ReportGenerationCriteria;
+import au.com.normist.capital.service.report.ReportGenerationEvent;
+import au.com.normist.capital.service.report.ReportGenerationEventBroadcaster;
 import au.com.normist.capital.service.ReportGenerationQueryService;
 
 import org.junit.Before;
@@ -19,14 +23,21 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -79,6 +90,15 @@ public class ReportGenerationResourceIntTest {
     private static final String DEFAULT_COMMENT = "AAAAAAAAAA";
     private static final String UPDATED_COMMENT = "BBBBBBBBBB";
 
+    private static final Long DEFAULT_PROGRESS = 1L;
+    private static final Long UPDATED_PROGRESS = 2L;
+
+    private static final String DEFAULT_PARAMETERS = "AAAAAAAAAA";
+    private static final String UPDATED_PARAMETERS = "BBBBBBBBBB";
+
+    private static final Integer DEFAULT_ATTEMPTS = 1;
+    private static final Integer UPDATED_ATTEMPTS = 2;
+
     @Autowired
     private ReportGenerationRepository reportGenerationRepository;
 
@@ -93,6 +113,12 @@ public class ReportGenerationResourceIntTest {
     @Autowired
     private ReportGenerationQueryService reportGenerationQueryService;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private ReportGenerationEventBroadcaster reportGenerationEventBroadcaster;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -112,7 +138,8 @@ public class ReportGenerationResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final ReportGenerationResource reportGenerationResource = new ReportGenerationResource(reportGenerationService, reportGenerationQueryService);
+        final ReportGenerationResource reportGenerationResource = new ReportGenerationResource(reportGenerationService, reportGenerationQueryService, applicationProperties,
+            reportGenerationEventBroadcaster);
         this.restReportGenerationMockMvc = MockMvcBuilders.standaloneSetup(reportGenerationResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -137,7 +164,10 @@ public class ReportGenerationResourceIntTest {
             .creator(DEFAULT_CREATOR)
             .startedOn(DEFAULT_STARTED_ON)
             .completionDate(DEFAULT_COMPLETION_DATE)
-            .comment(DEFAULT_COMMENT);
+            .comment(DEFAULT_COMMENT)
+            .progress(DEFAULT_PROGRESS)
+            .parameters(DEFAULT_PARAMETERS)
+            .attempts(DEFAULT_ATTEMPTS);
         return reportGeneration;
     }
 
@@ -163,15 +193,19 @@ public class ReportGenerationResourceIntTest {
         assertThat(reportGenerationList).hasSize(databaseSizeBeforeCreate + 1);
         ReportGeneration testReportGeneration = reportGenerationList.get(reportGenerationList.size() - 1);
         assertThat(testReportGeneration.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
-        assertThat(testReportGeneration.getStatus()).isEqualTo(DEFAULT_STATUS);
+        assertThat(testReportGeneration.getStatus()).isEqualTo(ReportGenerationStatus.PENDING);
         assertThat(testReportGeneration.getFileType()).isEqualTo(DEFAULT_FILE_TYPE);
-        assertThat(testReportGeneration.getFullPath()).isEqualTo(DEFAULT_FULL_PATH);
-        assertThat(testReportGeneration.isIsLocked()).isEqualTo(DEFAULT_IS_LOCKED);
+        assertThat(testReportGeneration.getFullPath()).isNull();
+        assertThat(testReportGeneration.isIsLocked()).isFalse();
         assertThat(testReportGeneration.getCreationDate()).isEqualTo(DEFAULT_CREATION_DATE);
         assertThat(testReportGeneration.getCreator()).isEqualTo(DEFAULT_CREATOR);
-        assertThat(testReportGeneration.getStartedOn()).isEqualTo(DEFAULT_STARTED_ON);
-        assertThat(testReportGeneration.getCompletionDate()).isEqualTo(DEFAULT_COMPLETION_DATE);
-        assertThat(testReportGeneration.getComment()).isEqualTo(DEFAULT_COMMENT);
+        // a new job hasn't run yet, whatever the client sent
+        assertThat(testReportGeneration.getStartedOn()).isNull();
+        assertThat(testReportGeneration.getCompletionDate()).isNull();
+        assertThat(testReportGeneration.getComment()).isNull();
+        assertThat(testReportGeneration.getProgress()).isNull();
+        assertThat(testReportGeneration.getParameters()).isEqualTo(DEFAULT_PARAMETERS);
+        assertThat(testReportGeneration.getAttempts()).isNull();
     }
 
     @Test
@@ -214,7 +248,10 @@ public class ReportGenerationResourceIntTest {
             .andExpect(jsonPath("$.[*].creator").value(hasItem(DEFAULT_CREATOR.toString())))
             .andExpect(jsonPath("$.[*].startedOn").value(hasItem(DEFAULT_STARTED_ON.toString())))
             .andExpect(jsonPath("$.[*].completionDate").value(hasItem(DEFAULT_COMPLETION_DATE.toString())))
-            .andExpect(jsonPath("$.[*].comment").value(hasItem(DEFAULT_COMMENT.toString())));
+            .andExpect(jsonPath("$.[*].comment").value(hasItem(DEFAULT_COMMENT.toString())))
+            .andExpect(jsonPath("$.[*].progress").value(hasItem(DEFAULT_PROGRESS.intValue())))
+            .andExpect(jsonPath("$.[*].parameters").value(hasItem(DEFAULT_PARAMETERS.toString())))
+            .andExpect(jsonPath("$.[*].attempts").value(hasItem(DEFAULT_ATTEMPTS)));
     }
     
 
@@ -238,7 +275,10 @@ public class ReportGenerationResourceIntTest {
             .andExpect(jsonPath("$.creator").value(DEFAULT_CREATOR.toString()))
             .andExpect(jsonPath("$.startedOn").value(DEFAULT_STARTED_ON.toString()))
             .andExpect(jsonPath("$.completionDate").value(DEFAULT_COMPLETION_DATE.toString()))
-            .andExpect(jsonPath("$.comment").value(DEFAULT_COMMENT.toString()));
+            .andExpect(jsonPath("$.comment").value(DEFAULT_COMMENT.toString()))
+            .andExpect(jsonPath("$.progress").value(DEFAULT_PROGRESS.intValue()))
+            .andExpect(jsonPath("$.parameters").value(DEFAULT_PARAMETERS.toString()))
+            .andExpect(jsonPath("$.attempts").value(DEFAULT_ATTEMPTS));
     }
 
     @Test
@@ -631,6 +671,150 @@ public class ReportGenerationResourceIntTest {
         defaultReportGenerationShouldNotBeFound("comment.specified=false");
     }
 
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByProgressIsEqualToSomething() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where progress equals to DEFAULT_PROGRESS
+        defaultReportGenerationShouldBeFound("progress.equals=" + DEFAULT_PROGRESS);
+
+        // Get all the reportGenerationList where progress equals to UPDATED_PROGRESS
+        defaultReportGenerationShouldNotBeFound("progress.equals=" + UPDATED_PROGRESS);
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByProgressIsInShouldWork() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where progress in DEFAULT_PROGRESS or UPDATED_PROGRESS
+        defaultReportGenerationShouldBeFound("progress.in=" + DEFAULT_PROGRESS + "," + UPDATED_PROGRESS);
+
+        // Get all the reportGenerationList where progress equals to UPDATED_PROGRESS
+        defaultReportGenerationShouldNotBeFound("progress.in=" + UPDATED_PROGRESS);
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByProgressIsNullOrNotNull() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where progress is not null
+        defaultReportGenerationShouldBeFound("progress.specified=true");
+
+        // Get all the reportGenerationList where progress is null
+        defaultReportGenerationShouldNotBeFound("progress.specified=false");
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByProgressIsGreaterThanOrEqualToSomething() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where progress greater than or equals to DEFAULT_PROGRESS
+        defaultReportGenerationShouldBeFound("progress.greaterOrEqualThan=" + DEFAULT_PROGRESS);
+
+        // Get all the reportGenerationList where progress greater than or equals to UPDATED_PROGRESS
+        defaultReportGenerationShouldNotBeFound("progress.greaterOrEqualThan=" + UPDATED_PROGRESS);
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByProgressIsLessThanSomething() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where progress less than or equals to DEFAULT_PROGRESS
+        defaultReportGenerationShouldNotBeFound("progress.lessThan=" + DEFAULT_PROGRESS);
+
+        // Get all the reportGenerationList where progress less than or equals to UPDATED_PROGRESS
+        defaultReportGenerationShouldBeFound("progress.lessThan=" + UPDATED_PROGRESS);
+    }
+
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByParametersIsEqualToSomething() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where parameters equals to DEFAULT_PARAMETERS
+        defaultReportGenerationShouldBeFound("parameters.equals=" + DEFAULT_PARAMETERS);
+
+        // Get all the reportGenerationList where parameters equals to UPDATED_PARAMETERS
+        defaultReportGenerationShouldNotBeFound("parameters.equals=" + UPDATED_PARAMETERS);
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByParametersIsInShouldWork() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where parameters in DEFAULT_PARAMETERS or UPDATED_PARAMETERS
+        defaultReportGenerationShouldBeFound("parameters.in=" + DEFAULT_PARAMETERS + "," + UPDATED_PARAMETERS);
+
+        // Get all the reportGenerationList where parameters equals to UPDATED_PARAMETERS
+        defaultReportGenerationShouldNotBeFound("parameters.in=" + UPDATED_PARAMETERS);
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByParametersIsNullOrNotNull() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where parameters is not null
+        defaultReportGenerationShouldBeFound("parameters.specified=true");
+
+        // Get all the reportGenerationList where parameters is null
+        defaultReportGenerationShouldNotBeFound("parameters.specified=false");
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByAttemptsIsEqualToSomething() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where attempts equals to DEFAULT_ATTEMPTS
+        defaultReportGenerationShouldBeFound("attempts.equals=" + DEFAULT_ATTEMPTS);
+
+        // Get all the reportGenerationList where attempts equals to UPDATED_ATTEMPTS
+        defaultReportGenerationShouldNotBeFound("attempts.equals=" + UPDATED_ATTEMPTS);
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByAttemptsIsNullOrNotNull() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where attempts is not null
+        defaultReportGenerationShouldBeFound("attempts.specified=true");
+
+        // Get all the reportGenerationList where attempts is null
+        defaultReportGenerationShouldNotBeFound("attempts.specified=false");
+    }
+
+    @Test
+    @Transactional
+    public void getAllReportGenerationsByLeaseOwnerIsNullOrNotNull() throws Exception {
+        // Initialize the database
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        // Get all the reportGenerationList where leaseOwner is null
+        defaultReportGenerationShouldBeFound("leaseOwner.specified=false");
+
+        // Get all the reportGenerationList where leaseOwner is not null
+        defaultReportGenerationShouldNotBeFound("leaseOwner.specified=true");
+    }
+
     @Test
     @Transactional
     public void getAllReportGenerationsByReportIsEqualToSomething() throws Exception {
@@ -666,7 +850,10 @@ public class ReportGenerationResourceIntTest {
             .andExpect(jsonPath("$.[*].creator").value(hasItem(DEFAULT_CREATOR.toString())))
             .andExpect(jsonPath("$.[*].startedOn").value(hasItem(DEFAULT_STARTED_ON.toString())))
             .andExpect(jsonPath("$.[*].completionDate").value(hasItem(DEFAULT_COMPLETION_DATE.toString())))
-            .andExpect(jsonPath("$.[*].comment").value(hasItem(DEFAULT_COMMENT.toString())));
+            .andExpect(jsonPath("$.[*].comment").value(hasItem(DEFAULT_COMMENT.toString())))
+            .andExpect(jsonPath("$.[*].progress").value(hasItem(DEFAULT_PROGRESS.intValue())))
+            .andExpect(jsonPath("$.[*].parameters").value(hasItem(DEFAULT_PARAMETERS.toString())))
+            .andExpect(jsonPath("$.[*].attempts").value(hasItem(DEFAULT_ATTEMPTS)));
     }
 
     /**
@@ -688,6 +875,144 @@ public class ReportGenerationResourceIntTest {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    @WithMockUser(DEFAULT_CREATOR)
+    public void downloadReportGenerationFile() throws Exception {
+        Path outputDirectory = Files.createDirectories(Paths.get(applicationProperties.getReport().getOutputDirectory()));
+        Path file = Files.createTempFile(outputDirectory, "report", ".csv");
+        try {
+            Files.write(file, "a,b\r\n".getBytes(StandardCharsets.UTF_8));
+            reportGeneration.status(ReportGenerationStatus.GENERATED).fileType(ReportFileType.CSV).fullPath(file.toString());
+            reportGenerationRepository.saveAndFlush(reportGeneration);
+
+            // Get the whole file
+            MvcResult whole = restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restReportGenerationMockMvc.perform(asyncDispatch(whole))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(content().string("a,b\r\n"));
+
+            // Resume it
+            MvcResult rest = restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId())
+                .header(HttpHeaders.RANGE, "bytes=2-"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restReportGenerationMockMvc.perform(asyncDispatch(rest))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/5"))
+                .andExpect(content().string("b\r\n"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("watcher")
+    public void watchReportGenerationEvents() throws Exception {
+        MvcResult result = restReportGenerationMockMvc.perform(get("/api/report-generations/events")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        reportGenerationEventBroadcaster.onReportGenerationEvent(
+            new ReportGenerationEvent(2L, "other", ReportGenerationStatus.GENERATING, 5L, null));
+        reportGenerationEventBroadcaster.onReportGenerationEvent(
+            new ReportGenerationEvent(1L, "watcher", ReportGenerationStatus.GENERATING, 10L, null));
+
+        // sent from the thread of the broadcaster, in order
+        String content = "";
+        for (int i = 0; i < 50 && !content.contains("\"id\":1"); i++) {
+            Thread.sleep(100);
+            content = result.getResponse().getContentAsString();
+        }
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+        assertThat(content).contains("event:report-generation", "\"id\":1", "\"progress\":10", "\"status\":\"GENERATING\"")
+            .doesNotContain("\"id\":2");
+        result.getRequest().getAsyncContext().complete();
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser(DEFAULT_CREATOR)
+    public void downloadReportGenerationFileOutsideTheOutputDirectory() throws Exception {
+        Path outputDirectory = Files.createDirectories(Paths.get(applicationProperties.getReport().getOutputDirectory()))
+            .toAbsolutePath();
+        Path file = Files.createTempFile("report", ".csv").toAbsolutePath();
+        try {
+            Files.write(file, "a,b\r\n".getBytes(StandardCharsets.UTF_8));
+            reportGeneration.status(ReportGenerationStatus.GENERATED).fileType(ReportFileType.CSV).fullPath(file.toString());
+            reportGenerationRepository.saveAndFlush(reportGeneration);
+
+            restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId()))
+                .andExpect(status().isNotFound());
+
+            // nor by climbing out of the output directory
+            reportGeneration.fullPath(outputDirectory.resolve(outputDirectory.relativize(file)).toString());
+            reportGenerationRepository.saveAndFlush(reportGeneration);
+
+            restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId()))
+                .andExpect(status().isNotFound());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("other")
+    public void downloadReportGenerationFileOfAnotherUser() throws Exception {
+        Path outputDirectory = Files.createDirectories(Paths.get(applicationProperties.getReport().getOutputDirectory()));
+        Path file = Files.createTempFile(outputDirectory, "report", ".csv");
+        try {
+            Files.write(file, "a,b\r\n".getBytes(StandardCharsets.UTF_8));
+            reportGeneration.status(ReportGenerationStatus.GENERATED).fileType(ReportFileType.CSV).fullPath(file.toString());
+            reportGenerationRepository.saveAndFlush(reportGeneration);
+
+            restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId()))
+                .andExpect(status().isNotFound());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser(username = "admin", authorities = AuthoritiesConstants.ADMIN)
+    public void downloadReportGenerationFileOfAnotherUserAsAdmin() throws Exception {
+        Path outputDirectory = Files.createDirectories(Paths.get(applicationProperties.getReport().getOutputDirectory()));
+        Path file = Files.createTempFile(outputDirectory, "report", ".csv");
+        try {
+            Files.write(file, "a,b\r\n".getBytes(StandardCharsets.UTF_8));
+            reportGeneration.status(ReportGenerationStatus.GENERATED).fileType(ReportFileType.CSV).fullPath(file.toString());
+            reportGenerationRepository.saveAndFlush(reportGeneration);
+
+            MvcResult result = restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restReportGenerationMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("a,b\r\n"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser(DEFAULT_CREATOR)
+    public void downloadNotGeneratedReportGenerationFile() throws Exception {
+        reportGeneration.status(ReportGenerationStatus.PENDING).fullPath(null);
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        restReportGenerationMockMvc.perform(get("/api/report-generations/{id}/file", reportGeneration.getId()))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void updateReportGeneration() throws Exception {
@@ -710,7 +1035,10 @@ public class ReportGenerationResourceIntTest {
             .creator(UPDATED_CREATOR)
             .startedOn(UPDATED_STARTED_ON)
             .completionDate(UPDATED_COMPLETION_DATE)
-            .comment(UPDATED_COMMENT);
+            .comment(UPDATED_COMMENT)
+            .progress(UPDATED_PROGRESS)
+            .parameters(UPDATED_PARAMETERS)
+            .attempts(UPDATED_ATTEMPTS);
         ReportGenerationDTO reportGenerationDTO = reportGenerationMapper.toDto(updatedReportGeneration);
 
         restReportGenerationMockMvc.perform(put("/api/report-generations")
@@ -723,15 +1051,81 @@ public class ReportGenerationResourceIntTest {
         assertThat(reportGenerationList).hasSize(databaseSizeBeforeUpdate);
         ReportGeneration testReportGeneration = reportGenerationList.get(reportGenerationList.size() - 1);
         assertThat(testReportGeneration.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
-        assertThat(testReportGeneration.getStatus()).isEqualTo(UPDATED_STATUS);
+        // the status, the lock, the run and the file stay the engine's, the creator and creation date stay
+        assertThat(testReportGeneration.getStatus()).isEqualTo(DEFAULT_STATUS);
         assertThat(testReportGeneration.getFileType()).isEqualTo(UPDATED_FILE_TYPE);
-        assertThat(testReportGeneration.getFullPath()).isEqualTo(UPDATED_FULL_PATH);
-        assertThat(testReportGeneration.isIsLocked()).isEqualTo(UPDATED_IS_LOCKED);
-        assertThat(testReportGeneration.getCreationDate()).isEqualTo(UPDATED_CREATION_DATE);
-        assertThat(testReportGeneration.getCreator()).isEqualTo(UPDATED_CREATOR);
-        assertThat(testReportGeneration.getStartedOn()).isEqualTo(UPDATED_STARTED_ON);
-        assertThat(testReportGeneration.getCompletionDate()).isEqualTo(UPDATED_COMPLETION_DATE);
-        assertThat(testReportGeneration.getComment()).isEqualTo(UPDATED_COMMENT);
+        assertThat(testReportGeneration.getFullPath()).isEqualTo(DEFAULT_FULL_PATH);
+        assertThat(testReportGeneration.isIsLocked()).isEqualTo(DEFAULT_IS_LOCKED);
+        assertThat(testReportGeneration.getCreationDate()).isEqualTo(DEFAULT_CREATION_DATE);
+        assertThat(testReportGeneration.getCreator()).isEqualTo(DEFAULT_CREATOR);
+        assertThat(testReportGeneration.getStartedOn()).isEqualTo(DEFAULT_STARTED_ON);
+        assertThat(testReportGeneration.getCompletionDate()).isEqualTo(DEFAULT_COMPLETION_DATE);
+        assertThat(testReportGeneration.getComment()).isEqualTo(DEFAULT_COMMENT);
+        assertThat(testReportGeneration.getProgress()).isEqualTo(DEFAULT_PROGRESS);
+        assertThat(testReportGeneration.getParameters()).isEqualTo(UPDATED_PARAMETERS);
+        assertThat(testReportGeneration.getAttempts()).isEqualTo(DEFAULT_ATTEMPTS);
+    }
+
+    @Test
+    @Transactional
+    public void updateReportGenerationKeepsItsLeaseAndCheckpoint() throws Exception {
+        Instant leaseExpiresOn = Instant.now().plusSeconds(60).truncatedTo(ChronoUnit.MILLIS);
+        Instant retryOn = Instant.now().plusSeconds(120).truncatedTo(ChronoUnit.MILLIS);
+        reportGeneration.leaseOwner("node-1").leaseExpiresOn(leaseExpiresOn).retryOn(retryOn)
+            .checkpointRows(10L).checkpointOffset(100L);
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+
+        ReportGeneration updatedReportGeneration = reportGenerationRepository.findById(reportGeneration.getId()).get();
+        em.detach(updatedReportGeneration);
+        updatedReportGeneration
+            .description(UPDATED_DESCRIPTION)
+            .leaseOwner("node-2")
+            .leaseExpiresOn(leaseExpiresOn.plusSeconds(3600))
+            .attempts(UPDATED_ATTEMPTS)
+            .retryOn(null)
+            .checkpointRows(20L)
+            .checkpointOffset(200L);
+        ReportGenerationDTO reportGenerationDTO = reportGenerationMapper.toDto(updatedReportGeneration);
+
+        restReportGenerationMockMvc.perform(put("/api/report-generations")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(reportGenerationDTO)))
+            .andExpect(status().isOk());
+
+        // the client can't take the job from its node or move its checkpoint
+        ReportGeneration testReportGeneration = reportGenerationRepository.findById(reportGeneration.getId()).get();
+        assertThat(testReportGeneration.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
+        assertThat(testReportGeneration.getLeaseOwner()).isEqualTo("node-1");
+        assertThat(testReportGeneration.getLeaseExpiresOn()).isEqualTo(leaseExpiresOn);
+        assertThat(testReportGeneration.getAttempts()).isEqualTo(DEFAULT_ATTEMPTS);
+        assertThat(testReportGeneration.getRetryOn()).isEqualTo(retryOn);
+        assertThat(testReportGeneration.getCheckpointRows()).isEqualTo(10L);
+        assertThat(testReportGeneration.getCheckpointOffset()).isEqualTo(100L);
+    }
+
+    @Test
+    @Transactional
+    public void updateReportGenerationClaimedMeanwhileStaysClaimed() throws Exception {
+        reportGenerationRepository.saveAndFlush(reportGeneration);
+        // the client read the job pending, then the engine claimed it
+        ReportGenerationDTO reportGenerationDTO = reportGenerationMapper.toDto(reportGeneration);
+        reportGenerationDTO.setDescription(UPDATED_DESCRIPTION);
+        reportGenerationDTO.setIsLocked(false);
+        Instant leaseExpiresOn = Instant.now().plusSeconds(60).truncatedTo(ChronoUnit.MILLIS);
+        assertThat(reportGenerationRepository.claim(reportGeneration.getId(), ReportGenerationStatus.PENDING,
+            ReportGenerationStatus.GENERATING, Instant.now(), "node-1", leaseExpiresOn)).isEqualTo(1);
+
+        restReportGenerationMockMvc.perform(put("/api/report-generations")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(reportGenerationDTO)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value(ReportGenerationStatus.GENERATING.toString()));
+
+        ReportGeneration testReportGeneration = reportGenerationRepository.findById(reportGeneration.getId()).get();
+        assertThat(testReportGeneration.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
+        assertThat(testReportGeneration.getStatus()).isEqualTo(ReportGenerationStatus.GENERATING);
+        assertThat(testReportGeneration.isIsLocked()).isTrue();
+        assertThat(testReportGeneration.getLeaseOwner()).isEqualTo("node-1");
     }
 
     @Test
@@ -26,6 +26,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.Instant;
 import java.util.List;
 
 
@@ -53,6 +54,11 @@ public class ReportResourceIntTest {
     private static final Integer DEFAULT_DISPLAY_ORDER = 1;
     private static final Integer UPDATED_DISPLAY_ORDER = 2;
 
+    private static final String DEFAULT_SCHEDULE = "0 0 2 * * *";
+    private static final String UPDATED_SCHEDULE = "0 30 3 * * MON-FRI";
+
+    private static final Instant DEFAULT_NEXT_RUN_ON = Instant.ofEpochMilli(0L);
+
     @Autowired
     private ReportRepository reportRepository;
 
@@ -104,7 +110,9 @@ public class ReportResourceIntTest {
         Report report = new Report()
             .name(DEFAULT_NAME)
             .description(DEFAULT_DESCRIPTION)
-            .displayOrder(DEFAULT_DISPLAY_ORDER);
+            .displayOrder(DEFAULT_DISPLAY_ORDER)
+            .schedule(DEFAULT_SCHEDULE)
+            .nextRunOn(DEFAULT_NEXT_RUN_ON);
         return report;
     }
 
@@ -132,6 +140,27 @@ public class ReportResourceIntTest {
         assertThat(testReport.getName()).isEqualTo(DEFAULT_NAME);
         assertThat(testReport.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
         assertThat(testReport.getDisplayOrder()).isEqualTo(DEFAULT_DISPLAY_ORDER);
+        assertThat(testReport.getSchedule()).isEqualTo(DEFAULT_SCHEDULE);
+        // left to the scheduler
+        assertThat(testReport.getNextRunOn()).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void createReportWithInvalidSchedule() throws Exception {
+        int databaseSizeBeforeCreate = reportRepository.findAll().size();
+
+        report.setSchedule("every night");
+        ReportDTO reportDTO = reportMapper.toDto(report);
+
+        restReportMockMvc.perform(post("/api/reports")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(reportDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidschedule"));
+
+        List<Report> reportList = reportRepository.findAll();
+        assertThat(reportList).hasSize(databaseSizeBeforeCreate);
     }
 
     @Test
@@ -167,7 +196,9 @@ public class ReportResourceIntTest {
             .andExpect(jsonPath("$.[*].id").value(hasItem(report.getId().intValue())))
             .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME.toString())))
             .andExpect(jsonPath("$.[*].description").value(hasItem(DEFAULT_DESCRIPTION.toString())))
-            .andExpect(jsonPath("$.[*].displayOrder").value(hasItem(DEFAULT_DISPLAY_ORDER)));
+            .andExpect(jsonPath("$.[*].displayOrder").value(hasItem(DEFAULT_DISPLAY_ORDER)))
+            .andExpect(jsonPath("$.[*].schedule").value(hasItem(DEFAULT_SCHEDULE)))
+            .andExpect(jsonPath("$.[*].nextRunOn").value(hasItem(DEFAULT_NEXT_RUN_ON.toString())));
     }
     
 
@@ -184,7 +215,9 @@ public class ReportResourceIntTest {
             .andExpect(jsonPath("$.id").value(report.getId().intValue()))
             .andExpect(jsonPath("$.name").value(DEFAULT_NAME.toString()))
             .andExpect(jsonPath("$.description").value(DEFAULT_DESCRIPTION.toString()))
-            .andExpect(jsonPath("$.displayOrder").value(DEFAULT_DISPLAY_ORDER));
+            .andExpect(jsonPath("$.displayOrder").value(DEFAULT_DISPLAY_ORDER))
+            .andExpect(jsonPath("$.schedule").value(DEFAULT_SCHEDULE))
+            .andExpect(jsonPath("$.nextRunOn").value(DEFAULT_NEXT_RUN_ON.toString()));
     }
 
     @Test
@@ -330,6 +363,19 @@ public class ReportResourceIntTest {
         defaultReportShouldBeFound("displayOrder.lessThan=" + UPDATED_DISPLAY_ORDER);
     }
 
+    @Test
+    @Transactional
+    public void getAllReportsByScheduleIsNullOrNotNull() throws Exception {
+        // Initialize the database
+        reportRepository.saveAndFlush(report);
+
+        // Get all the reportList where schedule is not null
+        defaultReportShouldBeFound("schedule.specified=true");
+
+        // Get all the reportList where schedule is null
+        defaultReportShouldNotBeFound("schedule.specified=false");
+    }
+
     /**
      * Executes the search, and checks that the default entity is returned
      */
@@ -377,7 +423,8 @@ public class ReportResourceIntTest {
         updatedReport
             .name(UPDATED_NAME)
             .description(UPDATED_DESCRIPTION)
-            .displayOrder(UPDATED_DISPLAY_ORDER);
+            .displayOrder(UPDATED_DISPLAY_ORDER)
+            .schedule(UPDATED_SCHEDULE);
         ReportDTO reportDTO = reportMapper.toDto(updatedReport);
 
         restReportMockMvc.perform(put("/api/reports")
@@ -392,6 +439,32 @@ public class ReportResourceIntTest {
         assertThat(testReport.getName()).isEqualTo(UPDATED_NAME);
         assertThat(testReport.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
         assertThat(testReport.getDisplayOrder()).isEqualTo(UPDATED_DISPLAY_ORDER);
+        assertThat(testReport.getSchedule()).isEqualTo(UPDATED_SCHEDULE);
+        // the run of the former schedule is dropped
+        assertThat(testReport.getNextRunOn()).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void updateReportKeepsTheNextRunOfItsSchedule() throws Exception {
+        // Initialize the database
+        reportRepository.saveAndFlush(report);
+
+        Report updatedReport = reportRepository.findById(report.getId()).get();
+        em.detach(updatedReport);
+        updatedReport
+            .name(UPDATED_NAME)
+            .nextRunOn(Instant.now());
+        ReportDTO reportDTO = reportMapper.toDto(updatedReport);
+
+        restReportMockMvc.perform(put("/api/reports")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(reportDTO)))
+            .andExpect(status().isOk());
+
+        Report testReport = reportRepository.findById(report.getId()).get();
+        assertThat(testReport.getName()).isEqualTo(UPDATED_NAME);
+        assertThat(testReport.getNextRunOn()).isEqualTo(DEFAULT_NEXT_RUN_ON);
     }
 
     @Test
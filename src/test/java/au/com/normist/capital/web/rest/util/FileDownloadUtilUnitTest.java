@@ -0,0 +1,170 @@
+package au.com.normist.capital.web.rest.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @see FileDownloadUtil
+ */
+public class FileDownloadUtilUnitTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    private MockHttpServletRequest request;
+
+    @Before
+    public void setup() throws IOException {
+        file = folder.newFile("1.csv").toPath();
+        Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+        request = new MockHttpServletRequest("GET", "/api/report-generations/1/file");
+    }
+
+    @Test
+    public void downloadWholeFileTest() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = download(false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(10);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeaders().getETag()).isNotNull();
+        assertThat(response.getHeaders().getLastModified()).isPositive();
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"1.csv\"");
+        assertThat(body(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void downloadMissingFileTest() throws IOException {
+        Files.delete(file);
+
+        assertThat(download(false).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void downloadRangeTest() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        ResponseEntity<StreamingResponseBody> response = download(false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(4);
+        assertThat(body(response)).isEqualTo("2345");
+    }
+
+    @Test
+    public void downloadSuffixAndOpenRangesTest() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        assertThat(body(download(false))).isEqualTo("789");
+
+        request = new MockHttpServletRequest("GET", "/api/report-generations/1/file");
+        request.addHeader(HttpHeaders.RANGE, "bytes=7-");
+        assertThat(body(download(false))).isEqualTo("789");
+    }
+
+    @Test
+    public void downloadUnsatisfiableRangeTest() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+
+        ResponseEntity<StreamingResponseBody> response = download(false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    public void downloadRangeOfChangedFileTest() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"changed\"");
+
+        ResponseEntity<StreamingResponseBody> response = download(false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void downloadNotModifiedTest() throws IOException {
+        String etag = download(false).getHeaders().getETag();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        ResponseEntity<StreamingResponseBody> response = download(false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    public void downloadNotModifiedSinceTest() throws IOException {
+        long lastModified = download(false).getHeaders().getLastModified();
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+
+        assertThat(download(false).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    public void downloadGzippedTest() throws IOException {
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip");
+
+        ResponseEntity<StreamingResponseBody> response = download(true);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                unzipped.write(buffer, 0, read);
+            }
+            assertThat(new String(unzipped.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+        }
+    }
+
+    @Test
+    public void downloadNotGzippedTest() throws IOException {
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0");
+        assertThat(download(true).getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+
+        request = new MockHttpServletRequest("GET", "/api/report-generations/1/file");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        ResponseEntity<StreamingResponseBody> response = download(true);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(body(response)).isEqualTo("01");
+    }
+
+    private ResponseEntity<StreamingResponseBody> download(boolean compressible) throws IOException {
+        return FileDownloadUtil.download(request, file, MediaType.TEXT_PLAIN, "1.csv", compressible);
+    }
+
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
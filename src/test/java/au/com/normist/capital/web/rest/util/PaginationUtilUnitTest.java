@@ -2,6 +2,7 @@ package au.com.normist.capital.web.rest.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -41,4 +42,19 @@ public class PaginationUtilUnitTest {
         assertTrue(Long.valueOf(xTotalCountHeaders.get(0)).equals(400L));
     }
 
+    @Test
+    public void generateKeysetPaginationHttpHeadersTest() {
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders("MDAwMDEzMA", 50, "/api/capital/stocks");
+        List<String> strHeaders = headers.get(HttpHeaders.LINK);
+        assertNotNull(strHeaders);
+        assertEquals("</api/capital/stocks?cursor=MDAwMDEzMA&size=50>; rel=\"next\","
+                + "</api/capital/stocks?size=50>; rel=\"first\"", strHeaders.get(0));
+        assertNull(headers.get("X-Total-Count"));
+    }
+
+    @Test
+    public void generateKeysetPaginationHttpHeadersOfLastPageTest() {
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(null, 50, "/api/capital/stocks");
+        assertEquals("</api/capital/stocks?size=50>; rel=\"first\"", headers.getFirst(HttpHeaders.LINK));
+    }
 }
@@ -7,7 +7,7 @@ import { ActivatedRoute, Data } from '@angular/router';
 import { CapitalappTestModule } from '../../../test.module';
 import { ReportGenerationComponent } from 'app/entities/report-generation/report-generation.component';
 import { ReportGenerationService } from 'app/entities/report-generation/report-generation.service';
-import { ReportGeneration } from 'app/shared/model/report-generation.model';
+import { ReportGeneration, ReportGenerationStatus } from 'app/shared/model/report-generation.model';
 
 describe('Component Tests', () => {
     describe('ReportGeneration Management Component', () => {
@@ -43,6 +43,7 @@ describe('Component Tests', () => {
             fixture = TestBed.createComponent(ReportGenerationComponent);
             comp = fixture.componentInstance;
             service = fixture.debugElement.injector.get(ReportGenerationService);
+            spyOn(service, 'events').and.returnValue(of());
         });
 
         it('Should call load all on init', () => {
@@ -65,6 +66,26 @@ describe('Component Tests', () => {
             expect(comp.reportGenerations[0]).toEqual(jasmine.objectContaining({ id: 123 }));
         });
 
+        it('Should update a job from a pushed event', () => {
+            // GIVEN
+            const headers = new HttpHeaders().append('link', 'link;link');
+            spyOn(service, 'query').and.returnValue(
+                of(
+                    new HttpResponse({
+                        body: [new ReportGeneration(123)],
+                        headers
+                    })
+                )
+            );
+            (service.events as jasmine.Spy).and.returnValue(of({ id: 123, status: ReportGenerationStatus.GENERATING, progress: 42 }));
+
+            // WHEN
+            comp.ngOnInit();
+
+            // THEN
+            expect(comp.reportGenerations[0]).toEqual(jasmine.objectContaining({ id: 123, status: 'GENERATING', progress: 42 }));
+        });
+
         it('should load a page', () => {
             // GIVEN
             const headers = new HttpHeaders().append('link', 'link;link');
@@ -4,6 +4,7 @@ import { HttpClientTestingModule, HttpTestingController } from '@angular/common/
 import { ReportGenerationService } from 'app/entities/report-generation/report-generation.service';
 import { ReportGeneration } from 'app/shared/model/report-generation.model';
 import { SERVER_API_URL } from 'app/app.constants';
+import { AuthServerProvider } from 'app/core';
 
 describe('Service Tests', () => {
     describe('ReportGeneration Service', () => {
@@ -13,7 +14,8 @@ describe('Service Tests', () => {
 
         beforeEach(() => {
             TestBed.configureTestingModule({
-                imports: [HttpClientTestingModule]
+                imports: [HttpClientTestingModule],
+                providers: [{ provide: AuthServerProvider, useValue: { getToken: () => null } }]
             });
             injector = getTestBed();
             service = injector.get(ReportGenerationService);
@@ -5,7 +5,7 @@ import { HttpClientTestingModule } from '@angular/common/http/testing';
 import { NgbActiveModal, NgbModal } from '@ng-bootstrap/ng-bootstrap';
 import { JhiDataUtils, JhiDateUtils, JhiEventManager, JhiAlertService, JhiParseLinks } from 'ng-jhipster';
 
-import { Principal, AccountService, LoginModalService } from 'app/core';
+import { Principal, AccountService, LoginModalService, AuthServerProvider } from 'app/core';
 import { MockPrincipal } from './helpers/mock-principal.service';
 import { MockAccountService } from './helpers/mock-account.service';
 import { MockActivatedRoute, MockRouter } from './helpers/mock-route.service';
@@ -46,6 +46,10 @@ import { MockEventManager } from './helpers/mock-event-manager.service';
             provide: LoginModalService,
             useValue: null
         },
+        {
+            provide: AuthServerProvider,
+            useValue: { getToken: () => null }
+        },
         {
             provide: ElementRef,
             useValue: null